@@ -1,29 +1,42 @@
 package com.lordsofmidnight.ai;
 
+import com.lordsofmidnight.ai.mapping.MapAnalysis;
 import com.lordsofmidnight.ai.mapping.Mapping;
+import com.lordsofmidnight.ai.routefinding.AnytimeRouteFinder;
+import com.lordsofmidnight.ai.routefinding.AttractionField;
+import com.lordsofmidnight.ai.routefinding.CooperativePlanner;
+import com.lordsofmidnight.ai.routefinding.FlowField;
 import com.lordsofmidnight.ai.routefinding.RouteFinder;
 import com.lordsofmidnight.ai.routefinding.SampleSearch;
-import com.lordsofmidnight.ai.routefinding.routefinders.AStarRouteFinder;
+import com.lordsofmidnight.ai.routefinding.routefinders.CooperativeRouteFinder;
 import com.lordsofmidnight.ai.routefinding.routefinders.MipsManRouteFinder;
+import com.lordsofmidnight.ai.routefinding.routefinders.MonteCarloRouteFinder;
 import com.lordsofmidnight.ai.routefinding.routefinders.NextJunctionRouteFinder;
 import com.lordsofmidnight.ai.routefinding.routefinders.PowerUpBoxPatrolRouteFinder;
 import com.lordsofmidnight.ai.routefinding.routefinders.RandomRouteFinder;
+import com.lordsofmidnight.ai.routefinding.routefinders.RoutingTableRouteFinder;
 import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.maps.OccupancyGrid;
 import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.gamestate.points.PointSet;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
 import com.lordsofmidnight.objects.powerUps.PowerUp;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.Input;
 import com.lordsofmidnight.utils.Methods;
+import com.lordsofmidnight.utils.enums.Difficulty;
 import com.lordsofmidnight.utils.enums.Direction;
 import com.lordsofmidnight.utils.enums.PowerUps;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Control class for all AI.
@@ -42,18 +55,52 @@ public class AILoopControl extends Thread {
   private static final int OPPOSITE_DIRECTION_DIVISOR =
       4; // the probability as 1/OPPOSITE_DIRECTION_DIVISOR of travelling in the opposite direction
   // to previous direciton of travel
-  private static final long SLEEP_TIME = 1; // how long to sleep between full AI agent cycle
+  private static final long IDLE_TIMEOUT =
+      100_000_000; // nanoseconds to wait for a wake up signal before running a cycle regardless
+  public static final long DEFAULT_CYCLE_BUDGET =
+      5_000_000; // nanoseconds each cycle may spend searching before agents fall back to their
+  // current direction
+  public static final Difficulty DEFAULT_DIFFICULTY = Difficulty.NORMAL;
+  private static final int LOAD_WINDOW = 100; // cycles the overruns are counted over
+  private static final int STEP_DOWN_OVERRUNS =
+      5; // overruns within a window that step down to a cheaper difficulty
+  private static final int STEP_UP_WINDOWS =
+      5; // consecutive windows without an overrun before stepping back up a difficulty
 
   private final ArrayList<Entity> controlAgents; // agents controlled by AI
   private final PointSet
       junctions; // all the junctions on the map, including 90 degree corners and dead ends
-  private final PointMap<PointSet>
-      edges; // all connedtions between directly adjacent junctions on the map, not uncluding loops
-  // around the map boundaries
+  private final MapAnalysis analysis; // the junctions and valid moves of the map, shared by all AI
+  private volatile RoutingTableRouteFinder
+      routingTable; // shortest routes between all junctions, shared by all route finders
+  private final FlowField mipsmanField; // distances to MIPSman, shared by all chasing agents
+  private final CooperativePlanner
+      ghoulPlanner; // plans the routes of all chasing agents along mipsmanField together
+  private final CooperativeRouteFinder
+      chaseRouteFinder; // follows ghoulPlanner, shared by all chasing agents
+  private final Point[] chaseLocations; // the location of each chasing agent this cycle
+  private final Direction[] chaseDirections; // the direction of each chasing agent this cycle
+  private final AttractionField
+      powerUpBoxField; // attraction of active power up boxes, shared by all route finders
   private final BlockingQueue<Input> directionsOut; // output queue for game instructions
   private final Map map; // the map being played on
   private final Entity[] gameAgents; // all agents present in the game
   private final PointMap<Pellet> pellets; // the locations of all pellets in the game
+  private final OccupancyGrid occupancy; // the agents within each grid square
+  private final boolean refreshOccupancy; // if the AI must update occupancy itself each cycle
+  private final ThreadLocal<SampleSearch>
+      sampleSearches; // one search for each thread deciding directions, reused by every power up
+  // search
+  private final ForkJoinPool decisionPool; // evaluates the decisions of all agents in parallel
+  private final SampleSearch.ConditionalInterface invincibleAgentCondition;
+  private final SampleSearch.ConditionalInterface mipsmanProximityCondition;
+  private final GameRandom random; // the stream the random streams of each agent are split from
+  private final GameRandom[] agentRandoms; // random numbers for each agent, by gameAgents index
+  private final AIMetrics metrics; // latencies and counters of every decision
+  private final AtomicLong cycleOverruns; // cycles that took longer than the budget
+  private final AtomicLong budgetFallbacks; // agents not searched for as the budget had run out
+  private final AtomicLong difficultyStepDowns; // times the difficulty was lowered under load
+  private final RouteFinderRegistry routeFinders; // the route finders of each difficulty
 
   private ArrayList<Entity>
       newClient; // list of clients to be given AI control when the current full AI agent cycle
@@ -62,8 +109,20 @@ public class AILoopControl extends Thread {
       removeClient; // list of clients to have AI control removed when the current full AI agent
   // cycle completes
 
-  private boolean runAILoop; // will run the AI loop until false
+  private volatile boolean runAILoop; // will run the AI loop until false
+  private volatile boolean parallelDecisions; // if decisions are evaluated in the decisionPool
+  private volatile boolean woken; // if a wake up signal has arrived since the last cycle started
   private Entity mipsman; // the index of mipsmanID in the gameAgents array
+  private volatile Point
+      cycleTarget; // the position of mipsman in the snapshot being decided on this cycle
+  private volatile long cycleBudget; // nanoseconds each cycle may spend searching
+  private volatile long cycleDeadline; // System.nanoTime() by which this cycle's searches must end
+  private volatile Difficulty difficulty; // the difficulty chosen for the game
+  private volatile boolean difficultyChanged; // if the chosen difficulty is yet to be applied
+  private volatile Difficulty activeDifficulty; // the difficulty played at, lowered under load
+  private int windowCycles; // cycles run in the current load window
+  private int windowOverruns; // cycles over budget in the current load window
+  private int calmWindows; // consecutive load windows without an overrun
 
   /**
    * Initialises the object prior to the AI loop being executed.
@@ -87,54 +146,233 @@ public class AILoopControl extends Thread {
       Map map,
       BlockingQueue<Input> directionsOut,
       PointMap<Pellet> pellets) {
+    this(
+        gameAgents,
+        controlIds,
+        map,
+        directionsOut,
+        pellets,
+        new OccupancyGrid(map),
+        true,
+        new GameRandom());
+  }
+
+  /**
+   * Initialises the object prior to the AI loop being executed, reading agent positions from an
+   * {@link OccupancyGrid} that is kept up to date by the physics.
+   *
+   * @param gameAgents The complete set of all entities that are controlled (by AI or players) in
+   * the game.
+   * @param controlIds The set of main Ids that the AI will control.
+   * @param map The map the game is being played on.
+   * @param directionsOut The {@link BlockingQueue}<{@link Input}> That processes all agent
+   * direction instructions.
+   * @param pellets The {@link PointMap}<{@link Pellet}> that will hold all pellets in the current
+   * game.
+   * @param occupancy The grid of agent positions, updated every physics tick.
+   * @throws IllegalArgumentException gameAgent array contains duplicate main IDs.
+   * @throws IllegalStateException Cannot have more than one mipsman.
+   * @throws IllegalStateException The control ID does not match an agent main ID.
+   * @author Lewis Ackroyd
+   */
+  public AILoopControl(
+      Entity[] gameAgents,
+      int[] controlIds,
+      Map map,
+      BlockingQueue<Input> directionsOut,
+      PointMap<Pellet> pellets,
+      OccupancyGrid occupancy) {
+    this(gameAgents, controlIds, map, directionsOut, pellets, occupancy, new GameRandom());
+  }
+
+  /**
+   * Initialises the object prior to the AI loop being executed, reading agent positions from an
+   * {@link OccupancyGrid} that is kept up to date by the physics and drawing every random decision
+   * from the given source, so that a match started from the same seed plays out the same way.
+   *
+   * @param gameAgents The complete set of all entities that are controlled (by AI or players) in
+   * the game.
+   * @param controlIds The set of main Ids that the AI will control.
+   * @param map The map the game is being played on.
+   * @param directionsOut The {@link BlockingQueue}<{@link Input}> That processes all agent
+   * direction instructions.
+   * @param pellets The {@link PointMap}<{@link Pellet}> that will hold all pellets in the current
+   * game.
+   * @param occupancy The grid of agent positions, updated every physics tick.
+   * @param random The source of random numbers for the AI, which must not be used elsewhere.
+   * @throws IllegalArgumentException gameAgent array contains duplicate main IDs.
+   * @throws IllegalStateException Cannot have more than one mipsman.
+   * @throws IllegalStateException The control ID does not match an agent main ID.
+   * @author Lewis Ackroyd
+   */
+  public AILoopControl(
+      Entity[] gameAgents,
+      int[] controlIds,
+      Map map,
+      BlockingQueue<Input> directionsOut,
+      PointMap<Pellet> pellets,
+      OccupancyGrid occupancy,
+      GameRandom random) {
+    this(gameAgents, controlIds, map, directionsOut, pellets, occupancy, false, random);
+  }
+
+  /**
+   * Initialises the object prior to the AI loop being executed.
+   *
+   * @param gameAgents The complete set of all entities in the game.
+   * @param controlIds The set of main Ids that the AI will control.
+   * @param map The map the game is being played on.
+   * @param directionsOut The queue that processes all agent direction instructions.
+   * @param pellets The pellets in the current game.
+   * @param occupancy The grid of agent positions.
+   * @param refreshOccupancy If the AI must update the grid itself at the start of each cycle.
+   * @param random The source of random numbers for the AI.
+   * @author Lewis Ackroyd
+   */
+  private AILoopControl(
+      Entity[] gameAgents,
+      int[] controlIds,
+      Map map,
+      BlockingQueue<Input> directionsOut,
+      PointMap<Pellet> pellets,
+      OccupancyGrid occupancy,
+      boolean refreshOccupancy,
+      GameRandom random) {
     validateAgents(gameAgents);
     this.setDaemon(true);
     this.runAILoop = true;
     this.gameAgents = gameAgents;
     this.controlAgents = new ArrayList<>();
-    this.junctions = Mapping.getJunctions(map);
-    this.edges = Mapping.getEdges(map, junctions);
+    this.analysis = MapAnalysis.of(map);
+    this.junctions = analysis.getJunctions();
+    this.routingTable = analysis.getRoutingTable();
+    this.mipsmanField = new FlowField(map);
+    this.ghoulPlanner = new CooperativePlanner(mipsmanField);
+    this.chaseRouteFinder = new CooperativeRouteFinder(ghoulPlanner);
+    this.chaseLocations = new Point[gameAgents.length];
+    this.chaseDirections = new Direction[gameAgents.length];
     this.directionsOut = directionsOut;
     this.map = map;
     this.pellets = pellets;
+    this.powerUpBoxField =
+        new AttractionField(
+            map,
+            pellets,
+            AttractionField.ACTIVE_POWER_UP_BOXES,
+            MipsManRouteFinder.POWER_UP_BOX_SEARCH_DEPTH,
+            PowerUpBoxPatrolRouteFinder.SEARCH_DEPTH,
+            PowerUpBoxPatrolRouteFinder.AVOID_DEPTH);
+    this.occupancy = occupancy;
+    this.refreshOccupancy = refreshOccupancy;
+    if (refreshOccupancy) {
+      occupancy.update(gameAgents);
+    }
+    this.sampleSearches =
+        ThreadLocal.withInitial(
+            () ->
+                new SampleSearch(
+                    Math.max(INVINCIBILITY_AVOID_DISTANCE, SPEED_POWER_UP_ACTIVATE_DEPTH), map));
+    this.decisionPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    this.invincibleAgentCondition = new InvincibleAgentCondition();
+    this.mipsmanProximityCondition = new MipsmanProximityCondition();
+    this.random = random;
+    this.agentRandoms = new GameRandom[gameAgents.length];
+    for (int i = 0; i < agentRandoms.length; i++) {
+      agentRandoms[i] = random.split();
+    }
+    this.metrics = new AIMetrics(gameAgents);
+    this.cycleOverruns = new AtomicLong();
+    this.budgetFallbacks = new AtomicLong();
+    this.difficultyStepDowns = new AtomicLong();
+    this.routeFinders = new RouteFinderRegistry(metrics);
+    this.cycleBudget = DEFAULT_CYCLE_BUDGET;
+    this.parallelDecisions = true;
     this.newClient = new ArrayList<>();
     this.removeClient = new ArrayList<>();
     assignControlEntities(controlIds);
 
-    generateRouteFinders();
-    correctMipsmanRouteFinder();
+    registerRouteFinders();
+    this.difficulty = DEFAULT_DIFFICULTY;
+    applyDifficulty(DEFAULT_DIFFICULTY);
+  }
+
+  /**
+   * Reports that the pellet at the given position may have been collected, respawned or replaced,
+   * so that route finders see the change from the next cycle. Safe to call from any thread.
+   *
+   * @param location The position of the pellet
+   * @author Lewis Ackroyd
+   */
+  public void pelletChanged(Point location) {
+    powerUpBoxField.pelletChanged(location);
   }
 
   /**
-   * Produces all valid directions from the current position.
+   * Reports that the pellet in the given grid square may have changed, as {@link
+   * #pelletChanged(Point)}. Safe to call from any thread.
+   *
+   * @param cell The cell index of the grid square
+   * @author Lewis Ackroyd
+   */
+  public void pelletChanged(int cell) {
+    powerUpBoxField.pelletChanged(cell);
+  }
+
+  /**
+   * Reports that any pellet may have changed, such as when a power up places pellets of its own.
+   * Every pellet is checked at the start of the next cycle. Safe to call from any thread.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void pelletsChanged() {
+    powerUpBoxField.pelletsChanged();
+  }
+
+  /**
+   * Produces all valid directions from the current position, centring the position if it is not
+   * already centred.
    *
    * @param p The current position.
-   * @param map The current map.
-   * @return The list of all valid directions.
+   * @return A mask with bit {@link Direction#toInt()} set for each valid direction.
    * @author Lewis Ackroyd
    */
-  private static final ArrayList<Direction> getValidDirections(Point p, Map map) {
+  private int getValidDirections(Point p) {
     if (!p.isCentered()) {
-      p = p.centralise();
-    }
-    ArrayList<Direction> validDirections = new ArrayList<>();
-    if (Methods.validateDirection(Direction.UP, p, map)) {
-      validDirections.add(Direction.UP);
-    }
-    if (Methods.validateDirection(Direction.DOWN, p, map)) {
-      validDirections.add(Direction.DOWN);
-    }
-    if (Methods.validateDirection(Direction.LEFT, p, map)) {
-      validDirections.add(Direction.LEFT);
+      p.centralise();
     }
-    if (Methods.validateDirection(Direction.RIGHT, p, map)) {
-      validDirections.add(Direction.RIGHT);
+    return analysis.getValidDirections(p);
+  }
+
+  /**
+   * @param direction The direction, may be null
+   * @return The bit of the direction in a mask of valid directions, or 0 if there is none
+   */
+  private static int directionBit(Direction direction) {
+    return (direction == null || !direction.isMovementDirection()) ? 0 : 1 << direction.toInt();
+  }
+
+  /**
+   * Gives a direction from a mask of valid directions, counting in the order of {@link
+   * Direction#MOVEMENT_DIRECTIONS}.
+   *
+   * @param validDirections The mask of valid directions
+   * @param index The index of the direction, less than the number of directions in the mask
+   * @return The direction at the index
+   * @author Lewis Ackroyd
+   */
+  private static Direction getValidDirection(int validDirections, int index) {
+    for (Direction direction : Direction.MOVEMENT_DIRECTIONS) {
+      if ((validDirections & directionBit(direction)) != 0 && index-- == 0) {
+        return direction;
+      }
     }
-    return validDirections;
+    throw new IllegalArgumentException("The index is not that of a valid direction.");
   }
 
   /**
-   * The AI execution loop
+   * The AI execution loop. A cycle is run whenever {@link #wake()} is called, and the thread is
+   * parked in between, so no time is spent while no agent is at a point where it needs a new
+   * direction. If no signal arrives within {@link #IDLE_TIMEOUT} a cycle is run regardless.
    *
    * @author Lewis Ackroyd
    */
@@ -143,47 +381,238 @@ public class AILoopControl extends Thread {
     System.out.println("Starting AI loop...");
 
     while (runAILoop) {
-      for (Entity ent : controlAgents) { // for all game agents
-        Point currentLocation = ent.getLocation().getCopy();
-        Point currentGridLocation = currentLocation.getGridCoord();
-        if (currentLocation.isCentered()
-            || !ent.getDirection()
-            .isMovementDirection()) { // only when in the centre of a grid square or if
-          // direction is not a movement direction
-          boolean atLastCoord = atPreviousCoordinate(ent, currentGridLocation);
-          if (!ent.getDirection().isMovementDirection() // direction is not a movement direction
-              || !Methods.validateDirection(ent.getDirection(), currentLocation, map)
-              || // movement direction is no longer valid
-              (junctions.contains(currentGridLocation)
-                  && !atLastCoord)) { // at a junction, but not the last coordinate
-            generateNewDirection(ent, currentLocation, currentGridLocation, atLastCoord);
-          }
-          if (!atLastCoord) {
-            processPowerUps(ent, currentGridLocation);
-          }
-        }
+      woken = false; // signals that arrive during the cycle cause another cycle
+      runCycle();
+      if (!woken) {
+        LockSupport.parkNanos(this, IDLE_TIMEOUT);
       }
+      if (Thread.interrupted()) {
+        runAILoop = false;
+      }
+    }
+    decisionPool.shutdown();
+    metrics.dump(System.out);
+    System.out.println("AI safely terminated.");
+  }
 
-      correctMipsmanRouteFinder();
+  /**
+   * Runs a single cycle of the AI, producing a new direction for every controlled agent that needs
+   * one.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void runCycle() {
+    long cycleStart = System.nanoTime();
+    cycleDeadline = cycleStart + cycleBudget;
+    if (refreshOccupancy) {
+      occupancy.update(gameAgents);
+      powerUpBoxField.pelletsChanged(); // no changes are reported without a shared grid
+    }
+    powerUpBoxField.update();
+    WorldSnapshot snapshot = new WorldSnapshot(gameAgents, mipsman, map);
+    cycleTarget = snapshot.getTargetLocation();
+    if (cycleTarget != null) {
+      mipsmanField.update(cycleTarget); // only rebuilt when MIPSman changes square
+    }
+    planChase(snapshot);
+    int[] controlIndices = new int[controlAgents.size()];
+    for (int i = 0; i < controlIndices.length; i++) {
+      controlIndices[i] = indexOf(controlAgents.get(i));
+    }
+    Decision[] decisions = new Decision[controlIndices.length];
+    if (parallelDecisions && decisions.length > 1) {
+      decisionPool.invoke(
+          new DecisionTask(snapshot, controlIndices, decisions, 0, decisions.length));
+    } else {
+      for (int i = 0; i < decisions.length; i++) {
+        decisions[i] = decide(snapshot, controlIndices[i]);
+      }
+    }
+    publish(decisions);
+    boolean overran = System.nanoTime() - cycleStart > cycleBudget;
+    if (overran) {
+      cycleOverruns.incrementAndGet();
+    }
+    adjustDifficulty(overran);
 
-      updateControlList();
+    correctMipsmanRouteFinder();
 
-      try {
-        Thread.sleep(SLEEP_TIME);
-      } catch (InterruptedException e) {
-        runAILoop = false;
+    updateControlList();
+  }
+
+  /**
+   * Plans the routes of every agent using the shared {@link CooperativeRouteFinder} together, so
+   * that one search against a shared reservation table replaces a search for each agent and the
+   * agents spread out rather than following each other.
+   *
+   * @param snapshot The state of all agents at the start of this cycle
+   * @author Lewis Ackroyd
+   */
+  private void planChase(WorldSnapshot snapshot) {
+    int count = 0;
+    for (int i = 0; i < snapshot.getAgentCount(); i++) {
+      if (snapshot.getRouteFinder(i) == chaseRouteFinder) {
+        chaseLocations[count] = snapshot.getLocation(i);
+        chaseDirections[count] = snapshot.getDirection(i);
+        count++;
       }
     }
-    System.out.println("AI safely terminated.");
+    if (count > 0) {
+      long start = System.nanoTime();
+      ghoulPlanner.plan(chaseLocations, chaseDirections, count, cycleDeadline);
+      metrics.recordRoute(CooperativeRouteFinder.class, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Sets the time each cycle may spend searching for routes. Agents not yet searched for once it
+   * has passed keep their current direction, and searches in progress return the best direction
+   * found so far.
+   *
+   * @param cycleBudget The budget of each cycle in nanoseconds
+   * @throws IllegalArgumentException The budget is not positive.
+   * @author Lewis Ackroyd
+   */
+  public void setCycleBudget(long cycleBudget) throws IllegalArgumentException {
+    if (cycleBudget <= 0) {
+      throw new IllegalArgumentException("Cycle budget must be positive.");
+    }
+    this.cycleBudget = cycleBudget;
+  }
+
+  /**
+   * Sets the side length of map from which routes are found by hierarchical route finding, on maps
+   * with too many junctions for a routing table. The route finders built on the routing table are
+   * created again, and replaced as for {@link #setDifficulty(Difficulty)}.
+   *
+   * @param hierarchicalMapSize The side length, {@link
+   *     RoutingTableRouteFinder#DEFAULT_HIERARCHICAL_MAP_SIZE} by default
+   * @throws IllegalArgumentException The size is not positive.
+   * @author Lewis Ackroyd
+   */
+  public void setHierarchicalMapSize(int hierarchicalMapSize) throws IllegalArgumentException {
+    this.routingTable = analysis.getRoutingTable(hierarchicalMapSize);
+    routeFinders.reset(Difficulty.NORMAL); // the only tier built on the routing table
+    if (isAlive()) {
+      this.difficultyChanged = true;
+      wake();
+    } else {
+      applyDifficulty(difficulty);
+    }
+  }
+
+  /** @return The time each cycle may spend searching for routes, in nanoseconds */
+  public long getCycleBudget() {
+    return cycleBudget;
+  }
+
+  /** @return The number of cycles that took longer than the cycle budget */
+  public long getCycleOverruns() {
+    return cycleOverruns.get();
+  }
+
+  /** @return The number of agents given no route search as the cycle budget had run out */
+  public long getBudgetFallbacks() {
+    return budgetFallbacks.get();
+  }
+
+  /**
+   * Sets the difficulty of the AI, which decides the {@link RouteFinder}s given to the agents. If
+   * the AI loop is running, the change is applied at the end of the current cycle. While the AI
+   * keeps running over its cycle budget it steps down to cheaper difficulties, and returns to the
+   * chosen difficulty once the load has passed.
+   *
+   * @param difficulty The difficulty to play at
+   * @throws IllegalArgumentException No route finders are registered for the difficulty.
+   * @author Lewis Ackroyd
+   */
+  public void setDifficulty(Difficulty difficulty) throws IllegalArgumentException {
+    if (difficulty == null || !routeFinders.isRegistered(difficulty)) {
+      throw new IllegalArgumentException("No route finders registered for " + difficulty + ".");
+    }
+    this.difficulty = difficulty;
+    if (isAlive()) {
+      this.difficultyChanged = true;
+      wake();
+    } else { // no cycle is running, so the route finders can be replaced now
+      applyDifficulty(difficulty);
+    }
+  }
+
+  /** @return The difficulty chosen for the game */
+  public Difficulty getDifficulty() {
+    return difficulty;
+  }
+
+  /** @return The difficulty currently played at, which is lower than chosen while under load */
+  public Difficulty getActiveDifficulty() {
+    return activeDifficulty;
+  }
+
+  /** @return The number of times the difficulty was lowered as cycles ran over budget */
+  public long getDifficultyStepDowns() {
+    return difficultyStepDowns.get();
+  }
+
+  /**
+   * The registry the route finders of each difficulty are taken from. Route finders registered for
+   * a difficulty are used from the next time that difficulty is applied.
+   *
+   * @return The registry of route finders
+   */
+  public RouteFinderRegistry getRouteFinderRegistry() {
+    return routeFinders;
+  }
+
+  /** @return The latencies and counters of every decision made so far */
+  public AIMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Sets if the decisions of the agents are evaluated in parallel. When many games are run at once
+   * each should decide on its own thread only, so the games rather than the agents share the
+   * processors. The {@link MonteCarloRouteFinder} searches in the same pool, with a worker per
+   * processor, or with a single worker on the deciding thread if decisions are not parallel, so
+   * the {@link Difficulty#HARD} route finders are created again and replaced as for {@link
+   * #setDifficulty(Difficulty)}.
+   *
+   * @param parallelDecisions True to evaluate decisions on a thread per processor
+   * @author Lewis Ackroyd
+   */
+  public void setParallelDecisions(boolean parallelDecisions) {
+    this.parallelDecisions = parallelDecisions;
+    routeFinders.reset(Difficulty.HARD); // the only tier built on the pool
+    if (isAlive()) {
+      this.difficultyChanged = true;
+      wake();
+    } else {
+      applyDifficulty(difficulty);
+    }
+  }
+
+  /**
+   * Signals that at least one agent has reached the centre of a grid square or no longer has a
+   * valid direction, so the AI should run a cycle as soon as possible.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void wake() {
+    woken = true;
+    LockSupport.unpark(this);
   }
 
   /**
-   * Terminates the AI loop
+   * Terminates the AI loop, shutting down the pool decisions are made in
    *
    * @author Lewis Ackroyd
    */
   public boolean killAI() {
     runAILoop = false;
+    LockSupport.unpark(this);
+    if (!isAlive()) { // the loop shuts the pool down as it ends otherwise
+      decisionPool.shutdown();
+    }
     return isAlive();
   }
 
@@ -225,6 +654,7 @@ public class AILoopControl extends Thread {
       }
     }
     newClient.add(entity);
+    wake();
     return true;
   }
 
@@ -240,6 +670,7 @@ public class AILoopControl extends Thread {
     for (Entity ent : controlAgents) {
       if (ent.getClientId() == id) {
         removeClient.add(ent);
+        wake();
         return true;
       }
     }
@@ -277,20 +708,24 @@ public class AILoopControl extends Thread {
   }
 
   /**
-   * Produces a new {@link Direction} for the specified entity and outputs this to the inputs
-   * queue.
+   * Produces a new {@link Direction} for the specified agent and records it in the decision.
    *
-   * @param ent The entity currently being processed
-   * @param currentLocation The absolute position of the given {@link Entity} at the start of
-   * processing
-   * @param currentGridLocation The grid position of the given {@link Entity} at the start of
-   * processing
-   * @param atLastCoord If the {@link Entity} is at the same coordinate as the last time a route was
+   * @param snapshot The state of all agents at the start of this cycle
+   * @param agent The index of the agent currently being processed
+   * @param decision The decision being produced for the agent
+   * @param currentLocation The absolute position of the agent at the start of processing
+   * @param currentGridLocation The grid position of the agent at the start of processing
+   * @param atLastCoord If the agent is at the same coordinate as the last time a route was
    * calculated
    * @author Lewis Ackroyd
    */
   private void generateNewDirection(
-      Entity ent, Point currentLocation, Point currentGridLocation, boolean atLastCoord) {
+      WorldSnapshot snapshot,
+      int agent,
+      Decision decision,
+      Point currentLocation,
+      Point currentGridLocation,
+      boolean atLastCoord) {
     if (atLastCoord
         || !junctions.contains(
         currentGridLocation)) { // direction invalid, produce a random valid direction
@@ -300,17 +735,26 @@ public class AILoopControl extends Thread {
       if (!nearestJunction.equals(currentGridLocation)) { // go to nearest junction
         dir = Mapping.directionBetweenPoints(currentLocation, nearestJunction);
       } else { // generate random direction to travel in from current location
-        dir = new RandomRouteFinder().getRoute(currentLocation, mipsman.getLocation());
+        metrics.recordRandomFallback();
+        long start = System.nanoTime();
+        dir =
+            new RandomRouteFinder(agentRandoms[agent])
+                .getRoute(currentLocation, snapshot.getTargetLocation());
+        metrics.recordRoute(RandomRouteFinder.class, System.nanoTime() - start);
       }
       dir =
-          confirmOrReplaceDirection(ent.getDirection(), currentLocation, dir); // validate direction
-      setDirection(dir, ent);
+          confirmOrReplaceDirection(
+              snapshot.getDirection(agent),
+              currentLocation,
+              dir,
+              agentRandoms[agent]); // validate direction
+      decision.direction = dir;
 
     } else {
-      ent.setLastGridCoord(
-          currentGridLocation); // prevents multiple directions being produced for the same grid
+      decision.lastGridCoord =
+          currentGridLocation; // prevents multiple directions being produced for the same grid
       // coordinate
-      executeRoute(ent, currentLocation);
+      executeRoute(snapshot, agent, decision, currentLocation);
     }
   }
 
@@ -343,73 +787,97 @@ public class AILoopControl extends Thread {
   }
 
   /**
-   * Initialises the {@link RouteFinder}s for every game agent, regardless of whether it is AI
-   * controlled or not.
+   * Registers the {@link RouteFinder}s of every difficulty, assigned by agent index regardless of
+   * whether the agent is AI controlled or not. At {@link Difficulty#EASY} all are {@link
+   * RandomRouteFinder}s. At {@link Difficulty#HARD} all are the shared {@link
+   * CooperativeRouteFinder} chasing MIPSman, with the exception of one {@link
+   * MonteCarloRouteFinder}.
    *
    * @author Lewis Ackroyd
    */
-  private void generateRouteFinders() {
-    for (int i = 0; i < gameAgents.length; i++) {
-      RouteFinder routeFinder;
-      switch (i) {
-        case 0: {
-          routeFinder = new MipsManRouteFinder(pellets, gameAgents, map);
-          break;
-        }
-        case 1: {
-          routeFinder = new AStarRouteFinder(junctions, edges, map);
-          break;
-        }
-        case 2: {
-          routeFinder = new NextJunctionRouteFinder(gameAgents, map, junctions, edges);
-          break;
-        }
-        case 3: {
-          routeFinder = new PowerUpBoxPatrolRouteFinder(map, pellets);
-          break;
-        }
-        default: {
-          routeFinder = new RandomRouteFinder();
-          break;
-        }
-      }
-      gameAgents[i].setRouteFinder(routeFinder);
-    }
+  private void registerRouteFinders() {
+    routeFinders.register(Difficulty.EASY, agent -> new RandomRouteFinder(random.split()));
+    routeFinders.register(
+        Difficulty.NORMAL,
+        agent -> new MipsManRouteFinder(gameAgents, map, occupancy, powerUpBoxField),
+        agent -> chaseRouteFinder,
+        agent -> new NextJunctionRouteFinder(gameAgents, map, junctions, routingTable),
+        agent -> new PowerUpBoxPatrolRouteFinder(powerUpBoxField),
+        agent -> new RandomRouteFinder(random.split()));
+    routeFinders.register(
+        Difficulty.HARD,
+        agent ->
+            new MonteCarloRouteFinder(
+                gameAgents,
+                map,
+                pellets,
+                parallelDecisions ? decisionPool : null,
+                parallelDecisions ? decisionPool.getParallelism() : 1,
+                MonteCarloRouteFinder.DEFAULT_BUDGET_MILLIS,
+                random.split()),
+        agent -> chaseRouteFinder);
   }
 
   /**
-   * Initialises the {@link RouteFinder}s for every game agent, regardless of whether it is AI
-   * controlled or not. All {@link RouteFinder}s are {@link RandomRouteFinder}.
+   * Gives every game agent the {@link RouteFinder} of its index at the given difficulty, then
+   * moves the MIPSman route finder to MIPSman.
    *
+   * @param difficulty The difficulty to play at
    * @author Lewis Ackroyd
    */
-  private void generateEasyRouteFinders() {
+  private synchronized void applyDifficulty(Difficulty difficulty) {
+    RouteFinder[] assigned = routeFinders.getRouteFinders(difficulty, gameAgents.length);
     for (int i = 0; i < gameAgents.length; i++) {
-      gameAgents[i].setRouteFinder(new RandomRouteFinder());
+      gameAgents[i].setRouteFinder(assigned[i]);
     }
+    activeDifficulty = difficulty;
+    correctMipsmanRouteFinder();
   }
 
   /**
-   * Initialises the {@link RouteFinder}s for every game agent, regardless of whether it is AI
-   * controlled or not. All {@link RouteFinder}s are {@link AStarRouteFinder}, with the exception of
-   * one {@link MipsManRouteFinder}.
+   * Applies a newly chosen difficulty, or adjusts the difficulty to the load. The cycles are
+   * counted in windows of {@link #LOAD_WINDOW}, and the difficulty steps down to a cheaper one as
+   * soon as {@link #STEP_DOWN_OVERRUNS} cycles in a window have run over budget. After {@link
+   * #STEP_UP_WINDOWS} consecutive windows without an overrun it steps back up towards the chosen
+   * difficulty.
    *
+   * @param overran If the cycle just completed took longer than the budget
    * @author Lewis Ackroyd
    */
-  private void generateHardRouteFinders() {
-    for (int i = 0; i < gameAgents.length; i++) {
-      RouteFinder routeFinder;
-      switch (i) {
-        case 0: {
-          routeFinder = new MipsManRouteFinder(pellets, gameAgents, map);
-          break;
-        }
-        default: {
-          routeFinder = new AStarRouteFinder(junctions, edges, map);
-          break;
-        }
+  private void adjustDifficulty(boolean overran) {
+    if (difficultyChanged) {
+      difficultyChanged = false;
+      windowCycles = 0;
+      windowOverruns = 0;
+      calmWindows = 0;
+      applyDifficulty(difficulty);
+      return;
+    }
+    windowCycles++;
+    if (overran && ++windowOverruns >= STEP_DOWN_OVERRUNS) {
+      windowCycles = 0;
+      windowOverruns = 0;
+      calmWindows = 0;
+      Difficulty cheaper = routeFinders.getCheaper(activeDifficulty);
+      if (cheaper != null) {
+        difficultyStepDowns.incrementAndGet();
+        applyDifficulty(cheaper);
       }
-      gameAgents[i].setRouteFinder(routeFinder);
+      return;
+    }
+    if (windowCycles < LOAD_WINDOW) {
+      return;
+    }
+    calmWindows = (windowOverruns == 0) ? calmWindows + 1 : 0;
+    windowCycles = 0;
+    windowOverruns = 0;
+    if (activeDifficulty != difficulty && calmWindows >= STEP_UP_WINDOWS) {
+      calmWindows = 0;
+      Difficulty harder = activeDifficulty.harder();
+      while (harder != difficulty && !routeFinders.isRegistered(harder)) {
+        harder = harder.harder();
+      }
+      applyDifficulty(harder);
     }
   }
 
@@ -439,6 +907,15 @@ public class AILoopControl extends Thread {
     }
   }
 
+  /**
+   * @param routeFinder The route finder being checked
+   * @return True if the route finder is made to control MIPSman
+   */
+  private static boolean isMipsmanRouteFinder(RouteFinder routeFinder) {
+    return routeFinder.getClass() == MipsManRouteFinder.class
+        || routeFinder.getClass() == MonteCarloRouteFinder.class;
+  }
+
   /**
    * Corrects the {@link RouteFinder}s after a collision between mipsman and a ghoul.
    *
@@ -451,7 +928,7 @@ public class AILoopControl extends Thread {
       if (ent.isMipsman()) {
         mipsman = ent;
       }
-      if (ent.getRouteFinder().getClass() == MipsManRouteFinder.class) {
+      if (isMipsmanRouteFinder(ent.getRouteFinder())) {
         mipsmanRoute = ent;
       }
     }
@@ -464,21 +941,40 @@ public class AILoopControl extends Thread {
   }
 
   /**
-   * Executes the {@link RouteFinder} associated with the given {@link Entity}. Validates the {@link
-   * Direction} produced and then outputs a valid {@link Direction}.
+   * Executes the {@link RouteFinder} associated with the given agent. Validates the {@link
+   * Direction} produced and then records a valid {@link Direction} in the decision. Once the cycle
+   * budget has run out the agent keeps its current direction instead, and an {@link
+   * AnytimeRouteFinder} is stopped at the end of the budget.
    *
-   * @param ent The current {@link Entity} who's route is being calculated.
-   * @param currentLocation The current location of this {@link Entity} when it began being
-   * processed.
+   * @param snapshot The state of all agents at the start of this cycle
+   * @param agent The index of the agent who's route is being calculated.
+   * @param decision The decision being produced for the agent
+   * @param currentLocation The current location of the agent when it began being processed.
    * @author Lewis Ackroyd
    */
-  private void executeRoute(Entity ent, Point currentLocation) {
-    RouteFinder r = ent.getRouteFinder();
-    Point mipsManLoc = mipsman.getLocation();
-    Direction direction = r.getRoute(currentLocation, mipsManLoc);
-    direction = accountForPowerUps(currentLocation, direction);
-    direction = confirmOrReplaceDirection(ent.getDirection(), currentLocation, direction);
-    setDirection(direction, ent);
+  private void executeRoute(
+      WorldSnapshot snapshot, int agent, Decision decision, Point currentLocation) {
+    long deadline = cycleDeadline;
+    Direction direction;
+    if (AnytimeRouteFinder.expired(deadline)) { // no time left this cycle, keep going the same way
+      budgetFallbacks.incrementAndGet();
+      direction = snapshot.getDirection(agent);
+    } else {
+      RouteFinder r = snapshot.getRouteFinder(agent);
+      Point mipsManLoc = snapshot.getTargetLocation();
+      long start = System.nanoTime();
+      if (r instanceof AnytimeRouteFinder) {
+        direction = ((AnytimeRouteFinder) r).getRoute(currentLocation, mipsManLoc, deadline);
+      } else {
+        direction = r.getRoute(currentLocation, mipsManLoc);
+      }
+      metrics.recordRoute(r.getClass(), System.nanoTime() - start);
+      direction = accountForPowerUps(currentLocation, direction, agentRandoms[agent]);
+    }
+    direction =
+        confirmOrReplaceDirection(
+            snapshot.getDirection(agent), currentLocation, direction, agentRandoms[agent]);
+    decision.direction = direction;
   }
 
   /**
@@ -487,11 +983,12 @@ public class AILoopControl extends Thread {
    *
    * @param position The position of the {@link Entity}.
    * @param direction The current direction of travel.
+   * @param random The source of random numbers for the agent.
    * @return The corrected direction.
    * @author Lewis Ackroyd
    */
-  private Direction accountForPowerUps(Point position, Direction direction) {
-    direction = invincibilityAdjust(position, direction);
+  private Direction accountForPowerUps(Point position, Direction direction, GameRandom random) {
+    direction = invincibilityAdjust(position, direction, random);
     return direction;
   }
 
@@ -501,49 +998,39 @@ public class AILoopControl extends Thread {
    *
    * @param position The current position
    * @param direction The direction that will be travelled in next currently
+   * @param random The source of random numbers for the agent
    * @return The adjusted direction.
    * @author Lewis Ackroyd
    */
-  private Direction invincibilityAdjust(Point position, Direction direction) {
-    class InvincibleAgentCondition implements SampleSearch.ConditionalInterface {
-
-      @Override
-      public boolean condition(Point position) {
-        for (Entity ent : gameAgents) {
-          if (ent.getLocation().getGridCoord().equals(position.getGridCoord())) {
-            if (ent.isInvincible()) {
-              return true;
-            }
-          }
-        }
-        return false;
-      }
-    }
-    int[] directionValues =
-        new SampleSearch(INVINCIBILITY_AVOID_DISTANCE, map)
-            .getDirectionCounts(position, new InvincibleAgentCondition());
-    Random r = new Random();
+  private Direction invincibilityAdjust(Point position, Direction direction, GameRandom random) {
+    int[] directionValues = {0, 0, 0, 0};
+    sampleSearches.get().getDirectionCounts(
+        position,
+        new SampleSearch.ConditionalInterface[] {invincibleAgentCondition},
+        new int[] {INVINCIBILITY_AVOID_DISTANCE},
+        new int[][] {directionValues},
+        cycleDeadline);
     int total = 0;
     for (int i : directionValues) {
       total += i;
     }
     if (total > 0) {
-      int probability = r.nextInt(total);
+      int probability = random.nextInt(total);
       probability -= directionValues[Direction.UP.toInt()];
       if (probability <= 0) {
-        direction = reRoll(Direction.UP, direction, position);
+        direction = reRoll(Direction.UP, direction, position, random);
       }
       probability -= directionValues[Direction.DOWN.toInt()];
       if (probability <= 0) {
-        direction = reRoll(Direction.DOWN, direction, position);
+        direction = reRoll(Direction.DOWN, direction, position, random);
       }
       probability -= directionValues[Direction.LEFT.toInt()];
       if (probability <= 0) {
-        direction = reRoll(Direction.LEFT, direction, position);
+        direction = reRoll(Direction.LEFT, direction, position, random);
       }
       probability -= directionValues[Direction.RIGHT.toInt()];
       if (probability <= 0) {
-        direction = reRoll(Direction.RIGHT, direction, position);
+        direction = reRoll(Direction.RIGHT, direction, position, random);
       }
     }
     return direction;
@@ -557,103 +1044,208 @@ public class AILoopControl extends Thread {
    * are available.
    * @param preferDirection The direction which will have the highest weight of being chosen.
    * @param currentLoc The current position.
+   * @param random The source of random numbers for the agent.
    * @return The re-rolled direction.
    * @author Lewis Ackroyd
    */
-  private Direction reRoll(Direction avoidDirection, Direction preferDirection, Point currentLoc) {
-    ArrayList<Direction> validDirections = getValidDirections(currentLoc, map);
-    if (validDirections.contains(avoidDirection) && validDirections.size() > 1) {
-      validDirections.remove(avoidDirection);
+  private Direction reRoll(
+      Direction avoidDirection, Direction preferDirection, Point currentLoc, GameRandom random) {
+    int validDirections = getValidDirections(currentLoc);
+    int count = Integer.bitCount(validDirections);
+    if ((validDirections & directionBit(avoidDirection)) != 0 && count > 1) {
+      validDirections &= ~directionBit(avoidDirection);
+      count--;
     }
-    if (validDirections.contains(preferDirection)) {
-      for (int i = 1; i < INVINCIBILITY_PREFER_MULTIPLIER; i++) {
-        validDirections.add(preferDirection);
-      }
+    int weight = count;
+    if ((validDirections & directionBit(preferDirection)) != 0) {
+      weight += INVINCIBILITY_PREFER_MULTIPLIER - 1;
     }
-    Random r = new Random();
-    int val = r.nextInt(validDirections.size());
-    return validDirections.get(val);
+    int val = random.nextInt(weight);
+    return (val < count) ? getValidDirection(validDirections, val) : preferDirection;
   }
 
   /**
-   * Will use the current {@link Entity Entities} {@link PowerUps PowerUps} with probability of 1/10
-   * at first attempted use, increasing by 1/10 in probability for every consecutive attempted use.
-   * Will use {@link PowerUps#SPEED Speed PowerUps} regardless if within {@link
+   * Will use the current agent's {@link PowerUps PowerUps} with probability of 1/10 at first
+   * attempted use, increasing by 1/10 in probability for every consecutive attempted use. Will use
+   * {@link PowerUps#SPEED Speed PowerUps} regardless if within {@link
    * #SPEED_POWER_UP_ACTIVATE_DEPTH} squares of MIPsman.
    *
-   * @param ent The current entity who's {@link PowerUps PowerUps} is being processed.
+   * @param snapshot The state of all agents at the start of this cycle
+   * @param agent The index of the agent who's {@link PowerUps PowerUps} is being processed.
+   * @param decision The decision being produced for the agent
    * @param currentLocation The current location.
    * @author Lewis Ackroyd
    */
-  private void processPowerUps(Entity ent, Point currentLocation) {
-    List<PowerUp> powerUpList = ent.getItems();
-    if (!powerUpList.isEmpty() && !ent.isPowerUpUsed()) {
-      Random r = new Random();
-      if (r.nextInt(POWER_UP_USE_PROBABILITY) > ent.powerUpUseAttempts()) {
-        ent.setPowerUpUsedFlag(true);
-        setDirection(Direction.USE, ent);
+  private void processPowerUps(
+      WorldSnapshot snapshot, int agent, Decision decision, Point currentLocation) {
+    PowerUps firstItem = snapshot.getFirstItem(agent);
+    if (firstItem != null && !snapshot.isPowerUpUsed(agent)) {
+      if (agentRandoms[agent].nextInt(POWER_UP_USE_PROBABILITY)
+          > snapshot.powerUpUseAttempts(agent)) {
+        decision.usePowerUp = true;
       } else {
-        try {
-          if (powerUpList.get(0).getType() == PowerUps.SPEED) {
-            class MipsmanProximityCondition implements SampleSearch.ConditionalInterface {
-
-              @Override
-              public boolean condition(Point position) {
-                return position.equals(mipsman.getLocation());
-              }
+        if (firstItem == PowerUps.SPEED) {
+          int[] mipsmanProximities = {0, 0, 0, 0};
+          sampleSearches
+              .get()
+              .getDirectionCounts(
+                  currentLocation,
+                  new SampleSearch.ConditionalInterface[] {mipsmanProximityCondition},
+                  new int[] {SPEED_POWER_UP_ACTIVATE_DEPTH},
+                  new int[][] {mipsmanProximities},
+                  cycleDeadline);
+          for (int i : mipsmanProximities) {
+            if (i > 0) {
+              decision.usePowerUp = true;
+              break;
             }
-            SampleSearch sampleSearch = new SampleSearch(SPEED_POWER_UP_ACTIVATE_DEPTH, map);
-            int[] mipsmanProximities =
-                sampleSearch.getDirectionCounts(currentLocation, new MipsmanProximityCondition());
-            for (int i : mipsmanProximities) {
-              if (i > 0) {
-                ent.setPowerUpUsedFlag(true);
-                setDirection(Direction.USE, ent);
-                break;
-              }
-            }
-          }
-          if (!ent.isPowerUpUsed()) {
-            ent.incrementPowerUpUseChance();
           }
-        } catch (NullPointerException | IndexOutOfBoundsException e) {
-        } // PowerUp removed whilst processing. Skip this cycle
+        }
+        if (!decision.usePowerUp) {
+          decision.incrementPowerUpUseChance = true;
+        }
       }
     }
   }
 
   /**
-   * Adds the specified direction to be processed by the server.
+   * Adds the specified direction to the batch to be processed by the server.
    *
    * @param direction The direction to be moved in.
    * @param ent The entity the direction is associated with.
+   * @param batch The directions being published this cycle.
    * @author Lewis Ackroyd
    */
-  private void setDirection(Direction direction, Entity ent) {
+  private void setDirection(Direction direction, Entity ent, List<Input> batch) {
     if (direction == null) {
       return;
     }
     if (direction != ent.getDirection() && !ent.isDirectionSet()) {
       ent.setDirectionSetFlag(true);
-      directionsOut.add(new Input(ent.getClientId(), direction));
+      batch.add(new Input(ent.getClientId(), direction));
     }
   }
 
   /**
-   * Determines if the current {@link Entity} is at the same coordinate as the last time it was
-   * checked in the AI loop.
+   * Decides what the given agent should do, based only on the state of the game in the snapshot.
+   * Safe to call for several agents at once on different threads.
    *
-   * @param ent The current entity.
-   * @param currentLocation The location of this {@link Entity} at the start of this AI process
-   * iteration.
-   * @return True if this {@link Entity} is at the same grid coordinate as in the last AI iteration.
+   * @param snapshot The state of all agents at the start of this cycle
+   * @param agent The index of the agent being decided for
+   * @return The decision for the agent, or null if the agent does not need a new direction
    * @author Lewis Ackroyd
    */
-  private boolean atPreviousCoordinate(Entity ent, Point currentLocation) {
-    if (ent.getLastGridCoord() == null) {
+  private Decision decide(WorldSnapshot snapshot, int agent) {
+    long start = System.nanoTime();
+    Decision decision;
+    try {
+      decision = makeDecision(snapshot, agent);
+    } catch (IllegalStateException e) { // the agent keeps its direction and is retried next cycle
+      metrics.recordRecovery();
+      return null;
+    }
+    if (decision != null) {
+      metrics.recordDecision(gameAgents[agent].getClientId(), System.nanoTime() - start);
+    }
+    return decision;
+  }
+
+  /**
+   * Decides what the given agent should do. An {@link IllegalStateException} from any route finder
+   * is passed on to {@link #decide(WorldSnapshot, int)}.
+   *
+   * @param snapshot The state of all agents at the start of this cycle
+   * @param agent The index of the agent being decided for
+   * @return The decision for the agent, or null if the agent does not need a new direction
+   * @author Lewis Ackroyd
+   */
+  private Decision makeDecision(WorldSnapshot snapshot, int agent) {
+    Point currentLocation = snapshot.getLocation(agent);
+    Point currentGridLocation = currentLocation.getGridCoord();
+    Direction direction = snapshot.getDirection(agent);
+    if (!currentLocation.isCentered()
+        && direction.isMovementDirection()) { // only when in the centre of a grid square or if
+      // direction is not a movement direction
+      return null;
+    }
+    Decision decision = new Decision();
+    boolean atLastCoord =
+        atPreviousCoordinate(snapshot.getLastGridCoord(agent), currentGridLocation);
+    if (!direction.isMovementDirection() // direction is not a movement direction
+        || !Methods.validateDirection(direction, currentLocation, map)
+        || // movement direction is no longer valid
+        (junctions.contains(currentGridLocation)
+            && !atLastCoord)) { // at a junction, but not the last coordinate
+      generateNewDirection(
+          snapshot, agent, decision, currentLocation, currentGridLocation, atLastCoord);
+    }
+    if (!atLastCoord) {
+      processPowerUps(snapshot, agent, decision, currentGridLocation);
+    }
+    return decision;
+  }
+
+  /**
+   * Applies the decisions made for every controlled agent this cycle, and publishes all resulting
+   * directions to the server together.
+   *
+   * @param decisions The decision for each agent in {@link #controlAgents}, null if none was made
+   * @author Lewis Ackroyd
+   */
+  private void publish(Decision[] decisions) {
+    List<Input> batch = new ArrayList<>();
+    for (int i = 0; i < decisions.length; i++) {
+      Decision decision = decisions[i];
+      if (decision == null) {
+        continue;
+      }
+      Entity ent = controlAgents.get(i);
+      if (decision.lastGridCoord != null) {
+        ent.setLastGridCoord(decision.lastGridCoord);
+      }
+      setDirection(decision.direction, ent, batch);
+      if (decision.usePowerUp) {
+        ent.setPowerUpUsedFlag(true);
+        setDirection(Direction.USE, ent, batch);
+      } else if (decision.incrementPowerUpUseChance) {
+        ent.incrementPowerUpUseChance();
+      }
+    }
+    if (!batch.isEmpty()) {
+      directionsOut.addAll(batch);
+    }
+  }
+
+  /**
+   * The index of the given agent in {@link #gameAgents}.
+   *
+   * @param ent The agent being found
+   * @return The index of the agent
+   * @author Lewis Ackroyd
+   */
+  private int indexOf(Entity ent) {
+    for (int i = 0; i < gameAgents.length; i++) {
+      if (gameAgents[i] == ent) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("The control agent is not a game agent.");
+  }
+
+  /**
+   * Determines if the current agent is at the same coordinate as the last time it was checked in
+   * the AI loop.
+   *
+   * @param lastGridCoord The last grid coordinate a route was produced at for this agent.
+   * @param currentLocation The location of this agent at the start of this AI process iteration.
+   * @return True if this agent is at the same grid coordinate as in the last AI iteration.
+   * @author Lewis Ackroyd
+   */
+  private boolean atPreviousCoordinate(Point lastGridCoord, Point currentLocation) {
+    if (lastGridCoord == null) {
       return false;
     }
-    return ent.getLastGridCoord().equals(currentLocation);
+    return lastGridCoord.equals(currentLocation);
   }
 
   /**
@@ -665,35 +1257,121 @@ public class AILoopControl extends Thread {
    * @param currentLocation The location of this {@link Entity} at the start of this AI process
    * iteration.
    * @param dir The current direction to be set next.
+   * @param random The source of random numbers for the agent.
    * @return The corrected direction.
    * @author Lewis Ackroyd
    */
   private Direction confirmOrReplaceDirection(
-      Direction oldDirection, Point currentLocation, Direction dir) {
-    ArrayList<Direction> validDirections = getValidDirections(currentLocation, map);
-    Random r = new Random();
-    if (validDirections.size() <= 0) {
+      Direction oldDirection, Point currentLocation, Direction dir, GameRandom random) {
+    int validDirections = getValidDirections(currentLocation);
+    if (validDirections == 0) {
       System.err.println("No directions can be travelled in.");
       return Direction.STOP;
     }
     if (!Methods.validateDirection(dir, currentLocation, map)) {
-      if (validDirections.size() > 0) {
-        int randI = r.nextInt(validDirections.size());
-        dir = validDirections.get(randI);
-      }
+      metrics.recordRandomFallback();
+      int randI = random.nextInt(Integer.bitCount(validDirections));
+      dir = getValidDirection(validDirections, randI);
     }
-    if ((oldDirection == null || oldDirection.getInverse() == dir) && validDirections.size() > 1) {
-      int randI = r.nextInt(OPPOSITE_DIRECTION_DIVISOR);
+    if ((oldDirection == null || oldDirection.getInverse() == dir)
+        && Integer.bitCount(validDirections) > 1) {
+      int randI = random.nextInt(OPPOSITE_DIRECTION_DIVISOR);
       if (randI == 0) {
         return dir;
       }
-      validDirections.remove(dir);
-      randI = r.nextInt(validDirections.size());
-      dir = validDirections.get(randI);
+      validDirections &= ~directionBit(dir);
+      randI = random.nextInt(Integer.bitCount(validDirections));
+      dir = getValidDirection(validDirections, randI);
     }
     if (!Methods.validateDirection(dir, currentLocation, map)) {
       throw new IllegalStateException("ERROR");
     }
     return dir;
   }
+
+  /**
+   * Condition met at any position occupied by an agent with invincibility active.
+   *
+   * @author Lewis Ackroyd
+   */
+  private class InvincibleAgentCondition implements SampleSearch.ConditionalInterface {
+
+    @Override
+    public boolean condition(Point position) {
+      return occupancy.containsInvincible(position);
+    }
+  }
+
+  /**
+   * Condition met at the position occupied by MIPSman.
+   *
+   * @author Lewis Ackroyd
+   */
+  private class MipsmanProximityCondition implements SampleSearch.ConditionalInterface {
+
+    @Override
+    public boolean condition(Point position) {
+      return position.equals(cycleTarget);
+    }
+  }
+
+  /**
+   * The outcome of deciding for a single agent, applied to the agent once all decisions for the
+   * cycle are complete.
+   *
+   * @author Lewis Ackroyd
+   */
+  private static class Decision {
+
+    private Direction direction; // the direction to travel in, or null to keep the current one
+    private Point lastGridCoord; // the grid coordinate a route was produced at, or null
+    private boolean usePowerUp; // if the agent should use its power up
+    private boolean incrementPowerUpUseChance; // if the power up was held but not used
+  }
+
+  /**
+   * Decides for a range of the controlled agents, splitting the range between threads of the
+   * {@link #decisionPool}.
+   *
+   * @author Lewis Ackroyd
+   */
+  private class DecisionTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final WorldSnapshot snapshot;
+    private final int[] agents; // the index of each controlled agent in the snapshot
+    private final Decision[] decisions;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param snapshot The state of all agents at the start of this cycle
+     * @param agents The index of each controlled agent in the snapshot
+     * @param decisions The array the decision for each controlled agent is written to
+     * @param from The first controlled agent to decide for
+     * @param to One past the last controlled agent to decide for
+     * @author Lewis Ackroyd
+     */
+    private DecisionTask(
+        WorldSnapshot snapshot, int[] agents, Decision[] decisions, int from, int to) {
+      this.snapshot = snapshot;
+      this.agents = agents;
+      this.decisions = decisions;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        decisions[from] = decide(snapshot, agents[from]);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(
+          new DecisionTask(snapshot, agents, decisions, from, mid),
+          new DecisionTask(snapshot, agents, decisions, mid, to));
+    }
+  }
 }
@@ -0,0 +1,182 @@
+package com.lordsofmidnight.ai;
+
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.objects.Entity;
+import com.lordsofmidnight.utils.LatencyHistogram;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and counters for the decisions made by an {@link AILoopControl}. Route
+ * searches are timed per {@link RouteFinder} class and whole decisions per agent. Everything may be
+ * recorded from several decision threads at once without locking, and queried at any time.
+ *
+ * @author Lewis Ackroyd
+ */
+public class AIMetrics {
+
+  private final ConcurrentHashMap<Class<? extends RouteFinder>, LatencyHistogram>
+      routeFinderLatencies; // time spent in getRoute, by route finder class
+  private final LatencyHistogram[] agentLatencies; // time spent deciding for each agent, by id
+  private final LongAdder decisions; // decisions that gave an agent new instructions
+  private final LongAdder randomFallbacks; // directions chosen at random as no route was usable
+  private final LongAdder recoveries; // decisions abandoned after an IllegalStateException
+
+  /**
+   * Creates empty metrics for the given agents.
+   *
+   * @param gameAgents Every agent in the game
+   * @author Lewis Ackroyd
+   */
+  public AIMetrics(Entity[] gameAgents) {
+    this(maxId(gameAgents) + 1);
+  }
+
+  /**
+   * Creates empty metrics for agents with main IDs from 0 up to, but not including, the given
+   * number.
+   *
+   * @param idCount The number of main IDs
+   * @author Lewis Ackroyd
+   */
+  public AIMetrics(int idCount) {
+    this.routeFinderLatencies = new ConcurrentHashMap<>();
+    this.agentLatencies = new LatencyHistogram[idCount];
+    for (int i = 0; i < agentLatencies.length; i++) {
+      agentLatencies[i] = new LatencyHistogram();
+    }
+    this.decisions = new LongAdder();
+    this.randomFallbacks = new LongAdder();
+    this.recoveries = new LongAdder();
+  }
+
+  /**
+   * @param gameAgents Every agent in the game
+   * @return The largest main ID of the agents
+   */
+  private static int maxId(Entity[] gameAgents) {
+    int maxId = 0;
+    for (Entity agent : gameAgents) {
+      maxId = Math.max(maxId, agent.getClientId());
+    }
+    return maxId;
+  }
+
+  /**
+   * Records the time taken by a single {@link RouteFinder#getRoute} call.
+   *
+   * @param routeFinder The class of the route finder that was called
+   * @param nanos The time taken in nanoseconds
+   * @author Lewis Ackroyd
+   */
+  void recordRoute(Class<? extends RouteFinder> routeFinder, long nanos) {
+    LatencyHistogram histogram = routeFinderLatencies.get(routeFinder);
+    if (histogram == null) {
+      histogram = routeFinderLatencies.computeIfAbsent(routeFinder, c -> new LatencyHistogram());
+    }
+    histogram.record(nanos);
+  }
+
+  /**
+   * Records a decision that gave the agent new instructions.
+   *
+   * @param id The main ID of the agent
+   * @param nanos The time taken to decide in nanoseconds
+   * @author Lewis Ackroyd
+   */
+  void recordDecision(int id, long nanos) {
+    decisions.increment();
+    agentLatencies[id].record(nanos);
+  }
+
+  /** Records that an agent was given a random direction as no route was usable */
+  void recordRandomFallback() {
+    randomFallbacks.increment();
+  }
+
+  /** Records that a decision was abandoned after an {@link IllegalStateException} */
+  void recordRecovery() {
+    recoveries.increment();
+  }
+
+  /**
+   * @param routeFinder The class of the route finder
+   * @return The latencies of every route search by the route finder class, or null if none
+   */
+  public LatencyHistogram getRouteFinderLatency(Class<? extends RouteFinder> routeFinder) {
+    return routeFinderLatencies.get(routeFinder);
+  }
+
+  /**
+   * @param id The main ID of the agent
+   * @return The latencies of every decision that gave the agent new instructions
+   */
+  public LatencyHistogram getAgentLatency(int id) {
+    return agentLatencies[id];
+  }
+
+  /** @return The number of decisions that gave an agent new instructions */
+  public long getDecisions() {
+    return decisions.sum();
+  }
+
+  /** @return The number of directions chosen at random as no route was usable */
+  public long getRandomFallbacks() {
+    return randomFallbacks.sum();
+  }
+
+  /** @return The number of decisions abandoned after an {@link IllegalStateException} */
+  public long getRecoveries() {
+    return recoveries.sum();
+  }
+
+  /**
+   * Adds everything recorded in the given metrics to these, so that the metrics of several games
+   * can be reported together.
+   *
+   * @param other The metrics being added
+   * @author Lewis Ackroyd
+   */
+  public void add(AIMetrics other) {
+    for (Map.Entry<Class<? extends RouteFinder>, LatencyHistogram> entry :
+        other.routeFinderLatencies.entrySet()) {
+      routeFinderLatencies
+          .computeIfAbsent(entry.getKey(), c -> new LatencyHistogram())
+          .add(entry.getValue());
+    }
+    for (int id = 0; id < Math.min(agentLatencies.length, other.agentLatencies.length); id++) {
+      agentLatencies[id].add(other.agentLatencies[id]);
+    }
+    decisions.add(other.getDecisions());
+    randomFallbacks.add(other.getRandomFallbacks());
+    recoveries.add(other.getRecoveries());
+  }
+
+  /**
+   * Prints every counter and histogram.
+   *
+   * @param out The stream being printed to
+   * @author Lewis Ackroyd
+   */
+  public void dump(PrintStream out) {
+    out.printf(
+        "AI decisions: %d, random fallbacks: %d, recoveries: %d%n",
+        getDecisions(), getRandomFallbacks(), getRecoveries());
+    TreeMap<String, LatencyHistogram> byName = new TreeMap<>();
+    for (Map.Entry<Class<? extends RouteFinder>, LatencyHistogram> entry :
+        routeFinderLatencies.entrySet()) {
+      byName.put(entry.getKey().getSimpleName(), entry.getValue());
+    }
+    for (Map.Entry<String, LatencyHistogram> entry : byName.entrySet()) {
+      out.println("  " + entry.getKey() + ": " + entry.getValue());
+    }
+    for (int id = 0; id < agentLatencies.length; id++) {
+      if (agentLatencies[id].getCount() > 0) {
+        out.println("  Agent " + id + ": " + agentLatencies[id]);
+      }
+    }
+  }
+}
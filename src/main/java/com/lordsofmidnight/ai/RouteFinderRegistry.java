@@ -0,0 +1,174 @@
+package com.lordsofmidnight.ai;
+
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.utils.LatencyHistogram;
+import com.lordsofmidnight.utils.enums.Difficulty;
+import java.util.EnumMap;
+
+/**
+ * The {@link RouteFinder}s given to the agents at each {@link Difficulty}. Each difficulty is a
+ * list of factories, one for each agent index, with the last factory used for every agent beyond
+ * the end of the list. Each factory is called at most once for each agent index, so a route finder
+ * is reused whenever its difficulty is selected again, until the difficulty is {@link
+ * #reset(Difficulty) reset} because something its factories capture has changed. The cost of each
+ * difficulty is measured from the latencies recorded in {@link AIMetrics}, so the AI can step down
+ * to a cheaper difficulty when it runs out of time.
+ *
+ * @author Lewis Ackroyd
+ */
+public class RouteFinderRegistry {
+
+  private final AIMetrics metrics; // the measured latency of each route finder class
+  private final EnumMap<Difficulty, Factory[]> factories; // registered factories of each tier
+  private final EnumMap<Difficulty, RouteFinder[]> created; // route finders made, by agent index
+
+  /**
+   * Creates an empty registry.
+   *
+   * @param metrics The metrics route finder latencies are recorded in
+   * @author Lewis Ackroyd
+   */
+  public RouteFinderRegistry(AIMetrics metrics) {
+    this.metrics = metrics;
+    this.factories = new EnumMap<>(Difficulty.class);
+    this.created = new EnumMap<>(Difficulty.class);
+  }
+
+  /**
+   * Registers the route finders of the given difficulty, replacing any registered before.
+   *
+   * @param difficulty The difficulty the route finders are used at
+   * @param factories A factory for each agent index, the last being used for all further agents
+   * @throws IllegalArgumentException No factories are given.
+   * @author Lewis Ackroyd
+   */
+  public synchronized void register(Difficulty difficulty, Factory... factories)
+      throws IllegalArgumentException {
+    if (factories.length == 0) {
+      throw new IllegalArgumentException("At least one factory must be given.");
+    }
+    this.factories.put(difficulty, factories.clone());
+    this.created.remove(difficulty);
+  }
+
+  /**
+   * Discards the route finders created for the given difficulty, so that its factories are called
+   * again the next time its route finders are needed. Route finders already given to agents are
+   * not affected.
+   *
+   * @param difficulty The difficulty whose route finders are discarded
+   * @author Lewis Ackroyd
+   */
+  public synchronized void reset(Difficulty difficulty) {
+    created.remove(difficulty);
+  }
+
+  /**
+   * @param difficulty The difficulty being checked
+   * @return True if route finders have been registered for the difficulty
+   */
+  public synchronized boolean isRegistered(Difficulty difficulty) {
+    return factories.containsKey(difficulty);
+  }
+
+  /**
+   * The route finders of each agent at the given difficulty, created the first time they are
+   * needed.
+   *
+   * @param difficulty The difficulty being played at
+   * @param agentCount The number of agents in the game
+   * @return The route finder of each agent, by agent index
+   * @throws IllegalArgumentException The difficulty has not been registered.
+   * @author Lewis Ackroyd
+   */
+  public synchronized RouteFinder[] getRouteFinders(Difficulty difficulty, int agentCount)
+      throws IllegalArgumentException {
+    Factory[] tier = factories.get(difficulty);
+    if (tier == null) {
+      throw new IllegalArgumentException("No route finders registered for " + difficulty + ".");
+    }
+    RouteFinder[] routeFinders = created.get(difficulty);
+    if (routeFinders == null || routeFinders.length < agentCount) {
+      RouteFinder[] grown = new RouteFinder[agentCount];
+      if (routeFinders != null) {
+        System.arraycopy(routeFinders, 0, grown, 0, routeFinders.length);
+      }
+      routeFinders = grown;
+      created.put(difficulty, routeFinders);
+    }
+    RouteFinder[] result = new RouteFinder[agentCount];
+    for (int i = 0; i < agentCount; i++) {
+      if (routeFinders[i] == null) {
+        routeFinders[i] = tier[Math.min(i, tier.length - 1)].create(i);
+      }
+      result[i] = routeFinders[i];
+    }
+    return result;
+  }
+
+  /**
+   * The measured cost of the given difficulty, as the sum over its route finders of the mean time
+   * taken by a single call to each route finder class. Route finders not yet called add nothing.
+   *
+   * @param difficulty The difficulty being measured
+   * @return The measured cost in nanoseconds, or -1 if nothing has been measured or the route
+   *     finders have not been created yet
+   * @author Lewis Ackroyd
+   */
+  public synchronized double getMeasuredCost(Difficulty difficulty) {
+    RouteFinder[] routeFinders = created.get(difficulty);
+    if (routeFinders == null) {
+      return -1;
+    }
+    double cost = 0;
+    boolean measured = false;
+    for (RouteFinder routeFinder : routeFinders) {
+      if (routeFinder == null) {
+        continue;
+      }
+      LatencyHistogram latency = metrics.getRouteFinderLatency(routeFinder.getClass());
+      if (latency != null && latency.getCount() > 0) {
+        cost += latency.getMean();
+        measured = true;
+      }
+    }
+    return measured ? cost : -1;
+  }
+
+  /**
+   * Finds the difficulty to step down to from the given difficulty when the AI is running out of
+   * time. This is the hardest registered easier difficulty that is either not yet measured or
+   * measured to be cheaper.
+   *
+   * @param difficulty The difficulty currently being played at
+   * @return The difficulty to step down to, or null if there is no cheaper difficulty
+   * @author Lewis Ackroyd
+   */
+  public synchronized Difficulty getCheaper(Difficulty difficulty) {
+    double cost = getMeasuredCost(difficulty);
+    for (Difficulty d = difficulty.easier(); d != null; d = d.easier()) {
+      if (!isRegistered(d)) {
+        continue;
+      }
+      double easierCost = getMeasuredCost(d);
+      if (cost < 0 || easierCost < 0 || easierCost < cost) {
+        return d;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates the route finder of an agent.
+   *
+   * @author Lewis Ackroyd
+   */
+  public interface Factory {
+
+    /**
+     * @param agent The index of the agent in the game
+     * @return The route finder for the agent
+     */
+    RouteFinder create(int agent);
+  }
+}
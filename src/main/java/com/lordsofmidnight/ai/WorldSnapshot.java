@@ -0,0 +1,158 @@
+package com.lordsofmidnight.ai;
+
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.objects.Entity;
+import com.lordsofmidnight.objects.powerUps.PowerUp;
+import com.lordsofmidnight.utils.enums.Direction;
+import com.lordsofmidnight.utils.enums.PowerUps;
+import java.util.List;
+
+/**
+ * Read only copy of the state of every agent taken at the start of an AI cycle. The physics
+ * continues to move the agents while the AI is deciding, so every decision in a cycle is made from
+ * this copy, giving all agents the same consistent view of the game. Each agent is held at the
+ * same index as in the array it was copied from.
+ *
+ * @author Lewis Ackroyd
+ */
+public final class WorldSnapshot {
+
+  private final Map map;
+  private final double[] x;
+  private final double[] y;
+  private final Direction[] directions;
+  private final Point[] lastGridCoords;
+  private final boolean[] powerUpUsed;
+  private final int[] powerUpUseAttempts;
+  private final PowerUps[] firstItems; // the type of the first item held, or null if none
+  private final RouteFinder[] routeFinders;
+  private final double targetX; // the position all route finders are given as their target
+  private final double targetY;
+  private final boolean hasTarget;
+
+  /**
+   * Copies the current state of every agent.
+   *
+   * @param agents All agents in the game
+   * @param target The agent whose position is used as the target of every route, may be null
+   * @param map The map being played on
+   * @author Lewis Ackroyd
+   */
+  public WorldSnapshot(Entity[] agents, Entity target, Map map) {
+    this.map = map;
+    int count = agents.length;
+    this.x = new double[count];
+    this.y = new double[count];
+    this.directions = new Direction[count];
+    this.lastGridCoords = new Point[count];
+    this.powerUpUsed = new boolean[count];
+    this.powerUpUseAttempts = new int[count];
+    this.firstItems = new PowerUps[count];
+    this.routeFinders = new RouteFinder[count];
+    for (int i = 0; i < count; i++) {
+      Entity agent = agents[i];
+      Point location = agent.getLocation();
+      x[i] = location.getX();
+      y[i] = location.getY();
+      directions[i] = agent.getDirection();
+      Point lastGridCoord = agent.getLastGridCoord();
+      lastGridCoords[i] = (lastGridCoord == null) ? null : lastGridCoord.getCopy();
+      powerUpUsed[i] = agent.isPowerUpUsed();
+      powerUpUseAttempts[i] = agent.powerUpUseAttempts();
+      firstItems[i] = firstItemType(agent);
+      routeFinders[i] = agent.getRouteFinder();
+    }
+    Point targetLocation = (target == null) ? null : target.getLocation();
+    this.hasTarget = targetLocation != null;
+    this.targetX = hasTarget ? targetLocation.getX() : 0;
+    this.targetY = hasTarget ? targetLocation.getY() : 0;
+  }
+
+  /**
+   * The type of the first item held by the given agent. The inventory may be changed by the physics
+   * while it is being read, in which case the agent is treated as holding nothing this cycle.
+   *
+   * @param agent The agent being copied
+   * @return The type of the first item, or null if there is none
+   * @author Lewis Ackroyd
+   */
+  private static PowerUps firstItemType(Entity agent) {
+    try {
+      List<PowerUp> items = agent.getItems();
+      if (items.isEmpty()) {
+        return null;
+      }
+      return items.get(0).getType();
+    } catch (NullPointerException | IndexOutOfBoundsException e) {
+      return null; // PowerUp removed whilst copying
+    }
+  }
+
+  /** @return The number of agents copied */
+  public int getAgentCount() {
+    return x.length;
+  }
+
+  /**
+   * @param agent The index of the agent
+   * @return A new copy of the agent's position, free to be modified
+   */
+  public Point getLocation(int agent) {
+    return new Point(x[agent], y[agent], map);
+  }
+
+  /**
+   * @param agent The index of the agent
+   * @return The direction the agent was travelling in
+   */
+  public Direction getDirection(int agent) {
+    return directions[agent];
+  }
+
+  /**
+   * @param agent The index of the agent
+   * @return The last grid coordinate the AI produced a route for this agent at, or null
+   */
+  public Point getLastGridCoord(int agent) {
+    return lastGridCoords[agent];
+  }
+
+  /**
+   * @param agent The index of the agent
+   * @return If the agent had already used its power up
+   */
+  public boolean isPowerUpUsed(int agent) {
+    return powerUpUsed[agent];
+  }
+
+  /**
+   * @param agent The index of the agent
+   * @return The number of consecutive attempts made to use the agent's power up
+   */
+  public int powerUpUseAttempts(int agent) {
+    return powerUpUseAttempts[agent];
+  }
+
+  /**
+   * @param agent The index of the agent
+   * @return The type of the first item the agent held, or null if it held none
+   */
+  public PowerUps getFirstItem(int agent) {
+    return firstItems[agent];
+  }
+
+  /**
+   * @param agent The index of the agent
+   * @return The route finder assigned to the agent
+   */
+  public RouteFinder getRouteFinder(int agent) {
+    return routeFinders[agent];
+  }
+
+  /** @return A new copy of the target position of every route, or null if there is no target */
+  public Point getTargetLocation() {
+    return hasTarget ? new Point(targetX, targetY, map) : null;
+  }
+}
@@ -0,0 +1,214 @@
+package com.lordsofmidnight.ai.mapping;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Cells;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import com.lordsofmidnight.gamestate.points.PointSet;
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.Arrays;
+
+/**
+ * Primitive representation of the junction graph for the junctions produced by {@link
+ * Mapping#getJunctions(Map)}. Every junction is given a dense integer id and the edges are held
+ * in compressed sparse row form: the edges leaving junction {@code id} are the edge indices from
+ * {@link #getFirstEdge(int)} up to, but not including, {@link #getEndEdge(int)}, and each edge
+ * stores the junction it leads to, its corridor length and the direction it leaves in. Unlike
+ * {@link Mapping#getEdges(Map, PointSet)}, corridors that loop around the map boundaries are
+ * included. Route finders iterate edges by index, without allocating.
+ *
+ * @author Lewis Ackroyd
+ */
+public class JunctionGraph {
+
+  private static final int NO_JUNCTION = -1;
+
+  private final int MAX_X;
+  private final int MAX_Y;
+  private final int[] cellIds;
+  private final Point[] junctionPoints;
+  private final int[] edgeOffsets; // first edge of each junction, with one extra end entry
+  private final int[] edgeTargets; // the junction each edge leads to
+  private final int[] edgeLengths; // the corridor length of each edge
+  private final byte[] edgeDirections; // Direction#toInt() of the first move along each edge
+
+  /**
+   * Builds the graph for the specified {@link Map}, following the corridor in each direction from
+   * every junction until a wall or another junction is reached.
+   *
+   * @param map The map the junctions are on
+   * @param junctions The set of junctions for the specified {@link Map}
+   * @author Lewis Ackroyd
+   */
+  public JunctionGraph(Map map, PointSet junctions) {
+    this.MAX_X = map.getMaxX();
+    this.MAX_Y = map.getMaxY();
+    int cells = MAX_X * MAX_Y;
+    this.cellIds = new int[cells];
+    Arrays.fill(cellIds, NO_JUNCTION);
+    this.junctionPoints = new Point[junctions.size()];
+    int id = 0;
+    for (Point p : junctions) {
+      Point junction = p.getGridCoord();
+      cellIds[cellOf(junction)] = id;
+      junctionPoints[id] = junction;
+      id++;
+    }
+
+    int maxEdges = junctionPoints.length * Direction.MOVEMENT_DIRECTIONS.length;
+    int[] targets = new int[maxEdges];
+    int[] lengths = new int[maxEdges];
+    byte[] directions = new byte[maxEdges];
+    this.edgeOffsets = new int[junctionPoints.length + 1];
+    int edgeCount = 0;
+    for (int i = 0; i < junctionPoints.length; i++) {
+      edgeOffsets[i] = edgeCount;
+      int start = cellOf(junctionPoints[i]);
+      for (Direction direction : Direction.MOVEMENT_DIRECTIONS) {
+        int cell = neighbour(start, direction);
+        int length = 1;
+        while (!map.isWall(cell)
+            && cell != start
+            && cellIds[cell] == NO_JUNCTION
+            && length < cells) {
+          cell = neighbour(cell, direction);
+          length++;
+        }
+        if (!map.isWall(cell) && cell != start && cellIds[cell] != NO_JUNCTION) {
+          targets[edgeCount] = cellIds[cell];
+          lengths[edgeCount] = length;
+          directions[edgeCount] = (byte) direction.toInt();
+          edgeCount++;
+        }
+      }
+    }
+    edgeOffsets[junctionPoints.length] = edgeCount;
+    this.edgeTargets = Arrays.copyOf(targets, edgeCount);
+    this.edgeLengths = Arrays.copyOf(lengths, edgeCount);
+    this.edgeDirections = Arrays.copyOf(directions, edgeCount);
+  }
+
+  /**
+   * @return The number of junctions in this graph
+   * @author Lewis Ackroyd
+   */
+  public int getJunctionCount() {
+    return junctionPoints.length;
+  }
+
+  /**
+   * @return The number of edges in this graph, counting each direction of a corridor separately
+   * @author Lewis Ackroyd
+   */
+  public int getEdgeCount() {
+    return edgeTargets.length;
+  }
+
+  /**
+   * Gives the id of the junction at the grid coordinate of the given {@link Point}.
+   *
+   * @param p The position being checked
+   * @return The id of the junction, or -1 if the position is not a junction
+   * @author Lewis Ackroyd
+   */
+  public int getId(Point p) {
+    if (!Map.withinBounds(MAX_X, MAX_Y, p)) {
+      return NO_JUNCTION;
+    }
+    return cellIds[cellOf(p)];
+  }
+
+  /**
+   * @param id The id of the junction
+   * @return The grid coordinate of the junction with the given id
+   * @author Lewis Ackroyd
+   */
+  public Point getJunction(int id) {
+    return junctionPoints[id];
+  }
+
+  /**
+   * @param id The id of the junction
+   * @return The index of the first edge leaving the junction
+   * @author Lewis Ackroyd
+   */
+  public int getFirstEdge(int id) {
+    return edgeOffsets[id];
+  }
+
+  /**
+   * @param id The id of the junction
+   * @return The index after the last edge leaving the junction
+   * @author Lewis Ackroyd
+   */
+  public int getEndEdge(int id) {
+    return edgeOffsets[id + 1];
+  }
+
+  /**
+   * @param edge The index of the edge
+   * @return The id of the junction the edge leads to
+   * @author Lewis Ackroyd
+   */
+  public int getEdgeTarget(int edge) {
+    return edgeTargets[edge];
+  }
+
+  /**
+   * @param edge The index of the edge
+   * @return The number of moves needed to travel along the edge
+   * @author Lewis Ackroyd
+   */
+  public int getEdgeLength(int edge) {
+    return edgeLengths[edge];
+  }
+
+  /**
+   * @param edge The index of the edge
+   * @return The direction to travel in from the start of the edge to follow it
+   * @author Lewis Ackroyd
+   */
+  public Direction getEdgeDirection(int edge) {
+    return Direction.fromInt(edgeDirections[edge]);
+  }
+
+  /**
+   * Straight line distance between a junction and a position, taking the shorter way around the
+   * map along each axis. This can never be more than the distance travelled between them, even
+   * through the loops around the map boundaries.
+   *
+   * @param id The id of the junction
+   * @param target The position being measured to
+   * @return The estimated distance between the junction and the position
+   * @author Lewis Ackroyd
+   */
+  public double estimateDistance(int id, Point target) {
+    Point junction = junctionPoints[id];
+    double dx = Math.abs(junction.getX() - target.getX()) % MAX_X;
+    double dy = Math.abs(junction.getY() - target.getY()) % MAX_Y;
+    return Math.hypot(Math.min(dx, MAX_X - dx), Math.min(dy, MAX_Y - dy));
+  }
+
+  /**
+   * Calculates the cell index used for the given point. Uses the same layout as {@link PointMap}.
+   *
+   * @param p The point being converted
+   * @return The cell index of the point
+   * @author Lewis Ackroyd
+   */
+  private int cellOf(Point p) {
+    return Cells.cellOf(p.getX(), p.getY(), MAX_X, MAX_Y);
+  }
+
+  /**
+   * The cell adjacent to the given cell in the given direction, looping around the map boundaries.
+   *
+   * @param cell The cell being moved from
+   * @param direction The direction of movement
+   * @return The adjacent cell
+   * @author Lewis Ackroyd
+   */
+  private int neighbour(int cell, Direction direction) {
+    return Cells.neighbour(cell, direction, MAX_X, MAX_Y);
+  }
+}
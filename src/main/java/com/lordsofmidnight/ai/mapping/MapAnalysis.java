@@ -0,0 +1,191 @@
+package com.lordsofmidnight.ai.mapping;
+
+import com.lordsofmidnight.ai.routefinding.RouteCache;
+import com.lordsofmidnight.ai.routefinding.routefinders.RoutingTableRouteFinder;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Cells;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointSet;
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Everything the AI derives from the layout of a {@link Map}, computed once per {@link Map} and
+ * shared by every route finder and every AI on it. Use {@link #of(Map)} rather than analysing a
+ * {@link Map} again. The junctions returned are shared, so must not be modified.
+ *
+ * <p>Analyses are cached by the identity of the {@link Map}, not by {@link Map#equals(Object)}, so
+ * each map object is analysed once and an equal map loaded separately is analysed again.
+ *
+ * @author Lewis Ackroyd
+ */
+public final class MapAnalysis {
+
+  private static final int CACHE_SIZE = 8; // maps whose analysis is kept at once
+  private static final LinkedHashMap<MapKey, MapAnalysis> analyses =
+      new LinkedHashMap<MapKey, MapAnalysis>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(java.util.Map.Entry<MapKey, MapAnalysis> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  private final Map map;
+  private final int MAX_X;
+  private final int MAX_Y;
+  private final PointSet junctions;
+  private final JunctionGraph graph;
+  private final HashMap<Integer, RoutingTableRouteFinder>
+      routingTables; // by hierarchical map size, each built on first use
+
+  /**
+   * Analyses the given {@link Map}.
+   *
+   * @param map The map being analysed
+   * @author Lewis Ackroyd
+   */
+  private MapAnalysis(Map map) {
+    this.map = map;
+    this.MAX_X = map.getMaxX();
+    this.MAX_Y = map.getMaxY();
+    this.junctions = Mapping.getJunctions(map);
+    this.graph = new JunctionGraph(map, junctions);
+    this.routingTables = new HashMap<>();
+  }
+
+  /**
+   * Gives the analysis of the given {@link Map}, analysing it only if it has not been analysed
+   * recently.
+   *
+   * @param map The map being played on
+   * @return The analysis of the map
+   * @author Lewis Ackroyd
+   */
+  public static MapAnalysis of(Map map) {
+    MapKey key = new MapKey(map);
+    synchronized (analyses) {
+      MapAnalysis analysis = analyses.get(key);
+      if (analysis == null) {
+        analysis = new MapAnalysis(map);
+        analyses.put(key, analysis);
+      }
+      return analysis;
+    }
+  }
+
+  /** @return The map that was analysed */
+  public Map getMap() {
+    return map;
+  }
+
+  /** @return The set of all junctions on the map, which must not be modified */
+  public PointSet getJunctions() {
+    return junctions;
+  }
+
+  /** @return The junction graph of the map, including loops around the map boundaries */
+  public JunctionGraph getGraph() {
+    return graph;
+  }
+
+  /**
+   * The routing table for the map using the {@link
+   * RoutingTableRouteFinder#DEFAULT_HIERARCHICAL_MAP_SIZE default hierarchical map size}.
+   *
+   * @return The routing table for the map
+   * @see #getRoutingTable(int)
+   * @author Lewis Ackroyd
+   */
+  public RoutingTableRouteFinder getRoutingTable() {
+    return getRoutingTable(RoutingTableRouteFinder.DEFAULT_HIERARCHICAL_MAP_SIZE);
+  }
+
+  /**
+   * The routing table for the map, built the first time it is requested with the given
+   * hierarchical map size. A single table and {@link RouteCache} is shared by every user of this
+   * analysis asking for that size.
+   *
+   * @param hierarchicalMapSize The side length from which hierarchical route finding is used on
+   *     maps too large for a table
+   * @return The routing table for the map
+   * @throws IllegalArgumentException The size is not positive.
+   * @author Lewis Ackroyd
+   */
+  public synchronized RoutingTableRouteFinder getRoutingTable(int hierarchicalMapSize)
+      throws IllegalArgumentException {
+    if (hierarchicalMapSize <= 0) {
+      throw new IllegalArgumentException("Hierarchical map size must be positive.");
+    }
+    RoutingTableRouteFinder routingTable = routingTables.get(hierarchicalMapSize);
+    if (routingTable == null) {
+      routingTable =
+          new RoutingTableRouteFinder(map, junctions, graph, new RouteCache(), hierarchicalMapSize);
+      routingTables.put(hierarchicalMapSize, routingTable);
+    }
+    return routingTable;
+  }
+
+  /**
+   * The directions that can be moved in from the grid square containing the given position,
+   * including through the loops around the map boundaries.
+   *
+   * @param p The position being moved from
+   * @return A mask with bit {@link Direction#toInt()} set for each direction that is not blocked
+   * @author Lewis Ackroyd
+   */
+  public int getValidDirections(Point p) {
+    return map.validDirections(cellOf(p));
+  }
+
+  /**
+   * If a move in the given direction is possible from the grid square containing the given
+   * position.
+   *
+   * @param p The position being moved from
+   * @param direction The direction of movement
+   * @return True if the move is not blocked by a wall
+   * @author Lewis Ackroyd
+   */
+  public boolean isValidDirection(Point p, Direction direction) {
+    return (getValidDirections(p) & (1 << direction.toInt())) != 0;
+  }
+
+  /**
+   * Calculates the cell index of the grid square containing the given point, looping positions
+   * outside the map back onto it.
+   *
+   * @param p The point being converted
+   * @return The cell index of the point
+   * @author Lewis Ackroyd
+   */
+  private int cellOf(Point p) {
+    return Cells.cellOf(p.getX(), p.getY(), MAX_X, MAX_Y);
+  }
+
+  /**
+   * A key of the cache comparing maps by identity, as {@link Map} defines equality by its layout
+   * without a matching hash code.
+   *
+   * @author Lewis Ackroyd
+   */
+  private static final class MapKey {
+
+    private final Map map;
+
+    /** @param map The map being looked up */
+    private MapKey(Map map) {
+      this.map = map;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof MapKey) && ((MapKey) o).map == map;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(map);
+    }
+  }
+}
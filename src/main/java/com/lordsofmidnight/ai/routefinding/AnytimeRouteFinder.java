@@ -0,0 +1,47 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+
+/**
+ * A {@link RouteFinder} whose search can be cut short. Once the deadline passes the search stops
+ * and the best direction found so far is returned, so the time taken to produce a route is
+ * bounded.
+ *
+ * @author Lewis Ackroyd
+ */
+public interface AnytimeRouteFinder extends RouteFinder {
+
+  long NO_DEADLINE = Long.MAX_VALUE; // searches given this deadline always run to completion
+  int DEADLINE_CHECK_INTERVAL = 32; // steps of a search between each check of the deadline
+
+  /**
+   * If the given deadline has passed.
+   *
+   * @param deadline The {@link System#nanoTime()} value the search must finish by, or {@link
+   *     #NO_DEADLINE}
+   * @return True if the search should stop
+   * @author Lewis Ackroyd
+   */
+  static boolean expired(long deadline) {
+    return deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0;
+  }
+
+  /**
+   * Returns the direction to travel in until the next junction is reached, or the best direction
+   * found so far if the deadline passes before the search is complete.
+   *
+   * @param myLocation The start position for route finding.
+   * @param targetLocation The target position for route finding.
+   * @param deadline The {@link System#nanoTime()} value the search must finish by, or {@link
+   *     #NO_DEADLINE}
+   * @return The direction to travel in.
+   * @author Lewis Ackroyd
+   */
+  Direction getRoute(Point myLocation, Point targetLocation, long deadline);
+
+  @Override
+  default Direction getRoute(Point myLocation, Point targetLocation) {
+    return getRoute(myLocation, targetLocation, NO_DEADLINE);
+  }
+}
@@ -0,0 +1,279 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Cells;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+/**
+ * Field over every square of a {@link Map} giving, for each direction that can be moved in, how
+ * strongly the {@link Pellet}s ahead in that direction attract an agent. The values are those
+ * {@link SampleSearch#getDirectionCounts(Point, SampleSearch.ConditionalInterface)} would produce
+ * for the same pellets to each of the depths given: an attracting pellet at distance d counts
+ * depth - d + 1 towards the first direction of a shortest route to it, taking the first such
+ * direction in {@link Direction#MOVEMENT_DIRECTIONS} order. Unlike a search, reading a value takes
+ * constant time.
+ *
+ * <p>The field is kept up to date incrementally. Changes are reported with {@link
+ * #pelletChanged(Point)} from any thread, and applied by {@link #update()} with one search out to
+ * the largest depth from each square that started or stopped attracting. Values must only be read
+ * by the thread calling {@link #update()}, or threads it hands work to afterwards.
+ *
+ * @author Lewis Ackroyd
+ */
+public class AttractionField {
+
+  public static final Predicate<Pellet> ACTIVE_POWER_UP_BOXES =
+      pellet -> pellet.isActive() && pellet.isPowerUpBox();
+
+  private final PointMap<Pellet> pellets;
+  private final Predicate<Pellet> attractor; // if a pellet attracts agents
+  private final int[] depths;
+  private final int maxDepth;
+  private final int MAX_X;
+  private final int MAX_Y;
+  private final Map map;
+  private final boolean[] attracting; // if each square currently contributes to the field
+  private final int[][] values; // for each depth, by (cell * 4) + Direction#toInt()
+  private final VisitedSet visited;
+  private final int[] queue;
+  private final int[] costs;
+  private final ConcurrentLinkedQueue<Integer> changedCells; // reported but not yet applied
+  private volatile boolean allChanged; // if every square must be checked on the next update
+
+  /**
+   * Builds the field for the pellets currently on the {@link Map}.
+   *
+   * @param map The map the field covers
+   * @param pellets The pellets on the map
+   * @param attractor Which pellets attract agents, such as {@link #ACTIVE_POWER_UP_BOXES}
+   * @param depths The depths the field is kept to, each readable separately
+   * @throws IllegalArgumentException No depths are given or a depth is not positive.
+   * @author Lewis Ackroyd
+   */
+  public AttractionField(
+      Map map, PointMap<Pellet> pellets, Predicate<Pellet> attractor, int... depths)
+      throws IllegalArgumentException {
+    if (depths.length == 0) {
+      throw new IllegalArgumentException("At least one depth must be given.");
+    }
+    int max = 0;
+    for (int depth : depths) {
+      if (depth <= 0) {
+        throw new IllegalArgumentException("Depths must be positive.");
+      }
+      max = Math.max(max, depth);
+    }
+    this.pellets = pellets;
+    this.attractor = attractor;
+    this.depths = depths.clone();
+    this.maxDepth = max;
+    this.MAX_X = map.getMaxX();
+    this.MAX_Y = map.getMaxY();
+    int cells = MAX_X * MAX_Y;
+    this.map = map;
+    this.attracting = new boolean[cells];
+    this.values = new int[depths.length][cells * Direction.MOVEMENT_DIRECTIONS.length];
+    this.visited = new VisitedSet(cells);
+    this.queue = new int[cells];
+    this.costs = new int[cells];
+    this.changedCells = new ConcurrentLinkedQueue<>();
+    this.allChanged = true;
+    update();
+  }
+
+  /**
+   * Reports that the pellet at the given position may have been collected, respawned or replaced.
+   * Safe to call from any thread. The field changes on the next {@link #update()}.
+   *
+   * @param location The position of the pellet
+   * @author Lewis Ackroyd
+   */
+  public void pelletChanged(Point location) {
+    pelletChanged(cellOf(location.getX(), location.getY()));
+  }
+
+  /**
+   * Reports that the pellet in the given grid square may have changed, as {@link
+   * #pelletChanged(Point)}. Safe to call from any thread.
+   *
+   * @param cell The cell index of the grid square
+   * @author Lewis Ackroyd
+   */
+  public void pelletChanged(int cell) {
+    changedCells.add(cell);
+  }
+
+  /**
+   * Reports that any pellet may have changed, so every square is checked on the next {@link
+   * #update()}. Only squares whose state has changed are searched from.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void pelletsChanged() {
+    allChanged = true;
+  }
+
+  /**
+   * Applies every change reported since the last update.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void update() {
+    if (allChanged) {
+      allChanged = false;
+      changedCells.clear();
+      for (int cell = 0; cell < attracting.length; cell++) {
+        if (!map.isWall(cell)) {
+          refresh(cell);
+        }
+      }
+      return;
+    }
+    Integer cell;
+    while ((cell = changedCells.poll()) != null) {
+      refresh(cell);
+    }
+  }
+
+  /**
+   * If the field is kept to the given depth.
+   *
+   * @param depth The depth being checked
+   * @return True if values to the depth can be read
+   * @author Lewis Ackroyd
+   */
+  public boolean hasDepth(int depth) {
+    for (int d : depths) {
+      if (d == depth) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * How strongly the pellets within the given depth, and reached first by moving in the given
+   * direction, attract an agent at the given position.
+   *
+   * @param location The position of the agent
+   * @param direction The direction of movement
+   * @param depth The depth pellets are counted to, one of those given on construction
+   * @return The attraction of the direction, 0 if nothing attracts that way
+   * @throws IllegalArgumentException The field is not kept to the given depth.
+   * @author Lewis Ackroyd
+   */
+  public int getValue(Point location, Direction direction, int depth)
+      throws IllegalArgumentException {
+    for (int i = 0; i < depths.length; i++) {
+      if (depths[i] == depth) {
+        int cell = cellOf(location.getX(), location.getY());
+        return values[i][(cell * Direction.MOVEMENT_DIRECTIONS.length) + direction.toInt()];
+      }
+    }
+    throw new IllegalArgumentException("The field is not kept to depth " + depth + ".");
+  }
+
+  /**
+   * Checks if the square now attracts, and if that differs from its contribution to the field
+   * adds or removes it.
+   *
+   * @param cell The square being checked
+   * @author Lewis Ackroyd
+   */
+  private void refresh(int cell) {
+    Pellet pellet = pellets.getAt(cell);
+    boolean attracts = pellet != null && attractor.test(pellet);
+    if (attracts != attracting[cell]) {
+      attracting[cell] = attracts;
+      spread(cell, attracts ? 1 : -1);
+    }
+  }
+
+  /**
+   * Searches outwards from the given square to the largest depth, adding its contribution to, or
+   * removing it from, the value of every square reached.
+   *
+   * @param source The square whose contribution is changing
+   * @param sign 1 to add the contribution, -1 to remove it
+   * @author Lewis Ackroyd
+   */
+  private void spread(int source, int sign) {
+    visited.clear();
+    visited.add(source);
+    costs[source] = 0;
+    queue[0] = source;
+    int head = 0;
+    int tail = 1;
+    while (head < tail) {
+      int cell = queue[head++];
+      int cost = costs[cell];
+      if (cost > 0) {
+        addContribution(cell, cost, sign);
+      }
+      if (cost == maxDepth) {
+        continue;
+      }
+      for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+        int next = neighbour(cell, d);
+        if (!map.isWall(next) && visited.add(next)) {
+          costs[next] = cost + 1;
+          queue[tail++] = next;
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the contribution of the current source to a square it was reached from, crediting the
+   * first direction that leads one step closer to the source.
+   *
+   * @param cell The square being credited
+   * @param cost The distance from the square to the source
+   * @param sign 1 to add the contribution, -1 to remove it
+   * @author Lewis Ackroyd
+   */
+  private void addContribution(int cell, int cost, int sign) {
+    for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+      int next = neighbour(cell, d);
+      if (!map.isWall(next) && visited.contains(next) && costs[next] == cost - 1) {
+        int index = (cell * Direction.MOVEMENT_DIRECTIONS.length) + d.toInt();
+        for (int i = 0; i < depths.length; i++) {
+          if (cost <= depths[i]) {
+            values[i][index] += sign * (depths[i] - cost + 1);
+          }
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Calculates the cell index for the given coordinates, wrapping them onto the map.
+   *
+   * @param x The x coordinate
+   * @param y The y coordinate
+   * @return The cell index of the grid square containing the coordinates
+   * @author Lewis Ackroyd
+   */
+  private int cellOf(double x, double y) {
+    return Cells.cellOf(x, y, MAX_X, MAX_Y);
+  }
+
+  /**
+   * Gives the cell adjacent to the given cell in the given direction, looping around the map
+   * boundaries.
+   *
+   * @param cell The cell being moved from
+   * @param direction The direction of movement
+   * @return The adjacent cell
+   * @author Lewis Ackroyd
+   */
+  private int neighbour(int cell, Direction direction) {
+    return map.neighbour(cell, direction);
+  }
+}
@@ -0,0 +1,282 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.Arrays;
+
+/**
+ * Plans the routes of every ghoul chasing the same target together, once per AI cycle, so that
+ * they spread out and close in from different sides rather than stacking up on the same shortest
+ * path. The ghouls are planned closest first against a shared {@link ReservationTable}. Each route
+ * is a search forward in time over the squares of the map, guided by the shared {@link FlowField}
+ * distances to the target, in which sharing a square with an earlier route at the same step costs
+ * {@link #CONFLICT_PENALTY} and passing through any square of an earlier route costs {@link
+ * #TRAIL_PENALTY}. The closest ghoul therefore takes the direct route, and the others take the
+ * shortest route that is not already covered.
+ *
+ * <p>A route never turns back on itself unless it is in a dead end, matching how agents travel
+ * between junctions. All search arrays are reused between plans.
+ *
+ * @author Lewis Ackroyd
+ */
+public class CooperativePlanner {
+
+  public static final int DEFAULT_HORIZON = 24; // squares each route is planned ahead
+  private static final int CONFLICT_PENALTY =
+      4; // cost of being in the same square as an earlier route at the same step
+  private static final int TRAIL_PENALTY = 1; // cost of each square shared with an earlier route
+  private static final int STATES_PER_CELL = 5; // arrival in each movement direction, or stopped
+  private static final int STOPPED = 4; // the arrival direction of an agent that is not moving
+  private static final int INITIAL_CAPACITY = 256; // states held before the layer arrays grow
+
+  private final FlowField field;
+  private final ReservationTable reservations;
+  private final int horizon;
+  private final VisitedSet layerStates; // states reached in the layer being built
+  private final int[] layerIndices; // index of each state reached in the layer being built
+  private final int[] layerStarts; // index of the first state of each layer
+  private int[] states; // cell * STATES_PER_CELL + arrival direction, of every layer in turn
+  private int[] parents; // index of the state each state was reached from
+  private int[] costs; // penalty accumulated on the way to each state
+
+  private int[] planCells; // the square each planned agent started in
+  private Direction[] planDirections; // the first direction of each planned route
+  private boolean[] planTaken; // if the planned direction has been given out
+  private int planCount;
+
+  /**
+   * Initialises the planner to plan {@link #DEFAULT_HORIZON} squares ahead.
+   *
+   * @param field The distances to the target shared by all chasing agents
+   * @author Lewis Ackroyd
+   */
+  public CooperativePlanner(FlowField field) {
+    this(field, DEFAULT_HORIZON);
+  }
+
+  /**
+   * Initialises the planner.
+   *
+   * @param field The distances to the target shared by all chasing agents
+   * @param horizon The number of squares each route is planned ahead
+   * @throws IllegalArgumentException The horizon is not positive.
+   * @author Lewis Ackroyd
+   */
+  public CooperativePlanner(FlowField field, int horizon) throws IllegalArgumentException {
+    if (horizon <= 0) {
+      throw new IllegalArgumentException("Horizon must be positive.");
+    }
+    int cellCount = field.getCellCount();
+    this.field = field;
+    this.horizon = horizon;
+    this.reservations = new ReservationTable(cellCount, horizon);
+    this.layerStates = new VisitedSet(cellCount * STATES_PER_CELL);
+    this.layerIndices = new int[cellCount * STATES_PER_CELL];
+    this.layerStarts = new int[horizon + 2];
+    this.states = new int[INITIAL_CAPACITY];
+    this.parents = new int[INITIAL_CAPACITY];
+    this.costs = new int[INITIAL_CAPACITY];
+    this.planCells = new int[0];
+    this.planDirections = new Direction[0];
+    this.planTaken = new boolean[0];
+  }
+
+  /** @return The field the routes are planned towards */
+  public FlowField getField() {
+    return field;
+  }
+
+  /**
+   * Plans the routes of the given agents towards the current target of the {@link FlowField},
+   * replacing the previous plan. An agent that is between squares is committed to its current
+   * direction, so its route is planned onwards from the next square and it is not given a
+   * direction from this plan. Agents not planned before the deadline follow the field directly.
+   *
+   * @param locations The location of each agent
+   * @param directions The current direction of each agent
+   * @param count The number of agents in the arrays to plan for
+   * @param deadline The {@link System#nanoTime()} value planning must finish by
+   * @author Lewis Ackroyd
+   */
+  public synchronized void plan(
+      Point[] locations, Direction[] directions, int count, long deadline) {
+    reservations.clear();
+    planCount = 0;
+    if (planCells.length < count) {
+      planCells = new int[count];
+      planDirections = new Direction[count];
+      planTaken = new boolean[count];
+    }
+    int[] order = new int[count];
+    int[] startCells = new int[count];
+    for (int i = 0; i < count; i++) {
+      startCells[i] = field.cellOf(locations[i]);
+      int distance = field.getDistance(startCells[i]);
+      int j = i;
+      while (j > 0 && field.getDistance(startCells[order[j - 1]]) > distance) {
+        order[j] = order[j - 1];
+        j--;
+      }
+      order[j] = i; // closest first, in the order given when equally close
+    }
+    for (int i = 0; i < count; i++) {
+      if (i > 0 && AnytimeRouteFinder.expired(deadline)) {
+        return;
+      }
+      int agent = order[i];
+      int cell = startCells[agent];
+      if (field.getDistance(cell) == FlowField.UNREACHABLE) {
+        continue;
+      }
+      Direction direction = directions[agent];
+      boolean moving = direction != null && direction.isMovementDirection();
+      Direction forced = (moving && !locations[agent].isCentered()) ? direction : null;
+      planCells[planCount] = cell;
+      planDirections[planCount] = planRoute(cell, moving ? direction.toInt() : STOPPED, forced);
+      planTaken[planCount] = forced != null; // will not ask for a direction until the next square
+      planCount++;
+    }
+  }
+
+  /**
+   * Gives out the planned direction of an agent starting at the given position. Each planned
+   * direction is given out once, so agents starting in the same square are each given their own
+   * route. Once every plan for the square has been given out, the agent follows the {@link
+   * FlowField}.
+   *
+   * @param location The position of the agent
+   * @return The direction to travel in
+   * @author Lewis Ackroyd
+   */
+  public synchronized Direction getDirection(Point location) {
+    int cell = field.cellOf(location);
+    for (int i = 0; i < planCount; i++) {
+      if (planCells[i] == cell && !planTaken[i]) {
+        planTaken[i] = true;
+        return planDirections[i];
+      }
+    }
+    return field.getDirection(location);
+  }
+
+  /**
+   * Searches forward in time from the start square for the route with the lowest estimated time
+   * to reach the target plus penalties, then reserves the route.
+   *
+   * @param start The cell index of the starting square
+   * @param arrival The direction the agent is travelling in, or {@link #STOPPED}
+   * @param forced The direction of the first move if the agent cannot change direction, or null
+   * @return The first direction of the route
+   * @author Lewis Ackroyd
+   */
+  private Direction planRoute(int start, int arrival, Direction forced) {
+    if (field.getDistance(start) == 0) {
+      reservations.reserve(start, 0);
+      return Direction.STOP;
+    }
+    int size = 0;
+    states[0] = (start * STATES_PER_CELL) + arrival;
+    parents[0] = -1;
+    costs[0] = 0;
+    size++;
+    layerStarts[0] = 0;
+    layerStarts[1] = size;
+    int best = -1;
+    int bestStep = 0;
+    int bestScore = Integer.MAX_VALUE;
+    for (int step = 1; step <= horizon && layerStarts[step - 1] < layerStarts[step]; step++) {
+      layerStates.clear();
+      for (int index = layerStarts[step - 1]; index < layerStarts[step]; index++) {
+        int cell = states[index] / STATES_PER_CELL;
+        int from = states[index] % STATES_PER_CELL;
+        int distance = field.getDistance(cell);
+        if (distance == 0 || costs[index] + step - 1 + distance >= bestScore) {
+          continue; // already at the target, or cannot improve on the best route
+        }
+        boolean moved = false;
+        for (int pass = 0; pass < 2 && !moved; pass++) {
+          for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+            boolean reverse = from != STOPPED && d.toInt() == (from ^ 1);
+            if ((pass == 0 && reverse) || (pass == 1 && !reverse)) {
+              continue; // turning back is only considered if there is nowhere else to go
+            }
+            if (step == 1 && forced != null && d != forced) {
+              continue;
+            }
+            int next = field.neighbour(cell, d);
+            if (field.isWall(next) || field.getDistance(next) == FlowField.UNREACHABLE) {
+              continue;
+            }
+            size = relax(index, next, d, step, size);
+            moved = true;
+          }
+        }
+      }
+      layerStarts[step + 1] = size;
+      for (int index = layerStarts[step]; index < size; index++) {
+        int distance = field.getDistance(states[index] / STATES_PER_CELL);
+        if (distance != 0 && step < horizon) {
+          continue;
+        }
+        int score = costs[index] + step + distance;
+        if (score < bestScore) {
+          best = index;
+          bestStep = step;
+          bestScore = score;
+        }
+      }
+    }
+    if (best < 0) {
+      return (forced != null) ? forced : Direction.STOP;
+    }
+    int first = best;
+    for (int index = best, step = bestStep; index >= 0; index = parents[index], step--) {
+      reservations.reserve(states[index] / STATES_PER_CELL, step);
+      if (parents[index] == 0) {
+        first = index;
+      }
+    }
+    return Direction.fromInt(states[first] % STATES_PER_CELL);
+  }
+
+  /**
+   * Adds a move into the given square to the layer being built, keeping only the cheapest way of
+   * reaching each square in each direction.
+   *
+   * @param parent The index of the state being moved from
+   * @param cell The cell index of the square being moved into
+   * @param direction The direction of the move
+   * @param step The layer being built
+   * @param size The number of states in all layers
+   * @return The number of states in all layers after the move is added
+   * @author Lewis Ackroyd
+   */
+  private int relax(int parent, int cell, Direction direction, int step, int size) {
+    int cost = costs[parent];
+    if (reservations.isReserved(cell, step)) {
+      cost += CONFLICT_PENALTY;
+    }
+    if (reservations.isOnTrail(cell)) {
+      cost += TRAIL_PENALTY;
+    }
+    int state = (cell * STATES_PER_CELL) + direction.toInt();
+    if (layerStates.add(state)) {
+      if (size == states.length) {
+        states = Arrays.copyOf(states, size * 2);
+        parents = Arrays.copyOf(parents, size * 2);
+        costs = Arrays.copyOf(costs, size * 2);
+      }
+      layerIndices[state] = size;
+      states[size] = state;
+      parents[size] = parent;
+      costs[size] = cost;
+      return size + 1;
+    }
+    int index = layerIndices[state];
+    if (cost < costs[index]) {
+      parents[index] = parent;
+      costs[index] = cost;
+    }
+    return size;
+  }
+}
@@ -0,0 +1,177 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Cells;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.Arrays;
+
+/**
+ * Distance field over every square of a {@link Map} towards a single target square. The field is
+ * produced by one breadth first search outwards from the target (including the loops around the
+ * map boundaries) and is only rebuilt when the target moves into a new grid square. Any number of
+ * agents can then read the direction that leads towards the target in constant time.
+ *
+ * @author Lewis Ackroyd
+ */
+public class FlowField {
+
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+  private static final int NO_TARGET = -1;
+
+  private final int MAX_X;
+  private final int MAX_Y;
+  private final Map map;
+  private final int[] queue;
+  private volatile int[] distances; // the field currently being read by agents
+  private int[] spareDistances; // the field being rebuilt, swapped with distances when complete
+  private int targetCell;
+
+  /**
+   * Initialises an empty field for the specified {@link Map}.
+   *
+   * @param map The map the field covers
+   * @author Lewis Ackroyd
+   */
+  public FlowField(Map map) {
+    this.MAX_X = map.getMaxX();
+    this.MAX_Y = map.getMaxY();
+    this.map = map;
+    this.queue = new int[MAX_X * MAX_Y];
+    this.distances = new int[MAX_X * MAX_Y];
+    this.spareDistances = new int[MAX_X * MAX_Y];
+    this.targetCell = NO_TARGET;
+    Arrays.fill(distances, UNREACHABLE);
+  }
+
+  /**
+   * Moves the target of the field to the given position. The field is only rebuilt if the
+   * position is in a different grid square to the current target. The new field is built
+   * separately and swapped in once complete, so readers never see a partially built field.
+   *
+   * @param target The new target position
+   * @return True if the field was rebuilt
+   * @author Lewis Ackroyd
+   */
+  public synchronized boolean update(Point target) {
+    if (target == null) {
+      return false;
+    }
+    int cell = cellOf(target.getX(), target.getY());
+    if (cell == targetCell || map.isWall(cell)) {
+      return false;
+    }
+    int[] distances = spareDistances;
+    Arrays.fill(distances, UNREACHABLE);
+    int head = 0;
+    int tail = 0;
+    distances[cell] = 0;
+    queue[tail++] = cell;
+    while (head < tail) {
+      int current = queue[head++];
+      int nextDistance = distances[current] + 1;
+      for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+        int next = neighbour(current, d);
+        if (!map.isWall(next) && distances[next] == UNREACHABLE) {
+          distances[next] = nextDistance;
+          queue[tail++] = next;
+        }
+      }
+    }
+    spareDistances = this.distances;
+    this.distances = distances;
+    targetCell = cell;
+    return true;
+  }
+
+  /**
+   * The number of squares that must be travelled from the given position to reach the target.
+   *
+   * @param position The position being checked
+   * @return The distance to the target, or {@link #UNREACHABLE}
+   * @author Lewis Ackroyd
+   */
+  public int getDistance(Point position) {
+    return distances[cellOf(position.getX(), position.getY())];
+  }
+
+  /**
+   * Gives the direction from the given position that leads to the target in the fewest squares.
+   *
+   * @param position The position being moved from
+   * @return The direction to travel in, or {@link Direction#STOP} if the position is the target or
+   *     the target cannot be reached
+   * @author Lewis Ackroyd
+   */
+  public Direction getDirection(Point position) {
+    int[] distances = this.distances;
+    int cell = cellOf(position.getX(), position.getY());
+    int bestDistance = distances[cell];
+    Direction bestDirection = Direction.STOP;
+    for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+      int next = neighbour(cell, d);
+      if (distances[next] < bestDistance) {
+        bestDistance = distances[next];
+        bestDirection = d;
+      }
+    }
+    return bestDirection;
+  }
+
+  /** @return The number of grid squares in the map */
+  int getCellCount() {
+    return map.getCellCount();
+  }
+
+  /**
+   * @param cell The cell index being checked
+   * @return True if the grid square is a wall
+   */
+  boolean isWall(int cell) {
+    return map.isWall(cell);
+  }
+
+  /**
+   * The number of squares that must be travelled from the given square to reach the target.
+   *
+   * @param cell The cell index being checked
+   * @return The distance to the target, or {@link #UNREACHABLE}
+   * @author Lewis Ackroyd
+   */
+  int getDistance(int cell) {
+    return distances[cell];
+  }
+
+  /**
+   * @param position The position being converted
+   * @return The cell index of the grid square containing the position
+   */
+  int cellOf(Point position) {
+    return cellOf(position.getX(), position.getY());
+  }
+
+  /**
+   * Calculates the cell index for the given coordinates, wrapping them onto the map.
+   *
+   * @param x The x coordinate
+   * @param y The y coordinate
+   * @return The cell index of the grid square containing the coordinates
+   * @author Lewis Ackroyd
+   */
+  private int cellOf(double x, double y) {
+    return Cells.cellOf(x, y, MAX_X, MAX_Y);
+  }
+
+  /**
+   * Gives the cell adjacent to the given cell in the given direction, looping around the map
+   * boundaries.
+   *
+   * @param cell The cell being moved from
+   * @param direction The direction of movement
+   * @return The adjacent cell
+   * @author Lewis Ackroyd
+   */
+  int neighbour(int cell, Direction direction) {
+    return map.neighbour(cell, direction);
+  }
+}
@@ -0,0 +1,196 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of integer ids in the range 0 to capacity - 1, ordered by a double priority.
+ * Every id knows its position in the heap, so the priority of an id already in the heap can be
+ * lowered in O(log n) without searching for it. Intended to be reused between searches to avoid
+ * allocating a new open set for each one.
+ *
+ * @author Lewis Ackroyd
+ */
+public class IndexedMinHeap {
+
+  private static final int NOT_IN_HEAP = -1;
+
+  private final int[] heap; // ids in heap order
+  private final int[] positions; // position of each id within heap, or NOT_IN_HEAP
+  private final double[] priorities; // priority of each id
+  private int size;
+
+  /**
+   * Creates an empty heap that can hold the ids 0 to capacity - 1.
+   *
+   * @param capacity The number of distinct ids the heap can hold
+   * @author Lewis Ackroyd
+   */
+  public IndexedMinHeap(int capacity) {
+    this.heap = new int[capacity];
+    this.positions = new int[capacity];
+    this.priorities = new double[capacity];
+    this.size = 0;
+    Arrays.fill(positions, NOT_IN_HEAP);
+  }
+
+  /**
+   * @return True if the heap holds no ids
+   * @author Lewis Ackroyd
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return The number of ids in the heap
+   * @author Lewis Ackroyd
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param id The id being checked
+   * @return True if the id is currently in the heap
+   * @author Lewis Ackroyd
+   */
+  public boolean contains(int id) {
+    return positions[id] != NOT_IN_HEAP;
+  }
+
+  /**
+   * @param id An id currently in the heap
+   * @return The priority of the given id
+   * @author Lewis Ackroyd
+   */
+  public double getPriority(int id) {
+    return priorities[id];
+  }
+
+  /**
+   * Adds the id to the heap with the given priority. If the id is already in the heap its priority
+   * is lowered to the given value, unless its current priority is already lower.
+   *
+   * @param id The id to add
+   * @param priority The priority of the id, lower values are removed first
+   * @return True if the heap was changed
+   * @author Lewis Ackroyd
+   */
+  public boolean insertOrDecrease(int id, double priority) {
+    int position = positions[id];
+    if (position == NOT_IN_HEAP) {
+      position = size;
+      size++;
+      heap[position] = id;
+      positions[id] = position;
+    } else if (priority >= priorities[id]) {
+      return false;
+    }
+    priorities[id] = priority;
+    siftUp(position);
+    return true;
+  }
+
+  /**
+   * Gives the id with the lowest priority without removing it from the heap.
+   *
+   * @return The id with the lowest priority
+   * @throws NoSuchElementException The heap is empty
+   * @author Lewis Ackroyd
+   */
+  public int peek() throws NoSuchElementException {
+    if (size == 0) {
+      throw new NoSuchElementException("The heap is empty.");
+    }
+    return heap[0];
+  }
+
+  /**
+   * Removes the id with the lowest priority from the heap.
+   *
+   * @return The id with the lowest priority
+   * @throws NoSuchElementException The heap is empty
+   * @author Lewis Ackroyd
+   */
+  public int poll() throws NoSuchElementException {
+    if (size == 0) {
+      throw new NoSuchElementException("The heap is empty.");
+    }
+    int min = heap[0];
+    size--;
+    positions[min] = NOT_IN_HEAP;
+    if (size > 0) {
+      int last = heap[size];
+      heap[0] = last;
+      positions[last] = 0;
+      siftDown(0);
+    }
+    return min;
+  }
+
+  /**
+   * Removes all ids from the heap. Takes time proportional to the number of ids in the heap rather
+   * than the capacity.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      positions[heap[i]] = NOT_IN_HEAP;
+    }
+    size = 0;
+  }
+
+  /**
+   * Moves the id at the given position towards the root until the heap order holds.
+   *
+   * @param position The position of the id being moved
+   * @author Lewis Ackroyd
+   */
+  private void siftUp(int position) {
+    int id = heap[position];
+    double priority = priorities[id];
+    while (position > 0) {
+      int parentPosition = (position - 1) >>> 1;
+      int parent = heap[parentPosition];
+      if (priorities[parent] <= priority) {
+        break;
+      }
+      heap[position] = parent;
+      positions[parent] = position;
+      position = parentPosition;
+    }
+    heap[position] = id;
+    positions[id] = position;
+  }
+
+  /**
+   * Moves the id at the given position away from the root until the heap order holds.
+   *
+   * @param position The position of the id being moved
+   * @author Lewis Ackroyd
+   */
+  private void siftDown(int position) {
+    int id = heap[position];
+    double priority = priorities[id];
+    int half = size >>> 1;
+    while (position < half) {
+      int childPosition = (position << 1) + 1;
+      int child = heap[childPosition];
+      int rightPosition = childPosition + 1;
+      if (rightPosition < size && priorities[heap[rightPosition]] < priorities[child]) {
+        childPosition = rightPosition;
+        child = heap[childPosition];
+      }
+      if (priority <= priorities[child]) {
+        break;
+      }
+      heap[position] = child;
+      positions[child] = position;
+      position = childPosition;
+    }
+    heap[position] = id;
+    positions[id] = position;
+  }
+}
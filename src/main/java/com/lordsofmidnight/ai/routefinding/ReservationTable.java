@@ -0,0 +1,81 @@
+package com.lordsofmidnight.ai.routefinding;
+
+/**
+ * Space-time reservations of the grid squares of a map. Each planned route reserves the square it
+ * will be in at every step, counted in squares travelled from the start of the plan, and marks
+ * every square it passes through as part of its trail. Both are held in {@link VisitedSet}s, so the
+ * whole table is emptied in constant time at the start of each plan.
+ *
+ * @author Lewis Ackroyd
+ */
+public class ReservationTable {
+
+  private final int cellCount;
+  private final int horizon;
+  private final VisitedSet reserved; // step * cellCount + cell, for every square held at a step
+  private final VisitedSet trail; // every square on any planned route
+
+  /**
+   * Creates an empty table.
+   *
+   * @param cellCount The number of grid squares in the map
+   * @param horizon The number of steps that squares can be reserved for
+   * @throws IllegalArgumentException The cell count or horizon is not positive.
+   * @author Lewis Ackroyd
+   */
+  public ReservationTable(int cellCount, int horizon) throws IllegalArgumentException {
+    if (cellCount <= 0 || horizon <= 0) {
+      throw new IllegalArgumentException("Cell count and horizon must be positive.");
+    }
+    this.cellCount = cellCount;
+    this.horizon = horizon;
+    this.reserved = new VisitedSet(cellCount * (horizon + 1));
+    this.trail = new VisitedSet(cellCount);
+  }
+
+  /** @return The number of steps that squares can be reserved for */
+  public int getHorizon() {
+    return horizon;
+  }
+
+  /**
+   * Reserves the square at the given step, and adds it to the trail.
+   *
+   * @param cell The cell index of the square
+   * @param step The number of squares travelled from the start of the plan, up to the horizon
+   * @author Lewis Ackroyd
+   */
+  public void reserve(int cell, int step) {
+    reserved.add((step * cellCount) + cell);
+    trail.add(cell);
+  }
+
+  /**
+   * @param cell The cell index of the square
+   * @param step The number of squares travelled from the start of the plan, up to the horizon
+   * @return True if the square is held by a planned route at the given step
+   * @author Lewis Ackroyd
+   */
+  public boolean isReserved(int cell, int step) {
+    return reserved.contains((step * cellCount) + cell);
+  }
+
+  /**
+   * @param cell The cell index of the square
+   * @return True if any planned route passes through the square
+   * @author Lewis Ackroyd
+   */
+  public boolean isOnTrail(int cell) {
+    return trail.contains(cell);
+  }
+
+  /**
+   * Removes every reservation and trail.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void clear() {
+    reserved.clear();
+    trail.clear();
+  }
+}
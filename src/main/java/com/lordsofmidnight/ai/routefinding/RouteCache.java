@@ -0,0 +1,132 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded store of the first move of previously found routes between pairs of junctions on a
+ * single {@link com.lordsofmidnight.gamestate.maps.Map Map}. Once full, the route used least
+ * recently is discarded for each new route stored. Every lookup is counted as a hit or a miss. Safe
+ * to share between threads.
+ *
+ * @author Lewis Ackroyd
+ */
+public class RouteCache {
+
+  public static final int DEFAULT_CAPACITY = 4096; // routes held before the oldest is discarded
+
+  private final int capacity;
+  private final LinkedHashMap<Long, Direction> routes;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Initialises an empty cache holding up to {@link #DEFAULT_CAPACITY} routes.
+   *
+   * @author Lewis Ackroyd
+   */
+  public RouteCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Initialises an empty cache holding up to the given number of routes.
+   *
+   * @param capacity The largest number of routes held
+   * @throws IllegalArgumentException The capacity is not positive.
+   * @author Lewis Ackroyd
+   */
+  public RouteCache(int capacity) throws IllegalArgumentException {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+    this.capacity = capacity;
+    this.routes =
+        new LinkedHashMap<Long, Direction>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Long, Direction> eldest) {
+            return size() > RouteCache.this.capacity;
+          }
+        };
+  }
+
+  /**
+   * Packs the ids of a pair of junctions into a single key.
+   *
+   * @param from The id of the start junction
+   * @param to The id of the target junction
+   * @return The key of the route between the junctions
+   * @author Lewis Ackroyd
+   */
+  public static long key(int from, int to) {
+    return ((long) from << Integer.SIZE) | (to & 0xFFFFFFFFL);
+  }
+
+  /**
+   * The first move of the stored route with the given key, counting the lookup as a hit or miss.
+   *
+   * @param key The key of the route
+   * @return The first move of the route, or null if it is not stored
+   * @author Lewis Ackroyd
+   */
+  public Direction get(long key) {
+    Direction direction;
+    synchronized (routes) {
+      direction = routes.get(key);
+    }
+    if (direction == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return direction;
+  }
+
+  /**
+   * Stores the first move of the route with the given key.
+   *
+   * @param key The key of the route
+   * @param direction The first move of the route
+   * @author Lewis Ackroyd
+   */
+  public void put(long key, Direction direction) {
+    synchronized (routes) {
+      routes.put(key, direction);
+    }
+  }
+
+  /**
+   * Discards every stored route. The hit and miss counts are kept.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void clear() {
+    synchronized (routes) {
+      routes.clear();
+    }
+  }
+
+  /** @return The number of routes currently stored */
+  public int size() {
+    synchronized (routes) {
+      return routes.size();
+    }
+  }
+
+  /** @return The largest number of routes held */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** @return The number of lookups that found a stored route */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /** @return The number of lookups that did not find a stored route */
+  public long getMisses() {
+    return misses.get();
+  }
+}
@@ -1,21 +1,32 @@
 package com.lordsofmidnight.ai.routefinding;
 
 import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Cells;
 import com.lordsofmidnight.gamestate.points.Point;
-import com.lordsofmidnight.gamestate.points.PointSet;
 import com.lordsofmidnight.utils.enums.Direction;
-import java.util.LinkedList;
-import java.util.Queue;
 
 /**
  * Class that carries out a sample search up to the specified depth on the specified {@link Map}.
+ * All search data is held in arrays indexed by grid cell that are kept between searches, so a
+ * search allocates nothing. Several conditions can be scored in a single pass. An instance must not
+ * be used by more than one thread at a time.
  *
  * @author Lewis Ackroyd
  */
 public class SampleSearch {
 
   private final int sampleDepth;
+  private final int MAX_X;
+  private final int MAX_Y;
   private final Map map;
+  private final VisitedSet visited; // cells that have been reached by the current search
+  private final int[] queue; // cells reached but not yet expanded, in order of cost
+  private final int[] costs; // distance from the start to each reached cell
+  private final byte[] originalDirections; // direction first travelled to reach each cell
+  private final Point position; // reused to pass each cell to the conditions
+  private final ConditionalInterface[] singleCondition = new ConditionalInterface[1];
+  private final int[] singleDepth = new int[1];
+  private final int[][] singleOut = new int[1][];
 
   /**
    * Initialises the sample search to the specified {@link Map} and depth of search.
@@ -26,7 +37,15 @@ public class SampleSearch {
    */
   public SampleSearch(int sampleDepth, Map map) {
     this.sampleDepth = sampleDepth;
+    this.MAX_X = map.getMaxX();
+    this.MAX_Y = map.getMaxY();
+    int cells = MAX_X * MAX_Y;
     this.map = map;
+    this.visited = new VisitedSet(cells);
+    this.queue = new int[cells];
+    this.costs = new int[cells];
+    this.originalDirections = new byte[cells];
+    this.position = new Point(0, 0, map);
   }
 
   /**
@@ -44,144 +63,163 @@ public class SampleSearch {
    * @see ConditionalInterface
    */
   public int[] getDirectionCounts(Point position, ConditionalInterface condition) {
-    position = position.getGridCoord();
-    PointSet visited = new PointSet(map);
-    Queue<SampleSearchData> unVisited = new LinkedList<>();
-    SampleSearchData data = new SampleSearchData(position, 0, Direction.STOP);
-
-    visited.add(position); // add start position to visited
     int[] outArray = {0, 0, 0, 0};
-    for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
-      addSingleDirection(position, condition, visited, unVisited, data, outArray, d, d);
-    }
+    singleCondition[0] = condition;
+    singleDepth[0] = sampleDepth;
+    singleOut[0] = outArray;
+    getDirectionCounts(position, singleCondition, singleDepth, singleOut);
+    singleCondition[0] = null;
+    singleOut[0] = null;
+    return outArray;
+  }
 
-    if (unVisited.size() > 0) { // there are positions to travel to, start on first position
-      data = unVisited.poll();
-      position = data.getMyPosition();
-      visited.add(position);
-    }
+  /**
+   * Scores every condition in a single search from the given position. Each condition is scored as
+   * in {@link #getDirectionCounts(Point, ConditionalInterface)}, but to its own depth, and the
+   * values are added to the corresponding array of outArrays. The search continues to the largest
+   * depth given.
+   *
+   * @param position The start position for the search
+   * @param conditions The conditions of the search
+   * @param depths The depth to score each condition to
+   * @param outArrays Arrays of size 4 that the values for each condition are added to
+   * @author Lewis Ackroyd
+   * @see ConditionalInterface
+   */
+  public void getDirectionCounts(
+      Point position, ConditionalInterface[] conditions, int[] depths, int[][] outArrays) {
+    getDirectionCounts(position, conditions, depths, outArrays, AnytimeRouteFinder.NO_DEADLINE);
+  }
 
-    while ((unVisited.size() > 0)
-        && (data.getCost()
-        <= sampleDepth)) { // search until there is nowhere else to search or max depth has been
-      // reached
+  /**
+   * Scores every condition as in {@link #getDirectionCounts(Point, ConditionalInterface[], int[],
+   * int[][])}, but stops searching once the deadline has passed. The values then only include the
+   * positions reached, which are always those nearest the start.
+   *
+   * @param position The start position for the search
+   * @param conditions The conditions of the search
+   * @param depths The depth to score each condition to
+   * @param outArrays Arrays of size 4 that the values for each condition are added to
+   * @param deadline The {@link System#nanoTime()} value the search must finish by, or {@link
+   *     AnytimeRouteFinder#NO_DEADLINE}
+   * @author Lewis Ackroyd
+   * @see ConditionalInterface
+   */
+  public void getDirectionCounts(
+      Point position,
+      ConditionalInterface[] conditions,
+      int[] depths,
+      int[][] outArrays,
+      long deadline) {
+    int maxDepth = 0;
+    for (int depth : depths) {
+      maxDepth = Math.max(maxDepth, depth);
+    }
+    visited.clear();
+    int start = cellOf(position.getX(), position.getY());
+    visited.add(start); // add start position to visited
+    costs[start] = 0;
+    int head = 0;
+    int tail = 0;
+    for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+      tail = addSingleDirection(start, conditions, depths, outArrays, d, d, tail);
+    }
+    // search until there is nowhere else to search or max depth has been reached. Cells at the
+    // max depth are not expanded as anything beyond them would score 0
+    while (head < tail && costs[queue[head]] < maxDepth) {
+      if (head % AnytimeRouteFinder.DEADLINE_CHECK_INTERVAL == 0
+          && AnytimeRouteFinder.expired(deadline)) {
+        break; // out of time, keep the scores of the positions already reached
+      }
+      int cell = queue[head++];
+      Direction originalDirection = Direction.fromInt(originalDirections[cell]);
       for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
-        addSingleDirection(
-            position,
-            condition,
-            visited,
-            unVisited,
-            data,
-            outArray,
-            d,
-            data.getOriginalDirection());
+        tail = addSingleDirection(cell, conditions, depths, outArrays, d, originalDirection, tail);
       }
-      data = unVisited.poll();
-      position = data.getMyPosition();
-      visited.add(position);
     }
-    return outArray;
   }
 
   /**
-   * Moves from the given point to the next in the direction specified, and if it is not a wall,
-   * adds it to the queue. If the condition specified is met at this point then increases the output
-   * value for the original direction travelled to reach this point.
+   * Moves from the given cell to the next in the direction specified, and if it is not a wall or
+   * already reached, adds it to the queue. For every condition whose depth has not been exceeded
+   * that is met at the next cell, increases the output value for the original direction travelled
+   * to reach it.
    *
-   * @param position The original position, before being moved.
-   * @param condition The condition for the search
-   * @param visited The set of all points that have already been expanded by the search
-   * @param unVisited The set of all points that have been reached, but not expanded by the search
-   * @param data The data of the original position
-   * @param outArray The array containing all the output values of the search
-   * @param d The direction to travel in to generate the next position
+   * @param cell The original cell, before being moved.
+   * @param conditions The conditions for the search
+   * @param depths The depth to score each condition to
+   * @param outArrays The arrays containing all the output values of the search
+   * @param d The direction to travel in to generate the next cell
    * @param d2 The direction travelled in at the start of the search that resulted in reaching this
-   * point
+   * cell
+   * @param tail The end of the queue
+   * @return The end of the queue after adding the next cell
    * @author Lewis Ackroyd
    */
-  private void addSingleDirection(
-      Point position,
-      ConditionalInterface condition,
-      PointSet visited,
-      Queue<SampleSearchData> unVisited,
-      SampleSearchData data,
-      int[] outArray,
+  private int addSingleDirection(
+      int cell,
+      ConditionalInterface[] conditions,
+      int[] depths,
+      int[][] outArrays,
       Direction d,
-      Direction d2) {
-    Point nextPos = position.getCopy().moveInDirection(1, d).getGridCoord();
-    if (!map.isWall(nextPos) && !visited.contains(nextPos)) {
-      unVisited.add(new SampleSearchData(nextPos, data.getCost() + 1, d2));
-      if (condition.condition(nextPos)) {
-        outArray[d2.toInt()] += (sampleDepth - data.getCost());
+      Direction d2,
+      int tail) {
+    int next = neighbour(cell, d);
+    if (map.isWall(next) || !visited.add(next)) {
+      return tail;
+    }
+    int cost = costs[cell];
+    costs[next] = cost + 1;
+    originalDirections[next] = (byte) d2.toInt();
+    queue[tail] = next;
+    position.setLocation(next % MAX_X, next / MAX_X);
+    for (int i = 0; i < conditions.length; i++) {
+      if (cost < depths[i] && conditions[i].condition(position)) {
+        outArrays[i][d2.toInt()] += (depths[i] - cost);
       }
     }
+    return tail + 1;
   }
 
   /**
-   * Condition structure for sample search condition.
+   * Calculates the cell index for the given coordinates, wrapping them onto the map.
    *
+   * @param x The x coordinate
+   * @param y The y coordinate
+   * @return The cell index of the grid square containing the coordinates
    * @author Lewis Ackroyd
    */
-  public interface ConditionalInterface {
-
-    /**
-     * The condition must take a given {@link Point} and return True if some condition is met at
-     * this {@link Point}
-     *
-     * @param position The position that the condition is being checked on
-     * @return True if the specified condition is met at the given {@link Point}
-     */
-    boolean condition(Point position);
+  private int cellOf(double x, double y) {
+    return Cells.cellOf(x, y, MAX_X, MAX_Y);
   }
 
   /**
-   * Class that stores data on each point that is required to carry out the sample search
+   * Gives the cell adjacent to the given cell in the given direction, looping around the map
+   * boundaries.
    *
+   * @param cell The cell being moved from
+   * @param direction The direction of movement
+   * @return The adjacent cell
    * @author Lewis Ackroyd
    */
-  private final class SampleSearchData {
+  private int neighbour(int cell, Direction direction) {
+    return map.neighbour(cell, direction);
+  }
 
-    private final Point myPosition;
-    private final int moveCost;
-    private final Direction originalDirection;
+  /**
+   * Condition structure for sample search condition.
+   *
+   * @author Lewis Ackroyd
+   */
+  public interface ConditionalInterface {
 
     /**
-     * Stores the specified data.
+     * The condition must take a given {@link Point} and return True if some condition is met at
+     * this {@link Point}. The {@link Point} given is reused by the search, so must not be stored.
      *
-     * @param myPosition The point of which the data is about
-     * @param moveCost The cost to reach this {@link Point} from the start position
-     * @param originalDirection The direction travelled from the start position to reach this {@link
-     * Point}
-     * @author Lewis Ackroyd
-     */
-    public SampleSearchData(Point myPosition, int moveCost, Direction originalDirection) {
-      this.myPosition = myPosition;
-      this.moveCost = moveCost;
-      this.originalDirection = originalDirection;
-    }
-
-    /**
-     * @return The point of which this data is about
-     * @author Lewis Ackroyd
-     */
-    public Point getMyPosition() {
-      return myPosition;
-    }
-
-    /**
-     * @return The cost to reach this {@link Point} from the start position
-     * @author Lewis Ackroyd
-     */
-    public int getCost() {
-      return moveCost;
-    }
-
-    /**
-     * @return The direction travelled from the start position to reach this {@link Point}
-     * @author Lewis Ackroyd
+     * @param position The position that the condition is being checked on
+     * @return True if the specified condition is met at the given {@link Point}
      */
-    public Direction getOriginalDirection() {
-      return originalDirection;
-    }
+    boolean condition(Point position);
   }
 }
@@ -0,0 +1,70 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import java.util.Arrays;
+
+/**
+ * Set of integer ids in the range 0 to capacity - 1 that can be emptied in constant time. Each id
+ * stores the generation it was last added in, and clearing the set starts a new generation. This
+ * allows a search to reuse the same set for every run without clearing or reallocating it.
+ *
+ * @author Lewis Ackroyd
+ */
+public class VisitedSet {
+
+  private final int[] stamps;
+  private int generation;
+
+  /**
+   * Creates an empty set that can hold the ids 0 to capacity - 1.
+   *
+   * @param capacity The number of distinct ids the set can hold
+   * @author Lewis Ackroyd
+   */
+  public VisitedSet(int capacity) {
+    this.stamps = new int[capacity];
+    this.generation = 1;
+  }
+
+  /**
+   * @return The number of distinct ids the set can hold
+   * @author Lewis Ackroyd
+   */
+  public int capacity() {
+    return stamps.length;
+  }
+
+  /**
+   * @param id The id being checked
+   * @return True if the id has been added since the set was last cleared
+   * @author Lewis Ackroyd
+   */
+  public boolean contains(int id) {
+    return stamps[id] == generation;
+  }
+
+  /**
+   * @param id The id being added
+   * @return True if the id was not already in the set
+   * @author Lewis Ackroyd
+   */
+  public boolean add(int id) {
+    if (stamps[id] == generation) {
+      return false;
+    }
+    stamps[id] = generation;
+    return true;
+  }
+
+  /**
+   * Removes every id from the set.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void clear() {
+    generation++;
+    if (generation == 0) { // wrapped around, old stamps could now match
+      Arrays.fill(stamps, 0);
+      generation = 1;
+    }
+  }
+}
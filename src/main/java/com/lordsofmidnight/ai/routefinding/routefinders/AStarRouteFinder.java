@@ -1,50 +1,79 @@
 package com.lordsofmidnight.ai.routefinding.routefinders;
 
+import com.lordsofmidnight.ai.mapping.JunctionGraph;
+import com.lordsofmidnight.ai.mapping.MapAnalysis;
 import com.lordsofmidnight.ai.mapping.Mapping;
+import com.lordsofmidnight.ai.routefinding.AnytimeRouteFinder;
+import com.lordsofmidnight.ai.routefinding.IndexedMinHeap;
 import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.ai.routefinding.VisitedSet;
 import com.lordsofmidnight.gamestate.maps.Map;
 import com.lordsofmidnight.gamestate.points.Point;
-import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.gamestate.points.PointSet;
 import com.lordsofmidnight.utils.enums.Direction;
 
 /**
- * A* route finding algorithm implementation.
+ * A* route finding algorithm implementation. The open set is an {@link IndexedMinHeap} and the
+ * closed set a {@link VisitedSet}, both indexed by {@link JunctionGraph} id and reused between
+ * searches. Searches are synchronized, so an instance may be shared between threads. A search cut
+ * short by its deadline heads towards the junction reached that is estimated closest to the
+ * target.
  *
  * @author Lewis Ackroyd
  */
-public class AStarRouteFinder implements RouteFinder {
+public class AStarRouteFinder implements AnytimeRouteFinder {
 
   private final PointSet junctions;
-  private final PointMap<PointSet> edges;
+  private final JunctionGraph graph;
   private final Map map;
 
+  private final IndexedMinHeap unVisited; // junctions reached, but not yet expanded
+  private final VisitedSet visited; // junctions that have been expanded
+  private final VisitedSet reached; // junctions with a valid moveCost and parent this search
+  private final double[] moveCosts; // cost to reach each junction from the start
+  private final int[] parents; // junction travelled from to reach each junction
+  private final int[] parentEdges; // edge travelled along to reach each junction
+
   /**
-   * Initialises the A* for the specified {@link Map} and corresponding junction set and edge
-   * mapping.
+   * Initialises the A* for the specified {@link Map} and corresponding junction set and graph.
    *
    * @param junctions The set of junctions for the specified {@link Map}
-   * @param edges The map of edged for the specified {@link Map}
+   * @param graph The junction graph for the specified {@link Map}
    * @param map The map being searched
    * @author Lewis Ackroyd
    */
-  public AStarRouteFinder(PointSet junctions, PointMap<PointSet> edges, Map map) {
+  public AStarRouteFinder(PointSet junctions, JunctionGraph graph, Map map) {
     this.junctions = junctions;
-    this.edges = edges;
+    this.graph = graph;
     this.map = map;
+    int junctionCount = graph.getJunctionCount();
+    this.unVisited = new IndexedMinHeap(junctionCount);
+    this.visited = new VisitedSet(junctionCount);
+    this.reached = new VisitedSet(junctionCount);
+    this.moveCosts = new double[junctionCount];
+    this.parents = new int[junctionCount];
+    this.parentEdges = new int[junctionCount];
   }
 
   /**
-   * Initialises the A* for the specified {@link Map} and corresponding junction set and edge
-   * mapping.
+   * Initialises the A* for the specified {@link Map}, using the shared {@link MapAnalysis} of the
+   * {@link Map}.
    *
    * @param map The map being searched
    * @author Lewis Ackroyd
    */
   public AStarRouteFinder(Map map) {
-    this.map = map;
-    this.junctions = Mapping.getJunctions(map);
-    this.edges = Mapping.getEdges(map, junctions);
+    this(MapAnalysis.of(map));
+  }
+
+  /**
+   * Initialises the A* for the analysed {@link Map}.
+   *
+   * @param analysis The analysis of the map being searched
+   * @author Lewis Ackroyd
+   */
+  private AStarRouteFinder(MapAnalysis analysis) {
+    this(analysis.getJunctions(), analysis.getGraph(), analysis.getMap());
   }
 
   /**
@@ -53,152 +82,98 @@ public class AStarRouteFinder implements RouteFinder {
    *
    * @param myLocation The start point.
    * @param targetLocation The target point.
+   * @param deadline The {@link System#nanoTime()} value the search must finish by
    * @return The direction to travel in, or DEFAULT if no direction could be produced.
    * @author Lewis Ackroyd
    */
   @Override
-  public Direction getRoute(Point myLocation, Point targetLocation) {
+  public synchronized Direction getRoute(Point myLocation, Point targetLocation, long deadline) {
     if (myLocation == null || targetLocation == null) {
       return DEFAULT;
     }
     myLocation = myLocation.getGridCoord();
     targetLocation = targetLocation.getGridCoord();
-    if (!junctions.contains(myLocation)) {
+    int start = graph.getId(myLocation);
+    if (start < 0) {
       Point nearestJunct = Mapping.findNearestJunction(myLocation, map, junctions);
       return Mapping.directionBetweenPoints(myLocation, nearestJunct);
     }
-    Point targetJunction;
-    if (junctions.contains(targetLocation)) {
-      targetJunction = targetLocation;
-    } else {
-      targetJunction = Mapping.findNearestJunction(targetLocation, map, junctions).getGridCoord();
-    }
-    PointMap<AStarData> visited = new PointMap<>(map);
-    PointMap<AStarData> unVisited = new PointMap<>(map);
-    visited.put(
-        myLocation,
-        new AStarData(myLocation, myLocation, 0, heuristicCost(myLocation, targetJunction)));
-    Direction outDirection = DEFAULT;
-    Point currentPoint = myLocation;
-    while (!visited.containsKey(targetJunction) && (visited.size() < junctions.size())) {
-      PointSet connections = edges.get(currentPoint);
-      for (Point connection : connections) {
-        if (!visited.containsKey(connection)) {
-          double moveCost =
-              visited.get(currentPoint).getMoveCost() + movementCost(currentPoint, connection);
-          double estimatedCost = moveCost + heuristicCost(connection, targetJunction);
-          unVisited.put(
-              connection, new AStarData(connection, currentPoint, moveCost, estimatedCost));
-        }
-      }
-      if (unVisited.size() == 0) { // target location is not reachable
+    int target = graph.getId(targetLocation);
+    if (target < 0) {
+      target =
+          graph.getId(Mapping.findNearestJunction(targetLocation, map, junctions).getGridCoord());
+      if (target < 0) {
         return DEFAULT;
       }
-      double lowestCost = Double.MAX_VALUE;
-      for (Point key : unVisited.keySet()) {
-        AStarData data = unVisited.get(key);
-        if (data.getEstimatedCost() < lowestCost) {
-          currentPoint = key;
-          lowestCost = data.getEstimatedCost();
-        }
-      }
-      AStarData data = unVisited.get(currentPoint);
-      unVisited.remove(currentPoint);
-      visited.put(currentPoint, data);
     }
-    AStarData data = visited.get(currentPoint);
-    while (!data.getMyPosition().equals(data.getParentPosition())) {
-      if (data.getParentPosition().equals(myLocation)) {
-        outDirection = Mapping.directionBetweenPoints(myLocation, data.getMyPosition());
-        break;
-      }
-      data = visited.get(data.getParentPosition());
+    int end = search(start, target, deadline);
+    if (end < 0) {
+      return DEFAULT; // target location is not reachable
     }
-    return outDirection;
-  }
-
-  /**
-   * The cost to move from the current location to the target location
-   *
-   * @param start The start position
-   * @param target The target position
-   * @return The cost of movement between the two points
-   * @author Lewis Ackroyd
-   */
-  private double movementCost(Point start, Point target) {
-    return start.distance(target);
-  }
-
-  /**
-   * The estimated cost to move from the current location to the target location
-   *
-   * @param start The start position
-   * @param target The target position
-   * @return The estimated cost of movement between the two points
-   * @author Lewis Ackroyd
-   */
-  private double heuristicCost(Point start, Point target) {
-    return start.distance(target);
+    int current = end;
+    while (current != start && parents[current] != start) {
+      current = parents[current];
+    }
+    if (current == start) {
+      return DEFAULT;
+    }
+    return graph.getEdgeDirection(parentEdges[current]);
   }
 
   /**
-   * Class that stores data on each point that is required to carry out the A* search
+   * Runs the A* search between the two junctions, filling {@link #parents} for every junction on
+   * the shortest route found. If the deadline passes first, the search stops at the junction
+   * reached so far that is estimated to be closest to the target.
    *
+   * @param start The id of the start junction
+   * @param target The id of the target junction
+   * @param deadline The {@link System#nanoTime()} value the search must finish by
+   * @return The target, the junction closest to it if the search was cut short, or -1 if the target
+   *     cannot be reached
    * @author Lewis Ackroyd
    */
-  private class AStarData {
-
-    private final Point myPosition;
-    private final Point parent;
-    private final double moveCost;
-    private final double estimatedCost;
-
-    /**
-     * Stores the specified data.
-     *
-     * @param myPosition The point of which the data is about
-     * @param parent The point that was travelled from to reach this point
-     * @param moveCost The cost to reach this {@link Point} from the start position
-     * @param estimatedCost The estimated cost remaining to reach the target
-     * @author Lewis Ackroyd
-     */
-    public AStarData(Point myPosition, Point parent, double moveCost, double estimatedCost) {
-      this.myPosition = myPosition;
-      this.parent = parent;
-      this.moveCost = moveCost;
-      this.estimatedCost = estimatedCost;
-    }
-
-    /**
-     * @return The point of which this data is about
-     * @author Lewis Ackroyd
-     */
-    public Point getMyPosition() {
-      return myPosition;
-    }
-
-    /**
-     * @return The point that was travelled from to reach this point
-     * @author Lewis Ackroyd
-     */
-    public Point getParentPosition() {
-      return parent;
-    }
-
-    /**
-     * @return The cost to reach this {@link Point} from the start position
-     * @author Lewis Ackroyd
-     */
-    public double getMoveCost() {
-      return moveCost;
-    }
-
-    /**
-     * @return The estimated cost remaining to reach the target
-     * @author Lewis Ackroyd
-     */
-    public double getEstimatedCost() {
-      return estimatedCost;
+  private int search(int start, int target, long deadline) {
+    unVisited.clear();
+    visited.clear();
+    reached.clear();
+    Point targetJunction = graph.getJunction(target);
+    reached.add(start);
+    moveCosts[start] = 0;
+    parents[start] = start;
+    unVisited.insertOrDecrease(start, graph.estimateDistance(start, targetJunction));
+    int closest = start;
+    double closestDistance = Double.MAX_VALUE;
+    int expanded = 0;
+    while (!unVisited.isEmpty()) {
+      if (++expanded % DEADLINE_CHECK_INTERVAL == 0 && AnytimeRouteFinder.expired(deadline)) {
+        return closest; // out of time, head towards the best junction found so far
+      }
+      int current = unVisited.poll();
+      if (current == target) {
+        return target;
+      }
+      double distance = graph.estimateDistance(current, targetJunction);
+      if (current != start && distance < closestDistance) {
+        closest = current;
+        closestDistance = distance;
+      }
+      visited.add(current);
+      int end = graph.getEndEdge(current);
+      for (int edge = graph.getFirstEdge(current); edge < end; edge++) {
+        int connection = graph.getEdgeTarget(edge);
+        if (visited.contains(connection)) {
+          continue;
+        }
+        double moveCost = moveCosts[current] + graph.getEdgeLength(edge);
+        if (reached.add(connection) || moveCost < moveCosts[connection]) {
+          moveCosts[connection] = moveCost;
+          parents[connection] = current;
+          parentEdges[connection] = edge;
+          unVisited.insertOrDecrease(
+              connection, moveCost + graph.estimateDistance(connection, targetJunction));
+        }
+      }
     }
+    return -1;
   }
 }
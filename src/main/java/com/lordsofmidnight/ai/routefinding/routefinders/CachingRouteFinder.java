@@ -0,0 +1,87 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import com.lordsofmidnight.ai.mapping.JunctionGraph;
+import com.lordsofmidnight.ai.mapping.Mapping;
+import com.lordsofmidnight.ai.routefinding.RouteCache;
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointSet;
+import com.lordsofmidnight.utils.enums.Direction;
+
+/**
+ * Route finder that remembers the routes produced by another {@link RouteFinder} in a {@link
+ * RouteCache}, so that repeated requests between the same pair of junctions are answered without
+ * searching again. As with {@link AStarRouteFinder}, a target that is not a junction is treated as
+ * its nearest junction. The wrapped route finder must produce the same route every time for the
+ * same pair of junctions, so this should only wrap shortest route searches.
+ *
+ * @author Lewis Ackroyd
+ */
+public class CachingRouteFinder implements RouteFinder {
+
+  private final RouteFinder routeFinder;
+  private final JunctionGraph graph;
+  private final PointSet junctions;
+  private final Map map;
+  private final RouteCache cache;
+
+  /**
+   * Initialises this {@link RouteFinder} to remember the routes of the given {@link RouteFinder}.
+   *
+   * @param routeFinder The route finder producing routes that are not yet stored
+   * @param graph The junction graph for the specified {@link Map}
+   * @param junctions The set of junctions for the specified {@link Map}
+   * @param map The map being searched
+   * @param cache The cache of routes for the specified {@link Map}, which may be shared
+   * @author Lewis Ackroyd
+   */
+  public CachingRouteFinder(
+      RouteFinder routeFinder, JunctionGraph graph, PointSet junctions, Map map, RouteCache cache) {
+    this.routeFinder = routeFinder;
+    this.graph = graph;
+    this.junctions = junctions;
+    this.map = map;
+    this.cache = cache;
+  }
+
+  /**
+   * Returns the direction to travel in until the next junction is reached such that the direction
+   * is the fastest to the target.
+   *
+   * @param myLocation The start point.
+   * @param targetLocation The target point.
+   * @return The direction to travel in, or DEFAULT if no direction could be produced.
+   * @author Lewis Ackroyd
+   */
+  @Override
+  public Direction getRoute(Point myLocation, Point targetLocation) {
+    if (myLocation == null || targetLocation == null) {
+      return DEFAULT;
+    }
+    int from = graph.getId(myLocation.getGridCoord());
+    if (from < 0) { // not at a junction, no search needed
+      return routeFinder.getRoute(myLocation, targetLocation);
+    }
+    Point targetGrid = targetLocation.getGridCoord();
+    int to = graph.getId(targetGrid);
+    if (to < 0) {
+      to = graph.getId(Mapping.findNearestJunction(targetGrid, map, junctions).getGridCoord());
+      if (to < 0) {
+        return routeFinder.getRoute(myLocation, targetLocation);
+      }
+    }
+    long key = RouteCache.key(from, to);
+    Direction direction = cache.get(key);
+    if (direction == null) {
+      direction = routeFinder.getRoute(myLocation, targetLocation);
+      cache.put(key, direction);
+    }
+    return direction;
+  }
+
+  /** @return The cache the routes are stored in */
+  public RouteCache getCache() {
+    return cache;
+  }
+}
@@ -0,0 +1,65 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import com.lordsofmidnight.ai.routefinding.CooperativePlanner;
+import com.lordsofmidnight.ai.routefinding.FlowField;
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+
+/**
+ * Route finding algorithm that follows the routes of a {@link CooperativePlanner}. A single
+ * instance is shared by every cooperating ghoul, and the routes of all of them are planned together
+ * once per cycle, so each route is then a lookup of the planned direction. Positions that were not
+ * planned for follow the {@link FlowField} of the planner towards the target.
+ *
+ * @author Lewis Ackroyd
+ */
+public class CooperativeRouteFinder implements RouteFinder {
+
+  private final CooperativePlanner planner;
+
+  /**
+   * Initialises this {@link RouteFinder} to read from the given {@link CooperativePlanner}.
+   *
+   * @param planner The planner shared by all cooperating agents
+   * @author Lewis Ackroyd
+   */
+  public CooperativeRouteFinder(CooperativePlanner planner) {
+    this.planner = planner;
+  }
+
+  /**
+   * Initialises this {@link RouteFinder} with its own {@link CooperativePlanner} for the specified
+   * {@link Map}.
+   *
+   * @param map The map being searched
+   * @author Lewis Ackroyd
+   */
+  public CooperativeRouteFinder(Map map) {
+    this(new CooperativePlanner(new FlowField(map)));
+  }
+
+  /** @return The planner shared by all cooperating agents */
+  public CooperativePlanner getPlanner() {
+    return planner;
+  }
+
+  /**
+   * Returns the direction planned for an agent at the given location, or the direction that is the
+   * fastest to the target if no route was planned from there.
+   *
+   * @param myLocation The start point.
+   * @param targetLocation The target point.
+   * @return The direction to travel in, or DEFAULT if no direction could be produced.
+   * @author Lewis Ackroyd
+   */
+  @Override
+  public Direction getRoute(Point myLocation, Point targetLocation) {
+    if (myLocation == null || targetLocation == null) {
+      return DEFAULT;
+    }
+    planner.getField().update(targetLocation);
+    return planner.getDirection(myLocation);
+  }
+}
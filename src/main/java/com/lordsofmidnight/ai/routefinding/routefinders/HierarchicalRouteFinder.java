@@ -0,0 +1,374 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import com.lordsofmidnight.ai.mapping.JunctionGraph;
+import com.lordsofmidnight.ai.mapping.Mapping;
+import com.lordsofmidnight.ai.routefinding.IndexedMinHeap;
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.ai.routefinding.VisitedSet;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointSet;
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Hierarchical route finding (HPA*) for large maps. The map is divided into square clusters and
+ * every junction with an edge leaving its cluster is an entrance. The shortest distance between
+ * every pair of entrances within each cluster is found once, giving a much smaller graph of
+ * entrances. Each route searches only the start and target clusters at full detail and the
+ * entrance graph between them, and then refines only the first leg of the route found. Routes are
+ * close to, but not always exactly, the shortest.
+ *
+ * @author Lewis Ackroyd
+ */
+public class HierarchicalRouteFinder implements RouteFinder {
+
+  public static final int DEFAULT_CLUSTER_SIZE = 16; // width and height of each cluster in squares
+  private static final int NOT_ENTRANCE = -1;
+  private static final int NO_PARENT = -1;
+
+  private final Map map;
+  private final PointSet junctions;
+  private final JunctionGraph graph;
+  private final int[] clusters; // the cluster of each junction
+  private final int[][] clusterEntrances; // the junction ids of the entrances of each cluster
+  private final int[] entranceIds; // the entrance index of each junction, or NOT_ENTRANCE
+  private final int[] entrances; // the junction id of each entrance
+  private final int[][] entranceNeighbours; // entrance graph, by entrance index
+  private final int[][] entranceCosts; // cost of each edge in entranceNeighbours
+
+  private final IndexedMinHeap localOpen; // junctions reached in a cluster, but not yet expanded
+  private final VisitedSet localReached; // junctions with a valid cost in this cluster search
+  private final int[] localCosts;
+  private final int[] localParents;
+  private final int[] localParentEdges; // edge travelled along to reach each junction
+  private final IndexedMinHeap entranceOpen; // entrances reached, but not yet expanded
+  private final VisitedSet entranceReached; // entrances with a valid cost in the current search
+  private final VisitedSet entranceClosed; // entrances that have been expanded
+  private final int[] entranceCostsFromStart;
+  private final int[] entranceParents;
+  private final VisitedSet goalReached; // entrances of the target cluster that reach the target
+  private final int[] goalCosts; // cost from each entrance of the target cluster to the target
+
+  /**
+   * Builds the cluster and entrance graph for the specified {@link Map} using clusters of {@link
+   * #DEFAULT_CLUSTER_SIZE}.
+   *
+   * @param map The map being searched
+   * @param junctions The set of junctions for the specified {@link Map}
+   * @param graph The junction graph for the specified {@link Map}
+   * @author Lewis Ackroyd
+   */
+  public HierarchicalRouteFinder(Map map, PointSet junctions, JunctionGraph graph) {
+    this(map, junctions, graph, DEFAULT_CLUSTER_SIZE);
+  }
+
+  /**
+   * Builds the cluster and entrance graph for the specified {@link Map}.
+   *
+   * @param map The map being searched
+   * @param junctions The set of junctions for the specified {@link Map}
+   * @param graph The junction graph for the specified {@link Map}
+   * @param clusterSize The width and height of each cluster in squares
+   * @throws IllegalArgumentException The cluster size is not positive.
+   * @author Lewis Ackroyd
+   */
+  public HierarchicalRouteFinder(Map map, PointSet junctions, JunctionGraph graph, int clusterSize)
+      throws IllegalArgumentException {
+    if (clusterSize <= 0) {
+      throw new IllegalArgumentException("Cluster size must be positive.");
+    }
+    this.map = map;
+    this.junctions = junctions;
+    this.graph = graph;
+    int junctionCount = graph.getJunctionCount();
+    int clustersX = (map.getMaxX() + clusterSize - 1) / clusterSize;
+    int clustersY = (map.getMaxY() + clusterSize - 1) / clusterSize;
+
+    this.clusters = new int[junctionCount];
+    for (int i = 0; i < junctionCount; i++) {
+      Point junction = graph.getJunction(i);
+      int clusterX = (int) junction.getX() / clusterSize;
+      int clusterY = (int) junction.getY() / clusterSize;
+      clusters[i] = (clusterY * clustersX) + clusterX;
+    }
+
+    this.entranceIds = new int[junctionCount];
+    Arrays.fill(entranceIds, NOT_ENTRANCE);
+    ArrayList<ArrayList<Integer>> entrancesByCluster = new ArrayList<>();
+    for (int i = 0; i < clustersX * clustersY; i++) {
+      entrancesByCluster.add(new ArrayList<>());
+    }
+    int entranceCount = 0;
+    for (int i = 0; i < junctionCount; i++) {
+      int end = graph.getEndEdge(i);
+      for (int edge = graph.getFirstEdge(i); edge < end; edge++) {
+        if (clusters[graph.getEdgeTarget(edge)] != clusters[i]) {
+          entranceIds[i] = entranceCount++;
+          entrancesByCluster.get(clusters[i]).add(i);
+          break;
+        }
+      }
+    }
+    this.entrances = new int[entranceCount];
+    for (int i = 0; i < junctionCount; i++) {
+      if (entranceIds[i] != NOT_ENTRANCE) {
+        entrances[entranceIds[i]] = i;
+      }
+    }
+    this.clusterEntrances = new int[entrancesByCluster.size()][];
+    for (int i = 0; i < clusterEntrances.length; i++) {
+      ArrayList<Integer> clusterList = entrancesByCluster.get(i);
+      clusterEntrances[i] = new int[clusterList.size()];
+      for (int j = 0; j < clusterList.size(); j++) {
+        clusterEntrances[i][j] = clusterList.get(j);
+      }
+    }
+
+    this.localOpen = new IndexedMinHeap(junctionCount);
+    this.localReached = new VisitedSet(junctionCount);
+    this.localCosts = new int[junctionCount];
+    this.localParents = new int[junctionCount];
+    this.localParentEdges = new int[junctionCount];
+    this.entranceOpen = new IndexedMinHeap(entranceCount);
+    this.entranceReached = new VisitedSet(entranceCount);
+    this.entranceClosed = new VisitedSet(entranceCount);
+    this.entranceCostsFromStart = new int[entranceCount];
+    this.entranceParents = new int[entranceCount];
+    this.goalReached = new VisitedSet(entranceCount);
+    this.goalCosts = new int[entranceCount];
+
+    this.entranceNeighbours = new int[entranceCount][];
+    this.entranceCosts = new int[entranceCount][];
+    buildEntranceGraph();
+  }
+
+  /**
+   * Connects every entrance to the entrances of neighbouring clusters it shares an edge with, and
+   * to every entrance of its own cluster it can reach without leaving the cluster.
+   *
+   * @author Lewis Ackroyd
+   */
+  private void buildEntranceGraph() {
+    for (int e = 0; e < entrances.length; e++) {
+      int junction = entrances[e];
+      ArrayList<int[]> edges = new ArrayList<>();
+      int end = graph.getEndEdge(junction);
+      for (int edge = graph.getFirstEdge(junction); edge < end; edge++) {
+        int neighbour = graph.getEdgeTarget(edge);
+        if (clusters[neighbour] != clusters[junction]) {
+          edges.add(new int[] {entranceIds[neighbour], graph.getEdgeLength(edge)});
+        }
+      }
+      searchCluster(junction);
+      for (int other : clusterEntrances[clusters[junction]]) {
+        if (other != junction && localReached.contains(other)) {
+          edges.add(new int[] {entranceIds[other], localCosts[other]});
+        }
+      }
+      entranceNeighbours[e] = new int[edges.size()];
+      entranceCosts[e] = new int[edges.size()];
+      for (int i = 0; i < edges.size(); i++) {
+        entranceNeighbours[e][i] = edges.get(i)[0];
+        entranceCosts[e][i] = edges.get(i)[1];
+      }
+    }
+  }
+
+  /**
+   * Returns the direction to travel in until the next junction is reached such that the direction
+   * leads towards the target.
+   *
+   * @param myLocation The start point.
+   * @param targetLocation The target point.
+   * @return The direction to travel in, or DEFAULT if no direction could be produced.
+   * @author Lewis Ackroyd
+   */
+  @Override
+  public synchronized Direction getRoute(Point myLocation, Point targetLocation) {
+    if (myLocation == null || targetLocation == null) {
+      return DEFAULT;
+    }
+    myLocation = myLocation.getGridCoord();
+    targetLocation = targetLocation.getGridCoord();
+    int start = graph.getId(myLocation);
+    if (start < 0) {
+      Point nearestJunct = Mapping.findNearestJunction(myLocation, map, junctions);
+      return Mapping.directionBetweenPoints(myLocation, nearestJunct);
+    }
+    int target = graph.getId(targetLocation);
+    if (target < 0) {
+      target =
+          graph.getId(Mapping.findNearestJunction(targetLocation, map, junctions).getGridCoord());
+      if (target < 0) {
+        return DEFAULT;
+      }
+    }
+    if (start == target) {
+      return DEFAULT;
+    }
+
+    // distances from every entrance of the target cluster to the target
+    goalReached.clear();
+    searchCluster(target);
+    for (int entrance : clusterEntrances[clusters[target]]) {
+      if (localReached.contains(entrance)) {
+        goalReached.add(entranceIds[entrance]);
+        goalCosts[entranceIds[entrance]] = localCosts[entrance];
+      }
+    }
+
+    searchCluster(start); // kept for refining the first leg
+    if (clusters[start] == clusters[target] && localReached.contains(target)) {
+      return firstMove(start, target);
+    }
+
+    int end = searchEntrances(start, targetLocation);
+    if (end == NO_PARENT) {
+      return DEFAULT; // target location is not reachable
+    }
+    int next = NO_PARENT;
+    int current = end;
+    while (entranceParents[current] != NO_PARENT) {
+      next = current;
+      current = entranceParents[current];
+    }
+    int firstEntrance = entrances[current];
+    if (firstEntrance != start) {
+      return firstMove(start, firstEntrance);
+    }
+    if (next == NO_PARENT) {
+      return DEFAULT;
+    }
+    int nextEntrance = entrances[next];
+    if (clusters[nextEntrance] == clusters[start]) {
+      return firstMove(start, nextEntrance);
+    }
+    return edgeDirection(start, nextEntrance);
+  }
+
+  /**
+   * Searches the entrance graph from the entrances of the start cluster reached by the last cluster
+   * search, to the entrances of the target cluster that can reach the target.
+   *
+   * @param start The id of the start junction
+   * @param targetLocation The grid coordinate of the target, used for the heuristic
+   * @return The entrance at the end of the best route found, or NO_PARENT if none was found
+   * @author Lewis Ackroyd
+   */
+  private int searchEntrances(int start, Point targetLocation) {
+    entranceOpen.clear();
+    entranceReached.clear();
+    entranceClosed.clear();
+    for (int entrance : clusterEntrances[clusters[start]]) {
+      if (localReached.contains(entrance)) {
+        int e = entranceIds[entrance];
+        entranceReached.add(e);
+        entranceCostsFromStart[e] = localCosts[entrance];
+        entranceParents[e] = NO_PARENT;
+        entranceOpen.insertOrDecrease(
+            e, localCosts[entrance] + graph.estimateDistance(entrance, targetLocation));
+      }
+    }
+    int bestTotal = Integer.MAX_VALUE;
+    int bestEnd = NO_PARENT;
+    while (!entranceOpen.isEmpty()) {
+      if (entranceOpen.getPriority(entranceOpen.peek()) >= bestTotal) {
+        break; // no remaining route can be shorter
+      }
+      int e = entranceOpen.poll();
+      entranceClosed.add(e);
+      if (goalReached.contains(e) && entranceCostsFromStart[e] + goalCosts[e] < bestTotal) {
+        bestTotal = entranceCostsFromStart[e] + goalCosts[e];
+        bestEnd = e;
+      }
+      int[] neighbours = entranceNeighbours[e];
+      int[] costs = entranceCosts[e];
+      for (int i = 0; i < neighbours.length; i++) {
+        int n = neighbours[i];
+        if (entranceClosed.contains(n)) {
+          continue;
+        }
+        int cost = entranceCostsFromStart[e] + costs[i];
+        if (entranceReached.add(n) || cost < entranceCostsFromStart[n]) {
+          entranceCostsFromStart[n] = cost;
+          entranceParents[n] = e;
+          entranceOpen.insertOrDecrease(
+              n, cost + graph.estimateDistance(entrances[n], targetLocation));
+        }
+      }
+    }
+    return bestEnd;
+  }
+
+  /**
+   * Dijkstra search from the given junction to every junction of the same cluster reachable
+   * without leaving it, filling {@link #localCosts} and {@link #localParents}.
+   *
+   * @param source The id of the junction to search from
+   * @author Lewis Ackroyd
+   */
+  private void searchCluster(int source) {
+    int cluster = clusters[source];
+    localOpen.clear();
+    localReached.clear();
+    localReached.add(source);
+    localCosts[source] = 0;
+    localParents[source] = NO_PARENT;
+    localOpen.insertOrDecrease(source, 0);
+    while (!localOpen.isEmpty()) {
+      int current = localOpen.poll();
+      int end = graph.getEndEdge(current);
+      for (int edge = graph.getFirstEdge(current); edge < end; edge++) {
+        int n = graph.getEdgeTarget(edge);
+        if (clusters[n] != cluster) {
+          continue;
+        }
+        int cost = localCosts[current] + graph.getEdgeLength(edge);
+        if (localReached.add(n) || cost < localCosts[n]) {
+          localCosts[n] = cost;
+          localParents[n] = current;
+          localParentEdges[n] = edge;
+          localOpen.insertOrDecrease(n, cost);
+        }
+      }
+    }
+  }
+
+  /**
+   * The first move along the route to the given junction found by the last cluster search.
+   *
+   * @param start The junction the last cluster search was made from
+   * @param target A junction reached by the last cluster search
+   * @return The direction of the first move
+   * @author Lewis Ackroyd
+   */
+  private Direction firstMove(int start, int target) {
+    int current = target;
+    while (localParents[current] != start) {
+      current = localParents[current];
+    }
+    return graph.getEdgeDirection(localParentEdges[current]);
+  }
+
+  /**
+   * The direction of the shortest edge directly connecting two junctions.
+   *
+   * @param from The id of the junction the edge leaves
+   * @param to The id of the junction the edge leads to
+   * @return The direction of the edge, or DEFAULT if the junctions are not connected
+   * @author Lewis Ackroyd
+   */
+  private Direction edgeDirection(int from, int to) {
+    int best = NO_PARENT;
+    int end = graph.getEndEdge(from);
+    for (int edge = graph.getFirstEdge(from); edge < end; edge++) {
+      if (graph.getEdgeTarget(edge) == to
+          && (best == NO_PARENT || graph.getEdgeLength(edge) < graph.getEdgeLength(best))) {
+        best = edge;
+      }
+    }
+    return (best == NO_PARENT) ? DEFAULT : graph.getEdgeDirection(best);
+  }
+}
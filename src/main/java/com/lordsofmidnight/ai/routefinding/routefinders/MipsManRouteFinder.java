@@ -1,27 +1,38 @@
 package com.lordsofmidnight.ai.routefinding.routefinders;
 
+import com.lordsofmidnight.ai.routefinding.AnytimeRouteFinder;
+import com.lordsofmidnight.ai.routefinding.AttractionField;
 import com.lordsofmidnight.ai.routefinding.RouteFinder;
 import com.lordsofmidnight.ai.routefinding.SampleSearch;
 import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.maps.OccupancyGrid;
 import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
 import com.lordsofmidnight.utils.enums.Direction;
+import java.util.Arrays;
 
 /**
  * Route finding algorithm that controls Mipsman. Will aim to reach the nearest pellet whilst
- * avoiding any ghouls.
+ * avoiding any ghouls. Ghouls are found with a {@link SampleSearch}, as they move every tick, but
+ * power up boxes are read from an {@link AttractionField}.
  *
  * @author Lewis Ackroyd
  */
-public class MipsManRouteFinder implements RouteFinder {
+public class MipsManRouteFinder implements AnytimeRouteFinder {
 
   private static final int GHOUL_NEGATIVE_MULTIPLIER = 2;
-  private static final int PELLET_SEARCH_DEPTH = 25;
-  private static final int GHOUL_SEARCH_DEPTH = 8;
-  private final Map map;
-  private PointMap<Pellet> pellets;
+  private static final int GHOUL_SEARCH_DEPTH = 25;
+  public static final int POWER_UP_BOX_SEARCH_DEPTH = 8; // depth power up boxes are read to
+  private final SampleSearch sampleSearch;
+  private final SampleSearch.ConditionalInterface[] conditions;
+  private final int[] depths = {GHOUL_SEARCH_DEPTH};
+  private final int[][] counts = new int[1][4];
+  private final OccupancyGrid occupancy;
+  private final boolean refreshOccupancy; // if occupancy must be updated before each route
+  private final AttractionField powerUpBoxes; // attraction of power up boxes in each direction
+  private final boolean refreshField; // if every pellet must be checked before each route
   private Entity[] gameAgents;
 
   /**
@@ -33,9 +44,87 @@ public class MipsManRouteFinder implements RouteFinder {
    * @author Lewis Ackroyd
    */
   public MipsManRouteFinder(PointMap<Pellet> pellets, Entity[] gameAgents, Map map) {
-    this.pellets = pellets;
+    this(
+        gameAgents,
+        map,
+        new OccupancyGrid(map),
+        true,
+        new AttractionField(
+            map, pellets, AttractionField.ACTIVE_POWER_UP_BOXES, POWER_UP_BOX_SEARCH_DEPTH),
+        true);
+  }
+
+  /**
+   * Initialises this {@link RouteFinder} with the current {@link Map} and objects on it, reading
+   * agent positions from an {@link OccupancyGrid} that is kept up to date elsewhere.
+   *
+   * @param pellets A mapping from every point containing a pellet, to that pellet
+   * @param gameAgents The array containing all entities in the game
+   * @param map The map being used
+   * @param occupancy The grid of agent positions
+   * @author Lewis Ackroyd
+   */
+  public MipsManRouteFinder(
+      PointMap<Pellet> pellets, Entity[] gameAgents, Map map, OccupancyGrid occupancy) {
+    this(
+        gameAgents,
+        map,
+        occupancy,
+        false,
+        new AttractionField(
+            map, pellets, AttractionField.ACTIVE_POWER_UP_BOXES, POWER_UP_BOX_SEARCH_DEPTH),
+        true);
+  }
+
+  /**
+   * Initialises this {@link RouteFinder} with the current {@link Map}, reading agent positions
+   * from an {@link OccupancyGrid} and power up boxes from an {@link AttractionField}, both kept up
+   * to date elsewhere.
+   *
+   * @param gameAgents The array containing all entities in the game
+   * @param map The map being used
+   * @param occupancy The grid of agent positions
+   * @param powerUpBoxes The attraction of power up boxes, kept to {@link
+   *     #POWER_UP_BOX_SEARCH_DEPTH}
+   * @throws IllegalArgumentException The field is not kept to {@link #POWER_UP_BOX_SEARCH_DEPTH}.
+   * @author Lewis Ackroyd
+   */
+  public MipsManRouteFinder(
+      Entity[] gameAgents, Map map, OccupancyGrid occupancy, AttractionField powerUpBoxes)
+      throws IllegalArgumentException {
+    this(gameAgents, map, occupancy, false, powerUpBoxes, false);
+  }
+
+  /**
+   * Initialises this {@link RouteFinder} with the current {@link Map} and objects on it.
+   *
+   * @param gameAgents The array containing all entities in the game
+   * @param map The map being used
+   * @param occupancy The grid of agent positions
+   * @param refreshOccupancy If the grid must be updated before each route is produced
+   * @param powerUpBoxes The attraction of power up boxes
+   * @param refreshField If every pellet must be checked before each route is produced
+   * @throws IllegalArgumentException The field is not kept to {@link #POWER_UP_BOX_SEARCH_DEPTH}.
+   * @author Lewis Ackroyd
+   */
+  private MipsManRouteFinder(
+      Entity[] gameAgents,
+      Map map,
+      OccupancyGrid occupancy,
+      boolean refreshOccupancy,
+      AttractionField powerUpBoxes,
+      boolean refreshField)
+      throws IllegalArgumentException {
+    if (!powerUpBoxes.hasDepth(POWER_UP_BOX_SEARCH_DEPTH)) {
+      throw new IllegalArgumentException("The field must be kept to POWER_UP_BOX_SEARCH_DEPTH.");
+    }
     this.gameAgents = gameAgents;
-    this.map = map;
+    this.occupancy = occupancy;
+    this.refreshOccupancy = refreshOccupancy;
+    this.powerUpBoxes = powerUpBoxes;
+    this.refreshField = refreshField;
+    this.sampleSearch = new SampleSearch(GHOUL_SEARCH_DEPTH, map);
+    this.conditions = new SampleSearch.ConditionalInterface[] {new GhoulCountCondition()};
   }
 
   /**
@@ -45,46 +134,31 @@ public class MipsManRouteFinder implements RouteFinder {
    *
    * @param myLocation The start point.
    * @param targetLocation The target point.
+   * @param deadline The {@link System#nanoTime()} value the search must finish by
    * @return The direction to travel in, or DEFAULT if no direction could be produced.
    * @author Lewis Ackroyd
    */
   @Override
-  public Direction getRoute(Point myLocation, Point targetLocation) {
-    SampleSearch sampleSearch = new SampleSearch(PELLET_SEARCH_DEPTH, map);
-    class GhoulCountCondition implements SampleSearch.ConditionalInterface {
-      @Override
-      public boolean condition(Point position) {
-        for (Entity entity : gameAgents) {
-          if (entity.getLocation().getGridCoord().equals(position)) {
-            if (!entity.isMipsman()) {
-              return true;
-            }
-          }
-        }
-        return false;
-      }
+  public synchronized Direction getRoute(Point myLocation, Point targetLocation, long deadline) {
+    if (refreshOccupancy) {
+      occupancy.update(gameAgents);
     }
-    int[] ghoulCounts = sampleSearch.getDirectionCounts(myLocation, new GhoulCountCondition());
-
-    class PowerUpBoxCountCondition implements SampleSearch.ConditionalInterface {
-      @Override
-      public boolean condition(Point position) {
-        if (pellets.containsKey(position)) {
-          Pellet pellet = pellets.get(position);
-          if (pellet.isPowerUpBox()) {
-            return true;
-          }
-        }
-        return false;
-      }
+    if (refreshField) {
+      powerUpBoxes.pelletsChanged();
+      powerUpBoxes.update();
     }
-    sampleSearch = new SampleSearch(GHOUL_SEARCH_DEPTH, map);
-    int[] powerUpBoxCounts =
-        sampleSearch.getDirectionCounts(myLocation, new PowerUpBoxCountCondition());
+    for (int[] count : counts) {
+      Arrays.fill(count, 0);
+    }
+    sampleSearch.getDirectionCounts(myLocation, conditions, depths, counts, deadline);
+    int[] ghoulCounts = counts[0];
 
     int[] totals = {1, 1, 1, 1};
-    for (int i = 0; i < totals.length; i++) {
-      totals[i] += powerUpBoxCounts[i] - (ghoulCounts[i] * GHOUL_NEGATIVE_MULTIPLIER);
+    for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+      int i = d.toInt();
+      totals[i] +=
+          powerUpBoxes.getValue(myLocation, d, POWER_UP_BOX_SEARCH_DEPTH)
+              - (ghoulCounts[i] * GHOUL_NEGATIVE_MULTIPLIER);
     }
 
     return maxDirection(totals);
@@ -116,4 +190,17 @@ public class MipsManRouteFinder implements RouteFinder {
       return Direction.fromInt(secondTwoIndex);
     }
   }
+
+  /**
+   * Condition met at any position occupied by a ghoul.
+   *
+   * @author Lewis Ackroyd
+   */
+  private class GhoulCountCondition implements SampleSearch.ConditionalInterface {
+
+    @Override
+    public boolean condition(Point position) {
+      return occupancy.containsGhoul(position);
+    }
+  }
 }
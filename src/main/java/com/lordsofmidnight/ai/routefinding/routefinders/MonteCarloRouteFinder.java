@@ -0,0 +1,619 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import com.lordsofmidnight.ai.routefinding.AnytimeRouteFinder;
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Cells;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import com.lordsofmidnight.objects.Entity;
+import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.utils.GameRandom;
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Route finding algorithm that controls Mipsman by Monte Carlo tree search. Each decision plays out
+ * thousands of short futures on a compact copy of the game, in which Mipsman moves one grid square
+ * per step and ghouls mostly close in on Mipsman, and picks the direction whose futures collect
+ * the most pellets without being caught.
+ *
+ * <p>The search is split between several workers, each growing its own tree in a pool supplied by
+ * the caller, and the visits of the first move are summed across all trees. Each worker keeps its
+ * tree between decisions and continues from the node Mipsman has since reached. A decision never
+ * takes longer than its budget, however many workers there are.
+ *
+ * @author Lewis Ackroyd
+ */
+public class MonteCarloRouteFinder implements AnytimeRouteFinder {
+
+  public static final long DEFAULT_BUDGET_MILLIS = 4; // time each decision may search for
+  private static final int HORIZON = 40; // grid squares Mipsman moves in each simulated future
+  private static final int REUSE_DEPTH = 16; // deepest node of a kept tree a decision can reuse
+  private static final int MAX_NODES = 50_000; // nodes each worker's tree may grow to
+  private static final double EXPLORATION = 0.7; // weight of exploration in node selection
+  private static final double SURVIVAL_WEIGHT = 0.7; // share of the reward for not being caught
+  private static final double CHASE_PROBABILITY = 0.75; // chance a ghoul moves towards Mipsman
+  private static final double PELLET_BIAS = 0.5; // chance a playout heads for an adjacent pellet
+  private static final int BOX_VALUE = 3; // value of a power up box compared to a pellet
+  private static final long NANOS_PER_MILLI = 1_000_000;
+
+  private final Entity[] gameAgents;
+  private final PointMap<Pellet> pellets;
+  private final int MAX_X;
+  private final int MAX_Y;
+  private final int[] neighbours; // by (cell * 4) + Direction#toInt(), -1 if a wall
+  private final long budget; // nanoseconds each decision may search for
+  private final Worker[] workers;
+  private final ForkJoinPool pool; // runs the workers in parallel, null if there is only one
+
+  /**
+   * Initialises this {@link RouteFinder}, running the workers in the common pool if there is more
+   * than one.
+   *
+   * @param gameAgents The array containing all entities in the game
+   * @param map The map being used
+   * @param pellets A mapping from every point containing a pellet, to that pellet
+   * @param workerCount The number of trees searched in parallel
+   * @param budgetMillis The time in milliseconds each decision may search for
+   * @param random The source of random numbers, which must not be used elsewhere
+   * @throws IllegalArgumentException The worker count or budget is not positive.
+   * @author Lewis Ackroyd
+   */
+  public MonteCarloRouteFinder(
+      Entity[] gameAgents,
+      Map map,
+      PointMap<Pellet> pellets,
+      int workerCount,
+      long budgetMillis,
+      GameRandom random)
+      throws IllegalArgumentException {
+    this(
+        gameAgents,
+        map,
+        pellets,
+        (workerCount > 1) ? ForkJoinPool.commonPool() : null,
+        workerCount,
+        budgetMillis,
+        random);
+  }
+
+  /**
+   * Initialises this {@link RouteFinder}, running the workers in the given pool so that they share
+   * its threads with the rest of the caller's work rather than starting threads of their own.
+   *
+   * @param gameAgents The array containing all entities in the game
+   * @param map The map being used
+   * @param pellets A mapping from every point containing a pellet, to that pellet
+   * @param pool The pool the workers run in, or null to run a single worker on the calling thread
+   * @param workerCount The number of trees searched in parallel
+   * @param budgetMillis The time in milliseconds each decision may search for
+   * @param random The source of random numbers, which must not be used elsewhere
+   * @throws IllegalArgumentException The worker count or budget is not positive, or there is more
+   *     than one worker and no pool.
+   * @author Lewis Ackroyd
+   */
+  public MonteCarloRouteFinder(
+      Entity[] gameAgents,
+      Map map,
+      PointMap<Pellet> pellets,
+      ForkJoinPool pool,
+      int workerCount,
+      long budgetMillis,
+      GameRandom random)
+      throws IllegalArgumentException {
+    if (workerCount <= 0 || budgetMillis <= 0) {
+      throw new IllegalArgumentException("Worker count and budget must be positive.");
+    }
+    if (pool == null && workerCount > 1) {
+      throw new IllegalArgumentException("Several workers can only be run in a pool.");
+    }
+    this.gameAgents = gameAgents;
+    this.pellets = pellets;
+    this.MAX_X = map.getMaxX();
+    this.MAX_Y = map.getMaxY();
+    this.neighbours = new int[MAX_X * MAX_Y * Direction.MOVEMENT_DIRECTIONS.length];
+    for (int cell = 0; cell < MAX_X * MAX_Y; cell++) {
+      for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+        int next = map.neighbour(cell, d);
+        neighbours[(cell * Direction.MOVEMENT_DIRECTIONS.length) + d.toInt()] =
+            map.isWall(next) ? -1 : next;
+      }
+    }
+    this.budget = budgetMillis * NANOS_PER_MILLI;
+    this.workers = new Worker[workerCount];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new Worker(random.split());
+    }
+    this.pool = (workerCount > 1) ? pool : null;
+  }
+
+  /**
+   * Returns the direction whose simulated futures collect the most pellets without Mipsman being
+   * caught, searching until the budget of this route finder or the given deadline, whichever
+   * comes first.
+   *
+   * @param myLocation The start point.
+   * @param targetLocation The target point.
+   * @param deadline The {@link System#nanoTime()} value the search must finish by
+   * @return The direction to travel in, or DEFAULT if no direction could be produced.
+   * @author Lewis Ackroyd
+   */
+  @Override
+  public synchronized Direction getRoute(Point myLocation, Point targetLocation, long deadline) {
+    if (myLocation == null) {
+      return DEFAULT;
+    }
+    State rootState = captureState(myLocation);
+    if (firstValidDirection(rootState.mipsman) == -1) {
+      return DEFAULT;
+    }
+    long searchDeadline = System.nanoTime() + budget;
+    if (deadline != NO_DEADLINE && deadline - searchDeadline < 0) {
+      searchDeadline = deadline;
+    }
+    if (pool == null) {
+      workers[0].search(rootState, searchDeadline);
+    } else {
+      SearchTask task = new SearchTask(rootState, searchDeadline, 0, workers.length);
+      if (ForkJoinTask.getPool() == pool) {
+        task.invoke(); // already running in the pool, such as while deciding in parallel
+      } else {
+        pool.invoke(task);
+      }
+    }
+
+    int[] visits = new int[Direction.MOVEMENT_DIRECTIONS.length];
+    for (Worker worker : workers) {
+      for (int d = 0; d < visits.length; d++) {
+        Node child = worker.root.children[d];
+        if (child != null) {
+          visits[d] += child.visits;
+        }
+      }
+    }
+    int best = -1;
+    for (int d = 0; d < visits.length; d++) {
+      if (visits[d] > 0 && (best == -1 || visits[d] > visits[best])) {
+        best = d;
+      }
+    }
+    if (best == -1) { // no time to search, so take any way out
+      best = firstValidDirection(rootState.mipsman);
+    }
+    return Direction.fromInt(best);
+  }
+
+  /**
+   * Copies the positions of every agent and the pellets still to be collected.
+   *
+   * @param myLocation The position of Mipsman
+   * @return The state every simulated future of this decision starts from
+   * @author Lewis Ackroyd
+   */
+  private State captureState(Point myLocation) {
+    ArrayList<Integer> ghouls = new ArrayList<>();
+    boolean invincible = false;
+    for (Entity agent : gameAgents) {
+      if (agent.isMipsman()) {
+        invincible = agent.isInvincible();
+      } else if (!agent.isDead()) {
+        ghouls.add(cellOf(agent.getLocation()));
+      }
+    }
+    State state = new State(MAX_X * MAX_Y, ghouls.size());
+    state.mipsman = cellOf(myLocation);
+    state.mipsmanDirection = -1;
+    for (int i = 0; i < ghouls.size(); i++) {
+      state.ghouls[i] = ghouls.get(i);
+      state.ghoulDirections[i] = -1;
+    }
+    state.invincible = invincible;
+    for (int cell = pellets.nextCell(0); cell >= 0; cell = pellets.nextCell(cell + 1)) {
+      Pellet pellet = pellets.getAt(cell);
+      if (pellet.isActive()) {
+        long[] bits = pellet.isPowerUpBox() ? state.boxes : state.pellets;
+        bits[cell >>> 6] |= 1L << cell;
+      }
+    }
+    return state;
+  }
+
+  /**
+   * @param cell The cell being moved from
+   * @return The first direction that can be moved in from the cell, or -1 if none
+   */
+  private int firstValidDirection(int cell) {
+    for (int d = 0; d < Direction.MOVEMENT_DIRECTIONS.length; d++) {
+      if (neighbours[(cell * Direction.MOVEMENT_DIRECTIONS.length) + d] != -1) {
+        return d;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Calculates the cell index of the grid square containing the given point, wrapping it onto the
+   * map.
+   *
+   * @param p The point
+   * @return The cell index of the grid square containing the point
+   * @author Lewis Ackroyd
+   */
+  private int cellOf(Point p) {
+    return Cells.cellOf(p.getX(), p.getY(), MAX_X, MAX_Y);
+  }
+
+  /**
+   * The number of steps between two cells ignoring walls, taking the shorter way around the map
+   * boundaries.
+   *
+   * @param a The first cell
+   * @param b The second cell
+   * @return The distance between the cells
+   */
+  private int distance(int a, int b) {
+    int dx = Math.abs((a % MAX_X) - (b % MAX_X));
+    int dy = Math.abs((a / MAX_X) - (b / MAX_X));
+    return Math.min(dx, MAX_X - dx) + Math.min(dy, MAX_Y - dy);
+  }
+
+  /**
+   * The state of a simulated future, held in primitive arrays so that it can be copied without
+   * allocating. Pellets are bit sets indexed by cell.
+   */
+  private static final class State {
+
+    private int mipsman; // cell of Mipsman
+    private int mipsmanDirection; // last direction Mipsman moved in, -1 if none
+    private int[] ghouls; // cell of each living ghoul
+    private int[] ghoulDirections; // last direction each ghoul moved in, -1 if none
+    private final long[] pellets; // uncollected pellets
+    private final long[] boxes; // uncollected power up boxes
+    private boolean invincible; // if ghouls cannot catch Mipsman
+    private boolean caught;
+    private int steps; // steps taken since the decision
+    private double collected; // value of the pellets collected, the sooner the more valuable
+
+    private State(int cells, int ghoulCount) {
+      this.ghouls = new int[ghoulCount];
+      this.ghoulDirections = new int[ghoulCount];
+      this.pellets = new long[(cells + Long.SIZE - 1) / Long.SIZE];
+      this.boxes = new long[pellets.length];
+    }
+
+    /**
+     * Makes this state a copy of the given one.
+     *
+     * @param other The state being copied, on a map of the same size
+     */
+    private void copyFrom(State other) {
+      if (ghouls.length != other.ghouls.length) {
+        ghouls = new int[other.ghouls.length];
+        ghoulDirections = new int[other.ghouls.length];
+      }
+      mipsman = other.mipsman;
+      mipsmanDirection = other.mipsmanDirection;
+      System.arraycopy(other.ghouls, 0, ghouls, 0, ghouls.length);
+      System.arraycopy(other.ghoulDirections, 0, ghoulDirections, 0, ghouls.length);
+      System.arraycopy(other.pellets, 0, pellets, 0, pellets.length);
+      System.arraycopy(other.boxes, 0, boxes, 0, boxes.length);
+      invincible = other.invincible;
+      caught = other.caught;
+      steps = other.steps;
+      collected = other.collected;
+    }
+  }
+
+  /** A node of a search tree, reached from its parent by one move of Mipsman. */
+  private static final class Node {
+
+    private Node parent;
+    private final int cell; // cell of Mipsman on reaching the node
+    private final Node[] children = new Node[Direction.MOVEMENT_DIRECTIONS.length];
+    private int visits;
+    private double totalReward;
+
+    private Node(Node parent, int cell) {
+      this.parent = parent;
+      this.cell = cell;
+    }
+  }
+
+  /** Grows a single search tree. Each worker is only ever run by one thread at a time. */
+  private final class Worker {
+
+    private final GameRandom random;
+    private final State state; // the future currently being simulated
+    private final int[] options; // directions a simulated agent may choose between
+    private Node root;
+    private int nodes; // upper bound on the size of the tree
+
+    private Worker(GameRandom random) {
+      this.random = random;
+      this.state = new State(MAX_X * MAX_Y, 0);
+      this.options = new int[Direction.MOVEMENT_DIRECTIONS.length];
+    }
+
+    /**
+     * Searches from the given state until the deadline, keeping whatever part of the previous tree
+     * starts where Mipsman now is.
+     *
+     * @param rootState The state of the game at the decision
+     * @param deadline The {@link System#nanoTime()} value the search must finish by
+     * @author Lewis Ackroyd
+     */
+    private void search(State rootState, long deadline) {
+      Node reused = (root == null) ? null : find(root, rootState.mipsman, REUSE_DEPTH);
+      if (reused == null) {
+        root = new Node(null, rootState.mipsman);
+        nodes = 1;
+      } else {
+        reused.parent = null;
+        root = reused;
+        nodes = reused.visits + 1;
+      }
+      do {
+        iterate(rootState);
+      } while (!AnytimeRouteFinder.expired(deadline));
+    }
+
+    /**
+     * Finds the most visited node within the given depth at which Mipsman is in the given cell.
+     *
+     * @param node The node being searched from
+     * @param cell The cell of Mipsman
+     * @param depth The number of moves below the node still searched
+     * @return The node, or null if there is none
+     * @author Lewis Ackroyd
+     */
+    private Node find(Node node, int cell, int depth) {
+      Node best = (node.cell == cell) ? node : null;
+      if (depth == 0) {
+        return best;
+      }
+      for (Node child : node.children) {
+        if (child != null) {
+          Node found = find(child, cell, depth - 1);
+          if (found != null && (best == null || found.visits > best.visits)) {
+            best = found;
+          }
+        }
+      }
+      return best;
+    }
+
+    /**
+     * Runs one iteration of the search: selects a path down the tree, adds a node to the end of it,
+     * plays out the rest of the future at random and credits every node on the path with the
+     * result.
+     *
+     * @param rootState The state of the game at the decision
+     * @author Lewis Ackroyd
+     */
+    private void iterate(State rootState) {
+      state.copyFrom(rootState);
+      Node node = root;
+      while (!state.caught && state.steps < HORIZON) {
+        int untried = untriedDirection(node);
+        if (untried != -1 && nodes < MAX_NODES) {
+          Node child = new Node(node, step(untried));
+          node.children[untried] = child;
+          nodes++;
+          node = child;
+          break;
+        }
+        int selected = selectDirection(node);
+        if (selected == -1) {
+          break;
+        }
+        step(selected);
+        node = node.children[selected];
+      }
+      while (!state.caught && state.steps < HORIZON) {
+        step(playoutDirection());
+      }
+      double reward =
+          (SURVIVAL_WEIGHT * state.steps / HORIZON)
+              + ((1 - SURVIVAL_WEIGHT) * Math.min(1.0, state.collected / HORIZON));
+      for (; node != null; node = node.parent) {
+        node.visits++;
+        node.totalReward += reward;
+      }
+    }
+
+    /**
+     * @param node The node being expanded
+     * @return A random direction Mipsman can move in from the node that has no child yet, or -1
+     */
+    private int untriedDirection(Node node) {
+      int count = 0;
+      for (int d = 0; d < options.length; d++) {
+        if (node.children[d] == null && neighbours[(node.cell * options.length) + d] != -1) {
+          options[count++] = d;
+        }
+      }
+      return (count == 0) ? -1 : options[random.nextInt(count)];
+    }
+
+    /**
+     * @param node The node being selected from
+     * @return The direction of the child with the highest upper confidence bound, or -1 if none
+     */
+    private int selectDirection(Node node) {
+      int best = -1;
+      double bestScore = Double.NEGATIVE_INFINITY;
+      double logVisits = Math.log(Math.max(1, node.visits));
+      for (int d = 0; d < node.children.length; d++) {
+        Node child = node.children[d];
+        if (child != null && child.visits > 0) {
+          double score =
+              (child.totalReward / child.visits)
+                  + (EXPLORATION * Math.sqrt(logVisits / child.visits));
+          if (score > bestScore) {
+            bestScore = score;
+            best = d;
+          }
+        }
+      }
+      return best;
+    }
+
+    /**
+     * @return The direction Mipsman moves in during a playout, avoiding turning back and favouring
+     *     pellets
+     */
+    private int playoutDirection() {
+      int count = validDirections(state.mipsman, state.mipsmanDirection);
+      if (random.nextDouble() < PELLET_BIAS) {
+        int pelletCount = 0;
+        for (int i = 0; i < count; i++) {
+          int next = neighbours[(state.mipsman * options.length) + options[i]];
+          if (hasPellet(next)) {
+            options[pelletCount++] = options[i];
+          }
+        }
+        if (pelletCount > 0) {
+          count = pelletCount;
+        }
+      }
+      return options[random.nextInt(count)];
+    }
+
+    /**
+     * Fills {@link #options} with the directions that can be moved in from a cell without turning
+     * back, or only turning back if the cell is a dead end.
+     *
+     * @param cell The cell being moved from
+     * @param lastDirection The direction last moved in, or -1 if none
+     * @return The number of directions found
+     */
+    private int validDirections(int cell, int lastDirection) {
+      int count = 0;
+      int reverse = (lastDirection == -1) ? -1 : lastDirection ^ 1; // UP/DOWN and LEFT/RIGHT pair
+      for (int d = 0; d < options.length; d++) {
+        if (d != reverse && neighbours[(cell * options.length) + d] != -1) {
+          options[count++] = d;
+        }
+      }
+      if (count == 0 && reverse != -1) {
+        options[count++] = reverse;
+      }
+      return count;
+    }
+
+    /**
+     * @param cell The cell being checked
+     * @return If an uncollected pellet or power up box is in the cell
+     */
+    private boolean hasPellet(int cell) {
+      long bit = 1L << cell;
+      return ((state.pellets[cell >>> 6] | state.boxes[cell >>> 6]) & bit) != 0;
+    }
+
+    /**
+     * Advances the simulated future by one grid square: Mipsman moves in the given direction and
+     * collects any pellet there, then each ghoul moves and catches Mipsman if they meet.
+     *
+     * @param direction The direction Mipsman moves in, which must not lead into a wall
+     * @return The cell Mipsman moved to
+     */
+    private int step(int direction) {
+      int previous = state.mipsman;
+      state.mipsman = neighbours[(previous * options.length) + direction];
+      state.mipsmanDirection = direction;
+      int word = state.mipsman >>> 6;
+      long bit = 1L << state.mipsman;
+      double urgency = (HORIZON - state.steps) / (double) HORIZON;
+      if ((state.pellets[word] & bit) != 0) {
+        state.pellets[word] &= ~bit;
+        state.collected += urgency;
+      } else if ((state.boxes[word] & bit) != 0) {
+        state.boxes[word] &= ~bit;
+        state.collected += BOX_VALUE * urgency;
+      }
+      for (int i = 0; i < state.ghouls.length; i++) {
+        int from = state.ghouls[i];
+        int d = ghoulDirection(from, state.ghoulDirections[i]);
+        if (d != -1) {
+          state.ghouls[i] = neighbours[(from * options.length) + d];
+          state.ghoulDirections[i] = d;
+        }
+        boolean met =
+            state.ghouls[i] == state.mipsman
+                || (state.ghouls[i] == previous && from == state.mipsman); // passed each other
+        if (met && !state.invincible) {
+          state.caught = true;
+        }
+      }
+      state.steps++;
+      return state.mipsman;
+    }
+
+    /**
+     * @param cell The cell of the ghoul
+     * @param lastDirection The direction the ghoul last moved in, or -1 if none
+     * @return The direction the ghoul moves in, usually the one closest to Mipsman, or -1 if the
+     *     ghoul cannot move
+     */
+    private int ghoulDirection(int cell, int lastDirection) {
+      int count = validDirections(cell, lastDirection);
+      if (count == 0) {
+        return -1;
+      }
+      if (random.nextDouble() >= CHASE_PROBABILITY) {
+        return options[random.nextInt(count)];
+      }
+      int best = options[0];
+      int bestDistance = Integer.MAX_VALUE;
+      for (int i = 0; i < count; i++) {
+        int next = neighbours[(cell * options.length) + options[i]];
+        int dist = distance(next, state.mipsman);
+        if (dist < bestDistance) {
+          bestDistance = dist;
+          best = options[i];
+        }
+      }
+      return best;
+    }
+  }
+
+  /** Runs a range of workers, splitting the range in two until each task holds one worker. */
+  private final class SearchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final State rootState;
+    private final long deadline;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param rootState The state of the game at the decision
+     * @param deadline The {@link System#nanoTime()} value the search must finish by
+     * @param from The first worker to run
+     * @param to One past the last worker to run
+     */
+    private SearchTask(State rootState, long deadline, int from, int to) {
+      this.rootState = rootState;
+      this.deadline = deadline;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        workers[from].search(rootState, deadline);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(
+          new SearchTask(rootState, deadline, from, mid),
+          new SearchTask(rootState, deadline, mid, to));
+    }
+  }
+}
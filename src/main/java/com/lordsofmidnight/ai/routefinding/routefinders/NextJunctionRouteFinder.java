@@ -1,10 +1,10 @@
 package com.lordsofmidnight.ai.routefinding.routefinders;
 
+import com.lordsofmidnight.ai.mapping.MapAnalysis;
 import com.lordsofmidnight.ai.mapping.Mapping;
 import com.lordsofmidnight.ai.routefinding.RouteFinder;
 import com.lordsofmidnight.gamestate.maps.Map;
 import com.lordsofmidnight.gamestate.points.Point;
-import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.gamestate.points.PointSet;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.utils.enums.Direction;
@@ -19,38 +19,47 @@ public class NextJunctionRouteFinder implements RouteFinder {
   private final Entity[] allAgents;
   private final Map map;
   private final PointSet junctions;
-  private final PointMap<PointSet> edges;
+  private final RoutingTableRouteFinder routingTable;
 
   /**
-   * Initialises this {@link RouteFinder} for the specified {@link Map} and corresponding junction
-   * set and edge mapping.
+   * Initialises this {@link RouteFinder} for the specified {@link Map}, sharing an existing routing
+   * table for that {@link Map}.
    *
    * @param allAgents The array of all {@link Entity Entities} in the game
    * @param map The map being searched
    * @param junctions The set of junctions for the specified {@link Map}
-   * @param edges The map of edged for the specified {@link Map}
+   * @param routingTable The routing table built for the specified {@link Map}
    * @author Lewis Ackroyd
    */
   public NextJunctionRouteFinder(
-      Entity[] allAgents, Map map, PointSet junctions, PointMap<PointSet> edges) {
+      Entity[] allAgents, Map map, PointSet junctions, RoutingTableRouteFinder routingTable) {
     this.allAgents = allAgents;
     this.map = map;
     this.junctions = junctions;
-    this.edges = edges;
+    this.routingTable = routingTable;
   }
 
   /**
-   * Initialises this {@link RouteFinder} for the specified {@link Map}.
+   * Initialises this {@link RouteFinder} for the specified {@link Map}, using the shared {@link
+   * MapAnalysis} of the {@link Map}.
    *
    * @param allAgents The array of all {@link Entity Entities} in the game
    * @param map The map being searched
    * @author Lewis Ackroyd
    */
   public NextJunctionRouteFinder(Entity[] allAgents, Map map) {
-    this.allAgents = allAgents;
-    this.map = map;
-    this.junctions = Mapping.getJunctions(map);
-    this.edges = Mapping.getEdges(map, junctions);
+    this(allAgents, MapAnalysis.of(map));
+  }
+
+  /**
+   * Initialises this {@link RouteFinder} for the analysed {@link Map}.
+   *
+   * @param allAgents The array of all {@link Entity Entities} in the game
+   * @param analysis The analysis of the map being searched
+   * @author Lewis Ackroyd
+   */
+  private NextJunctionRouteFinder(Entity[] allAgents, MapAnalysis analysis) {
+    this(allAgents, analysis.getMap(), analysis.getJunctions(), analysis.getRoutingTable());
   }
 
   /**
@@ -79,6 +88,11 @@ public class NextJunctionRouteFinder implements RouteFinder {
     if (mipsmanDirection.isMovementDirection()) {
       targetLocation = Mapping.findNextJunction(mipsmanLocation, mipsmanDirection, map, junctions);
     }
-    return new AStarRouteFinder(junctions, edges, map).getRoute(myLocation, targetLocation);
+    return routingTable.getRoute(myLocation, targetLocation);
+  }
+
+  /** @return The routing table routes to the junction in front of the target are taken from */
+  public RoutingTableRouteFinder getRoutingTable() {
+    return routingTable;
   }
 }
@@ -1,7 +1,7 @@
 package com.lordsofmidnight.ai.routefinding.routefinders;
 
+import com.lordsofmidnight.ai.routefinding.AttractionField;
 import com.lordsofmidnight.ai.routefinding.RouteFinder;
-import com.lordsofmidnight.ai.routefinding.SampleSearch;
 import com.lordsofmidnight.gamestate.maps.Map;
 import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.gamestate.points.PointMap;
@@ -10,15 +10,16 @@ import com.lordsofmidnight.utils.enums.Direction;
 
 /**
  * Route finding algorithm that will locate the nearest power pellet and patrol around it, but not
- * collect it.
+ * collect it. The power up boxes in each direction are read from an {@link AttractionField}, so no
+ * search is needed.
  *
  * @author Lewis Ackroyd
  */
 public class PowerUpBoxPatrolRouteFinder implements RouteFinder {
-  private static final int SEARCH_DEPTH = 20;
-  private static final int AVOID_DEPTH = 5;
-  private final Map map;
-  private final PointMap<Pellet> pellets;
+  public static final int SEARCH_DEPTH = 20; // depth at which power up boxes attract
+  public static final int AVOID_DEPTH = 5; // depth within which power up boxes are avoided
+  private final AttractionField powerUpBoxes; // attraction of power up boxes in each direction
+  private final boolean refreshField; // if every pellet must be checked before each route
 
   /**
    * Initialises this {@link RouteFinder} with the current {@link Map} and {@link Pellet}s on it.
@@ -28,8 +29,39 @@ public class PowerUpBoxPatrolRouteFinder implements RouteFinder {
    * @author Lewis Ackroyd
    */
   public PowerUpBoxPatrolRouteFinder(Map map, PointMap<Pellet> pellets) {
-    this.map = map;
-    this.pellets = pellets;
+    this(
+        new AttractionField(
+            map, pellets, AttractionField.ACTIVE_POWER_UP_BOXES, SEARCH_DEPTH, AVOID_DEPTH),
+        true);
+  }
+
+  /**
+   * Initialises this {@link RouteFinder} to read power up boxes from an {@link AttractionField}
+   * kept up to date elsewhere.
+   *
+   * @param powerUpBoxes The attraction of power up boxes, kept to {@link #SEARCH_DEPTH} and {@link
+   *     #AVOID_DEPTH}
+   * @throws IllegalArgumentException The field is not kept to both depths.
+   * @author Lewis Ackroyd
+   */
+  public PowerUpBoxPatrolRouteFinder(AttractionField powerUpBoxes)
+      throws IllegalArgumentException {
+    this(powerUpBoxes, false);
+  }
+
+  /**
+   * @param powerUpBoxes The attraction of power up boxes
+   * @param refreshField If every pellet must be checked before each route is produced
+   * @throws IllegalArgumentException The field is not kept to both depths.
+   * @author Lewis Ackroyd
+   */
+  private PowerUpBoxPatrolRouteFinder(AttractionField powerUpBoxes, boolean refreshField)
+      throws IllegalArgumentException {
+    if (!powerUpBoxes.hasDepth(SEARCH_DEPTH) || !powerUpBoxes.hasDepth(AVOID_DEPTH)) {
+      throw new IllegalArgumentException("The field must be kept to SEARCH_DEPTH and AVOID_DEPTH.");
+    }
+    this.powerUpBoxes = powerUpBoxes;
+    this.refreshField = refreshField;
   }
 
   /**
@@ -43,30 +75,16 @@ public class PowerUpBoxPatrolRouteFinder implements RouteFinder {
    * @author Lewis Ackroyd
    */
   @Override
-  public Direction getRoute(Point myLocation, Point targetLocation) {
-    SampleSearch sampleSearch = new SampleSearch(SEARCH_DEPTH, map);
-
-    class PowerUpBoxCountCondition implements SampleSearch.ConditionalInterface {
-      @Override
-      public boolean condition(Point position) {
-        if (pellets.containsKey(position)) {
-          Pellet pellet = pellets.get(position);
-          if (pellet.isPowerUpBox()) {
-            return true;
-          }
-        }
-        return false;
-      }
+  public synchronized Direction getRoute(Point myLocation, Point targetLocation) {
+    if (refreshField) {
+      powerUpBoxes.pelletsChanged();
+      powerUpBoxes.update();
     }
-    int[] powerUpBoxAllCounts =
-        sampleSearch.getDirectionCounts(myLocation, new PowerUpBoxCountCondition());
-    sampleSearch = new SampleSearch(AVOID_DEPTH, map);
-    int[] powerUpBoxAvoidCounts =
-        sampleSearch.getDirectionCounts(myLocation, new PowerUpBoxCountCondition());
-
     int[] totals = {0, 0, 0, 0};
-    for (int i = 0; i < powerUpBoxAllCounts.length; i++) {
-      totals[i] = (powerUpBoxAvoidCounts[i] == 0) ? powerUpBoxAllCounts[i] : 0;
+    for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+      if (powerUpBoxes.getValue(myLocation, d, AVOID_DEPTH) == 0) {
+        totals[d.toInt()] = powerUpBoxes.getValue(myLocation, d, SEARCH_DEPTH);
+      }
     }
 
     return maxDirection(totals);
@@ -2,6 +2,7 @@ package com.lordsofmidnight.ai.routefinding.routefinders;
 
 import com.lordsofmidnight.ai.routefinding.RouteFinder;
 import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.enums.Direction;
 import java.util.Random;
 
@@ -13,7 +14,7 @@ import java.util.Random;
  */
 public class RandomRouteFinder implements RouteFinder {
 
-  private static final Random R = new Random();
+  private final Random random;
 
   /**
    * Creates an instance of this {@link RouteFinder}.
@@ -21,6 +22,18 @@ public class RandomRouteFinder implements RouteFinder {
    * @author Lewis Ackroyd
    */
   public RandomRouteFinder() {
+    this(new GameRandom());
+  }
+
+  /**
+   * Creates an instance of this {@link RouteFinder} drawing from the given source of random
+   * numbers, which must not be shared with another thread.
+   *
+   * @param random The source of random numbers
+   * @author Lewis Ackroyd
+   */
+  public RandomRouteFinder(GameRandom random) {
+    this.random = random;
   }
 
   /**
@@ -37,7 +50,7 @@ public class RandomRouteFinder implements RouteFinder {
       return DEFAULT;
     }
     Direction dir = DEFAULT;
-    int dirValue = R.nextInt(6);
+    int dirValue = random.nextInt(6);
     switch (dirValue) {
       case 0: {
         dir = Direction.UP;
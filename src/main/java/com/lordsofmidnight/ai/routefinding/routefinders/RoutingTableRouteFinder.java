@@ -0,0 +1,217 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import com.lordsofmidnight.ai.mapping.JunctionGraph;
+import com.lordsofmidnight.ai.mapping.Mapping;
+import com.lordsofmidnight.ai.routefinding.IndexedMinHeap;
+import com.lordsofmidnight.ai.routefinding.RouteCache;
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointSet;
+import com.lordsofmidnight.utils.enums.Direction;
+import java.util.Arrays;
+
+/**
+ * Route finder that precomputes the shortest distance and first move between every pair of
+ * junctions on a {@link Map}, so that each route is a single table lookup. Produces the same
+ * routes as {@link AStarRouteFinder}. Maps with more than {@link #MAX_TABLE_JUNCTIONS} junctions
+ * do not have a table built and are instead searched by an {@link AStarRouteFinder}, or by a
+ * {@link HierarchicalRouteFinder} if the map is also at least the hierarchical map size along
+ * either side, with the routes found held in a {@link RouteCache}.
+ *
+ * @author Lewis Ackroyd
+ */
+public class RoutingTableRouteFinder implements RouteFinder {
+
+  public static final int MAX_TABLE_JUNCTIONS = 1024; // table memory grows with junctions squared
+  public static final int DEFAULT_HIERARCHICAL_MAP_SIZE =
+      100; // map side length from which hierarchical route finding replaces flat A*
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+  private static final byte NO_MOVE = -1;
+
+  private final Map map;
+  private final PointSet junctions;
+  private final JunctionGraph graph;
+  private final int junctionCount;
+  private final int[] distances; // distances[from * junctionCount + to]
+  private final byte[] firstMoves; // Direction#toInt() of the first move from 'from' towards 'to'
+  private final RouteCache cache; // routes found by the fallback search
+  private final RouteFinder fallback;
+
+  /**
+   * Builds the routing table for the specified {@link Map} and corresponding junction graph. If the
+   * map is too large for a table, routes found are held in the given cache.
+   *
+   * @param map The map being searched
+   * @param junctions The set of junctions for the specified {@link Map}
+   * @param graph The junction graph for the specified {@link Map}
+   * @param cache The cache of routes for the specified {@link Map}
+   * @author Lewis Ackroyd
+   */
+  public RoutingTableRouteFinder(
+      Map map, PointSet junctions, JunctionGraph graph, RouteCache cache) {
+    this(map, junctions, graph, cache, DEFAULT_HIERARCHICAL_MAP_SIZE);
+  }
+
+  /**
+   * Builds the routing table for the specified {@link Map} and corresponding junction graph. If the
+   * map is too large for a table, routes found are held in the given cache, and are found by
+   * hierarchical route finding if either side of the map is at least the given size.
+   *
+   * @param map The map being searched
+   * @param junctions The set of junctions for the specified {@link Map}
+   * @param graph The junction graph for the specified {@link Map}
+   * @param cache The cache of routes for the specified {@link Map}
+   * @param hierarchicalMapSize The side length from which hierarchical route finding is used
+   * @author Lewis Ackroyd
+   */
+  public RoutingTableRouteFinder(
+      Map map, PointSet junctions, JunctionGraph graph, RouteCache cache, int hierarchicalMapSize) {
+    this.map = map;
+    this.cache = cache;
+    this.junctions = junctions;
+    this.graph = graph;
+    this.junctionCount = graph.getJunctionCount();
+    if (junctionCount > MAX_TABLE_JUNCTIONS) {
+      this.distances = null;
+      this.firstMoves = null;
+      RouteFinder search;
+      if (Math.max(map.getMaxX(), map.getMaxY()) >= hierarchicalMapSize) {
+        search = new HierarchicalRouteFinder(map, junctions, graph);
+      } else {
+        search = new AStarRouteFinder(junctions, graph, map);
+      }
+      this.fallback = new CachingRouteFinder(search, graph, junctions, map, cache);
+    } else {
+      this.distances = new int[junctionCount * junctionCount];
+      this.firstMoves = new byte[junctionCount * junctionCount];
+      this.fallback = null;
+      buildTable();
+    }
+  }
+
+  /**
+   * Builds the routing table for the specified {@link Map}.
+   *
+   * @param map The map being searched
+   * @author Lewis Ackroyd
+   */
+  public RoutingTableRouteFinder(Map map) {
+    this(map, Mapping.getJunctions(map));
+  }
+
+  /**
+   * Builds the routing table for the specified {@link Map} and corresponding junction set.
+   *
+   * @param map The map being searched
+   * @param junctions The set of junctions for the specified {@link Map}
+   * @author Lewis Ackroyd
+   */
+  public RoutingTableRouteFinder(Map map, PointSet junctions) {
+    this(map, junctions, new JunctionGraph(map, junctions), new RouteCache());
+  }
+
+  /**
+   * Returns the direction to travel in until the next junction is reached such that the direction
+   * is the fastest to the target.
+   *
+   * @param myLocation The start point.
+   * @param targetLocation The target point.
+   * @return The direction to travel in, or DEFAULT if no direction could be produced.
+   * @author Lewis Ackroyd
+   */
+  @Override
+  public Direction getRoute(Point myLocation, Point targetLocation) {
+    if (fallback != null) {
+      return fallback.getRoute(myLocation, targetLocation);
+    }
+    if (myLocation == null || targetLocation == null) {
+      return DEFAULT;
+    }
+    myLocation = myLocation.getGridCoord();
+    targetLocation = targetLocation.getGridCoord();
+    int from = graph.getId(myLocation);
+    if (from < 0) {
+      Point nearestJunct = Mapping.findNearestJunction(myLocation, map, junctions);
+      return Mapping.directionBetweenPoints(myLocation, nearestJunct);
+    }
+    int to = graph.getId(targetLocation);
+    if (to < 0) {
+      to = graph.getId(Mapping.findNearestJunction(targetLocation, map, junctions).getGridCoord());
+      if (to < 0) {
+        return DEFAULT;
+      }
+    }
+    byte move = firstMoves[(from * junctionCount) + to];
+    return (move == NO_MOVE) ? DEFAULT : Direction.fromInt(move);
+  }
+
+  /**
+   * @return The cache holding routes found when this map is too large for a table. Unused
+   *     otherwise
+   */
+  public RouteCache getCache() {
+    return cache;
+  }
+
+  /** @return The junction graph the routes are found on */
+  public JunctionGraph getGraph() {
+    return graph;
+  }
+
+  /**
+   * The length of the shortest path between two junctions.
+   *
+   * @param from The start junction
+   * @param to The target junction
+   * @return The distance between the junctions, or -1 if either point is not a junction, the
+   *     target cannot be reached or no table was built for this map
+   * @author Lewis Ackroyd
+   */
+  public int getDistance(Point from, Point to) {
+    if (distances == null) {
+      return -1;
+    }
+    int fromId = graph.getId(from.getGridCoord());
+    int toId = graph.getId(to.getGridCoord());
+    if (fromId < 0 || toId < 0) {
+      return -1;
+    }
+    int distance = distances[(fromId * junctionCount) + toId];
+    return (distance == UNREACHABLE) ? -1 : distance;
+  }
+
+  /**
+   * Runs Dijkstra's algorithm from every junction, recording the distance to and first move
+   * towards every other junction.
+   *
+   * @author Lewis Ackroyd
+   */
+  private void buildTable() {
+    Arrays.fill(distances, UNREACHABLE);
+    Arrays.fill(firstMoves, NO_MOVE);
+    IndexedMinHeap queue = new IndexedMinHeap(junctionCount);
+    for (int source = 0; source < junctionCount; source++) {
+      int row = source * junctionCount;
+      distances[row + source] = 0;
+      queue.insertOrDecrease(source, 0);
+      while (!queue.isEmpty()) {
+        int current = queue.poll();
+        int cost = distances[row + current];
+        int end = graph.getEndEdge(current);
+        for (int edge = graph.getFirstEdge(current); edge < end; edge++) {
+          int next = graph.getEdgeTarget(edge);
+          int newCost = cost + graph.getEdgeLength(edge);
+          if (newCost < distances[row + next]) {
+            distances[row + next] = newCost;
+            firstMoves[row + next] =
+                (current == source)
+                    ? (byte) graph.getEdgeDirection(edge).toInt()
+                    : firstMoves[row + current];
+            queue.insertOrDecrease(next, newCost);
+          }
+        }
+      }
+    }
+  }
+}
@@ -29,6 +29,13 @@ public class AudioController {
     clips = loadClips();
   }
 
+  /**
+   * Creates a controller that plays nothing, for games run without a display. No sounds are loaded.
+   */
+  public AudioController() {
+    client = -1;
+  }
+
   /**
    * Stops all music players
    */
@@ -90,7 +97,7 @@ public class AudioController {
    * @param sound the sound to play
    */
   public void playSound(Sounds sound, int... id) {
-    if (Settings.getMute() || (id.length > 0 && id[0] != client)) {
+    if (clips == null || Settings.getMute() || (id.length > 0 && id[0] != client)) {
       return; // IF the com.lordsofmidnight.main has muted its audio nothing will be played
     }
     try {
@@ -106,6 +113,9 @@ public class AudioController {
 
   /** Plays the game music intro the after the looping music */
   public void gameIntro() {
+    if (clips == null) {
+      return; // nothing was loaded, so there is nothing to play
+    }
     stopPlayers();
     playMusic(Sounds.GAMEINTRO);
     new Thread() {
@@ -127,6 +137,9 @@ public class AudioController {
    * @param sound file for the music
    */
   public void playMusic(Sounds sound) {
+    if (clips == null) {
+      return;
+    }
     try {
       stopPlayers();
       MediaPlayer current;
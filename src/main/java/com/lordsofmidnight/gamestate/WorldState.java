@@ -0,0 +1,1089 @@
+package com.lordsofmidnight.gamestate;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Cells;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import com.lordsofmidnight.objects.Entity;
+import com.lordsofmidnight.objects.MinePellet;
+import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.objects.PowerUpBox;
+import com.lordsofmidnight.objects.powerUps.PowerUp;
+import com.lordsofmidnight.utils.enums.Awards;
+import com.lordsofmidnight.utils.enums.Direction;
+import com.lordsofmidnight.utils.enums.MapElement;
+import com.lordsofmidnight.utils.enums.PowerUps;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact copy of everything the physics of a game acts on, held in primitive arrays so that it can
+ * be copied in microseconds and stepped without allocating. Lookahead AI and server side prediction
+ * can fork thousands of these a second to ask what happens next.
+ *
+ * <p>{@link #step(Random)} applies the same rules as {@code Telemetry.processPhysics} and {@link
+ * #applyInput(int, Direction)} those of {@code HostTelemetry.processInputs}, including how agents
+ * are moved, stopped at walls, caught, killed and respawned, how pellets, power up boxes, webs and
+ * mines are collected or triggered and respawn, and how the effects of power ups run out. Random
+ * numbers are drawn from the source given to each step rather than the game's own, and active
+ * power ups run out in the order they took effect, so a state is not expected to follow a live game
+ * draw for draw. Sounds, images and statistics other than score and kills are not kept.
+ *
+ * <p>Agents are indexed as in the game, by client ID. Pellets are indexed by cell, {@code (y *
+ * maxX) + x}.
+ *
+ * @author Lewis Ackroyd
+ */
+public class WorldState {
+
+  public static final int NO_ITEM = -1; // in place of a PowerUps#toInt() for an empty slot
+  public static final int ITEM_SLOTS = 2; // items each agent may hold
+  private static final double MIPS_SPEED = 0.08; // as Entity
+  private static final double GHOUL_SPEED = 0.06;
+  private static final double SPEED_BONUS = 0.03; // as Speed
+  private static final int DEATH_TIME = 400; // as Entity
+  private static final int RESPAWN_MOVE_TIME = 20; // ticks dead before moving to a spawn point
+  private static final int MIN_SPAWN_DISTANCE = 2; // as Map#getRandomSpawnPoint
+  private static final int PELLET_RESPAWN_TIME = 2000; // as Pellet
+  private static final int PELLET_RESPAWN_VARIATION = 500;
+  private static final int BOX_RESPAWN_TIME = 300; // as PowerUpBox
+  private static final int MINE_HIDE_TIME = 300; // as MinePellet
+  private static final double SCORE_STOLEN = 0.1; // fraction of the score taken on a kill
+  private static final double CENTER = Cells.CENTER;
+  private static final double FACE_OFFSET = 0.5; // as Entity#getFaceLocation()
+  private static final double DROP_OFFSET = 1.1; // distance behind an agent webs and mines drop
+  private static final int STOP = Direction.STOP.toInt();
+  private static final int INITIAL_TIMERS = 8;
+  private static final PowerUps[] ITEM_TYPES; // by PowerUps#toInt()
+  private static final int[] EFFECT_TIMES; // ticks the effect of each item lasts, by toInt()
+
+  // agent flags
+  private static final int MIPSMAN = 1;
+  private static final int STUNNED = 1 << 1;
+  private static final int DEAD = 1 << 2;
+  private static final int INVINCIBLE = 1 << 3;
+  private static final int DIRECTION_SET = 1 << 4;
+  private static final int POWER_UP_USED = 1 << 5;
+
+  // pellet kinds
+  public static final byte NONE = 0;
+  public static final byte PELLET = 1;
+  public static final byte POWER_UP_BOX = 2;
+  public static final byte MINE = 3;
+
+  static {
+    ITEM_TYPES = new PowerUps[PowerUps.values().length];
+    EFFECT_TIMES = new int[ITEM_TYPES.length];
+    for (PowerUps type : PowerUps.values()) {
+      ITEM_TYPES[type.toInt()] = type;
+      EFFECT_TIMES[type.toInt()] = PowerUp.fromInt(type.toInt()).getEffectTime();
+    }
+  }
+
+  // shared by every copy, never changed
+  private final int MAX_X;
+  private final int MAX_Y;
+  private final boolean[] walls; // by cell
+  private final double[] spawnX; // centre of every spawn point, in the order Map chooses from
+  private final double[] spawnY;
+
+  // agents
+  private final double[] x;
+  private final double[] y;
+  private final double[] velocity;
+  private final double[] bonusSpeed;
+  private final int[] direction; // Direction#toInt()
+  private final int[] oldDirection; // direction before the agent last stopped
+  private final int[] flags;
+  private final int[] deathCounter;
+  private final int[] score;
+  private final int[] kills;
+  private final int[] items; // PowerUps#toInt() by (agent * ITEM_SLOTS) + slot, first item first
+
+  // pellets
+  private final byte[] kind; // by cell
+  private final long[] active; // pellets that can be collected
+  private final long[] traps; // power up boxes that are webs
+  private final long[] toReplace; // triggered webs and detonated mines
+  private final long[] hidden; // mines hidden from players
+  private final int[] respawnTime; // by cell
+  private final int[] respawnCount; // by cell, also counts how long a mine has been down
+  private final int[] minePlacer; // by cell, the agent who placed the mine
+  private final long[] counted; // cells in the counting list
+  private final int[] counting; // collected pellets and live mines, whose counts run each tick
+  private int countingSize;
+  private boolean replacing; // whether any cell may be waiting to be replaced
+
+  // active power ups
+  private int timerCount;
+  private int[] timerType; // PowerUps#toInt()
+  private int[] timerUser;
+  private int[] timerTarget; // the agent effected
+  private int[] timerCounter;
+  private int[] timerLength;
+
+  private int gameTimer;
+
+  /**
+   * Creates a state with the given number of ghouls at the origin, facing up as a new {@link
+   * Entity} does, with no pellets and no active power ups.
+   *
+   * @param map The map being played on
+   * @param agentCount The number of agents
+   * @param gameTimer The time left in the game, in physics ticks
+   * @author Lewis Ackroyd
+   */
+  public WorldState(Map map, int agentCount, int gameTimer) {
+    this.MAX_X = map.getMaxX();
+    this.MAX_Y = map.getMaxY();
+    int cells = MAX_X * MAX_Y;
+    this.walls = new boolean[cells];
+    int[][] raw = map.raw();
+    int spawnCount = 0;
+    for (int i = 0; i < MAX_X; i++) {
+      for (int j = 0; j < MAX_Y; j++) {
+        walls[(j * MAX_X) + i] = raw[i][j] == MapElement.WALL.toInt();
+        spawnCount += walls[(j * MAX_X) + i] ? 0 : 1;
+      }
+    }
+    this.spawnX = new double[spawnCount];
+    this.spawnY = new double[spawnCount];
+    int spawn = 0;
+    for (int i = 0; i < MAX_X; i++) {
+      for (int j = 0; j < MAX_Y; j++) {
+        if (!walls[(j * MAX_X) + i]) {
+          spawnX[spawn] = i + CENTER;
+          spawnY[spawn++] = j + CENTER;
+        }
+      }
+    }
+    this.x = new double[agentCount];
+    this.y = new double[agentCount];
+    this.velocity = new double[agentCount];
+    this.bonusSpeed = new double[agentCount];
+    this.direction = new int[agentCount];
+    this.oldDirection = new int[agentCount];
+    this.flags = new int[agentCount];
+    this.deathCounter = new int[agentCount];
+    this.score = new int[agentCount];
+    this.kills = new int[agentCount];
+    this.items = new int[agentCount * ITEM_SLOTS];
+    Arrays.fill(items, NO_ITEM);
+    for (int agent = 0; agent < agentCount; agent++) {
+      direction[agent] = Direction.UP.toInt();
+      oldDirection[agent] = Direction.UP.toInt();
+      resetVelocity(agent);
+    }
+    int words = (cells + Long.SIZE - 1) / Long.SIZE;
+    this.kind = new byte[cells];
+    this.active = new long[words];
+    this.traps = new long[words];
+    this.toReplace = new long[words];
+    this.hidden = new long[words];
+    this.respawnTime = new int[cells];
+    this.respawnCount = new int[cells];
+    this.minePlacer = new int[cells];
+    this.counted = new long[words];
+    this.counting = new int[cells];
+    this.timerType = new int[INITIAL_TIMERS];
+    this.timerUser = new int[INITIAL_TIMERS];
+    this.timerTarget = new int[INITIAL_TIMERS];
+    this.timerCounter = new int[INITIAL_TIMERS];
+    this.timerLength = new int[INITIAL_TIMERS];
+    this.gameTimer = gameTimer;
+  }
+
+  /**
+   * Creates a state sharing the map of the given one, as the start of a copy.
+   *
+   * @param other The state whose map is shared
+   */
+  private WorldState(WorldState other) {
+    this.MAX_X = other.MAX_X;
+    this.MAX_Y = other.MAX_Y;
+    this.walls = other.walls;
+    this.spawnX = other.spawnX;
+    this.spawnY = other.spawnY;
+    this.x = new double[other.x.length];
+    this.y = new double[other.y.length];
+    this.velocity = new double[other.velocity.length];
+    this.bonusSpeed = new double[other.bonusSpeed.length];
+    this.direction = new int[other.direction.length];
+    this.oldDirection = new int[other.oldDirection.length];
+    this.flags = new int[other.flags.length];
+    this.deathCounter = new int[other.deathCounter.length];
+    this.score = new int[other.score.length];
+    this.kills = new int[other.kills.length];
+    this.items = new int[other.items.length];
+    this.kind = new byte[other.kind.length];
+    this.active = new long[other.active.length];
+    this.traps = new long[other.traps.length];
+    this.toReplace = new long[other.toReplace.length];
+    this.hidden = new long[other.hidden.length];
+    this.respawnTime = new int[other.respawnTime.length];
+    this.respawnCount = new int[other.respawnCount.length];
+    this.minePlacer = new int[other.minePlacer.length];
+    this.counted = new long[other.counted.length];
+    this.counting = new int[other.counting.length];
+    this.timerType = new int[other.timerType.length];
+    this.timerUser = new int[other.timerType.length];
+    this.timerTarget = new int[other.timerType.length];
+    this.timerCounter = new int[other.timerType.length];
+    this.timerLength = new int[other.timerType.length];
+    copyFrom(other);
+  }
+
+  /**
+   * Captures the state of a running game. Must be called from the thread running its physics.
+   *
+   * @param map The map being played on
+   * @param agents The agents of the game, indexed by client ID
+   * @param pellets The pellets on the map
+   * @param activePowerUps The power ups currently taking effect
+   * @param gameTimer The time left in the game, in physics ticks
+   * @return The state of the game
+   * @author Lewis Ackroyd
+   */
+  public static WorldState capture(
+      Map map,
+      Entity[] agents,
+      PointMap<Pellet> pellets,
+      ConcurrentHashMap<UUID, PowerUp> activePowerUps,
+      int gameTimer) {
+    WorldState state = new WorldState(map, agents.length, gameTimer);
+    for (int i = 0; i < agents.length; i++) {
+      Entity agent = agents[i];
+      state.x[i] = agent.getLocation().getX();
+      state.y[i] = agent.getLocation().getY();
+      state.velocity[i] = agent.getVelocity();
+      state.bonusSpeed[i] = agent.getBonusSpeed();
+      state.direction[i] = agent.getDirection().toInt();
+      state.oldDirection[i] = agent.getFacing().toInt();
+      state.flags[i] =
+          (agent.isMipsman() ? MIPSMAN : 0)
+              | (agent.isStunned() ? STUNNED : 0)
+              | (agent.isDead() ? DEAD : 0)
+              | (agent.isInvincible() ? INVINCIBLE : 0)
+              | (agent.isDirectionSet() ? DIRECTION_SET : 0)
+              | (agent.isPowerUpUsed() ? POWER_UP_USED : 0);
+      state.deathCounter[i] = agent.getDeathCounter();
+      state.score[i] = agent.getScore();
+      state.kills[i] = agent.getStatsTracker().getStat(Awards.MOST_KILLS);
+      int slot = 0;
+      for (PowerUp item : agent.getItems()) {
+        if (slot < ITEM_SLOTS) {
+          state.items[(i * ITEM_SLOTS) + slot++] = item.getType().toInt();
+        }
+      }
+    }
+    for (int cell = pellets.nextCell(0); cell >= 0; cell = pellets.nextCell(cell + 1)) {
+      Pellet pellet = pellets.getAt(cell);
+      if (pellet instanceof MinePellet) {
+        MinePellet mine = (MinePellet) pellet;
+        state.kind[cell] = MINE;
+        state.minePlacer[cell] = indexOf(agents, mine.getPlacer());
+        set(state.toReplace, cell, mine.isDetonated());
+        set(state.hidden, cell, mine.isHidden());
+      } else {
+        state.kind[cell] = pellet.isPowerUpBox() ? POWER_UP_BOX : PELLET;
+        set(state.traps, cell, pellet.isTrap());
+        set(state.toReplace, cell, pellet.replace());
+      }
+      set(state.active, cell, pellet.isActive());
+      state.respawnTime[cell] = pellet.getRespawnTime();
+      state.respawnCount[cell] = pellet.getRespawnCount();
+      state.replacing |= get(state.toReplace, cell);
+      state.count(cell);
+    }
+    for (PowerUp powerUp : activePowerUps.values()) {
+      state.addTimer(
+          powerUp.getType().toInt(),
+          indexOf(agents, powerUp.getUser()),
+          indexOf(agents, powerUp.getEffected()),
+          powerUp.getEffectTime());
+      state.timerCounter[state.timerCount - 1] = powerUp.getCounter();
+    }
+    return state;
+  }
+
+  /**
+   * @param agents The agents of the game
+   * @param agent The agent being found
+   * @return The index of the agent, or -1 if it is not one of them
+   */
+  private static int indexOf(Entity[] agents, Entity agent) {
+    for (int i = 0; i < agents.length; i++) {
+      if (agents[i] == agent) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** @return An independent copy of this state */
+  public WorldState copy() {
+    return new WorldState(this);
+  }
+
+  /**
+   * Makes this state a copy of another state of the same game without allocating, so that a
+   * search can reuse one state for every future it plays out.
+   *
+   * @param other The state being copied, with the same map and number of agents
+   * @author Lewis Ackroyd
+   */
+  public void copyFrom(WorldState other) {
+    int agents = x.length;
+    System.arraycopy(other.x, 0, x, 0, agents);
+    System.arraycopy(other.y, 0, y, 0, agents);
+    System.arraycopy(other.velocity, 0, velocity, 0, agents);
+    System.arraycopy(other.bonusSpeed, 0, bonusSpeed, 0, agents);
+    System.arraycopy(other.direction, 0, direction, 0, agents);
+    System.arraycopy(other.oldDirection, 0, oldDirection, 0, agents);
+    System.arraycopy(other.flags, 0, flags, 0, agents);
+    System.arraycopy(other.deathCounter, 0, deathCounter, 0, agents);
+    System.arraycopy(other.score, 0, score, 0, agents);
+    System.arraycopy(other.kills, 0, kills, 0, agents);
+    System.arraycopy(other.items, 0, items, 0, items.length);
+    System.arraycopy(other.kind, 0, kind, 0, kind.length);
+    System.arraycopy(other.active, 0, active, 0, active.length);
+    System.arraycopy(other.traps, 0, traps, 0, traps.length);
+    System.arraycopy(other.toReplace, 0, toReplace, 0, toReplace.length);
+    System.arraycopy(other.hidden, 0, hidden, 0, hidden.length);
+    System.arraycopy(other.respawnTime, 0, respawnTime, 0, respawnTime.length);
+    System.arraycopy(other.respawnCount, 0, respawnCount, 0, respawnCount.length);
+    System.arraycopy(other.minePlacer, 0, minePlacer, 0, minePlacer.length);
+    System.arraycopy(other.counted, 0, counted, 0, counted.length);
+    countingSize = other.countingSize;
+    System.arraycopy(other.counting, 0, counting, 0, countingSize);
+    replacing = other.replacing;
+    if (timerType.length < other.timerCount) {
+      growTimers(other.timerType.length);
+    }
+    timerCount = other.timerCount;
+    System.arraycopy(other.timerType, 0, timerType, 0, timerCount);
+    System.arraycopy(other.timerUser, 0, timerUser, 0, timerCount);
+    System.arraycopy(other.timerTarget, 0, timerTarget, 0, timerCount);
+    System.arraycopy(other.timerCounter, 0, timerCounter, 0, timerCount);
+    System.arraycopy(other.timerLength, 0, timerLength, 0, timerCount);
+    gameTimer = other.gameTimer;
+  }
+
+  /**
+   * Advances the game by one physics tick: agents move, stop at walls and respawn, agents that
+   * meet are caught, pellets are collected and respawn, the effects of power ups run out and the
+   * game timer counts down.
+   *
+   * @param random The source of random numbers for spawn points, pellet respawn times and the
+   *     contents of power up boxes
+   * @author Lewis Ackroyd
+   */
+  public void step(Random random) {
+    int agents = x.length;
+    for (int i = 0; i < agents; i++) {
+      if (direction[i] != STOP) {
+        double prevX = x[i];
+        double prevY = y[i];
+        if (!has(i, STUNNED) && !has(i, DEAD)) {
+          moveAgent(i, velocity[i], direction[i]);
+        }
+        double faceX = movedX(x[i], direction[i], FACE_OFFSET);
+        if (isWall(faceX, movedY(y[i], direction[i], FACE_OFFSET))) {
+          x[i] = mod((int) prevX + CENTER, MAX_X);
+          y[i] = mod((int) prevY + CENTER, MAX_Y);
+          setDirection(i, STOP);
+          flags[i] &= ~DIRECTION_SET;
+        }
+      }
+      if (has(i, DEAD)) {
+        if (deathCounter[i] == DEATH_TIME) {
+          deathCounter[i] = 0;
+          flags[i] &= ~DEAD;
+          resetVelocity(i);
+        } else {
+          deathCounter[i]++;
+        }
+        if (deathCounter[i] == RESPAWN_MOVE_TIME) {
+          moveToSpawnPoint(i, random);
+        }
+      }
+    }
+
+    for (int i = 0; i < agents; i++) {
+      for (int j = i + 1; j < agents; j++) {
+        if (has(i, MIPSMAN) && !has(j, MIPSMAN) && !has(i, INVINCIBLE)) {
+          detectCollision(i, j);
+        } else if (!has(i, INVINCIBLE) && has(j, INVINCIBLE)) {
+          detectCollision(i, j);
+        }
+        if (has(j, MIPSMAN) && !has(i, MIPSMAN) && !has(j, INVINCIBLE)) {
+          detectCollision(j, i);
+        } else if (!has(j, INVINCIBLE) && has(i, INVINCIBLE)) {
+          detectCollision(j, i);
+        }
+      }
+    }
+
+    for (int i = 0; i < agents; i++) {
+      collectPellet(i, random);
+    }
+    for (int i = 0; i < countingSize; ) {
+      int cell = counting[i];
+      if (incrementRespawn(cell)) {
+        i++;
+      } else { // swap the last cell in, the order the counts run in does not matter
+        set(counted, cell, false);
+        counting[i] = counting[--countingSize];
+      }
+    }
+    if (replacing) {
+      replacing = false;
+      for (int cell = nextToReplace(0); cell >= 0; cell = nextToReplace(cell + 1)) {
+        placePellet(cell, random);
+      }
+    }
+
+    int kept = 0;
+    for (int t = 0; t < timerCount; t++) {
+      timerCounter[t]++;
+      if (timerCounter[t] == timerLength[t]) {
+        endEffect(t);
+      } else {
+        timerType[kept] = timerType[t];
+        timerUser[kept] = timerUser[t];
+        timerTarget[kept] = timerTarget[t];
+        timerCounter[kept] = timerCounter[t];
+        timerLength[kept++] = timerLength[t];
+      }
+    }
+    timerCount = kept;
+    gameTimer--;
+  }
+
+  /**
+   * Applies a single input, as the host does when it is taken from the input queue: a movement
+   * direction is taken if the agent is at the centre of a grid square and the way is clear, and
+   * {@link Direction#USE} uses the first item held.
+   *
+   * @param agent The agent the input is for
+   * @param d The direction of the input
+   * @author Lewis Ackroyd
+   */
+  public void applyInput(int agent, Direction d) {
+    if (d == Direction.USE) {
+      if (has(agent, DEAD)) {
+        flags[agent] &= ~POWER_UP_USED;
+        return;
+      }
+      usePowerUp(agent);
+      flags[agent] &= ~POWER_UP_USED;
+    } else if (d.isMovementDirection()) {
+      int id = d.toInt();
+      if (!isWall(movedX(x[agent], id, 1), movedY(y[agent], id, 1))
+          && isCentered(x[agent], y[agent])) {
+        setDirection(agent, id);
+      }
+    }
+    flags[agent] &= ~DIRECTION_SET;
+  }
+
+  /** @return The number of agents */
+  public int getAgentCount() {
+    return x.length;
+  }
+
+  /**
+   * @param agent The agent
+   * @return The x coordinate of the agent
+   */
+  public double getX(int agent) {
+    return x[agent];
+  }
+
+  /**
+   * @param agent The agent
+   * @return The y coordinate of the agent
+   */
+  public double getY(int agent) {
+    return y[agent];
+  }
+
+  /**
+   * Moves an agent, such as to place it at the start of a game.
+   *
+   * @param agent The agent
+   * @param newX The new x coordinate
+   * @param newY The new y coordinate
+   */
+  public void setLocation(int agent, double newX, double newY) {
+    x[agent] = mod(newX, MAX_X);
+    y[agent] = mod(newY, MAX_Y);
+  }
+
+  /**
+   * @param agent The agent
+   * @return The direction the agent is moving in
+   */
+  public Direction getDirection(int agent) {
+    return Direction.fromInt(direction[agent]);
+  }
+
+  /**
+   * @param agent The agent
+   * @return The distance the agent moves each tick
+   */
+  public double getVelocity(int agent) {
+    return velocity[agent];
+  }
+
+  /**
+   * @param agent The agent
+   * @return If the agent is MIPSman
+   */
+  public boolean isMipsman(int agent) {
+    return has(agent, MIPSMAN);
+  }
+
+  /**
+   * Makes an agent MIPSman or a ghoul.
+   *
+   * @param agent The agent
+   * @param mipsman If the agent is MIPSman
+   */
+  public void setMipsman(int agent, boolean mipsman) {
+    setFlag(agent, MIPSMAN, mipsman);
+    resetVelocity(agent);
+  }
+
+  /**
+   * @param agent The agent
+   * @return If the agent is dead
+   */
+  public boolean isDead(int agent) {
+    return has(agent, DEAD);
+  }
+
+  /**
+   * @param agent The agent
+   * @return If the agent is stunned
+   */
+  public boolean isStunned(int agent) {
+    return has(agent, STUNNED);
+  }
+
+  /**
+   * @param agent The agent
+   * @return If the agent is invincible
+   */
+  public boolean isInvincible(int agent) {
+    return has(agent, INVINCIBLE);
+  }
+
+  /**
+   * @param agent The agent
+   * @return The score of the agent
+   */
+  public int getScore(int agent) {
+    return score[agent];
+  }
+
+  /**
+   * @param agent The agent
+   * @return The number of agents the agent has killed
+   */
+  public int getKills(int agent) {
+    return kills[agent];
+  }
+
+  /**
+   * @param agent The agent
+   * @param slot The slot, 0 for the item used next
+   * @return The {@link PowerUps#toInt()} of the item in the slot, or {@link #NO_ITEM}
+   */
+  public int getItem(int agent, int slot) {
+    return items[(agent * ITEM_SLOTS) + slot];
+  }
+
+  /**
+   * Gives an agent an item, if it has a free slot.
+   *
+   * @param agent The agent
+   * @param item The item
+   */
+  public void giveItem(int agent, PowerUps item) {
+    for (int slot = 0; slot < ITEM_SLOTS; slot++) {
+      if (items[(agent * ITEM_SLOTS) + slot] == NO_ITEM) {
+        items[(agent * ITEM_SLOTS) + slot] = item.toInt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * @param cell The cell
+   * @return The kind of pellet in the cell, such as {@link #PELLET} or {@link #NONE}
+   */
+  public byte getPelletKind(int cell) {
+    return kind[cell];
+  }
+
+  /**
+   * @param cell The cell
+   * @return If the pellet in the cell can be collected
+   */
+  public boolean isPelletActive(int cell) {
+    return kind[cell] != NONE && get(active, cell);
+  }
+
+  /**
+   * Places a fresh pellet in a cell.
+   *
+   * @param cell The cell
+   * @param pelletKind {@link #PELLET} or {@link #POWER_UP_BOX}
+   * @param respawn The number of ticks the pellet stays inactive for once collected
+   */
+  public void setPellet(int cell, byte pelletKind, int respawn) {
+    kind[cell] = pelletKind;
+    set(active, cell, true);
+    set(traps, cell, false);
+    set(toReplace, cell, false);
+    set(hidden, cell, false);
+    respawnTime[cell] = respawn;
+    respawnCount[cell] = 0;
+    count(cell);
+  }
+
+  /**
+   * @param x The x coordinate
+   * @param y The y coordinate
+   * @return The cell containing the coordinates
+   */
+  public int cellOf(double x, double y) {
+    return Cells.cellOf(x, y, MAX_X, MAX_Y);
+  }
+
+  /** @return The number of power ups currently taking effect */
+  public int getActivePowerUpCount() {
+    return timerCount;
+  }
+
+  /** @return The time left in the game, in physics ticks */
+  public int getGameTimer() {
+    return gameTimer;
+  }
+
+  /** @return If the game timer has run out */
+  public boolean isFinished() {
+    return Math.round(gameTimer / (double) 100) == 0;
+  }
+
+  // agents
+
+  private boolean has(int agent, int flag) {
+    return (flags[agent] & flag) != 0;
+  }
+
+  private void setFlag(int agent, int flag, boolean value) {
+    flags[agent] = value ? flags[agent] | flag : flags[agent] & ~flag;
+  }
+
+  private void resetVelocity(int agent) {
+    velocity[agent] = (has(agent, MIPSMAN) ? MIPS_SPEED : GHOUL_SPEED) + bonusSpeed[agent];
+  }
+
+  /**
+   * As {@link Entity#setDirection(Direction)}, remembering the direction an agent stopped from.
+   *
+   * @param agent The agent
+   * @param newDirection The {@link Direction#toInt()} of the new direction
+   */
+  private void setDirection(int agent, int newDirection) {
+    if (direction[agent] != newDirection) {
+      if (newDirection == STOP) {
+        oldDirection[agent] = direction[agent];
+      }
+      direction[agent] = newDirection;
+    }
+  }
+
+  /**
+   * @param agent The agent
+   * @return The direction the agent is facing, its last movement direction if stopped
+   */
+  private int facing(int agent) {
+    return Direction.fromInt(direction[agent]).isMovementDirection()
+        ? direction[agent]
+        : oldDirection[agent];
+  }
+
+  private void moveAgent(int agent, double offset, int dir) {
+    double newX = movedX(x[agent], dir, offset);
+    y[agent] = movedY(y[agent], dir, offset);
+    x[agent] = newX;
+  }
+
+  /**
+   * Moves a dead agent to a random spawn point away from every agent, as {@link
+   * Map#getRandomSpawnPoint(Entity[], Random)}.
+   *
+   * @param agent The agent
+   * @param random The source of random numbers
+   */
+  private void moveToSpawnPoint(int agent, Random random) {
+    boolean found = false;
+    int spawn = 0;
+    while (!found) {
+      spawn = random.nextInt(spawnX.length);
+      found = true;
+      for (int other = 0; other < x.length; other++) {
+        double dx = x[other] - spawnX[spawn];
+        double dy = y[other] - spawnY[spawn];
+        if (Math.sqrt((dx * dx) + (dy * dy)) < MIN_SPAWN_DISTANCE) {
+          found = false;
+        }
+      }
+    }
+    x[agent] = spawnX[spawn];
+    y[agent] = spawnY[spawn];
+  }
+
+  /**
+   * Kills MIPSman if the face of the ghoul has reached it, as {@code
+   * Telemetry.detectEntityCollision}.
+   *
+   * @param mipsman The agent that may be caught
+   * @param ghoul The agent that may catch it
+   */
+  private void detectCollision(int mipsman, int ghoul) {
+    if (has(mipsman, DEAD) || has(ghoul, DEAD)) {
+      return;
+    }
+    double faceX = movedX(x[ghoul], direction[ghoul], FACE_OFFSET);
+    double faceY = movedY(y[ghoul], direction[ghoul], FACE_OFFSET);
+    if (Cells.inRange(x[mipsman], y[mipsman], faceX, faceY, MAX_X, MAX_Y)) {
+      kill(ghoul, mipsman);
+    }
+  }
+
+  /**
+   * As {@code Methods.kill}: an invincible victim survives, a ghoul that kills MIPSman becomes
+   * MIPSman, and the killer takes a tenth of the victim's score.
+   *
+   * @param killer The agent doing the killing
+   * @param victim The agent being killed
+   */
+  private void kill(int killer, int victim) {
+    if (killer < 0 || has(victim, INVINCIBLE)) {
+      return;
+    }
+    if (!has(killer, MIPSMAN) && has(victim, MIPSMAN)) {
+      setMipsman(victim, false);
+      setMipsman(killer, true);
+    }
+    kills[killer]++;
+    flags[victim] |= DEAD;
+    velocity[victim] = 0;
+    deathCounter[victim] = 0;
+    if (score[victim] > 0) {
+      int points = Math.max(1, (int) (score[victim] * SCORE_STOLEN));
+      score[victim] -= points;
+      score[killer] += points;
+    }
+  }
+
+  // pellets
+
+  /**
+   * The agent interacts with the pellet in its grid square, if any, as {@code
+   * Telemetry.pelletCollision}.
+   *
+   * @param agent The agent
+   * @param random The source of random numbers for the contents of power up boxes
+   */
+  private void collectPellet(int agent, Random random) {
+    int cell = cellOf(x[agent], y[agent]);
+    switch (kind[cell]) {
+      case PELLET:
+        if (get(active, cell) && has(agent, MIPSMAN)) {
+          score[agent]++;
+          deactivate(cell);
+        }
+        break;
+      case POWER_UP_BOX:
+        if (get(traps, cell)) {
+          if (!has(agent, INVINCIBLE)) {
+            flags[agent] |= STUNNED;
+            velocity[agent] = 0;
+            addTimer(PowerUps.WEB.toInt(), -1, agent);
+          }
+          set(traps, cell, false);
+          deactivate(cell);
+          set(toReplace, cell, true);
+          replacing = true;
+        } else if (get(active, cell)) {
+          giveItem(agent, PowerUpBox.drawPowerUp(rankOf(agent), random));
+          deactivate(cell);
+        }
+        break;
+      case MINE:
+        if (!get(toReplace, cell)) {
+          kill(minePlacer[cell], agent);
+          set(toReplace, cell, true);
+          replacing = true;
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * @param agent The agent
+   * @return The number of agents with a higher score
+   */
+  private int rankOf(int agent) {
+    int rank = 0;
+    for (int other = 0; other < score.length; other++) {
+      if (other != agent && score[other] > score[agent]) {
+        rank++;
+      }
+    }
+    return rank;
+  }
+
+  private void deactivate(int cell) {
+    set(active, cell, false);
+    respawnCount[cell] = 0;
+    count(cell);
+  }
+
+  /**
+   * Adds a cell to the counting list if its count runs, so that a tick only visits the collected
+   * pellets and live mines rather than every cell of the map.
+   *
+   * @param cell The cell of the pellet
+   */
+  private void count(int cell) {
+    boolean runs = kind[cell] == MINE ? !get(toReplace, cell) : !get(active, cell);
+    if (runs && kind[cell] != NONE && !get(counted, cell)) {
+      set(counted, cell, true);
+      counting[countingSize++] = cell;
+    }
+  }
+
+  /**
+   * Counts towards the respawn of a collected pellet, or the hiding of a mine.
+   *
+   * @param cell The cell of the pellet
+   * @return Whether the count still runs, false once the pellet has respawned or the mine
+   *     detonated
+   */
+  private boolean incrementRespawn(int cell) {
+    if (kind[cell] == MINE) {
+      if (get(toReplace, cell)) {
+        return false;
+      }
+      respawnCount[cell]++;
+      if (respawnCount[cell] == MINE_HIDE_TIME) {
+        set(hidden, cell, true);
+      }
+      return true;
+    }
+    if (kind[cell] == NONE || get(active, cell)) {
+      return false;
+    }
+    respawnCount[cell]++;
+    if (respawnCount[cell] == respawnTime[cell]) {
+      set(active, cell, true);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param from The first cell to check
+   * @return The first cell from the given one waiting to be replaced, or -1 if there is none
+   */
+  private int nextToReplace(int from) {
+    int word = from >>> 6;
+    if (word >= toReplace.length) {
+      return -1;
+    }
+    long bits = toReplace[word] & (-1L << from);
+    while (bits == 0) {
+      if (++word == toReplace.length) {
+        return -1;
+      }
+      bits = toReplace[word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Replaces a triggered web or detonated mine with a fresh pellet.
+   *
+   * @param cell The cell of the pellet
+   * @param random The source of random numbers for the respawn time
+   */
+  private void placePellet(int cell, Random random) {
+    setPellet(cell, PELLET, PELLET_RESPAWN_TIME + random.nextInt(PELLET_RESPAWN_VARIATION));
+  }
+
+  // power ups
+
+  /**
+   * Uses the first item held, as the {@code use} method of each {@link PowerUp}.
+   *
+   * @param agent The agent
+   */
+  private void usePowerUp(int agent) {
+    int item = items[agent * ITEM_SLOTS];
+    if (item == NO_ITEM) {
+      return;
+    }
+    for (int slot = 1; slot < ITEM_SLOTS; slot++) {
+      items[(agent * ITEM_SLOTS) + slot - 1] = items[(agent * ITEM_SLOTS) + slot];
+    }
+    items[(agent * ITEM_SLOTS) + ITEM_SLOTS - 1] = NO_ITEM;
+    int behind = Direction.fromInt(facing(agent)).getInverse().toInt();
+    switch (ITEM_TYPES[item]) {
+      case WEB:
+        {
+          int cell = dropCell(agent, behind);
+          setPellet(cell, POWER_UP_BOX, BOX_RESPAWN_TIME);
+          set(traps, cell, true);
+          break;
+        }
+      case MINE:
+        {
+          int cell = dropCell(agent, behind);
+          setPellet(cell, MINE, -1);
+          minePlacer[cell] = agent;
+          break;
+        }
+      case SPEED:
+        bonusSpeed[agent] += SPEED_BONUS;
+        resetVelocity(agent);
+        addTimer(item, agent, agent);
+        break;
+      case INVINCIBLE:
+        flags[agent] |= INVINCIBLE;
+        addTimer(item, agent, agent);
+        break;
+      case ROCKET:
+        addTimer(item, agent, winner());
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * @param agent The agent dropping an item
+   * @param behind The direction behind the agent
+   * @return The cell the item lands in
+   */
+  private int dropCell(int agent, int behind) {
+    return cellOf(
+        movedX(x[agent], behind, DROP_OFFSET),
+        movedY(y[agent], behind, DROP_OFFSET));
+  }
+
+  /** @return The agent in first place, as {@code Methods.findWinner} */
+  private int winner() {
+    int winner = 0;
+    int maxScore = 0;
+    for (int agent = 0; agent < score.length; agent++) {
+      if (score[agent] > maxScore) {
+        winner = agent;
+        maxScore = score[agent];
+      }
+    }
+    return winner;
+  }
+
+  private void addTimer(int type, int user, int target) {
+    addTimer(type, user, target, EFFECT_TIMES[type]);
+  }
+
+  private void addTimer(int type, int user, int target, int length) {
+    if (timerCount == timerType.length) {
+      growTimers(timerType.length * 2);
+    }
+    timerType[timerCount] = type;
+    timerUser[timerCount] = user;
+    timerTarget[timerCount] = target;
+    timerCounter[timerCount] = 0;
+    timerLength[timerCount++] = length;
+  }
+
+  private void growTimers(int capacity) {
+    timerType = Arrays.copyOf(timerType, capacity);
+    timerUser = Arrays.copyOf(timerUser, capacity);
+    timerTarget = Arrays.copyOf(timerTarget, capacity);
+    timerCounter = Arrays.copyOf(timerCounter, capacity);
+    timerLength = Arrays.copyOf(timerLength, capacity);
+  }
+
+  /**
+   * Ends the effect of a power up, as the {@code incrementTime} method of each {@link PowerUp}.
+   *
+   * @param t The index of the timer
+   */
+  private void endEffect(int t) {
+    int target = timerTarget[t];
+    switch (ITEM_TYPES[timerType[t]]) {
+      case INVINCIBLE:
+        flags[target] &= ~INVINCIBLE;
+        break;
+      case SPEED:
+        bonusSpeed[timerUser[t]] -= SPEED_BONUS;
+        resetVelocity(timerUser[t]);
+        break;
+      case WEB:
+        flags[target] &= ~STUNNED;
+        resetVelocity(target);
+        break;
+      case ROCKET:
+        kill(timerUser[t], target);
+        break;
+      default:
+        break;
+    }
+  }
+
+  // geometry, as Point
+
+  private double movedX(double px, int dir, double offset) {
+    return Cells.movedX(px, dir, offset, MAX_X);
+  }
+
+  private double movedY(double py, int dir, double offset) {
+    return Cells.movedY(py, dir, offset, MAX_Y);
+  }
+
+  private boolean isWall(double px, double py) {
+    return walls[cellOf(px, py)];
+  }
+
+  private static boolean isCentered(double px, double py) {
+    return Cells.isCentered(px, py);
+  }
+
+  private static double mod(double value, int max) {
+    return Cells.wrap(value, max);
+  }
+
+  private static boolean get(long[] bits, int cell) {
+    return (bits[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  private static void set(long[] bits, int cell, boolean value) {
+    if (value) {
+      bits[cell >>> 6] |= 1L << cell;
+    } else {
+      bits[cell >>> 6] &= ~(1L << cell);
+    }
+  }
+}
@@ -1,8 +1,10 @@
 package com.lordsofmidnight.gamestate.maps;
 
+import com.lordsofmidnight.gamestate.points.Cells;
 import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.renderer.ResourceLoader;
+import com.lordsofmidnight.utils.enums.Direction;
 import com.lordsofmidnight.utils.enums.MapElement;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -11,31 +13,40 @@ import java.util.Random;
 /**
  * Encapsulates map with utilities methods
  *
+ * <p>The walls, the neighbours of each grid square and the directions that can be moved in from
+ * each grid square are worked out once when the map is constructed, indexed by cell index as
+ * given by {@link Cells}, so that they can be read every tick without creating any objects.
+ *
  * @author Alex Banks
  */
 public class Map {
 
+  private static final int DIRECTIONS = Direction.MOVEMENT_DIRECTIONS.length;
+
   private final int MAX_X;
   private final int MAX_Y;
 
   private final int[][] MAP;
+  private final long[] WALLS; // bitset of the grid squares that are walls, by cell index
+  private final int[] NEIGHBOURS; // the neighbour of each cell at cell * 4 + Direction#toInt()
+  private final byte[] VALID_DIRECTIONS; // bit Direction#toInt() set if that move is open
   private final ArrayList<Point> SPAWN_POINTS;
 
-  private final Random SPAWN_RANDOM;
-
   /**
    * basic constructor that takes raw ints and performs preprocessing
    *
    * @param map_ 2d array of ints
-   * @see this#getRandomSpawnPoint(Entity[])
+   * @see this#getRandomSpawnPoint(Entity[], Random)
    * @see ResourceLoader#loadMap(String)
    */
   public Map(int[][] map_) {
     MAP = map_;
     MAX_X = MAP.length;
     MAX_Y = MAP[0].length;
+    WALLS = loadWalls();
+    NEIGHBOURS = loadNeighbours();
+    VALID_DIRECTIONS = loadValidDirections();
     SPAWN_POINTS = loadSpawnPoints();
-    SPAWN_RANDOM = new Random();
   }
 
   /**
@@ -124,6 +135,66 @@ public class Map {
     return spawnPoints;
   }
 
+  /**
+   * called on construction to find the walls
+   *
+   * @return bitset of the cells that are walls
+   * @author Lewis Ackroyd
+   */
+  private long[] loadWalls() {
+    long[] walls = new long[((MAX_X * MAX_Y) + 63) >>> 6];
+    for (int x = 0; x < MAX_X; x++) {
+      for (int y = 0; y < MAX_Y; y++) {
+        if (MAP[x][y] == MapElement.WALL.toInt()) {
+          int cell = Cells.index(x, y, MAX_X);
+          walls[cell >>> 6] |= 1L << cell;
+        }
+      }
+    }
+    return walls;
+  }
+
+  /**
+   * called on construction to find the neighbours of every cell, looping around the map
+   * boundaries
+   *
+   * @return the neighbour of each cell in each movement direction
+   * @author Lewis Ackroyd
+   */
+  private int[] loadNeighbours() {
+    int[] neighbours = new int[MAX_X * MAX_Y * DIRECTIONS];
+    for (int cell = 0; cell < MAX_X * MAX_Y; cell++) {
+      for (int d = 0; d < DIRECTIONS; d++) {
+        neighbours[(cell * DIRECTIONS) + d] = Cells.neighbour(cell, d, MAX_X, MAX_Y);
+      }
+    }
+    return neighbours;
+  }
+
+  /**
+   * called on construction, after the walls and neighbours, to find the directions that can be
+   * moved in from every cell
+   *
+   * @return the mask of open directions of each cell
+   * @author Lewis Ackroyd
+   */
+  private byte[] loadValidDirections() {
+    byte[] validDirections = new byte[MAX_X * MAX_Y];
+    for (int cell = 0; cell < MAX_X * MAX_Y; cell++) {
+      if (isWall(cell)) {
+        continue;
+      }
+      int mask = 0;
+      for (int d = 0; d < DIRECTIONS; d++) {
+        if (!isWall(neighbour(cell, d))) {
+          mask |= 1 << d;
+        }
+      }
+      validDirections[cell] = (byte) mask;
+    }
+    return validDirections;
+  }
+
   /**
    * @return The max X value for the map
    */
@@ -145,9 +216,80 @@ public class Map {
    * @return true if wall, false otherwise
    */
   public boolean isWall(Point point) {
-    Point p =
-        new Point(point.getX(), point.getY(), this); // TODO remove line once all points use mod
-    return MAP[(int) p.getX()][(int) p.getY()] == MapElement.WALL.toInt();
+    return isWall(point.getX(), point.getY());
+  }
+
+  /**
+   * calculates if the coordinates are in a wall, wrapping them onto the map
+   *
+   * @param x The x coordinate
+   * @param y The y coordinate
+   * @return true if wall, false otherwise
+   */
+  public boolean isWall(double x, double y) {
+    return isWall(Cells.cellOf(x, y, MAX_X, MAX_Y));
+  }
+
+  /**
+   * @param cell The cell index of the grid square, as given by {@link Cells}
+   * @return true if wall, false otherwise
+   */
+  public boolean isWall(int cell) {
+    return (WALLS[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  /** @return The number of grid squares in the map, one more than the largest cell index */
+  public int getCellCount() {
+    return MAX_X * MAX_Y;
+  }
+
+  /**
+   * gives the cell adjacent to the given cell, looping around the map boundaries
+   *
+   * @param cell The cell index of the grid square being moved from
+   * @param direction The {@link Direction#toInt()} value of a movement direction
+   * @return The cell index of the adjacent grid square
+   */
+  public int neighbour(int cell, int direction) {
+    return NEIGHBOURS[(cell * DIRECTIONS) + direction];
+  }
+
+  /**
+   * gives the cell adjacent to the given cell, looping around the map boundaries
+   *
+   * @param cell The cell index of the grid square being moved from
+   * @param direction The direction of movement
+   * @return The cell index of the adjacent grid square, or the given cell if the direction is not
+   *     a movement direction
+   */
+  public int neighbour(int cell, Direction direction) {
+    if (direction == null || !direction.isMovementDirection()) {
+      return cell;
+    }
+    return neighbour(cell, direction.toInt());
+  }
+
+  /**
+   * the directions that can be moved in from the grid square, including through the loops around
+   * the map boundaries
+   *
+   * @param cell The cell index of the grid square being moved from
+   * @return A mask with bit {@link Direction#toInt()} set for each direction not blocked by a wall,
+   *     or 0 if the grid square is a wall
+   */
+  public int validDirections(int cell) {
+    return VALID_DIRECTIONS[cell];
+  }
+
+  /**
+   * @param cell The cell index of the grid square being moved from
+   * @param direction The direction of movement
+   * @return true if the move is not blocked by a wall
+   */
+  public boolean isValidDirection(int cell, Direction direction) {
+    return direction != null
+        && direction.isMovementDirection()
+        && (VALID_DIRECTIONS[cell] & (1 << direction.toInt())) != 0;
   }
 
   /**
@@ -160,17 +302,20 @@ public class Map {
   }
 
   /**
-   * Returns random spawnpoint that's not near any other entities
+   * Returns random spawnpoint that's not near any other entities, chosen using the given source of
+   * random numbers
    *
+   * @param agents The entities the spawnpoint must not be near
+   * @param random The source of random numbers
    * @return random Point to position entities upon respawn
    * @author Alex Banks
    */
-  public Point getRandomSpawnPoint(Entity[] agents) {
+  public Point getRandomSpawnPoint(Entity[] agents, Random random) {
     final int MIN_DIST = 2;
     boolean found = false;
     Point p = null;
     while (!found) {
-      p = SPAWN_POINTS.get(SPAWN_RANDOM.nextInt(SPAWN_POINTS.size()));
+      p = SPAWN_POINTS.get(random.nextInt(SPAWN_POINTS.size()));
       found = true;
       for (Entity agent : agents) {
         if (agent == null) {
@@ -101,8 +101,20 @@ public class MapGenerator {
    * @return the new map
    */
   public static int[][] newRandomMap(int x_factor, int y_factor) {
+    return newRandomMap(x_factor, y_factor, new Random());
+  }
+
+  /**
+   * Creates a random map, the same map every time for the same random numbers
+   *
+   * @param x_factor multiplier for the x axis
+   * @param y_factor multiplier for the y axis
+   * @param r the source of random numbers
+   * @return the new map
+   */
+  public static int[][] newRandomMap(int x_factor, int y_factor, Random r) {
     // Run it on a new thread
-    return generateNewMap(14 + 3 * x_factor, 14 + 3 * y_factor);
+    return generateNewMap(14 + 3 * x_factor, 14 + 3 * y_factor, r);
   }
 
   /**
@@ -113,10 +125,21 @@ public class MapGenerator {
    * @return the map
    */
   public static int[][] generateNewMap(int x, int y) {
+    return generateNewMap(x, y, new Random());
+  }
+
+  /**
+   * Generates a new map, the same map every time for the same random numbers
+   *
+   * @param x the x dimension of the map
+   * @param y the y dimension of the map
+   * @param r the source of random numbers
+   * @return the map
+   */
+  public static int[][] generateNewMap(int x, int y, Random r) {
     int[][] map = null;
     int c = 0;
     int half = (y + 1) / 2;
-    Random r = new Random();
     while (!validateMap(map)) {
       // System.out.println("attempt " + c++);
       map = new int[x][y];
@@ -0,0 +1,169 @@
+package com.lordsofmidnight.gamestate.maps;
+
+import com.lordsofmidnight.gamestate.points.Cells;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.objects.Entity;
+import java.util.Arrays;
+
+/**
+ * Index of which agents occupy each grid square of a {@link Map}. Every square holds a bitmask of
+ * the indices (in the agents array) of the agents within it, and the flags of every agent (MIPSman,
+ * invincible, dead) are held as masks of the same form, so asking whether a square contains an
+ * agent with a given flag is a constant time array read. The grid is refreshed once per physics
+ * tick by {@link #update(Entity[])} and can be read from any thread.
+ *
+ * @author Lewis Ackroyd
+ */
+public class OccupancyGrid {
+
+  public static final int MAX_AGENTS = Long.SIZE; // one bit per agent in each mask
+  private static final int NO_CELL = -1;
+
+  private final int MAX_X;
+  private final int MAX_Y;
+  private final long[] occupants; // agents within each square
+  private final int[] agentCells; // the square each agent was in at the last update
+  private volatile long mipsmanMask;
+  private volatile long invincibleMask;
+  private volatile long deadMask;
+
+  /**
+   * Initialises an empty grid for the specified {@link Map}.
+   *
+   * @param map The map the grid covers
+   * @author Lewis Ackroyd
+   */
+  public OccupancyGrid(Map map) {
+    this.MAX_X = map.getMaxX();
+    this.MAX_Y = map.getMaxY();
+    this.occupants = new long[MAX_X * MAX_Y];
+    this.agentCells = new int[MAX_AGENTS];
+    Arrays.fill(agentCells, NO_CELL);
+  }
+
+  /**
+   * Moves every agent that has changed square since the last update and refreshes the flags of
+   * every agent. Must only be called by one thread at a time.
+   *
+   * @param agents All agents in the game, indexed as in every other use of the grid
+   * @throws IllegalArgumentException More agents than {@link #MAX_AGENTS} were given.
+   * @author Lewis Ackroyd
+   */
+  public synchronized void update(Entity[] agents) throws IllegalArgumentException {
+    if (agents.length > MAX_AGENTS) {
+      throw new IllegalArgumentException("Cannot index more than " + MAX_AGENTS + " agents.");
+    }
+    long mipsman = 0;
+    long invincible = 0;
+    long dead = 0;
+    for (int i = 0; i < agents.length; i++) {
+      long bit = 1L << i;
+      Entity agent = agents[i];
+      Point location = agent.getLocation();
+      int cell = (location == null) ? NO_CELL : cellOf(location);
+      if (cell != agentCells[i]) {
+        if (agentCells[i] != NO_CELL) {
+          occupants[agentCells[i]] &= ~bit;
+        }
+        if (cell != NO_CELL) {
+          occupants[cell] |= bit;
+        }
+        agentCells[i] = cell;
+      }
+      if (agent.isMipsman()) {
+        mipsman |= bit;
+      }
+      if (agent.isInvincible()) {
+        invincible |= bit;
+      }
+      if (agent.isDead()) {
+        dead |= bit;
+      }
+    }
+    this.mipsmanMask = mipsman;
+    this.invincibleMask = invincible;
+    this.deadMask = dead;
+  }
+
+  /**
+   * The agents within the given square.
+   *
+   * @param cell The cell index of the square, y * MAX_X + x
+   * @return A mask with the bit of every agent index within the square set
+   * @author Lewis Ackroyd
+   */
+  public long getOccupants(int cell) {
+    return occupants[cell];
+  }
+
+  /**
+   * @param position The position being checked
+   * @return True if any agent is within the grid square containing the position
+   * @author Lewis Ackroyd
+   */
+  public boolean isOccupied(Point position) {
+    return occupants[cellOf(position)] != 0;
+  }
+
+  /**
+   * @param position The position being checked
+   * @return True if any agent other than MIPSman is within the grid square containing the position
+   * @author Lewis Ackroyd
+   */
+  public boolean containsGhoul(Point position) {
+    return (occupants[cellOf(position)] & ~mipsmanMask) != 0;
+  }
+
+  /**
+   * @param position The position being checked
+   * @return True if MIPSman is within the grid square containing the position
+   * @author Lewis Ackroyd
+   */
+  public boolean containsMipsman(Point position) {
+    return (occupants[cellOf(position)] & mipsmanMask) != 0;
+  }
+
+  /**
+   * @param position The position being checked
+   * @return True if an invincible agent is within the grid square containing the position
+   * @author Lewis Ackroyd
+   */
+  public boolean containsInvincible(Point position) {
+    return (occupants[cellOf(position)] & invincibleMask) != 0;
+  }
+
+  /**
+   * @param position The position being checked
+   * @return True if an agent that is alive is within the grid square containing the position
+   * @author Lewis Ackroyd
+   */
+  public boolean containsLiving(Point position) {
+    return (occupants[cellOf(position)] & ~deadMask) != 0;
+  }
+
+  /** @return A mask with the bit of every agent that is MIPSman set */
+  public long getMipsmanMask() {
+    return mipsmanMask;
+  }
+
+  /** @return A mask with the bit of every agent that is invincible set */
+  public long getInvincibleMask() {
+    return invincibleMask;
+  }
+
+  /** @return A mask with the bit of every agent that is dead set */
+  public long getDeadMask() {
+    return deadMask;
+  }
+
+  /**
+   * Calculates the cell index for the given position, wrapping it onto the map.
+   *
+   * @param position The position
+   * @return The cell index of the grid square containing the position
+   * @author Lewis Ackroyd
+   */
+  public int cellOf(Point position) {
+    return Cells.cellOf(position.getX(), position.getY(), MAX_X, MAX_Y);
+  }
+}
@@ -0,0 +1,259 @@
+package com.lordsofmidnight.gamestate.points;
+
+import com.lordsofmidnight.utils.enums.Direction;
+
+/**
+ * Geometry on the map grid using primitives in place of {@link Point}, so that movement and
+ * collision checks can run every tick without creating any objects. Grid squares are identified by
+ * their cell index (y * maxX + x), the same layout as {@link PointMap} and {@link PointSet}, and
+ * coordinates are given as separate x and y values. Every method gives the same result as the
+ * equivalent method of {@link Point} on a point mapped to a map of the given size.
+ *
+ * @author Lewis Ackroyd
+ */
+public final class Cells {
+
+  public static final double CENTER = 0.5; // offset of the centre of a square from its corner
+  public static final double CENTER_TOLERANCE = 0.2; // distance from the centre counted as centred
+  private static final int NONE = -1; // direction value for no movement
+
+  private Cells() {}
+
+  /**
+   * @param x The x coordinate of the grid square
+   * @param y The y coordinate of the grid square
+   * @param maxX The width of the map
+   * @return The cell index of the grid square
+   */
+  public static int index(int x, int y, int maxX) {
+    return (y * maxX) + x;
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @param maxX The width of the map
+   * @return The x coordinate of the grid square
+   */
+  public static int getX(int cell, int maxX) {
+    return cell % maxX;
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @param maxX The width of the map
+   * @return The y coordinate of the grid square
+   */
+  public static int getY(int cell, int maxX) {
+    return cell / maxX;
+  }
+
+  /**
+   * Calculates the cell index for the given coordinates, wrapping them onto the map.
+   *
+   * @param x The x coordinate
+   * @param y The y coordinate
+   * @param maxX The width of the map
+   * @param maxY The height of the map
+   * @return The cell index of the grid square containing the coordinates
+   * @author Lewis Ackroyd
+   */
+  public static int cellOf(double x, double y, int maxX, int maxY) {
+    int gridX = Math.floorMod((int) Math.floor(x), maxX);
+    int gridY = Math.floorMod((int) Math.floor(y), maxY);
+    return index(gridX, gridY, maxX);
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @param maxX The width of the map
+   * @return The x coordinate of the centre of the grid square
+   */
+  public static double centreX(int cell, int maxX) {
+    return getX(cell, maxX) + CENTER;
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @param maxX The width of the map
+   * @return The y coordinate of the centre of the grid square
+   */
+  public static double centreY(int cell, int maxX) {
+    return getY(cell, maxX) + CENTER;
+  }
+
+  /**
+   * Gives the cell adjacent to the given cell in the given direction, looping around the map
+   * boundaries.
+   *
+   * @param cell The cell being moved from
+   * @param direction The direction of movement
+   * @param maxX The width of the map
+   * @param maxY The height of the map
+   * @return The adjacent cell, or the given cell if the direction is not a movement direction
+   * @author Lewis Ackroyd
+   */
+  public static int neighbour(int cell, Direction direction, int maxX, int maxY) {
+    return neighbour(cell, toInt(direction), maxX, maxY);
+  }
+
+  /**
+   * Gives the cell adjacent to the given cell in the direction with the given {@link
+   * Direction#toInt() id}, looping around the map boundaries.
+   *
+   * @param cell The cell being moved from
+   * @param direction The id of the direction of movement
+   * @param maxX The width of the map
+   * @param maxY The height of the map
+   * @return The adjacent cell, or the given cell if the direction is not a movement direction
+   * @author Lewis Ackroyd
+   */
+  public static int neighbour(int cell, int direction, int maxX, int maxY) {
+    int x = getX(cell, maxX);
+    int y = getY(cell, maxX);
+    if (direction == Direction.UP.toInt()) {
+      y = (y == 0) ? maxY - 1 : y - 1;
+    } else if (direction == Direction.DOWN.toInt()) {
+      y = (y == maxY - 1) ? 0 : y + 1;
+    } else if (direction == Direction.LEFT.toInt()) {
+      x = (x == 0) ? maxX - 1 : x - 1;
+    } else if (direction == Direction.RIGHT.toInt()) {
+      x = (x == maxX - 1) ? 0 : x + 1;
+    }
+    return index(x, y, maxX);
+  }
+
+  /**
+   * Wraps the coordinate onto an axis of the given length, as {@link Point} does for mapped
+   * points.
+   *
+   * @param value The coordinate
+   * @param max The length of the axis, or 0 if the axis is unbounded
+   * @return The coordinate, in the range [0, max), or unchanged if the axis is unbounded
+   */
+  public static double wrap(double value, int max) {
+    if (max <= 0) {
+      return value;
+    }
+    double wrapped = value % max;
+    if (wrapped < 0) {
+      wrapped += max;
+      if (wrapped >= max) { // a tiny negative value rounds up to max
+        wrapped = 0;
+      }
+    }
+    return wrapped;
+  }
+
+  /**
+   * The x coordinate after moving as {@link Point#moveInDirection(double, Direction)}: along the
+   * x-axis by the offset when moving left or right, or onto the centre of the grid square when
+   * moving up or down.
+   *
+   * @param x The x coordinate
+   * @param direction The direction of movement, may be null
+   * @param offset The distance to move
+   * @param maxX The width of the map, or 0 if the x-axis is unbounded
+   * @return The x coordinate after moving
+   */
+  public static double movedX(double x, Direction direction, double offset, int maxX) {
+    return movedX(x, toInt(direction), offset, maxX);
+  }
+
+  /**
+   * The x coordinate after moving in the direction with the given {@link Direction#toInt() id}.
+   *
+   * @param x The x coordinate
+   * @param direction The id of the direction of movement
+   * @param offset The distance to move
+   * @param maxX The width of the map
+   * @return The x coordinate after moving
+   * @see #movedX(double, Direction, double, int)
+   */
+  public static double movedX(double x, int direction, double offset, int maxX) {
+    if (direction == Direction.LEFT.toInt()) {
+      return wrap(x - offset, maxX);
+    } else if (direction == Direction.RIGHT.toInt()) {
+      return wrap(x + offset, maxX);
+    } else if (direction == Direction.UP.toInt() || direction == Direction.DOWN.toInt()) {
+      return wrap((int) x + CENTER, maxX);
+    }
+    return x;
+  }
+
+  /**
+   * The y coordinate after moving as {@link Point#moveInDirection(double, Direction)}: along the
+   * y-axis by the offset when moving up or down, or onto the centre of the grid square when moving
+   * left or right.
+   *
+   * @param y The y coordinate
+   * @param direction The direction of movement, may be null
+   * @param offset The distance to move
+   * @param maxY The height of the map, or 0 if the y-axis is unbounded
+   * @return The y coordinate after moving
+   */
+  public static double movedY(double y, Direction direction, double offset, int maxY) {
+    return movedY(y, toInt(direction), offset, maxY);
+  }
+
+  /**
+   * The y coordinate after moving in the direction with the given {@link Direction#toInt() id}.
+   *
+   * @param y The y coordinate
+   * @param direction The id of the direction of movement
+   * @param offset The distance to move
+   * @param maxY The height of the map
+   * @return The y coordinate after moving
+   * @see #movedY(double, Direction, double, int)
+   */
+  public static double movedY(double y, int direction, double offset, int maxY) {
+    if (direction == Direction.UP.toInt()) {
+      return wrap(y - offset, maxY);
+    } else if (direction == Direction.DOWN.toInt()) {
+      return wrap(y + offset, maxY);
+    } else if (direction == Direction.LEFT.toInt() || direction == Direction.RIGHT.toInt()) {
+      return wrap((int) y + CENTER, maxY);
+    }
+    return y;
+  }
+
+  /**
+   * @param x The x coordinate
+   * @param y The y coordinate
+   * @return True if the coordinates are within the central hitbox of their grid square, as {@link
+   *     Point#isCentered()}
+   */
+  public static boolean isCentered(double x, double y) {
+    return Math.abs((x % 1) - CENTER) < CENTER_TOLERANCE
+        && Math.abs((y % 1) - CENTER) < CENTER_TOLERANCE;
+  }
+
+  /**
+   * Checks if the two positions are close enough to collide, as {@link Point#inRange(Point)}. The
+   * difference between them is wrapped onto the map when the map size is given.
+   *
+   * @param x The x coordinate of the first position
+   * @param y The y coordinate of the first position
+   * @param toX The x coordinate of the second position
+   * @param toY The y coordinate of the second position
+   * @param maxX The width of the map, or 0 if the difference is not wrapped
+   * @param maxY The height of the map, or 0 if the difference is not wrapped
+   * @return True if within 0.5 in the x and y directions
+   */
+  public static boolean inRange(double x, double y, double toX, double toY, int maxX, int maxY) {
+    double dx = x - toX;
+    double dy = y - toY;
+    if (maxX > 0 && maxY > 0) {
+      dx = wrap(dx, maxX);
+      dy = wrap(dy, maxY);
+    }
+    return Math.abs(dx) <= CENTER && Math.abs(dy) <= CENTER;
+  }
+
+  /**
+   * @param direction The direction, may be null
+   * @return The id of the direction, or {@link #NONE} if null
+   */
+  private static int toInt(Direction direction) {
+    return (direction == null) ? NONE : direction.toInt();
+  }
+}
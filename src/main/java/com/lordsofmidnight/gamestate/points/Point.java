@@ -18,7 +18,6 @@ public class Point {
   private static boolean hasDefault = false;
 
   private final double EQUALITY_TOLERANCE = 0.001;
-  private final double CENTER_TOLERANCE = 0.2;
   private final double CENTER = 0.5;
   private final int MAX_X;
   private final int MAX_Y;
@@ -237,8 +236,38 @@ public class Point {
    * @author Alex Banks
    */
   public boolean inRange(Point p) {
-    Point temp = new Point(this.x - p.getX(), this.y - p.getY(), this.MAX_X, this.MAX_Y);
-    return (abs(temp.getX()) <= 0.5 && abs(temp.getY()) <= 0.5);
+    return Cells.inRange(this.x, this.y, p.getX(), p.getY(), this.MAX_X, this.MAX_Y);
+  }
+
+  /**
+   * check if the point is close to the given coordinates, as {@link #inRange(Point)}
+   *
+   * @param x x coord to check against
+   * @param y y coord to check against
+   * @return true if within 0.5 in x and y direction
+   */
+  public boolean inRange(double x, double y) {
+    return Cells.inRange(this.x, this.y, x, y, this.MAX_X, this.MAX_Y);
+  }
+
+  /**
+   * @param offset distance to move
+   * @param direction direction to move in
+   * @return the x coord a copy of this point would have after {@link #moveInDirection(double,
+   *     Direction)}, without creating the copy
+   */
+  public double getMovedX(double offset, Direction direction) {
+    return Cells.movedX(x, direction, offset, MAPPED ? MAX_X : 0);
+  }
+
+  /**
+   * @param offset distance to move
+   * @param direction direction to move in
+   * @return the y coord a copy of this point would have after {@link #moveInDirection(double,
+   *     Direction)}, without creating the copy
+   */
+  public double getMovedY(double offset, Direction direction) {
+    return Cells.movedY(y, direction, offset, MAPPED ? MAX_Y : 0);
   }
 
   /** @return The point in string form */
@@ -283,14 +312,8 @@ public class Point {
         System.err.println(this.toString());
         return;
       }
-      while (this.x < 0) {
-        x += MAX_X;
-      }
-      while (this.y < 0) {
-        y += MAX_Y;
-      }
-      x = x % MAX_X;
-      y = y % MAX_Y;
+      x = Cells.wrap(x, MAX_X);
+      y = Cells.wrap(y, MAX_Y);
     }
   }
 
@@ -299,9 +322,7 @@ public class Point {
    * @author Alex Banks
    */
   public boolean isCentered() {
-    double x = abs((this.getX() % 1) - CENTER);
-    double y = abs((this.getY() % 1) - CENTER);
-    return !(x >= CENTER_TOLERANCE || y >= CENTER_TOLERANCE);
+    return Cells.isCentered(x, y);
   }
 
   /**
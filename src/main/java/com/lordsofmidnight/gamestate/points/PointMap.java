@@ -1,12 +1,15 @@
 package com.lordsofmidnight.gamestate.points;
 
 import java.io.Serializable;
+import java.util.AbstractCollection;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * A class that can be used with {@link Point} to allow it to have the same functionality as {@link
@@ -14,13 +17,26 @@ import java.util.Set;
  * This will treat each {@link Point} as the grid coordinate {@link Point} as given by {@link
  * Point#getGridCoord()}.
  *
+ * <p>The values are held in an array with an element for every grid square of the map, indexed by
+ * cell index (y * maxX + x), with a bitset of the occupied cells. Lookups index the array directly,
+ * and the key, value and entry views are kept for the life of the map and iterate over the occupied
+ * cells in cell index order. The cell index methods, such as {@link #getAt(int)} and {@link
+ * #nextCell(int)}, allow the map to be read and walked without creating any objects.
+ *
  * @author Lewis Ackroyd
  */
 public class PointMap<V> extends AbstractMap<Point, V>
     implements Map<Point, V>, Cloneable, Serializable {
   private final int MAX_X;
-  private final HashMap<Integer, V> map;
-  private final HashMap<Integer, Point> keyMappings;
+  private final int MAX_Y;
+  private final Object[] values; // the value of each cell, by cell index
+  private final Point[] keys; // the point each value was put with, by cell index
+  private final long[] occupied; // bitset of the cells holding a value
+  private int size;
+
+  private transient Set<Point> keySetView;
+  private transient Collection<V> valuesView;
+  private transient Set<Entry<Point, V>> entrySetView;
 
   /**
    * Initialises this Map according to the paramaters of the {@link
@@ -30,21 +46,22 @@ public class PointMap<V> extends AbstractMap<Point, V>
    * @author Lewis Ackroyd
    */
   public PointMap(com.lordsofmidnight.gamestate.maps.Map map) {
-    this.MAX_X = map.getMaxX();
-    this.map = new HashMap<>();
-    this.keyMappings = new HashMap<>();
+    this(map.getMaxX(), map.getMaxY());
   }
 
   /**
-   * Initialises this Map by using the specified value as the size of the x-axis.
+   * Initialises this Map by using the specified values as the size of each axis.
    *
    * @param maxX The maximum xValue of any points being passed to this map
+   * @param maxY The maximum yValue of any points being passed to this map
    * @author Lewis Ackroyd
    */
-  private PointMap(int maxX) {
+  private PointMap(int maxX, int maxY) {
     this.MAX_X = maxX;
-    this.map = new HashMap<>();
-    this.keyMappings = new HashMap<>();
+    this.MAX_Y = maxY;
+    this.values = new Object[maxX * maxY];
+    this.keys = new Point[maxX * maxY];
+    this.occupied = new long[((maxX * maxY) + 63) >>> 6];
   }
 
   /**
@@ -53,13 +70,119 @@ public class PointMap<V> extends AbstractMap<Point, V>
    * @author Lewis Ackroyd
    */
   public PointMap<V> getShallowClone() {
-    return new PointMap<V>(MAX_X);
+    return new PointMap<V>(MAX_X, MAX_Y);
+  }
+
+  /** @return The number of grid squares in the map, one more than the largest cell index */
+  public int getCellCount() {
+    return values.length;
+  }
+
+  /**
+   * Calculates the cell index of the grid square containing the given point.
+   *
+   * @param p The point being converted
+   * @return The cell index, or -1 if the point is not on the map
+   * @author Lewis Ackroyd
+   */
+  public int cellOf(Point p) {
+    int x = (int) p.getX();
+    int y = (int) p.getY();
+    if (p.getX() < 0 || p.getY() < 0 || x >= MAX_X || y >= MAX_Y) {
+      return -1;
+    }
+    return (y * MAX_X) + x;
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return True if the grid square holds a value
+   */
+  public boolean containsCell(int cell) {
+    return (occupied[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return The value of the grid square, or null if it holds none
+   */
+  @SuppressWarnings("unchecked")
+  public V getAt(int cell) {
+    return (V) values[cell];
+  }
+
+  /**
+   * Maps the grid square to the given value. A new key is created for the square if it holds no
+   * value.
+   *
+   * @param cell The cell index of the grid square
+   * @param data The value of the grid square
+   * @return The previous value of the grid square, or null if it held none
+   * @author Lewis Ackroyd
+   */
+  public V putAt(int cell, V data) {
+    if (!containsCell(cell)) {
+      return put(cell, new Point(cell % MAX_X, cell / MAX_X), data);
+    }
+    V old = getAt(cell);
+    values[cell] = data;
+    return old;
+  }
+
+  /**
+   * Removes the value of the grid square.
+   *
+   * @param cell The cell index of the grid square
+   * @return The value removed, or null if the grid square held none
+   * @author Lewis Ackroyd
+   */
+  public V removeAt(int cell) {
+    if (!containsCell(cell)) {
+      return null;
+    }
+    V old = getAt(cell);
+    occupied[cell >>> 6] &= ~(1L << cell);
+    values[cell] = null;
+    keys[cell] = null;
+    size--;
+    return old;
+  }
+
+  /**
+   * Finds the first grid square holding a value at or after the given cell index. Every occupied
+   * cell is visited, in order, by {@code for (int c = nextCell(0); c >= 0; c = nextCell(c + 1))}.
+   *
+   * @param from The cell index to start from
+   * @return The cell index of the next grid square holding a value, or -1 if there is none
+   * @author Lewis Ackroyd
+   */
+  public int nextCell(int from) {
+    if (from >= values.length) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long bits = occupied[word] & (-1L << from);
+    while (true) {
+      if (bits != 0) {
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+      if (++word == occupied.length) {
+        return -1;
+      }
+      bits = occupied[word];
+    }
   }
 
   @Override
   public void clear() {
-    map.clear();
-    keyMappings.clear();
+    for (int cell = nextCell(0); cell >= 0; cell = nextCell(cell + 1)) {
+      values[cell] = null;
+      keys[cell] = null;
+    }
+    for (int i = 0; i < occupied.length; i++) {
+      occupied[i] = 0;
+    }
+    size = 0;
   }
 
   @Override
@@ -67,14 +190,19 @@ public class PointMap<V> extends AbstractMap<Point, V>
     if (!(key instanceof Point)) {
       return false;
     }
-    Point p = (Point) key;
-    int value = getKeyValue(p);
-    return map.containsKey(value);
+    int cell = cellOf((Point) key);
+    return cell >= 0 && containsCell(cell);
   }
 
   @Override
   public boolean containsValue(Object value) {
-    return map.containsValue(value);
+    for (int cell = nextCell(0); cell >= 0; cell = nextCell(cell + 1)) {
+      Object v = values[cell];
+      if (value == null ? v == null : value.equals(v)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
@@ -82,9 +210,8 @@ public class PointMap<V> extends AbstractMap<Point, V>
     if (!(key instanceof Point)) {
       return null;
     }
-    Point p = (Point) key;
-    int value = getKeyValue(p);
-    return map.get(value);
+    int cell = cellOf((Point) key);
+    return (cell < 0) ? null : getAt(cell);
   }
 
   @Override
@@ -92,31 +219,53 @@ public class PointMap<V> extends AbstractMap<Point, V>
     if (!(key instanceof Point)) {
       return defaultValue;
     }
-    Point p = (Point) key;
-    int value = getKeyValue(p);
-    return map.getOrDefault(value, defaultValue);
+    int cell = cellOf((Point) key);
+    return (cell >= 0 && containsCell(cell)) ? getAt(cell) : defaultValue;
   }
 
   @Override
   public boolean isEmpty() {
-    return map.isEmpty();
+    return size == 0;
   }
 
   @Override
   public Set<Point> keySet() {
-    Set<Integer> valueSet = map.keySet();
-    Set<Point> pointSet = new HashSet<>();
-    for (int value : valueSet) {
-      pointSet.add(getPointFromKey(value));
+    if (keySetView == null) {
+      keySetView = new KeySet();
     }
-    return pointSet;
+    return keySetView;
   }
 
+  /**
+   * @throws IllegalArgumentException The point is not on the map.
+   */
   @Override
-  public V put(Point p, V data) {
-    int keyValue = getKeyValue(p);
-    keyMappings.put(keyValue, p);
-    return map.put(keyValue, data);
+  public V put(Point p, V data) throws IllegalArgumentException {
+    int cell = cellOf(p);
+    if (cell < 0) {
+      throw new IllegalArgumentException("The point " + p + " is not on the map.");
+    }
+    return put(cell, p, data);
+  }
+
+  /**
+   * Maps the grid square to the given value, recording the point it was put with as its key.
+   *
+   * @param cell The cell index of the grid square
+   * @param p The key of the grid square
+   * @param data The value of the grid square
+   * @return The previous value of the grid square, or null if it held none
+   * @author Lewis Ackroyd
+   */
+  private V put(int cell, Point p, V data) {
+    V old = getAt(cell);
+    if (!containsCell(cell)) {
+      occupied[cell >>> 6] |= 1L << cell;
+      size++;
+    }
+    values[cell] = data;
+    keys[cell] = p;
+    return old;
   }
 
   @Override
@@ -124,89 +273,201 @@ public class PointMap<V> extends AbstractMap<Point, V>
     if (!(o instanceof Point)) {
       return null;
     }
-    Point p = (Point) o;
-    int key = getKeyValue(p);
-    keyMappings.remove(key);
-    return map.remove(key);
+    int cell = cellOf((Point) o);
+    return (cell < 0) ? null : removeAt(cell);
   }
 
   @Override
   public int size() {
-    return map.size();
+    return size;
   }
 
   @Override
   public Collection<V> values() {
-    return map.values();
+    if (valuesView == null) {
+      valuesView = new Values();
+    }
+    return valuesView;
   }
 
   @Override
   public Set<Entry<Point, V>> entrySet() {
-    class PointMapEntry implements Map.Entry<Point, V> {
-      private final Point key;
-      private V value;
+    if (entrySetView == null) {
+      entrySetView = new EntrySet();
+    }
+    return entrySetView;
+  }
 
-      public PointMapEntry(Point point, V value) {
-        this.key = point;
-        this.value = value;
-      }
+  @Override
+  public void forEach(BiConsumer<? super Point, ? super V> action) {
+    for (int cell = nextCell(0); cell >= 0; cell = nextCell(cell + 1)) {
+      action.accept(keys[cell], getAt(cell));
+    }
+  }
+
+  /**
+   * Iterates over the occupied cells in cell index order. Values put or removed ahead of the
+   * iterator while iterating are seen, and those behind it are not.
+   *
+   * @author Lewis Ackroyd
+   */
+  private abstract class CellIterator<T> implements Iterator<T> {
+
+    private int next = nextCell(0);
+    private int last = -1;
 
-      @Override
-      public Point getKey() {
-        return key;
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    /**
+     * @return The cell index of the next occupied cell
+     * @throws NoSuchElementException Every occupied cell has been visited.
+     */
+    int nextIndex() throws NoSuchElementException {
+      if (next < 0) {
+        throw new NoSuchElementException();
       }
+      last = next;
+      next = nextCell(next + 1);
+      return last;
+    }
 
-      @Override
-      public V getValue() {
-        return value;
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
       }
+      removeAt(last);
+      last = -1;
+    }
+  }
+
+  /**
+   * The key view of the map.
+   *
+   * @author Lewis Ackroyd
+   */
+  private class KeySet extends AbstractSet<Point> {
+
+    @Override
+    public Iterator<Point> iterator() {
+      return new CellIterator<Point>() {
+        @Override
+        public Point next() {
+          return keys[nextIndex()];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
 
-      @Override
-      public V setValue(V value) {
-        V oldValue = value;
-        this.value = value;
-        return oldValue;
+    @Override
+    public boolean contains(Object o) {
+      return containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      if (!containsKey(o)) {
+        return false;
       }
+      PointMap.this.remove(o);
+      return true;
     }
-    Set<Entry<Point, V>> returnSet = new HashSet<>();
-    for (Point p : keySet()) {
-      returnSet.add(new PointMapEntry(p, get(p)));
+
+    @Override
+    public void clear() {
+      PointMap.this.clear();
     }
-    return returnSet;
   }
 
-  /*@Override
-  public boolean equals(Object o) {
-    if (!(o instanceof PointMap)) {
-      return false;
+  /**
+   * The value view of the map.
+   *
+   * @author Lewis Ackroyd
+   */
+  private class Values extends AbstractCollection<V> {
+
+    @Override
+    public Iterator<V> iterator() {
+      return new CellIterator<V>() {
+        @Override
+        public V next() {
+          return getAt(nextIndex());
+        }
+      };
     }
-    PointMap pm = (PointMap) o;
-    if (this.MAX_X != pm.MAX_X) {
-      return false;
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return containsValue(o);
+    }
+
+    @Override
+    public void clear() {
+      PointMap.this.clear();
     }
-    return this.map.equals(pm.map);
-  }*/
+  }
 
   /**
-   * Calculates the key value that will be used for a given point within the map.
+   * The entry view of the map. Each entry writes through to the map.
    *
-   * @param p The point being used as a key
-   * @return The key value to be used by the internal map
    * @author Lewis Ackroyd
    */
-  private int getKeyValue(Point p) {
-    p = p.getGridCoord();
-    return (((int) p.getY()) * MAX_X) + (int) p.getX();
+  private class EntrySet extends AbstractSet<Entry<Point, V>> {
+
+    @Override
+    public Iterator<Entry<Point, V>> iterator() {
+      return new CellIterator<Entry<Point, V>>() {
+        @Override
+        public Entry<Point, V> next() {
+          return new CellEntry(nextIndex());
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      PointMap.this.clear();
+    }
   }
 
   /**
-   * Calculates the point that generates the given key.
+   * An entry of the map, reading and writing the value of its cell.
    *
-   * @param key The key used for the internal map
-   * @return The point that generated this key
    * @author Lewis Ackroyd
    */
-  private Point getPointFromKey(int key) {
-    return keyMappings.get(key);
+  private class CellEntry extends SimpleEntry<Point, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int cell;
+
+    /** @param cell The cell index of the entry */
+    private CellEntry(int cell) {
+      super(keys[cell], getAt(cell));
+      this.cell = cell;
+    }
+
+    @Override
+    public V setValue(V value) {
+      super.setValue(value);
+      return putAt(cell, value);
+    }
   }
 }
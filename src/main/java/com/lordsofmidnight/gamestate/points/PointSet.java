@@ -4,9 +4,8 @@ import com.lordsofmidnight.gamestate.maps.Map;
 import java.io.Serializable;
 import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -14,13 +13,22 @@ import java.util.Set;
  * java.util.Set Set}<{@link Point}>. This will treat each {@link Point} as the grid coordinate
  * {@link Point} as given by {@link Point#getGridCoord()}.
  *
+ * <p>Membership is held in a bitset with one bit for every grid square of the map, indexed by cell
+ * index (y * maxX + x), alongside the point each square was added with. Adding, removing and
+ * checking a point are constant time, sets of the same map can be combined a word at a time with
+ * {@link #and(PointSet)}, {@link #or(PointSet)} and {@link #andNot(PointSet)}, and iteration
+ * visits the squares in cell index order without copying the set. {@link #nextCell(int)} walks the
+ * set without creating any objects.
+ *
  * @author Lewis Ackroyd
  */
 public class PointSet extends AbstractSet<Point> implements Set<Point>, Cloneable, Serializable {
 
-  private final HashSet<Integer> points;
-  private final HashMap<Integer, Point> keyMappings;
+  private final long[] bits; // bitset of the cells in the set
+  private final Point[] keyMappings; // the point each cell was added with, by cell index
   private final int MAX_X;
+  private final int MAX_Y;
+  private int size;
 
   /**
    * Initialises this Map according to the paramaters of the {@link Map}.
@@ -29,21 +37,21 @@ public class PointSet extends AbstractSet<Point> implements Set<Point>, Cloneabl
    * @author Lewis Ackroyd
    */
   public PointSet(Map map) {
-    this.MAX_X = map.getMaxX();
-    this.points = new HashSet<>();
-    this.keyMappings = new HashMap<>();
+    this(map.getMaxX(), map.getMaxY());
   }
 
   /**
-   * Initialises this Map by using the specified value as the size of the x-axis.
+   * Initialises this Map by using the specified values as the size of each axis.
    *
    * @param maxX The maximum xValue of any points being passed to this map
+   * @param maxY The maximum yValue of any points being passed to this map
    * @author Lewis Ackroyd
    */
-  private PointSet(int maxX) {
+  private PointSet(int maxX, int maxY) {
     this.MAX_X = maxX;
-    this.points = new HashSet<>();
-    this.keyMappings = new HashMap<>();
+    this.MAX_Y = maxY;
+    this.bits = new long[((maxX * maxY) + 63) >>> 6];
+    this.keyMappings = new Point[maxX * maxY];
   }
 
   /**
@@ -52,75 +60,244 @@ public class PointSet extends AbstractSet<Point> implements Set<Point>, Cloneabl
    * @author Lewis Ackroyd
    */
   public PointSet getShallowClone() {
-    return new PointSet(MAX_X);
+    return new PointSet(MAX_X, MAX_Y);
+  }
+
+  /** @return The number of grid squares in the map, one more than the largest cell index */
+  public int getCellCount() {
+    return keyMappings.length;
+  }
+
+  /**
+   * Calculates the cell index of the grid square containing the given point.
+   *
+   * @param p The point being converted
+   * @return The cell index, or -1 if the point is not on the map
+   * @author Lewis Ackroyd
+   */
+  public int cellOf(Point p) {
+    int x = (int) p.getX();
+    int y = (int) p.getY();
+    if (p.getX() < 0 || p.getY() < 0 || x >= MAX_X || y >= MAX_Y) {
+      return -1;
+    }
+    return (y * MAX_X) + x;
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return True if the grid square is in the set
+   */
+  public boolean containsCell(int cell) {
+    return (bits[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return The point the grid square was added with, or null if it is not in the set
+   */
+  public Point getAt(int cell) {
+    return keyMappings[cell];
+  }
+
+  /**
+   * Adds the grid square to the set, creating a point for it if it is not already in the set.
+   *
+   * @param cell The cell index of the grid square
+   * @return True if the grid square was not already in the set
+   * @author Lewis Ackroyd
+   */
+  public boolean addCell(int cell) {
+    if (containsCell(cell)) {
+      return false;
+    }
+    add(cell, new Point(cell % MAX_X, cell / MAX_X));
+    return true;
+  }
+
+  /**
+   * Removes the grid square from the set.
+   *
+   * @param cell The cell index of the grid square
+   * @return True if the grid square was in the set
+   * @author Lewis Ackroyd
+   */
+  public boolean removeCell(int cell) {
+    if (!containsCell(cell)) {
+      return false;
+    }
+    bits[cell >>> 6] &= ~(1L << cell);
+    keyMappings[cell] = null;
+    size--;
+    return true;
+  }
+
+  /**
+   * Finds the first grid square in the set at or after the given cell index. Every cell in the set
+   * is visited, in order, by {@code for (int c = nextCell(0); c >= 0; c = nextCell(c + 1))}.
+   *
+   * @param from The cell index to start from
+   * @return The cell index of the next grid square in the set, or -1 if there is none
+   * @author Lewis Ackroyd
+   */
+  public int nextCell(int from) {
+    if (from >= keyMappings.length) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long next = bits[word] & (-1L << from);
+    while (true) {
+      if (next != 0) {
+        return (word << 6) + Long.numberOfTrailingZeros(next);
+      }
+      if (++word == bits.length) {
+        return -1;
+      }
+      next = bits[word];
+    }
+  }
+
+  /**
+   * Removes every grid square that is not also in the other set.
+   *
+   * @param other A set of points on a map of the same size
+   * @return True if this set changed
+   * @throws IllegalArgumentException The other set is for a map of a different size.
+   * @author Lewis Ackroyd
+   */
+  public boolean and(PointSet other) throws IllegalArgumentException {
+    checkSameMap(other);
+    boolean changed = false;
+    for (int i = 0; i < bits.length; i++) {
+      changed |= clearWord(i, bits[i] & ~other.bits[i]);
+    }
+    return changed;
+  }
+
+  /**
+   * Adds every grid square of the other set, keeping the point it was added to the other set with.
+   *
+   * @param other A set of points on a map of the same size
+   * @return True if this set changed
+   * @throws IllegalArgumentException The other set is for a map of a different size.
+   * @author Lewis Ackroyd
+   */
+  public boolean or(PointSet other) throws IllegalArgumentException {
+    checkSameMap(other);
+    boolean changed = false;
+    for (int i = 0; i < bits.length; i++) {
+      long added = other.bits[i] & ~bits[i];
+      if (added == 0) {
+        continue;
+      }
+      changed = true;
+      bits[i] |= added;
+      size += Long.bitCount(added);
+      for (; added != 0; added &= added - 1) {
+        int cell = (i << 6) + Long.numberOfTrailingZeros(added);
+        keyMappings[cell] = other.keyMappings[cell];
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Removes every grid square that is in the other set.
+   *
+   * @param other A set of points on a map of the same size
+   * @return True if this set changed
+   * @throws IllegalArgumentException The other set is for a map of a different size.
+   * @author Lewis Ackroyd
+   */
+  public boolean andNot(PointSet other) throws IllegalArgumentException {
+    checkSameMap(other);
+    boolean changed = false;
+    for (int i = 0; i < bits.length; i++) {
+      changed |= clearWord(i, bits[i] & other.bits[i]);
+    }
+    return changed;
+  }
+
+  /**
+   * @param other A set of points on a map of the same size
+   * @return True if any grid square is in both sets
+   * @throws IllegalArgumentException The other set is for a map of a different size.
+   */
+  public boolean intersects(PointSet other) throws IllegalArgumentException {
+    checkSameMap(other);
+    for (int i = 0; i < bits.length; i++) {
+      if ((bits[i] & other.bits[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
   public boolean contains(Object o) {
     if (o instanceof Point) {
-      Point p = (Point) o;
-      return points.contains(getKeyValue(p));
+      int cell = cellOf((Point) o);
+      return cell >= 0 && containsCell(cell);
     }
     return false;
   }
 
+  /**
+   * @throws IllegalArgumentException The point is not on the map.
+   */
   @Override
-  public boolean add(Point p) {
-    int key = getKeyValue(p);
-    keyMappings.put(key, p);
-    return points.add(key);
+  public boolean add(Point p) throws IllegalArgumentException {
+    int cell = cellOf(p);
+    if (cell < 0) {
+      throw new IllegalArgumentException("The point " + p + " is not on the map.");
+    }
+    boolean added = !containsCell(cell);
+    add(cell, p);
+    return added;
   }
 
   @Override
   public boolean remove(Object o) {
     if (o instanceof Point) {
-      Point p = (Point) o;
-      int key = getKeyValue(p);
-      keyMappings.remove(key);
-      return points.remove(key);
+      int cell = cellOf((Point) o);
+      return cell >= 0 && removeCell(cell);
     }
     return false;
   }
 
   @Override
   public boolean addAll(Collection collection) {
-    Object[] objects = collection.toArray();
-    if (!(objects instanceof Point[])) {
-      return false;
+    if (collection instanceof PointSet && isSameMap((PointSet) collection)) {
+      return or((PointSet) collection);
     }
-    Point[] ps = (Point[]) objects;
-    for (Point p : ps) {
-      add(p);
+    boolean changed = false;
+    for (Object o : collection) {
+      changed |= add((Point) o);
     }
-    return true;
+    return changed;
   }
 
   @Override
   public boolean removeAll(Collection collection) {
-    Object[] objects = collection.toArray();
-    if (!(objects instanceof Point[])) {
-      return false;
+    if (collection instanceof PointSet && isSameMap((PointSet) collection)) {
+      return andNot((PointSet) collection);
     }
-    Point[] ps = (Point[]) objects;
     boolean changed = false;
-    for (Point p : ps) {
-      if (remove(p)) {
-        changed = true;
-      }
+    for (Object o : collection) {
+      changed |= remove(o);
     }
     return changed;
   }
 
   @Override
   public boolean retainAll(Collection collection) {
-    Object[] objects = collection.toArray();
-    if (!(objects instanceof Point[])) {
-      return false;
+    if (collection instanceof PointSet && isSameMap((PointSet) collection)) {
+      return and((PointSet) collection);
     }
     boolean changed = false;
-    for (Point p : this) {
-      if (!collection.contains(p)) {
-        remove(p);
+    for (int cell = nextCell(0); cell >= 0; cell = nextCell(cell + 1)) {
+      if (!collection.contains(keyMappings[cell])) {
+        removeCell(cell);
         changed = true;
       }
     }
@@ -129,13 +306,17 @@ public class PointSet extends AbstractSet<Point> implements Set<Point>, Cloneabl
 
   @Override
   public boolean containsAll(Collection collection) {
-    Object[] objects = collection.toArray();
-    if (!(objects instanceof Point[])) {
-      return false;
+    if (collection instanceof PointSet && isSameMap((PointSet) collection)) {
+      PointSet other = (PointSet) collection;
+      for (int i = 0; i < bits.length; i++) {
+        if ((other.bits[i] & ~bits[i]) != 0) {
+          return false;
+        }
+      }
+      return true;
     }
-    Point[] ps = (Point[]) objects;
-    for (Point p : ps) {
-      if (!contains(p)) {
+    for (Object o : collection) {
+      if (!contains(o)) {
         return false;
       }
     }
@@ -152,10 +333,10 @@ public class PointSet extends AbstractSet<Point> implements Set<Point>, Cloneabl
 
   @Override
   public Point[] toArray() {
-    Point[] pointsArray = new Point[points.size()];
+    Point[] pointsArray = new Point[size];
     int index = 0;
-    for (int key : points) {
-      pointsArray[index] = getPointFromKey(key);
+    for (int cell = nextCell(0); cell >= 0; cell = nextCell(cell + 1)) {
+      pointsArray[index] = keyMappings[cell];
       index++;
     }
     return pointsArray;
@@ -163,88 +344,116 @@ public class PointSet extends AbstractSet<Point> implements Set<Point>, Cloneabl
 
   @Override
   public int size() {
-    return points.size();
+    return size;
   }
 
   @Override
   public void clear() {
-    keyMappings.clear();
-    points.clear();
+    for (int i = 0; i < bits.length; i++) {
+      clearWord(i, bits[i]);
+    }
   }
 
   @Override
   public boolean isEmpty() {
-    return points.isEmpty();
+    return size == 0;
   }
 
   @Override
   public PointSet clone() {
-    PointSet outSet = new PointSet(MAX_X);
-    for (int key : points) {
-      outSet.add(getPointFromKey(key));
-    }
+    PointSet outSet = new PointSet(MAX_X, MAX_Y);
+    outSet.or(this);
     return outSet;
   }
 
+  /**
+   * Iterates over the set in cell index order, reading the bitset directly. Points added or
+   * removed ahead of the iterator while iterating are seen, and those behind it are not.
+   */
   @Override
-  public Iterator iterator() {
-    class PointSetIterator implements Iterator {
-
-      private final Point[] points;
-      private int currentIndex;
+  public Iterator<Point> iterator() {
+    class PointSetIterator implements Iterator<Point> {
 
-      public PointSetIterator(PointSet ps) {
-        points = ps.toArray();
-        currentIndex = 0;
-      }
+      private int next = nextCell(0);
+      private int last = -1;
 
       @Override
       public boolean hasNext() {
-        return currentIndex < points.length;
+        return next >= 0;
       }
 
       @Override
       public Point next() {
-        Point nextPoint = points[currentIndex];
-        currentIndex++;
-        return nextPoint;
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        last = next;
+        next = nextCell(next + 1);
+        return keyMappings[last];
       }
-    }
-    return new PointSetIterator(this);
-  }
 
-  /*@Override
-  public boolean equals(Object o) {
-    if (!(o instanceof PointSet)) {
-      return false;
-    }
-    PointSet ps = (PointSet) o;
-    if (this.MAX_X != ps.MAX_X) {
-      return false;
+      @Override
+      public void remove() {
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        removeCell(last);
+        last = -1;
+      }
     }
-    return this.points.equals(ps.points);
-  }*/
+    return new PointSetIterator();
+  }
 
   /**
-   * Calculates the key value that will be used for a given point within the map.
+   * Adds the grid square to the set, recording the point it was added with.
    *
-   * @param p The point being used as a key
-   * @return The key value to be used by the internal map
+   * @param cell The cell index of the grid square
+   * @param p The point being added
    * @author Lewis Ackroyd
    */
-  private int getKeyValue(Point p) {
-    p = p.getGridCoord();
-    return (((int) p.getY()) * MAX_X) + (int) p.getX();
+  private void add(int cell, Point p) {
+    if (!containsCell(cell)) {
+      bits[cell >>> 6] |= 1L << cell;
+      size++;
+    }
+    keyMappings[cell] = p;
   }
 
   /**
-   * Calculates the point that generates the given key.
+   * Removes the given cells of a single word of the bitset.
    *
-   * @param key The key used for the internal map
-   * @return The point that generated this key
+   * @param word The index of the word
+   * @param cleared The bits of the cells to remove, all of which must be in the set
+   * @return True if any cell was removed
    * @author Lewis Ackroyd
    */
-  private Point getPointFromKey(int key) {
-    return keyMappings.get(key);
+  private boolean clearWord(int word, long cleared) {
+    if (cleared == 0) {
+      return false;
+    }
+    bits[word] &= ~cleared;
+    size -= Long.bitCount(cleared);
+    for (; cleared != 0; cleared &= cleared - 1) {
+      keyMappings[(word << 6) + Long.numberOfTrailingZeros(cleared)] = null;
+    }
+    return true;
+  }
+
+  /**
+   * @param other Another set of points
+   * @return True if the other set is for a map of the same size
+   */
+  private boolean isSameMap(PointSet other) {
+    return MAX_X == other.MAX_X && MAX_Y == other.MAX_Y;
+  }
+
+  /**
+   * @param other Another set of points
+   * @throws IllegalArgumentException The other set is for a map of a different size.
+   */
+  private void checkSameMap(PointSet other) throws IllegalArgumentException {
+    if (!isSameMap(other)) {
+      throw new IllegalArgumentException("The sets are for maps of different sizes.");
+    }
   }
 }
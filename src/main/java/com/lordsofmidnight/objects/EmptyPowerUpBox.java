@@ -3,6 +3,7 @@ package com.lordsofmidnight.objects;
 import com.lordsofmidnight.audio.AudioController;
 import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.renderer.ResourceLoader;
+import com.lordsofmidnight.utils.GameRandom;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -13,9 +14,10 @@ public class EmptyPowerUpBox extends Pellet {
 
   /**
    * @param p The location of the box
+   * @param r The source of random numbers for the box
    */
-  public EmptyPowerUpBox(Point p) {
-    super(p);
+  public EmptyPowerUpBox(Point p, GameRandom r) {
+    super(p, r);
     init();
   }
 
@@ -40,7 +42,7 @@ public class EmptyPowerUpBox extends Pellet {
       Entity[] agents,
       ConcurrentHashMap<UUID, com.lordsofmidnight.objects.powerUps.PowerUp> activePowerUps,
       AudioController audioController) {
-    if (!active) {
+    if (!isActive()) {
       return;
     }
     this.setActive(false);
@@ -23,6 +23,7 @@ public class Entity implements Renderable {
 
   private static final double MIPS_SPEED = 0.08;
   private static final double GHOUL_SPEED = 0.06;
+  private static final double FACE_OFFSET = 0.5; // half the width of an entity
   // animation variables
   private final int animationSpeed = 5;
   private final int DEATHTIME = 400;
@@ -158,6 +159,11 @@ public class Entity implements Renderable {
     statsTracker.increaseKills();
   }
 
+  /** @return The speed added to the entity by power ups */
+  public double getBonusSpeed() {
+    return bonusSpeed;
+  }
+
   /**
    * Changes the bonus speed applied to the entity
    *
@@ -305,7 +311,23 @@ public class Entity implements Renderable {
    * @author Alex Banks
    */
   public Point getFaceLocation() {
-    return getMoveInDirection(0.5);
+    return getMoveInDirection(FACE_OFFSET);
+  }
+
+  /**
+   * @return the x coord of the FaceLocation, without creating a Point
+   * @see #getFaceLocation()
+   */
+  public double getFaceX() {
+    return location.getMovedX(FACE_OFFSET, direction);
+  }
+
+  /**
+   * @return the y coord of the FaceLocation, without creating a Point
+   * @see #getFaceLocation()
+   */
+  public double getFaceY() {
+    return location.getMovedY(FACE_OFFSET, direction);
   }
 
   /** @return current com.lordsofmidnight.gamestate fixed to a 0.5 offset grid */
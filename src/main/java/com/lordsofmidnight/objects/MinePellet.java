@@ -1,7 +1,9 @@
 package com.lordsofmidnight.objects;
 
 import com.lordsofmidnight.audio.AudioController;
+import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.objects.powerUps.PowerUp;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.Methods;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,9 +24,10 @@ public class MinePellet extends Pellet {
    * @param x The x coordinate of the mine
    * @param y The y coordinate of the mine
    * @param placer The entity who placed the mine
+   * @param r The source of random numbers for the mine
    */
-  public MinePellet(double x, double y, Entity placer) {
-    super(x, y);
+  public MinePellet(double x, double y, Entity placer, GameRandom r) {
+    super(new Point(x, y), r);
     hidden = false;
     this.respawntime = -1;
     this.placer = placer;
@@ -32,19 +35,38 @@ public class MinePellet extends Pellet {
 
   @Override
   public boolean replace() {
-    return detonated;
+    return isDetonated();
   }
 
   /**
    * @return If the mine is hidden from players
    */
   public boolean isHidden() {
-    return hidden;
+    return (field == null) ? hidden : field.isHidden(cell);
+  }
+
+  /**
+   * @return If the mine has gone off
+   */
+  public boolean isDetonated() {
+    return (field == null) ? detonated : field.isToReplace(cell);
+  }
+
+  /** @return The number of physics updates after being placed that the mine is hidden */
+  int getHiddenTime() {
+    return hidden_timer;
+  }
+
+  /**
+   * @return The entity who placed the mine
+   */
+  public Entity getPlacer() {
+    return placer;
   }
 
   @Override
   public boolean canUse(Entity e) {
-    return !detonated;
+    return !isDetonated();
   }
 
   @Override
@@ -53,15 +75,19 @@ public class MinePellet extends Pellet {
       Entity[] agents,
       ConcurrentHashMap<UUID, PowerUp> activePowerUps,
       AudioController audioController) {
-    if (!detonated) {
+    if (!isDetonated()) {
       Methods.kill(placer, entity, audioController);
-      detonated = true;
+      if (field != null) {
+        field.setToReplace(cell);
+      } else {
+        detonated = true;
+      }
     }
   }
 
   @Override
   public void incrementRespawn() {
-    if (detonated) {
+    if (field != null || detonated) {
       return;
     }
     respawnCount++;
@@ -69,4 +95,11 @@ public class MinePellet extends Pellet {
       this.hidden = true;
     }
   }
+
+  @Override
+  void unbind() {
+    hidden = isHidden();
+    detonated = isDetonated();
+    super.unbind();
+  }
 }
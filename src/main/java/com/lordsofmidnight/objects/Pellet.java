@@ -5,10 +5,10 @@ import com.lordsofmidnight.audio.Sounds;
 import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.objects.powerUps.PowerUp;
 import com.lordsofmidnight.renderer.ResourceLoader;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.Renderable;
 import com.lordsofmidnight.utils.enums.Direction;
 import java.util.ArrayList;
-import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import javafx.scene.image.Image;
@@ -20,7 +20,7 @@ import javafx.scene.image.Image;
  */
 public class Pellet implements Renderable {
 
-  static Random r = new Random();
+  protected final GameRandom r; // decides the respawn time and the contents of power up boxes
   protected Point location;
   protected ArrayList<Image> currentImage;
   protected int respawntime = 2000;
@@ -29,19 +29,17 @@ public class Pellet implements Renderable {
   protected com.lordsofmidnight.objects.powerUps.PowerUp trap;
   protected boolean isTrap = false;
   protected int respawnCount = 0;
+  PelletField field; // the field holding the state of the pellet, or null if it holds its own
+  int cell; // the cell index of the pellet in the field
 
   /**
-   * @param x The X coordinate of the pellet
-   * @param y The Y coordinate of the pellet
+   * @param p The location of the pellet
+   * @param r The source of random numbers for the pellet, split from the game's source so that
+   * matches started from the same seed play out the same way
    */
-  public Pellet(double x, double y) {
-    this.location = new Point(x, y);
-    active = true;
-    respawntime += r.nextInt(500);
-  }
-
-  public Pellet(Point p) {
+  public Pellet(Point p, GameRandom r) {
     this.location = p;
+    this.r = r;
     active = true;
     respawntime += r.nextInt(500);
   }
@@ -53,7 +51,7 @@ public class Pellet implements Renderable {
    * @return True if the entity can use the item
    */
   public boolean canUse(Entity e) {
-    if (isTrap) {
+    if (isTrap()) {
       return true;
     }
     return e.isMipsman();
@@ -80,7 +78,7 @@ public class Pellet implements Renderable {
 
   /** @return If the pellet is active */
   public boolean isActive() {
-    return active;
+    return (field == null) ? active : field.isActive(cell);
   }
 
   /**
@@ -89,6 +87,10 @@ public class Pellet implements Renderable {
    * @param active If the pellet should be active
    */
   public void setActive(boolean active) {
+    if (field != null) {
+      field.setActive(cell, active);
+      return;
+    }
     this.active = active;
     if (!active) {
       respawnCount = 0;
@@ -117,13 +119,13 @@ public class Pellet implements Renderable {
       Entity[] agents,
       ConcurrentHashMap<UUID, PowerUp> activePowerUps,
       AudioController audioController) {
-    if (isTrap) {
+    if (isTrap()) {
       trap.trigger(entity, activePowerUps, audioController);
-      isTrap = false;
+      clearTrap();
       setActive(false);
       return;
     }
-    if (!active || !canUse(entity)) {
+    if (!isActive() || !canUse(entity)) {
       return;
     }
     entity.incrementScore(this.value);
@@ -133,12 +135,42 @@ public class Pellet implements Renderable {
 
   @Override
   public String toString() {
-    String a = active ? "active" : "not active";
+    String a = isActive() ? "active" : "not active";
     return "x = " + location.getX() + " y= " + location.getY() + " active = " + a;
   }
 
-  /** Called every physics update to increment the counter for respawn */
+  /** @return The number of physics updates the pellet stays inactive for */
+  public int getRespawnTime() {
+    return respawntime;
+  }
+
+  /** @return The number of physics updates counted towards the respawn */
+  public int getRespawnCount() {
+    return (field == null) ? respawnCount : field.getRespawnCount(cell);
+  }
+
+  /** @return If the pellet is a trap holding a powerup */
+  public boolean isTrap() {
+    return (field == null) ? isTrap : field.isTrap(cell);
+  }
+
+  /** Removes the trap from the pellet, once it has been triggered */
+  protected void clearTrap() {
+    if (field != null) {
+      field.setTrap(cell, false);
+      return;
+    }
+    isTrap = false;
+  }
+
+  /**
+   * Called every physics update to increment the counter for respawn. Does nothing while the
+   * pellet is held by a {@link PelletField}, which counts for every pellet in it.
+   */
   public void incrementRespawn() {
+    if (field != null) {
+      return;
+    }
     if (!active) {
       respawnCount++;
     }
@@ -159,10 +191,26 @@ public class Pellet implements Renderable {
    */
   public void setTrap(com.lordsofmidnight.objects.powerUps.PowerUp p) {
     this.trap = p;
+    if (field != null) {
+      field.setTrap(cell, true);
+      field.setActive(cell, true);
+      return;
+    }
     this.active = true;
     this.isTrap = true;
   }
 
+  /**
+   * Copies the state held by the {@link PelletField} back into the pellet, as it is removed from
+   * the field.
+   */
+  void unbind() {
+    active = isActive();
+    respawnCount = getRespawnCount();
+    isTrap = isTrap();
+    field = null;
+  }
+
   /**
    * @return True if the current pellet is a {@link PowerUpBox}
    * @author Lewis Ackroyd
@@ -0,0 +1,457 @@
+package com.lordsofmidnight.objects;
+
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import java.util.Arrays;
+
+/**
+ * The pellets of a game, holding the changing state of every pellet in primitive arrays indexed by
+ * cell index (y * maxX + x), as {@link PointMap}, rather than in the {@link Pellet} objects.
+ *
+ * <p>A pellet put in the field is bound to its cell, and its getters and setters read and write
+ * the arrays from then on. Its state is copied back into the object if it is removed. Respawns and
+ * mines hiding are kept in a queue ordered by the tick they happen on, so {@link #tick()} only
+ * visits the pellets that change on that tick rather than every pellet on the map. Every cell whose
+ * state changes is recorded once in a dirty list, so that anything following the pellets only has
+ * to look at the cells that changed since it last {@link #clearDirty() cleared} the list.
+ *
+ * @author Lewis Ackroyd
+ */
+public class PelletField extends PointMap<Pellet> {
+
+  public static final byte NONE = 0; // kind of a cell holding no pellet
+  public static final byte PELLET = 1; // kind of a cell holding a pellet that respawns
+  public static final byte POWER_UP_BOX = 2; // kind of a cell holding a power up box
+  public static final byte MINE = 3; // kind of a cell holding a mine
+  private static final long serialVersionUID = 1L;
+  private static final int NO_DEADLINE = -1; // deadline of a cell that is not scheduled to change
+
+  private final byte[] kind; // the kind of pellet in each cell
+  private final long[] active; // bitset of the cells with an active pellet
+  private final long[] traps; // bitset of the cells with a pellet holding a trap
+  private final long[] hidden; // bitset of the cells with a hidden mine
+  private final long[] toReplace; // bitset of the cells with a pellet waiting to be replaced
+  private final long[] counting; // bitset of the cells whose count goes up every tick
+  private final int[] changeAfter; // the respawn time, or the time a mine takes to hide
+  private final int[] countFrom; // the tick the count of each counting cell started from
+  private final int[] respawnCount; // the count of each cell that is not counting
+  private final int[] deadline; // the tick each cell next changes on
+  private final int[] heap; // the scheduled cells, as a binary heap ordered by deadline
+  private final int[] heapIndex; // the position of each cell in the heap, or -1
+  private final int[] dirty; // the cells changed since the dirty list was last cleared
+  private final long[] dirtyCells; // bitset of the cells in the dirty list
+  private int heapSize;
+  private int dirtyCount;
+  private int replaceCount; // the number of cells in toReplace
+  private int now; // the number of ticks so far
+
+  /**
+   * @param map The map on which the pellets will be held
+   * @author Lewis Ackroyd
+   */
+  public PelletField(com.lordsofmidnight.gamestate.maps.Map map) {
+    super(map);
+    int cells = getCellCount();
+    int words = (cells + 63) >>> 6;
+    this.kind = new byte[cells];
+    this.active = new long[words];
+    this.traps = new long[words];
+    this.hidden = new long[words];
+    this.toReplace = new long[words];
+    this.counting = new long[words];
+    this.changeAfter = new int[cells];
+    this.countFrom = new int[cells];
+    this.respawnCount = new int[cells];
+    this.deadline = new int[cells];
+    this.heap = new int[cells];
+    this.heapIndex = new int[cells];
+    this.dirty = new int[cells];
+    this.dirtyCells = new long[words];
+    Arrays.fill(deadline, NO_DEADLINE);
+    Arrays.fill(heapIndex, -1);
+  }
+
+  /**
+   * Advances the field by one physics update. Inactive pellets whose respawn time has been counted
+   * become active, and mines that have been down long enough are hidden.
+   *
+   * @author Lewis Ackroyd
+   */
+  public void tick() {
+    now++;
+    while (heapSize > 0 && deadline[heap[0]] <= now) {
+      int cell = heap[0];
+      int count = getRespawnCount(cell);
+      unschedule(cell);
+      if (kind[cell] == MINE) {
+        set(hidden, cell, true);
+      } else {
+        set(active, cell, true);
+      }
+      setCount(cell, count);
+      markDirty(cell);
+    }
+  }
+
+  /**
+   * Finds the first cell at or after the given cell index holding a pellet that needs to be
+   * replaced. Every such cell is visited, in order, by {@code for (int c = nextToReplace(0); c >=
+   * 0; c = nextToReplace(c + 1))}, and replacing the pellet as it is visited does not disturb the
+   * loop.
+   *
+   * @param from The cell index to start from
+   * @return The cell index of the next pellet to be replaced, or -1 if there is none
+   * @author Lewis Ackroyd
+   */
+  public int nextToReplace(int from) {
+    if (replaceCount == 0 || from >= getCellCount()) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long bits = toReplace[word] & (-1L << from);
+    while (true) {
+      if (bits != 0) {
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+      if (++word == toReplace.length) {
+        return -1;
+      }
+      bits = toReplace[word];
+    }
+  }
+
+  /** @return The number of cells changed since the dirty list was last cleared */
+  public int getDirtyCount() {
+    return dirtyCount;
+  }
+
+  /**
+   * @param i The position in the dirty list, below {@link #getDirtyCount()}
+   * @return The cell index of a cell changed since the dirty list was last cleared
+   */
+  public int getDirtyCell(int i) {
+    return dirty[i];
+  }
+
+  /** Empties the dirty list, once the changes in it have been handled */
+  public void clearDirty() {
+    for (int i = 0; i < dirtyCount; i++) {
+      set(dirtyCells, dirty[i], false);
+    }
+    dirtyCount = 0;
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return The kind of pellet in the cell, such as {@link #PELLET}, or {@link #NONE}
+   */
+  public byte getKind(int cell) {
+    return kind[cell];
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return If the cell holds an active pellet
+   */
+  public boolean isActive(int cell) {
+    return get(active, cell);
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return If the cell holds a pellet holding a trap
+   */
+  public boolean isTrap(int cell) {
+    return get(traps, cell);
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return If the cell holds a mine that is hidden from players
+   */
+  public boolean isHidden(int cell) {
+    return get(hidden, cell);
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return If the pellet in the cell needs to be replaced
+   */
+  public boolean isToReplace(int cell) {
+    return get(toReplace, cell);
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @return The number of physics updates counted towards the respawn, or that a mine has been
+   *     down for
+   */
+  public int getRespawnCount(int cell) {
+    return get(counting, cell) ? now - countFrom[cell] : respawnCount[cell];
+  }
+
+  /**
+   * Sets if the pellet in the cell is active, as {@link Pellet#setActive(boolean)}. Deactivating
+   * the pellet restarts its count.
+   *
+   * @param cell The cell index of the grid square
+   * @param value If the pellet should be active
+   */
+  void setActive(int cell, boolean value) {
+    if (value && get(active, cell)) {
+      return;
+    }
+    int count = value ? getRespawnCount(cell) : 0;
+    set(active, cell, value);
+    setCount(cell, count);
+    markDirty(cell);
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @param value If the pellet in the cell should hold a trap
+   */
+  void setTrap(int cell, boolean value) {
+    if (get(traps, cell) != value) {
+      set(traps, cell, value);
+      markDirty(cell);
+    }
+  }
+
+  /**
+   * Marks the pellet in the cell to be replaced. A mine stops counting once it is to be replaced.
+   *
+   * @param cell The cell index of the grid square
+   */
+  void setToReplace(int cell) {
+    if (get(toReplace, cell)) {
+      return;
+    }
+    int count = getRespawnCount(cell);
+    setReplace(cell, true);
+    setCount(cell, count);
+    markDirty(cell);
+  }
+
+  /**
+   * @throws IllegalArgumentException The pellet is already held by a field.
+   */
+  @Override
+  public Pellet put(Point p, Pellet pellet) throws IllegalArgumentException {
+    int cell = cellOf(p);
+    checkUnbound(cell, pellet);
+    if (cell >= 0) {
+      unbind(cell);
+    }
+    Pellet old = super.put(p, pellet);
+    bind(cell, pellet);
+    return old;
+  }
+
+  /**
+   * @throws IllegalArgumentException The pellet is already held by a field.
+   */
+  @Override
+  public Pellet putAt(int cell, Pellet pellet) throws IllegalArgumentException {
+    checkUnbound(cell, pellet);
+    unbind(cell);
+    Pellet old = super.putAt(cell, pellet);
+    bind(cell, pellet);
+    return old;
+  }
+
+  @Override
+  public Pellet removeAt(int cell) {
+    unbind(cell);
+    return super.removeAt(cell);
+  }
+
+  @Override
+  public void clear() {
+    for (int cell = nextCell(0); cell >= 0; cell = nextCell(cell + 1)) {
+      unbind(cell);
+    }
+    super.clear();
+  }
+
+  /**
+   * @param cell The cell the pellet is being put in
+   * @param pellet The pellet being put
+   * @throws IllegalArgumentException The pellet is held by a field other than in the given cell.
+   */
+  private void checkUnbound(int cell, Pellet pellet) throws IllegalArgumentException {
+    if (pellet != null && pellet.field != null && (pellet.field != this || pellet.cell != cell)) {
+      throw new IllegalArgumentException("The pellet " + pellet + " is already held by a field.");
+    }
+  }
+
+  /**
+   * Copies the state of the pellet into the arrays and binds it to the cell.
+   *
+   * @param cell The cell index of the grid square
+   * @param pellet The pellet put in the cell, may be null
+   * @author Lewis Ackroyd
+   */
+  private void bind(int cell, Pellet pellet) {
+    if (pellet == null) {
+      return;
+    }
+    boolean mine = pellet instanceof MinePellet;
+    kind[cell] = mine ? MINE : pellet.isPowerUpBox() ? POWER_UP_BOX : PELLET;
+    set(active, cell, pellet.isActive());
+    set(traps, cell, pellet.isTrap());
+    set(hidden, cell, mine && ((MinePellet) pellet).isHidden());
+    setReplace(cell, pellet.replace());
+    changeAfter[cell] = mine ? ((MinePellet) pellet).getHiddenTime() : pellet.getRespawnTime();
+    setCount(cell, pellet.getRespawnCount());
+    pellet.field = this;
+    pellet.cell = cell;
+    markDirty(cell);
+  }
+
+  /**
+   * Copies the state of the cell back into the pellet in it, if any, and clears the cell.
+   *
+   * @param cell The cell index of the grid square
+   * @author Lewis Ackroyd
+   */
+  private void unbind(int cell) {
+    Pellet pellet = getAt(cell);
+    if (pellet == null) {
+      return;
+    }
+    pellet.unbind();
+    kind[cell] = NONE;
+    set(active, cell, false);
+    set(traps, cell, false);
+    set(hidden, cell, false);
+    setReplace(cell, false);
+    set(counting, cell, false);
+    respawnCount[cell] = 0;
+    unschedule(cell);
+    markDirty(cell);
+  }
+
+  /**
+   * Sets the count of the cell and works out from the state of the cell whether it goes up every
+   * tick, and if so when the cell next changes. The count of a pellet goes up while it is
+   * inactive, and the count of a mine goes up until it is to be replaced.
+   *
+   * @param cell The cell index of the grid square
+   * @param count The number of physics updates counted so far
+   */
+  private void setCount(int cell, int count) {
+    boolean runs = (kind[cell] == MINE) ? !get(toReplace, cell) : !get(active, cell);
+    set(counting, cell, runs);
+    if (runs) {
+      countFrom[cell] = now - count;
+    } else {
+      respawnCount[cell] = count;
+    }
+    boolean changes = runs && !get(hidden, cell) && changeAfter[cell] > count;
+    unschedule(cell);
+    if (changes) {
+      schedule(cell, countFrom[cell] + changeAfter[cell]);
+    }
+  }
+
+  /**
+   * @param cell The cell index of the grid square
+   * @param value If the pellet in the cell needs to be replaced
+   */
+  private void setReplace(int cell, boolean value) {
+    if (get(toReplace, cell) != value) {
+      set(toReplace, cell, value);
+      replaceCount += value ? 1 : -1;
+    }
+  }
+
+  /** @param cell The cell index of a grid square that has changed */
+  private void markDirty(int cell) {
+    if (!get(dirtyCells, cell)) {
+      set(dirtyCells, cell, true);
+      dirty[dirtyCount++] = cell;
+    }
+  }
+
+  /**
+   * Adds the cell to the queue of scheduled changes.
+   *
+   * @param cell The cell index of the grid square, not already scheduled
+   * @param time The tick the cell changes on
+   */
+  private void schedule(int cell, int time) {
+    deadline[cell] = time;
+    heap[heapSize] = cell;
+    heapIndex[cell] = heapSize;
+    siftUp(heapSize++);
+  }
+
+  /** @param cell The cell index of the grid square to remove from the queue, if scheduled */
+  private void unschedule(int cell) {
+    int i = heapIndex[cell];
+    if (i < 0) {
+      return;
+    }
+    heapIndex[cell] = -1;
+    deadline[cell] = NO_DEADLINE;
+    int last = heap[--heapSize];
+    if (i == heapSize) {
+      return;
+    }
+    heap[i] = last;
+    heapIndex[last] = i;
+    siftDown(i);
+    siftUp(heapIndex[last]);
+  }
+
+  /** @param i The position in the heap of a cell that may be due before its parent */
+  private void siftUp(int i) {
+    int cell = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (deadline[heap[parent]] <= deadline[cell]) {
+        break;
+      }
+      heap[i] = heap[parent];
+      heapIndex[heap[i]] = i;
+      i = parent;
+    }
+    heap[i] = cell;
+    heapIndex[cell] = i;
+  }
+
+  /** @param i The position in the heap of a cell that may be due after its children */
+  private void siftDown(int i) {
+    int cell = heap[i];
+    while (true) {
+      int child = (i << 1) + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && deadline[heap[child + 1]] < deadline[heap[child]]) {
+        child++;
+      }
+      if (deadline[cell] <= deadline[heap[child]]) {
+        break;
+      }
+      heap[i] = heap[child];
+      heapIndex[heap[i]] = i;
+      i = child;
+    }
+    heap[i] = cell;
+    heapIndex[cell] = i;
+  }
+
+  private static boolean get(long[] bits, int cell) {
+    return (bits[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  private static void set(long[] bits, int cell, boolean value) {
+    if (value) {
+      bits[cell >>> 6] |= 1L << cell;
+    } else {
+      bits[cell >>> 6] &= ~(1L << cell);
+    }
+  }
+}
@@ -10,9 +10,11 @@ import com.lordsofmidnight.objects.powerUps.Rocket;
 import com.lordsofmidnight.objects.powerUps.Speed;
 import com.lordsofmidnight.objects.powerUps.Web;
 import com.lordsofmidnight.renderer.ResourceLoader;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.enums.PowerUps;
 import java.util.HashMap;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,24 +24,23 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class PowerUpBox extends Pellet {
 
-  private final HashMap<Integer, PowerUps>[] ghoulWeights = new HashMap[5];
-  private final HashMap<Integer, PowerUps>[] mipsmanWeights = new HashMap[5];
+  private static final HashMap<Integer, PowerUps>[] ghoulWeights = new HashMap[5];
+  private static final HashMap<Integer, PowerUps>[] mipsmanWeights = new HashMap[5];
+  private static final TreeMap<Integer, PowerUps>[] mipsmanItems =
+      newItemMaps(5); // the item each cumulative weight draws, by rank
+  private static final int[] mipsmanTotals = new int[5]; // the sum of the weights, by rank
   private boolean toReplace = false;
 
-  /**
-   * @param x The X coordinate of the powerup
-   * @param y The y coordinate of the powerup
-   */
-  public PowerUpBox(double x, double y) {
-    super(x, y);
-    init();
+  static {
+    initWeights();
   }
 
   /**
    * @param p The location of the powerup
+   * @param r The source of random numbers for the powerup
    */
-  public PowerUpBox(Point p) {
-    super(p);
+  public PowerUpBox(Point p, GameRandom r) {
+    super(p, r);
     init();
   }
 
@@ -47,6 +48,19 @@ public class PowerUpBox extends Pellet {
   private void init() {
     this.respawntime = 300;
     this.value = 0;
+  }
+
+  /**
+   * @param length The number of ranks
+   * @return An empty array of cumulative weight maps
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static TreeMap<Integer, PowerUps>[] newItemMaps(int length) {
+    return new TreeMap[length];
+  }
+
+  /** initialises the item weights shared by every box */
+  private static void initWeights() {
     // Init ghoul item weights
     HashMap<Integer, PowerUps> map = new HashMap<>();
     map.put(50, PowerUps.WEB);
@@ -107,6 +121,28 @@ public class PowerUpBox extends Pellet {
     map.put(31, PowerUps.MINE);
     map.put(36, PowerUps.SPEED);
     mipsmanWeights[4] = map;
+    for (int rank = 0; rank < mipsmanWeights.length; rank++) {
+      int totalWeights = 0;
+      TreeMap<Integer, PowerUps> weights = new TreeMap<>();
+      for (Entry<Integer, PowerUps> entry : mipsmanWeights[rank].entrySet()) {
+        weights.put(totalWeights, entry.getValue());
+        totalWeights += entry.getKey();
+      }
+      mipsmanItems[rank] = weights;
+      mipsmanTotals[rank] = totalWeights;
+    }
+  }
+
+  /**
+   * Draws the type of item given to an entity of the given rank.
+   *
+   * @param rank The position of the entity in the leaderboard, from 0
+   * @param r The source of random numbers
+   * @return The type of item
+   */
+  public static PowerUps drawPowerUp(int rank, Random r) {
+    int i = (int) ((1 - r.nextDouble()) * mipsmanTotals[rank]);
+    return mipsmanItems[rank].floorEntry(i).getValue();
   }
 
   /**
@@ -117,17 +153,10 @@ public class PowerUpBox extends Pellet {
    */
   public PowerUp getPowerUp(Entity entity, Entity[] agents) {
     int rank = getRank(entity, agents);
-    HashMap<Integer, PowerUps> baseWeights = mipsmanWeights[rank];
     //   entity.isMipsman() ? mipsmanWeights[rank] : ghoulWeights[rank];
-    int totalWeights = 0;
-    TreeMap<Integer, PowerUps> weights = new TreeMap<>();
-    for (Entry<Integer, PowerUps> entry : baseWeights.entrySet()) {
-      weights.put(totalWeights, entry.getValue());
-      totalWeights += entry.getKey();
-    }
-    int i = (int) ((1 - r.nextDouble()) * totalWeights);
+    PowerUps type = drawPowerUp(rank, r);
     this.setActive(false);
-    switch (weights.floorEntry(i).getValue()) {
+    switch (type) {
       case INVINCIBLE:
         return new Invincible();
       case SPEED:
@@ -159,13 +188,13 @@ public class PowerUpBox extends Pellet {
       Entity[] agents,
       ConcurrentHashMap<UUID, com.lordsofmidnight.objects.powerUps.PowerUp> activePowerUps,
       AudioController audioController) {
-    if (isTrap) {
+    if (isTrap()) {
       trap.trigger(entity, activePowerUps, audioController);
-      isTrap = false;
+      clearTrap();
       setActive(false);
-      toReplace = true;
+      markToReplace();
     }
-    if (!active) {
+    if (!isActive()) {
       return;
     }
     com.lordsofmidnight.objects.powerUps.PowerUp newPowerUp = getPowerUp(entity, agents);
@@ -199,6 +228,21 @@ public class PowerUpBox extends Pellet {
 
   @Override
   public boolean replace() {
-    return toReplace;
+    return (field == null) ? toReplace : field.isToReplace(cell);
+  }
+
+  /** Marks the box to be replaced, once its trap has been triggered */
+  private void markToReplace() {
+    if (field != null) {
+      field.setToReplace(cell);
+      return;
+    }
+    toReplace = true;
+  }
+
+  @Override
+  void unbind() {
+    toReplace = replace();
+    super.unbind();
   }
 }
@@ -6,6 +6,7 @@ import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.MinePellet;
 import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.Methods;
 import com.lordsofmidnight.utils.enums.PowerUps;
 import java.util.UUID;
@@ -27,13 +28,14 @@ public class Mine extends PowerUp {
       ConcurrentHashMap<UUID, PowerUp> activePowerUps,
       PointMap<Pellet> pellets,
       Entity[] agents,
-      AudioController audioController) {
+      AudioController audioController,
+      GameRandom random) {
     this.user = user;
     this.onMap = true;
     Point loc = user.getMoveInDirection(1.1, user.getFacing().getInverse());
     int x = (int) loc.getX();
     int y = (int) loc.getY();
-    MinePellet mine = new MinePellet(x + 0.5, y + 0.5, user);
+    MinePellet mine = new MinePellet(x + 0.5, y + 0.5, user, random.split());
     pellets.put(loc, mine);
   }
 
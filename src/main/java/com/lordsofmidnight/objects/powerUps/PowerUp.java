@@ -4,6 +4,7 @@ import com.lordsofmidnight.audio.AudioController;
 import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.enums.PowerUps;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -89,13 +90,15 @@ public abstract class PowerUp {
    *
    * @param user The entity that used the powerUp
    * @param activePowerUps All active powerUps in the game
+   * @param random The game's source of random numbers, split for any pellets the powerUp places
    */
   public void use(
       Entity user,
       ConcurrentHashMap<UUID, PowerUp> activePowerUps,
       PointMap<Pellet> pellets,
       Entity[] agents,
-      AudioController audioController) {}
+      AudioController audioController,
+      GameRandom random) {}
 
   /**
    * Used to communicate powerups to clients
@@ -123,6 +126,21 @@ public abstract class PowerUp {
     return this.user;
   }
 
+  /** @return The entity effected by the powerUp */
+  public Entity getEffected() {
+    return this.effected;
+  }
+
+  /** @return The number of physics updates since the powerUp took effect */
+  public int getCounter() {
+    return this.counter;
+  }
+
+  /** @return The number of physics updates the effect of the powerUp lasts */
+  public int getEffectTime() {
+    return this.EFFECTTIME;
+  }
+
   /** @return The Name of the powerUp */
   @Override
   public String toString() {
@@ -5,6 +5,7 @@ import com.lordsofmidnight.audio.Sounds;
 import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.Methods;
 import com.lordsofmidnight.utils.enums.PowerUps;
 import java.awt.geom.Point2D;
@@ -36,7 +37,8 @@ public class Rocket extends PowerUp {
       ConcurrentHashMap<UUID, PowerUp> activePowerUps,
       PointMap<Pellet> pellets,
       Entity[] agents,
-      AudioController audioController) {
+      AudioController audioController,
+      GameRandom random) {
     effected = agents[Methods.findWinner(agents)];
     this.user = user;
     this.activePowerUps = activePowerUps;
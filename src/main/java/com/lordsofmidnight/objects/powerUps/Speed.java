@@ -5,6 +5,7 @@ import com.lordsofmidnight.audio.Sounds;
 import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.enums.PowerUps;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -25,7 +26,8 @@ public class Speed extends PowerUp {
       ConcurrentHashMap<UUID, PowerUp> activePowerUps,
       PointMap<Pellet> pellets,
       Entity[] agents,
-      AudioController audioController) {
+      AudioController audioController,
+      GameRandom random) {
     this.user = user;
     user.changeBonusSpeed(0.03);
     activePowerUps.put(id, this);
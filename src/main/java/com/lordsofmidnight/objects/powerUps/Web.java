@@ -7,6 +7,7 @@ import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
 import com.lordsofmidnight.objects.PowerUpBox;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.enums.PowerUps;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,13 +29,14 @@ public class Web extends PowerUp {
       ConcurrentHashMap<UUID, PowerUp> activePowerUps,
       PointMap<Pellet> pellets,
       Entity[] agents,
-      AudioController audioController) {
+      AudioController audioController,
+      GameRandom random) {
     this.user = user;
     this.onMap = true;
     Point loc = user.getMoveInDirection(1.1, user.getFacing().getInverse());
     int x = (int) loc.getX();
     int y = (int) loc.getY();
-    PowerUpBox box = new PowerUpBox(x + 0.5, y + 0.5);
+    PowerUpBox box = new PowerUpBox(new Point(x + 0.5, y + 0.5), random.split());
     box.setTrap(this);
     pellets.put(loc, box);
   }
@@ -2,11 +2,11 @@ package com.lordsofmidnight.server.telemeters;
 
 import com.lordsofmidnight.audio.AudioController;
 import com.lordsofmidnight.gamestate.points.Point;
-import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.main.Client;
 import com.lordsofmidnight.objects.EmptyPowerUpBox;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.objects.PelletField;
 import com.lordsofmidnight.objects.powerUps.PowerUp;
 import com.lordsofmidnight.server.NetworkUtility;
 import com.lordsofmidnight.utils.GameLoop;
@@ -44,12 +44,12 @@ public class DumbTelemetry extends Telemetry {
   @Override
   void initialisePellets() {
     Pellet pellet;
-    pellets = new PointMap<>(map);
+    pellets = new PelletField(map);
     for (int i = 0; i < map.getMaxX(); i++) {
       for (int j = 0; j < map.getMaxY(); j++) {
         Point point = new Point(i + 0.5, j + 0.5);
         if (!map.isWall(point)) {
-          pellet = new Pellet(point);
+          pellet = new Pellet(point, random.split());
           pellet.updateImages(resourceLoader);
           pellets.put(new Point(i, j), pellet);
         }
@@ -233,7 +233,7 @@ public class DumbTelemetry extends Telemetry {
     double y = Double.valueOf(ls[1]);
     Point point = new Point(x, y);
     pellets.remove(point);
-    EmptyPowerUpBox pellet = new EmptyPowerUpBox(point);
+    EmptyPowerUpBox pellet = new EmptyPowerUpBox(point, random.split());
     pellet.updateImages(resourceLoader);
     pellets.put(point, pellet);
   }
@@ -253,7 +253,7 @@ public class DumbTelemetry extends Telemetry {
 
     agents[id].setLocation(x, y);
     PowerUp powerup = PowerUp.fromInt(powerint);
-    powerup.use(agents[id], activePowerUps, pellets, agents, audioController);
+    powerup.use(agents[id], activePowerUps, pellets, agents, audioController, random);
   }
 
   /**
@@ -1,21 +1,23 @@
 package com.lordsofmidnight.server.telemeters;
 
 import com.lordsofmidnight.ai.AILoopControl;
+import com.lordsofmidnight.ai.mapping.MapAnalysis;
 import com.lordsofmidnight.audio.AudioController;
+import com.lordsofmidnight.gamestate.maps.Map;
 import com.lordsofmidnight.gamestate.points.Point;
-import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.main.Client;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.objects.PelletField;
 import com.lordsofmidnight.objects.PowerUpBox;
 import com.lordsofmidnight.objects.powerUps.PowerUp;
 import com.lordsofmidnight.server.NetworkUtility;
 import com.lordsofmidnight.utils.GameLoop;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.Input;
 import com.lordsofmidnight.utils.Methods;
 import com.lordsofmidnight.utils.enums.Direction;
 import java.util.Queue;
-import java.util.Random;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -25,6 +27,9 @@ import java.util.concurrent.LinkedBlockingQueue;
  */
 public class HostTelemetry extends Telemetry {
 
+  private static final int AI_IDLE_TICKS =
+      10; // ticks without a decision point before a game without a display runs the AI regardless
+
   private final int playerCount;
   private BlockingQueue<Input> inputs;
   private BlockingQueue<String> outputs;
@@ -32,6 +37,9 @@ public class HostTelemetry extends Telemetry {
   private AILoopControl ai;
   private boolean aiRunning;
   private GameLoop inventoryUpdater;
+  private boolean decisionPending; // if an agent reached a decision point since the AI last ran
+  private int ticksSinceCycle; // ticks since the AI last ran in a game without a display
+  private final boolean[] aiAgents = new boolean[AGENT_COUNT]; // if each agent is AI-controlled
 
   /**
    * The constructor for multiplayer
@@ -65,7 +73,20 @@ public class HostTelemetry extends Telemetry {
    * @param audioController The clients Audio Controller
    */
   public HostTelemetry(Queue<Input> clientQueue, Client client, AudioController audioController) {
-    super(client, audioController);
+    this(clientQueue, client, audioController, new GameRandom());
+  }
+
+  /**
+   * The constructor for single player, where the game is the same every time for the same seed
+   *
+   * @param clientQueue The input queue
+   * @param client The client controlling the telemetry
+   * @param audioController The clients Audio Controller
+   * @param random The source of random numbers for the game
+   */
+  public HostTelemetry(
+      Queue<Input> clientQueue, Client client, AudioController audioController, GameRandom random) {
+    super(client, audioController, random);
     inputs = (BlockingQueue<Input>) clientQueue;
     outputs = new LinkedBlockingQueue<>();
     this.playerCount = 1;
@@ -73,6 +94,23 @@ public class HostTelemetry extends Telemetry {
     initialise();
   }
 
+  /**
+   * The constructor for a game run without a display, in which every agent is controlled by the
+   * AI. Nothing runs on its own thread: the game is advanced a tick at a time with {@link #step()}
+   * instead of being started with {@link #startGame()}, so it runs as fast as it can be computed.
+   *
+   * @param map The map the game is played on
+   * @param random The source of random numbers for the game
+   */
+  public HostTelemetry(Map map, GameRandom random) {
+    super(map, new AudioController(), random);
+    inputs = new LinkedBlockingQueue<>();
+    outputs = new LinkedBlockingQueue<>();
+    this.playerCount = 0;
+    singlePlayer = true;
+    initialise();
+  }
+
   /**
    * Initialises the game agents/entities and AI to control them
    *
@@ -83,10 +121,12 @@ public class HostTelemetry extends Telemetry {
     initialiseEntities();
 
     if (singlePlayer) {
-      agents[(new Random()).nextInt(AGENT_COUNT)].setMipsman(true);
+      agents[random.nextInt(AGENT_COUNT)].setMipsman(true);
     }
 
     initialisePellets();
+    occupancy.update(agents);
+    MapAnalysis.of(map).getRoutingTable(); // so an AI taking over a player does no map analysis
 
     int aiCount = AGENT_COUNT - playerCount;
     if (aiCount > 0) {
@@ -95,11 +135,14 @@ public class HostTelemetry extends Telemetry {
       //      String[] names = Methods.getRandomNames(aiCount);
       for (int i = 0; i < aiCount; i++) {
         aiControlled[i] = highestId;
+        aiAgents[highestId] = true;
         //        agents[highestId].setName(names[i]);
         highestId--;
       }
       aiRunning = false;
-      ai = new AILoopControl(agents, aiControlled, map, inputs, pellets);
+      ai =
+          new AILoopControl(
+              agents, aiControlled, map, inputs, pellets, occupancy, random.split());
     }
   }
 
@@ -161,6 +204,35 @@ public class HostTelemetry extends Telemetry {
     scoreUpdater.start();
   }
 
+  /**
+   * Advances a game without a display by a single physics tick. The AI is run on the calling
+   * thread whenever an AI agent reached a decision point in the previous tick, or every {@link
+   * #AI_IDLE_TICKS} ticks otherwise, matching how often it runs in a displayed game. Its
+   * directions are applied at the start of the next tick.
+   *
+   * @return True if the game is still running after the tick
+   * @throws IllegalStateException The game is being displayed.
+   * @author Lewis Ackroyd
+   */
+  public boolean step() {
+    if (!headless) {
+      throw new IllegalStateException("Only games without a display can be stepped.");
+    }
+    if (decisionPending || ++ticksSinceCycle >= AI_IDLE_TICKS) {
+      decisionPending = false;
+      ticksSinceCycle = 0;
+      ai.runCycle();
+    }
+    processInputs();
+    processPhysics(agents, map, resourceLoader, pellets, activePowerUps);
+    return !finished;
+  }
+
+  /** @return The AI controlling the agents not controlled by players, or null if there is none */
+  public AILoopControl getAI() {
+    return ai;
+  }
+
   /**
    * Starts the AI-controlled agents
    */
@@ -189,10 +261,13 @@ public class HostTelemetry extends Telemetry {
         agents[id].setPowerUpUsedFlag(false);
       } else if (d.equals(Direction.STOP)) {
         if (ai == null) {
-          ai = new AILoopControl(agents, new int[0], map, inputs, pellets);
+          ai =
+              new AILoopControl(
+                  agents, new int[0], map, inputs, pellets, occupancy, random.split());
           startAI();
         }
         if (ai.addClient(id)) {
+          aiAgents[id] = true;
           agents[id].setName("Bot" + agents[id].getName());
         }
       } else {
@@ -209,22 +284,53 @@ public class HostTelemetry extends Telemetry {
     }
   }
 
+  @Override
+  boolean isAIControlled(int id) {
+    return aiAgents[id];
+  }
+
+  /**
+   * Wakes the AI so that agents reaching a decision point are given a direction at once. Without a
+   * display the AI is instead run at the start of the next tick.
+   */
+  @Override
+  void onDecisionPoint() {
+    if (headless) {
+      decisionPending = true;
+    } else if (ai != null) {
+      ai.wake();
+    }
+  }
+
+  /**
+   * Tells the AI which pellet changed, so that it does not have to check every pellet itself.
+   *
+   * @param cell The cell index of the grid square
+   */
+  @Override
+  void onPelletChanged(int cell) {
+    if (ai != null) {
+      ai.pelletChanged(cell);
+    }
+  }
+
   @Override
   void initialisePellets() {
     Pellet pellet;
-    Random r = new Random();
-    pellets = new PointMap<>(map);
+    pellets = new PelletField(map);
     for (int i = 0; i < map.getMaxX(); i++) {
       for (int j = 0; j < map.getMaxY(); j++) {
         Point point = new Point(i + 0.5, j + 0.5);
         if (!map.isWall(point)) {
-          if (r.nextInt(30) == 1) {
-            pellet = new PowerUpBox(point);
+          if (random.nextInt(30) == 1) {
+            pellet = new PowerUpBox(point, random.split());
             informPowerupBox(point);
           } else {
-            pellet = new Pellet(point);
+            pellet = new Pellet(point, random.split());
+          }
+          if (!headless) {
+            pellet.updateImages(resourceLoader);
           }
-          pellet.updateImages(resourceLoader);
           pellets.put(new Point(i, j), pellet);
         }
       }
@@ -239,7 +345,10 @@ public class HostTelemetry extends Telemetry {
   private void usePowerUp(int id) {
     PowerUp item;
     if ((item = agents[id].getFirstItem()) != null) {
-      item.use(agents[id], activePowerUps, pellets, agents, audioController);
+      item.use(agents[id], activePowerUps, pellets, agents, audioController, random);
+      if (ai != null) {
+        ai.pelletsChanged(); // power ups may place pellets of their own
+      }
       informPowerup(id, item, agents[id].getLocation());
     }
   }
@@ -1,19 +1,25 @@
 package com.lordsofmidnight.server.telemeters;
 
 import com.lordsofmidnight.audio.AudioController;
+import com.lordsofmidnight.gamestate.WorldState;
 import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.maps.OccupancyGrid;
+import com.lordsofmidnight.gamestate.points.Cells;
 import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.gamestate.points.PointMap;
 import com.lordsofmidnight.main.Client;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.objects.PelletField;
 import com.lordsofmidnight.objects.powerUps.PowerUp;
 import com.lordsofmidnight.renderer.ResourceLoader;
 import com.lordsofmidnight.utils.GameLoop;
+import com.lordsofmidnight.utils.GameRandom;
 import com.lordsofmidnight.utils.Input;
 import com.lordsofmidnight.utils.Methods;
 import com.lordsofmidnight.utils.enums.Direction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -25,6 +31,7 @@ public abstract class Telemetry {
 
   static final int AGENT_COUNT = 5;
   static final int GAME_TIME = 150 * 100; // Number of seconds *100
+  private static final int NO_CELL = -1; // decision cell of an agent not yet centred in a square
   static Client client;
   protected int gameTimer = GAME_TIME;
   protected int clientID;
@@ -33,33 +40,67 @@ public abstract class Telemetry {
   protected GameLoop positionUpdater;
   protected GameLoop scoreUpdater;
   protected AudioController audioController;
+  protected OccupancyGrid occupancy;
+  protected final GameRandom random; // every random decision made by the game is drawn from this
+  protected final boolean headless; // if there is no Client, so nothing is displayed
+  protected volatile boolean finished; // if the game timer has run out
   Entity[] agents;
-  PointMap<Pellet> pellets;
+  PelletField pellets;
   ResourceLoader resourceLoader;
   ConcurrentHashMap<UUID, PowerUp> activePowerUps = new ConcurrentHashMap<>();
+  private final int[] decisionCells = noCells(); // the cell each agent last became centred in
+  private final boolean[] moving = new boolean[AGENT_COUNT]; // if each agent had an open direction
 
   /**
    * @param client The client it belongs to
    * @param audioController The Audio Controller for the client
    */
   Telemetry(Client client, AudioController audioController) {
+    this(client, audioController, new GameRandom());
+  }
+
+  /**
+   * @param client The client it belongs to
+   * @param audioController The Audio Controller for the client
+   * @param random The source of random numbers for the game
+   */
+  Telemetry(Client client, AudioController audioController, GameRandom random) {
+    this.random = random;
+    this.headless = false;
     this.map = client.getMap();
     Telemetry.client = client;
     this.resourceLoader = client.getResourceLoader();
     this.agents = client.getAgents();
     this.audioController = audioController;
+    this.occupancy = new OccupancyGrid(map);
+  }
+
+  /**
+   * Creates a telemetry with no {@link Client}, for games run without a display. No images are
+   * loaded and the game does not end the client's game when the timer runs out.
+   *
+   * @param map The map the game is played on
+   * @param audioController The Audio Controller for the game
+   * @param random The source of random numbers for the game
+   */
+  Telemetry(Map map, AudioController audioController, GameRandom random) {
+    this.random = random;
+    this.headless = true;
+    this.map = map;
+    this.audioController = audioController;
+    this.occupancy = new OccupancyGrid(map);
   }
 
   /**
-   * Static method to detect if the mipsman entity will eat a pellet
+   * Method to detect if the mipsman entity will eat a pellet
    *
    * @param agents The entities
    * @param pellets The pellets
    * @author Matthew Jones
    */
-  private static void pelletCollision(
+  private void pelletCollision(
       Entity[] agents,
-      PointMap<Pellet> pellets,
+      PelletField pellets,
       ConcurrentHashMap<UUID, PowerUp> activePowerUps,
       AudioController audioController) {
     for (Entity agent : agents) {
@@ -73,21 +114,21 @@ public abstract class Telemetry {
   // abstract methods
 
   /**
-   * Static method for 'swapping' a mipsman and ghoul if they occupy the same area.
+   * Method for 'swapping' a mipsman and ghoul if they occupy the same area.
    *
    * @param mipsman Entity currently acting as mipsman
    * @param ghoul Entity currently running as ghoul
    * @author Alex Banks, Matthew Jones
    */
-  private static void detectEntityCollision(
+  private void detectEntityCollision(
       Entity mipsman, Entity ghoul, AudioController audioController) {
     if (mipsman.isDead() || ghoul.isDead()) {
       return;
     }
     Point mipsmanCenter = mipsman.getLocation();
-    Point ghoulFace = ghoul.getFaceLocation();
-    if (mipsmanCenter.inRange(ghoulFace)) { // check temporary invincibility here
-      if (mipsman.isMipsman()) {
+    // check temporary invincibility here
+    if (mipsmanCenter.inRange(ghoul.getFaceX(), ghoul.getFaceY())) {
+      if (mipsman.isMipsman() && !headless) {
         client.collisionDetected(ghoul);
       }
       /*mipsman.setMipsman(false);
@@ -105,6 +146,11 @@ public abstract class Telemetry {
     return gameTimer;
   }
 
+  /** @return If the game timer has run out */
+  public boolean isFinished() {
+    return finished;
+  }
+
   /**
    * Starts the AI controller
    */
@@ -145,11 +191,26 @@ public abstract class Telemetry {
 
   // constructor methods
 
+  /** @return The grid of agent positions, updated every physics tick */
+  public OccupancyGrid getOccupancy() {
+    return occupancy;
+  }
+
   /** @return The map of pellets */
   public PointMap<Pellet> getPellets() {
     return pellets;
   }
 
+  /**
+   * Captures a compact copy of the game that can be forked and stepped for prediction. Must be
+   * called from the thread running the physics.
+   *
+   * @return The current state of the game
+   */
+  public WorldState captureWorldState() {
+    return WorldState.capture(map, agents, pellets, activePowerUps, gameTimer);
+  }
+
   // physics engine
 
   /**
@@ -173,15 +234,15 @@ public abstract class Telemetry {
           }
         }
       case 5:
-        agents[4] = new Entity(false, 4, map.getRandomSpawnPoint(agents));
+        agents[4] = new Entity(false, 4, map.getRandomSpawnPoint(agents, random));
       case 4:
-        agents[3] = new Entity(false, 3, map.getRandomSpawnPoint(agents));
+        agents[3] = new Entity(false, 3, map.getRandomSpawnPoint(agents, random));
       case 3:
-        agents[2] = new Entity(false, 2, map.getRandomSpawnPoint(agents));
+        agents[2] = new Entity(false, 2, map.getRandomSpawnPoint(agents, random));
       case 2:
-        agents[1] = new Entity(false, 1, map.getRandomSpawnPoint(agents));
+        agents[1] = new Entity(false, 1, map.getRandomSpawnPoint(agents, random));
       case 1:
-        agents[0] = new Entity(false, 0, map.getRandomSpawnPoint(agents));
+        agents[0] = new Entity(false, 0, map.getRandomSpawnPoint(agents, random));
     }
 
     // Methods.updateImages(agents, resourceLoader);
@@ -199,16 +260,15 @@ public abstract class Telemetry {
       Entity[] agents,
       Map m,
       ResourceLoader resourceLoader,
-      PointMap<Pellet> pellets,
+      PelletField pellets,
       ConcurrentHashMap<UUID, PowerUp> activePowerUps) {
 
+    boolean decisionPoint = false; // if any AI agent may need a new direction after this tick
     for (int i = 0; i < AGENT_COUNT; i++) {
       if (agents[i].getDirection() != Direction.STOP) {
         Point prevLocation = agents[i].getLocation();
         agents[i].move();
-        Point faceLocation = agents[i].getFaceLocation();
-
-        if (m.isWall(faceLocation)) {
+        if (m.isWall(agents[i].getFaceX(), agents[i].getFaceY())) {
           // System.out.println("~Player" + i + " drove into a wall");
           agents[i].setLocation(prevLocation.centralise());
           agents[i].setDirection(Direction.STOP);
@@ -219,9 +279,12 @@ public abstract class Telemetry {
         agents[i].countRespawn();
         int deathCounter = agents[i].getDeathCounter();
         if (deathCounter == 20) {
-          agents[i].setLocation(map.getRandomSpawnPoint(agents));
+          agents[i].setLocation(map.getRandomSpawnPoint(agents, random));
         }
       }
+      if (reachedDecisionPoint(i)) {
+        decisionPoint = true;
+      }
     }
 
     // separate loop for checking collision after iteration
@@ -242,17 +305,21 @@ public abstract class Telemetry {
       }
     }
 
+    occupancy.update(agents);
+    if (decisionPoint) {
+      onDecisionPoint();
+    }
+
     pelletCollision(agents, pellets, activePowerUps, audioController);
-    ArrayList<Point> replace = new ArrayList<>();
-    for (Pellet p : pellets.values()) {
-      p.incrementRespawn();
-      if (p.replace()) {
-        replace.add(p.getLocation());
-      }
+    pellets.tick(); // only the pellets that respawn or hide on this tick are visited
+    for (int cell = pellets.nextToReplace(0); cell >= 0; cell = pellets.nextToReplace(cell + 1)) {
+      Point p = pellets.getAt(cell).getLocation();
+      pellets.put(p, new Pellet(p, random.split()));
     }
-    for (Point p : replace) {
-      pellets.put(p, new Pellet(p));
+    for (int i = 0; i < pellets.getDirtyCount(); i++) {
+      onPelletChanged(pellets.getDirtyCell(i));
     }
+    pellets.clearDirty();
     ArrayList<UUID> toRemove = new ArrayList<>();
     for (PowerUp p : activePowerUps.values()) {
       if (p.incrementTime(audioController)) {
@@ -264,10 +331,74 @@ public abstract class Telemetry {
     }
     gameTimer--;
     if (Math.round(gameTimer / (double) 100) == 0) {
-      client.finishGame();
+      finished = true;
+      if (!headless) {
+        client.finishGame();
+      }
+    }
+  }
+
+  /**
+   * Checks if the agent has just reached a point where it may need a new direction: the first tick
+   * it is centred in a grid square it was not last centred in, or the tick its direction stops
+   * being open. Only living agents controlled by the AI are checked, so the check holds once per
+   * decision rather than for every tick an agent spends near a centre.
+   *
+   * @param id The id of the agent
+   * @return True if the agent has reached a decision point on this tick
+   * @author Lewis Ackroyd
+   */
+  private boolean reachedDecisionPoint(int id) {
+    Entity agent = agents[id];
+    if (agent.isDead() || !isAIControlled(id)) {
+      decisionCells[id] = NO_CELL;
+      moving[id] = false;
+      return false;
     }
+    Point p = agent.getLocation();
+    int cell = Cells.cellOf(p.getX(), p.getY(), map.getMaxX(), map.getMaxY());
+    boolean wasMoving = moving[id];
+    moving[id] = map.isValidDirection(cell, agent.getDirection());
+    boolean reached = wasMoving && !moving[id];
+    if (cell != decisionCells[id] && p.isCentered()) {
+      decisionCells[id] = cell;
+      reached = true;
+    }
+    return reached;
+  }
+
+  /**
+   * @param id The id of the agent
+   * @return True if the agent is controlled by the AI. False unless overridden.
+   */
+  boolean isAIControlled(int id) {
+    return false;
+  }
+
+  /** @return The decision cell of every agent, set to {@link #NO_CELL} */
+  private static int[] noCells() {
+    int[] cells = new int[AGENT_COUNT];
+    Arrays.fill(cells, NO_CELL);
+    return cells;
   }
 
+  /**
+   * Called at the end of the movement step of any physics tick in which an agent controlled by the
+   * AI has reached a decision point, and so may need a new direction. Does nothing unless
+   * overridden.
+   *
+   * @see #reachedDecisionPoint(int)
+   */
+  void onDecisionPoint() {}
+
+  /**
+   * Called at the end of any physics tick for each grid square whose pellet has been collected,
+   * respawned, replaced or otherwise changed since the last tick. Does nothing unless overridden.
+   *
+   * @param cell The cell index of the grid square
+   */
+  void onPelletChanged(int cell) {}
+
   /**
    * Sets the game time
    *
@@ -0,0 +1,84 @@
+package com.lordsofmidnight.sim;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.server.telemeters.HostTelemetry;
+import com.lordsofmidnight.utils.GameRandom;
+import com.lordsofmidnight.utils.enums.Difficulty;
+
+/**
+ * A single game in which every agent is controlled by the AI, run with no display on the calling
+ * thread as fast as it can be computed. At the easy and normal difficulties the same map and seed
+ * always produce the same game, as long as no AI cycle runs out of its budget. At {@link
+ * Difficulty#HARD} the Monte Carlo tree search always searches until its deadline, so how far it
+ * gets, and so the game, depends on the speed of the machine and is not reproducible from a
+ * seed.
+ *
+ * @author Lewis Ackroyd
+ */
+public class HeadlessMatch {
+
+  private final long seed;
+  private final HostTelemetry telemetry;
+
+  /**
+   * Sets up a game on the given map, using the default AI cycle budget.
+   *
+   * @param map The map the game is played on
+   * @param seed The seed of every random decision made in the game
+   * @author Lewis Ackroyd
+   */
+  public HeadlessMatch(Map map, long seed) {
+    this.seed = seed;
+    this.telemetry = new HostTelemetry(map, new GameRandom(seed));
+    telemetry.getAI().setParallelDecisions(false); // matches, not agents, share the processors
+  }
+
+  /**
+   * Sets up a game on the given map.
+   *
+   * @param map The map the game is played on
+   * @param seed The seed of every random decision made in the game
+   * @param cycleBudget The time each AI cycle may spend searching for routes, in nanoseconds
+   * @throws IllegalArgumentException The budget is not positive.
+   * @author Lewis Ackroyd
+   */
+  public HeadlessMatch(Map map, long seed, long cycleBudget) throws IllegalArgumentException {
+    this(map, seed);
+    telemetry.getAI().setCycleBudget(cycleBudget);
+  }
+
+  /**
+   * Sets up a game on the given map, with the AI playing at the given difficulty.
+   *
+   * @param map The map the game is played on
+   * @param seed The seed of every random decision made in the game
+   * @param cycleBudget The time each AI cycle may spend searching for routes, in nanoseconds
+   * @param difficulty The difficulty the AI plays at
+   * @throws IllegalArgumentException The budget is not positive.
+   * @author Lewis Ackroyd
+   */
+  public HeadlessMatch(Map map, long seed, long cycleBudget, Difficulty difficulty)
+      throws IllegalArgumentException {
+    this(map, seed, cycleBudget);
+    telemetry.getAI().setDifficulty(difficulty);
+  }
+
+  /**
+   * Plays the game until the game timer runs out.
+   *
+   * @return The outcome of the game
+   * @author Lewis Ackroyd
+   */
+  public MatchResult play() {
+    long start = System.nanoTime();
+    int ticks = 0;
+    boolean running = true;
+    while (running) {
+      running = telemetry.step();
+      ticks++;
+    }
+    telemetry.getAI().killAI();
+    long nanos = System.nanoTime() - start;
+    return new MatchResult(seed, ticks, nanos, telemetry.getAgents(), telemetry.getAI());
+  }
+}
@@ -0,0 +1,132 @@
+package com.lordsofmidnight.sim;
+
+import com.lordsofmidnight.ai.AILoopControl;
+import com.lordsofmidnight.ai.AIMetrics;
+import com.lordsofmidnight.objects.Entity;
+import com.lordsofmidnight.utils.enums.Awards;
+
+/**
+ * The outcome of a {@link HeadlessMatch} and how long it took to compute. Agent statistics are
+ * indexed by client id.
+ *
+ * @author Lewis Ackroyd
+ */
+public class MatchResult {
+
+  private final long seed;
+  private final int ticks;
+  private final long nanos;
+  private final int[] scores;
+  private final int[] kills;
+  private final int winner; // client id of the agent with the highest score, lowest id on a tie
+  private final int mipsman; // client id of the agent that was MIPSman when the game ended
+  private final long cycleOverruns;
+  private final long budgetFallbacks;
+  private final long difficultyStepDowns;
+  private final AIMetrics metrics;
+
+  /**
+   * Records the state of a finished game.
+   *
+   * @param seed The seed the game was played with
+   * @param ticks The number of physics ticks the game took
+   * @param nanos The time taken to compute the game, in nanoseconds
+   * @param agents The agents of the game
+   * @param ai The AI that controlled the agents
+   * @author Lewis Ackroyd
+   */
+  MatchResult(long seed, int ticks, long nanos, Entity[] agents, AILoopControl ai) {
+    this.seed = seed;
+    this.ticks = ticks;
+    this.nanos = nanos;
+    this.scores = new int[agents.length];
+    this.kills = new int[agents.length];
+    int best = 0;
+    int mips = -1;
+    for (Entity agent : agents) {
+      int id = agent.getClientId();
+      scores[id] = agent.getScore();
+      kills[id] = agent.getStatsTracker().getStat(Awards.MOST_KILLS);
+      if (agent.isMipsman()) {
+        mips = id;
+      }
+    }
+    for (int id = 1; id < scores.length; id++) {
+      if (scores[id] > scores[best]) {
+        best = id;
+      }
+    }
+    this.winner = best;
+    this.mipsman = mips;
+    this.cycleOverruns = ai.getCycleOverruns();
+    this.budgetFallbacks = ai.getBudgetFallbacks();
+    this.difficultyStepDowns = ai.getDifficultyStepDowns();
+    this.metrics = ai.getMetrics();
+  }
+
+  /** @return The seed the game was played with */
+  public long getSeed() {
+    return seed;
+  }
+
+  /** @return The number of physics ticks the game took */
+  public int getTicks() {
+    return ticks;
+  }
+
+  /** @return The time taken to compute the game, in nanoseconds */
+  public long getNanos() {
+    return nanos;
+  }
+
+  /** @return The number of agents in the game */
+  public int getAgentCount() {
+    return scores.length;
+  }
+
+  /**
+   * @param id The client id of the agent
+   * @return The score of the agent at the end of the game
+   */
+  public int getScore(int id) {
+    return scores[id];
+  }
+
+  /**
+   * @param id The client id of the agent
+   * @return The number of agents the agent killed
+   */
+  public int getKills(int id) {
+    return kills[id];
+  }
+
+  /** @return The client id of the agent with the highest score */
+  public int getWinner() {
+    return winner;
+  }
+
+  /** @return The client id of the agent that was MIPSman when the game ended, or -1 */
+  public int getMipsman() {
+    return mipsman;
+  }
+
+  /** @return The number of AI cycles that took longer than the cycle budget */
+  public long getCycleOverruns() {
+    return cycleOverruns;
+  }
+
+  /** @return The number of agents given no route search as the cycle budget had run out */
+  public long getBudgetFallbacks() {
+    return budgetFallbacks;
+  }
+
+  /** @return The number of times the AI lowered its difficulty as cycles ran over budget */
+  public long getDifficultyStepDowns() {
+    return difficultyStepDowns;
+  }
+
+  /** @return The latencies and counters of every decision the AI made */
+  public AIMetrics getMetrics() {
+    return metrics;
+  }
+}
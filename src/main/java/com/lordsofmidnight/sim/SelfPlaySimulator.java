@@ -0,0 +1,182 @@
+package com.lordsofmidnight.sim;
+
+import com.lordsofmidnight.ai.AILoopControl;
+import com.lordsofmidnight.ai.AIMetrics;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.maps.MapGenerator;
+import com.lordsofmidnight.utils.GameRandom;
+import com.lordsofmidnight.utils.enums.Difficulty;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many {@link HeadlessMatch}es between AI agents in parallel, one per processor, and prints
+ * how quickly they were computed and how they turned out. Used to tune the AI and to catch
+ * performance regressions. Every match is played on the same generated map, with consecutive
+ * seeds, so a run can be repeated exactly.
+ *
+ * <p>Arguments, all optional: number of matches, number of threads, seed, map size factor, AI
+ * cycle budget in nanoseconds and AI difficulty.
+ *
+ * @author Lewis Ackroyd
+ */
+public class SelfPlaySimulator {
+
+  private static final int DEFAULT_MATCHES = 100;
+  private static final long DEFAULT_SEED = 0;
+  private static final int DEFAULT_MAP_SIZE = 2; // factor given to MapGenerator#newRandomMap
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  private final Map map;
+  private final int matches;
+  private final int threads;
+  private final long seed;
+  private final long cycleBudget;
+  private final Difficulty difficulty;
+
+  /**
+   * @param map The map every match is played on
+   * @param matches The number of matches to play
+   * @param threads The number of matches played at once
+   * @param seed The seed of the first match, increasing by one for each match after
+   * @param cycleBudget The time each AI cycle may spend searching for routes, in nanoseconds
+   * @author Lewis Ackroyd
+   */
+  public SelfPlaySimulator(Map map, int matches, int threads, long seed, long cycleBudget) {
+    this(map, matches, threads, seed, cycleBudget, AILoopControl.DEFAULT_DIFFICULTY);
+  }
+
+  /**
+   * @param map The map every match is played on
+   * @param matches The number of matches to play
+   * @param threads The number of matches played at once
+   * @param seed The seed of the first match, increasing by one for each match after
+   * @param cycleBudget The time each AI cycle may spend searching for routes, in nanoseconds
+   * @param difficulty The difficulty the AI plays at in every match
+   * @author Lewis Ackroyd
+   */
+  public SelfPlaySimulator(
+      Map map, int matches, int threads, long seed, long cycleBudget, Difficulty difficulty) {
+    this.map = map;
+    this.matches = matches;
+    this.threads = threads;
+    this.seed = seed;
+    this.cycleBudget = cycleBudget;
+    this.difficulty = difficulty;
+  }
+
+  public static void main(String[] args) throws InterruptedException, ExecutionException {
+    int matches = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MATCHES;
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : availableProcessors();
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+    int mapSize = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAP_SIZE;
+    long cycleBudget =
+        args.length > 4 ? Long.parseLong(args[4]) : AILoopControl.DEFAULT_CYCLE_BUDGET;
+    Difficulty difficulty =
+        args.length > 5 ? Difficulty.fromString(args[5]) : AILoopControl.DEFAULT_DIFFICULTY;
+    if (difficulty == null) {
+      throw new IllegalArgumentException("Unknown difficulty " + args[5] + ".");
+    }
+
+    Map map = new Map(MapGenerator.newRandomMap(mapSize, mapSize, new GameRandom(seed)));
+    SelfPlaySimulator simulator =
+        new SelfPlaySimulator(map, matches, threads, seed, cycleBudget, difficulty);
+    long start = System.nanoTime();
+    List<MatchResult> results = simulator.run();
+    report(results, System.nanoTime() - start);
+  }
+
+  /** @return The number of processors available to run matches on */
+  private static int availableProcessors() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Plays every match, blocking until all have finished.
+   *
+   * @return The results of the matches, in order of seed
+   * @throws InterruptedException Interrupted while waiting for the matches to finish.
+   * @throws ExecutionException A match failed.
+   * @author Lewis Ackroyd
+   */
+  public List<MatchResult> run() throws InterruptedException, ExecutionException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<MatchResult>> futures = new ArrayList<>();
+      for (int i = 0; i < matches; i++) {
+        long matchSeed = seed + i;
+        futures.add(
+            pool.submit(() -> new HeadlessMatch(map, matchSeed, cycleBudget, difficulty).play()));
+      }
+      List<MatchResult> results = new ArrayList<>();
+      for (Future<MatchResult> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Prints the throughput of the run, the outcome statistics of each agent and the latencies of the
+   * AI across every match.
+   *
+   * @param results The results of every match
+   * @param wallNanos The time taken to play every match, in nanoseconds
+   * @author Lewis Ackroyd
+   */
+  private static void report(List<MatchResult> results, long wallNanos) {
+    if (results.isEmpty()) {
+      System.out.println("No matches played.");
+      return;
+    }
+    int agentCount = results.get(0).getAgentCount();
+    long ticks = 0;
+    long matchNanos = 0;
+    long overruns = 0;
+    long fallbacks = 0;
+    long stepDowns = 0;
+    int[] wins = new int[agentCount];
+    long[] scores = new long[agentCount];
+    long[] kills = new long[agentCount];
+    AIMetrics metrics = new AIMetrics(agentCount);
+    for (MatchResult result : results) {
+      metrics.add(result.getMetrics());
+      ticks += result.getTicks();
+      matchNanos += result.getNanos();
+      overruns += result.getCycleOverruns();
+      fallbacks += result.getBudgetFallbacks();
+      stepDowns += result.getDifficultyStepDowns();
+      wins[result.getWinner()]++;
+      for (int id = 0; id < agentCount; id++) {
+        scores[id] += result.getScore(id);
+        kills[id] += result.getKills(id);
+      }
+    }
+    double wallSeconds = wallNanos / NANOS_PER_SECOND;
+    System.out.printf(
+        "%d matches, %d ticks in %.2fs: %.0f ticks/s overall, %.0f ticks/s per match%n",
+        results.size(),
+        ticks,
+        wallSeconds,
+        ticks / wallSeconds,
+        ticks / (matchNanos / NANOS_PER_SECOND));
+    System.out.printf(
+        "AI cycle overruns: %d, budget fallbacks: %d, difficulty step downs: %d%n",
+        overruns, fallbacks, stepDowns);
+    for (int id = 0; id < agentCount; id++) {
+      System.out.printf(
+          "Agent %d: %d wins, mean score %.1f, mean kills %.2f%n",
+          id,
+          wins[id],
+          scores[id] / (double) results.size(),
+          kills[id] / (double) results.size());
+    }
+    metrics.dump(System.out);
+  }
+}
@@ -0,0 +1,94 @@
+package com.lordsofmidnight.utils;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Seedable source of random numbers for a match. Each subsystem, thread or agent should be given
+ * its own stream with {@link #split()} rather than sharing one, as the source is not synchronized.
+ * Two matches started from sources with the same seed, and split in the same order, draw the same
+ * numbers. Extends {@link Random} so that it can be passed to any method expecting one, but unlike
+ * {@link Random} it is not serializable, as the {@link SplittableRandom} it draws from is not.
+ *
+ * @author Lewis Ackroyd
+ */
+public class GameRandom extends Random {
+
+  private static final long serialVersionUID = 1L;
+
+  private SplittableRandom source;
+
+  /** Creates a source with a seed that is different every time. */
+  public GameRandom() {
+    this(new SplittableRandom());
+  }
+
+  /**
+   * Creates a source that always produces the same numbers for the same seed.
+   *
+   * @param seed The seed of the source
+   */
+  public GameRandom(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  /**
+   * @param source The generator all numbers are drawn from
+   */
+  private GameRandom(SplittableRandom source) {
+    this.source = source;
+  }
+
+  /**
+   * Creates a new source whose numbers are independent of this one. Splitting changes the state of
+   * this source, so must be done from the thread that owns it.
+   *
+   * @return The new source
+   * @author Lewis Ackroyd
+   */
+  public GameRandom split() {
+    return new GameRandom(source.split());
+  }
+
+  /**
+   * Restarts the source from the given seed.
+   *
+   * @param seed The new seed
+   */
+  @Override
+  public void setSeed(long seed) {
+    if (source != null) { // called by Random before this source exists
+      source = new SplittableRandom(seed);
+    }
+  }
+
+  @Override
+  protected int next(int bits) {
+    return source.nextInt() >>> (Integer.SIZE - bits);
+  }
+
+  @Override
+  public int nextInt() {
+    return source.nextInt();
+  }
+
+  @Override
+  public int nextInt(int bound) {
+    return source.nextInt(bound);
+  }
+
+  @Override
+  public long nextLong() {
+    return source.nextLong();
+  }
+
+  @Override
+  public double nextDouble() {
+    return source.nextDouble();
+  }
+
+  @Override
+  public boolean nextBoolean() {
+    return source.nextBoolean();
+  }
+}
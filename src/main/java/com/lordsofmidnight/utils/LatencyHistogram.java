@@ -0,0 +1,156 @@
+package com.lordsofmidnight.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, safe to record into from any number of threads
+ * at once. Each power of two is split into {@link #SUB_BUCKETS} buckets, so every value is counted
+ * in a bucket no more than an eighth wider than the value itself. Recording never allocates.
+ *
+ * @author Lewis Ackroyd
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // buckets per power of two
+  private static final int BUCKETS =
+      (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS; // enough for every positive long
+  private static final double NANOS_PER_MICRO = 1_000.0;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong total; // sum of every recorded value
+  private final AtomicLong max;
+
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.total = new AtomicLong();
+    this.max = new AtomicLong();
+  }
+
+  /**
+   * Records a single duration. Negative durations are recorded as zero.
+   *
+   * @param nanos The duration in nanoseconds
+   * @author Lewis Ackroyd
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts.incrementAndGet(bucketOf(nanos));
+    total.addAndGet(nanos);
+    long current = max.get();
+    while (nanos > current && !max.compareAndSet(current, nanos)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * Adds every duration recorded in the given histogram to this one.
+   *
+   * @param other The histogram being added
+   * @author Lewis Ackroyd
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = other.counts.get(i);
+      if (count != 0) {
+        counts.addAndGet(i, count);
+      }
+    }
+    total.addAndGet(other.total.get());
+    long otherMax = other.max.get();
+    long current = max.get();
+    while (otherMax > current && !max.compareAndSet(current, otherMax)) {
+      current = max.get();
+    }
+  }
+
+  /** @return The number of durations recorded */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /** @return The mean duration in nanoseconds, or 0 if nothing has been recorded */
+  public double getMean() {
+    long count = getCount();
+    return count == 0 ? 0 : total.get() / (double) count;
+  }
+
+  /** @return The longest duration recorded in nanoseconds */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gives an upper bound on the duration below which the given fraction of recorded durations
+   * lie.
+   *
+   * @param fraction The fraction of durations, between 0 and 1
+   * @return The upper bound in nanoseconds, or 0 if nothing has been recorded
+   * @author Lewis Ackroyd
+   */
+  public long getPercentile(double fraction) {
+    long[] snapshot = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(fraction * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+        getCount(),
+        getMean() / NANOS_PER_MICRO,
+        getPercentile(0.5) / NANOS_PER_MICRO,
+        getPercentile(0.99) / NANOS_PER_MICRO,
+        getMax() / NANOS_PER_MICRO);
+  }
+
+  /**
+   * @param nanos A non-negative duration
+   * @return The index of the bucket the duration is counted in
+   */
+  private static int bucketOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(nanos);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+    return ((shift + 1) * SUB_BUCKETS) + subBucket;
+  }
+
+  /**
+   * @param bucket The index of a bucket
+   * @return The largest duration counted in the bucket
+   */
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket / SUB_BUCKETS) - 1;
+    long lower = ((long) SUB_BUCKETS + (bucket % SUB_BUCKETS)) << shift;
+    return lower + (1L << shift) - 1;
+  }
+}
@@ -3,6 +3,7 @@ package com.lordsofmidnight.utils;
 import com.lordsofmidnight.audio.AudioController;
 import com.lordsofmidnight.audio.Sounds;
 import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Cells;
 import com.lordsofmidnight.gamestate.points.Point;
 import com.lordsofmidnight.objects.Entity;
 import com.lordsofmidnight.utils.enums.Direction;
@@ -53,8 +54,9 @@ public class Methods {
    * @author Alex Banks, Matty Jones
    */
   public static boolean validateDirection(Direction d, Point p, Map m) {
-    Point movedPoint = p.getCopy().moveInDirection(1, d);
-    return !m.isWall(movedPoint) && p.isCentered();
+    double x = Cells.movedX(p.getX(), d, 1, m.getMaxX());
+    double y = Cells.movedY(p.getY(), d, 1, m.getMaxY());
+    return !m.isWall(x, y) && p.isCentered();
   }
 
   /**
@@ -0,0 +1,54 @@
+package com.lordsofmidnight.utils.enums;
+
+/**
+ * Enum to represent the strength of the AI, from the cheapest to the most expensive to compute
+ */
+public enum Difficulty {
+  EASY("easy"),
+  NORMAL("normal"),
+  HARD("hard");
+
+  private String name;
+
+  /**
+   * @param name The name of the difficulty
+   */
+  Difficulty(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @param s The string to create it from
+   * @return The difficulty
+   */
+  public static Difficulty fromString(String s) {
+    for (Difficulty d : Difficulty.values()) {
+      if (d.getName().equals(s)) {
+        return d;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return The name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return The next easier difficulty, or null if this is the easiest
+   */
+  public Difficulty easier() {
+    return (ordinal() == 0) ? null : values()[ordinal() - 1];
+  }
+
+  /**
+   * @return The next harder difficulty, or null if this is the hardest
+   */
+  public Difficulty harder() {
+    Difficulty[] values = values();
+    return (ordinal() == values.length - 1) ? null : values[ordinal() + 1];
+  }
+}
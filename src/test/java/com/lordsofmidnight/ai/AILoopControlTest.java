@@ -0,0 +1,82 @@
+package com.lordsofmidnight.ai;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.ai.mapping.MapAnalysis;
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.ai.routefinding.routefinders.MonteCarloRouteFinder;
+import com.lordsofmidnight.ai.routefinding.routefinders.NextJunctionRouteFinder;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.maps.MapGenerator;
+import com.lordsofmidnight.gamestate.maps.OccupancyGrid;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import com.lordsofmidnight.objects.Entity;
+import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.utils.GameRandom;
+import com.lordsofmidnight.utils.enums.Difficulty;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link AILoopControl} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class AILoopControlTest {
+
+  private static final long SEED = 3L;
+  private static final int HIERARCHICAL_MAP_SIZE = 4;
+  private static final int NEXT_JUNCTION_AGENT = 2; // given a NextJunctionRouteFinder at NORMAL
+
+  private final Map map = new Map(MapGenerator.newRandomMap(1, 1, new GameRandom(SEED)));
+  private final Entity[] agents = newAgents();
+  private final AILoopControl ai =
+      new AILoopControl(
+          agents,
+          new int[0],
+          map,
+          new LinkedBlockingQueue<>(),
+          new PointMap<Pellet>(map),
+          new OccupancyGrid(map),
+          new GameRandom(SEED));
+
+  /** @return The agents of a game, the first of them MIPSman */
+  private static Entity[] newAgents() {
+    Entity[] agents = new Entity[5];
+    for (int i = 0; i < agents.length; i++) {
+      agents[i] = new Entity(i == 0, i, new Point(1.5, 1.5));
+    }
+    return agents;
+  }
+
+  @Test
+  void setHierarchicalMapSize() {
+    assertTrue(agents[NEXT_JUNCTION_AGENT].getRouteFinder() instanceof NextJunctionRouteFinder);
+    NextJunctionRouteFinder before =
+        (NextJunctionRouteFinder) agents[NEXT_JUNCTION_AGENT].getRouteFinder();
+    assertSame(MapAnalysis.of(map).getRoutingTable(), before.getRoutingTable());
+
+    ai.setHierarchicalMapSize(HIERARCHICAL_MAP_SIZE);
+    assertTrue(agents[NEXT_JUNCTION_AGENT].getRouteFinder() instanceof NextJunctionRouteFinder);
+    NextJunctionRouteFinder after =
+        (NextJunctionRouteFinder) agents[NEXT_JUNCTION_AGENT].getRouteFinder();
+    assertNotSame(before, after);
+    assertSame(
+        MapAnalysis.of(map).getRoutingTable(HIERARCHICAL_MAP_SIZE), after.getRoutingTable());
+    ai.killAI();
+  }
+
+  @Test
+  void setParallelDecisions() {
+    ai.setDifficulty(Difficulty.HARD);
+    RouteFinder before = agents[0].getRouteFinder();
+    assertTrue(before instanceof MonteCarloRouteFinder);
+    ai.setParallelDecisions(false);
+    assertTrue(agents[0].getRouteFinder() instanceof MonteCarloRouteFinder);
+    assertNotSame(before, agents[0].getRouteFinder()); // built again for a single worker
+    ai.killAI();
+  }
+}
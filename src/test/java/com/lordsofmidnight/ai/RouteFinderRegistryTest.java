@@ -0,0 +1,94 @@
+package com.lordsofmidnight.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.ai.routefinding.routefinders.RandomRouteFinder;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.GameRandom;
+import com.lordsofmidnight.utils.enums.Difficulty;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link RouteFinderRegistry} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class RouteFinderRegistryTest {
+
+  /** Route finder that is expensive to call. */
+  private static class SlowRouteFinder implements RouteFinder {
+
+    @Override
+    public Direction getRoute(Point myLocation, Point targetLocation) {
+      return DEFAULT;
+    }
+  }
+
+  @Test
+  void getRouteFinders() {
+    RouteFinderRegistry registry = new RouteFinderRegistry(new AIMetrics(4));
+    RouteFinder shared = new SlowRouteFinder();
+    registry.register(
+        Difficulty.NORMAL, agent -> shared, agent -> new RandomRouteFinder(new GameRandom(agent)));
+    RouteFinder[] routeFinders = registry.getRouteFinders(Difficulty.NORMAL, 4);
+    assertSame(shared, routeFinders[0]);
+    assertTrue(routeFinders[1] instanceof RandomRouteFinder);
+    assertTrue(routeFinders[3] instanceof RandomRouteFinder);
+    assertTrue(routeFinders[1] != routeFinders[2]);
+    // route finders are only created once for each agent
+    RouteFinder[] again = registry.getRouteFinders(Difficulty.NORMAL, 4);
+    for (int i = 0; i < routeFinders.length; i++) {
+      assertSame(routeFinders[i], again[i]);
+    }
+    assertFalse(registry.isRegistered(Difficulty.HARD));
+    assertThrows(
+        IllegalArgumentException.class, () -> registry.getRouteFinders(Difficulty.HARD, 4));
+    assertThrows(IllegalArgumentException.class, () -> registry.register(Difficulty.HARD));
+  }
+
+  @Test
+  void reset() {
+    RouteFinderRegistry registry = new RouteFinderRegistry(new AIMetrics(2));
+    registry.register(Difficulty.EASY, agent -> new RandomRouteFinder(new GameRandom(agent)));
+    registry.register(Difficulty.HARD, agent -> new SlowRouteFinder());
+    RouteFinder[] easy = registry.getRouteFinders(Difficulty.EASY, 2);
+    RouteFinder[] hard = registry.getRouteFinders(Difficulty.HARD, 2);
+    registry.reset(Difficulty.EASY);
+    assertEquals(-1, registry.getMeasuredCost(Difficulty.EASY), 1e-9);
+    RouteFinder[] again = registry.getRouteFinders(Difficulty.EASY, 2);
+    for (int i = 0; i < easy.length; i++) {
+      assertNotSame(easy[i], again[i]);
+      assertSame(hard[i], registry.getRouteFinders(Difficulty.HARD, 2)[i]); // other tiers are kept
+    }
+  }
+
+  @Test
+  void getCheaper() {
+    AIMetrics metrics = new AIMetrics(2);
+    RouteFinderRegistry registry = new RouteFinderRegistry(metrics);
+    registry.register(Difficulty.EASY, agent -> new RandomRouteFinder(new GameRandom(agent)));
+    registry.register(Difficulty.HARD, agent -> new SlowRouteFinder());
+    assertNull(registry.getCheaper(Difficulty.EASY));
+    // nothing has been measured, so the next registered easier difficulty is assumed cheaper
+    assertEquals(Difficulty.EASY, registry.getCheaper(Difficulty.HARD));
+
+    registry.getRouteFinders(Difficulty.EASY, 2);
+    registry.getRouteFinders(Difficulty.HARD, 2);
+    metrics.recordRoute(RandomRouteFinder.class, 1_000);
+    metrics.recordRoute(SlowRouteFinder.class, 50_000);
+    assertEquals(2_000, registry.getMeasuredCost(Difficulty.EASY), 1e-9);
+    assertEquals(100_000, registry.getMeasuredCost(Difficulty.HARD), 1e-9);
+    assertEquals(Difficulty.EASY, registry.getCheaper(Difficulty.HARD));
+
+    metrics.recordRoute(RandomRouteFinder.class, 500_000); // easy measured as more expensive
+    assertNull(registry.getCheaper(Difficulty.HARD));
+  }
+}
@@ -0,0 +1,81 @@
+package com.lordsofmidnight.ai.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link JunctionGraph} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class JunctionGraphTest {
+
+  private static final int[][] testMapRaw = {
+      {1, 1, 1, 1, 1, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 1, 1, 1, 1, 1}
+  };
+  private static final Map testMap = new Map(testMapRaw);
+
+  private static final int[][] tunnelMapRaw = { // loop from (0, 2) around to (4, 2)
+      {1, 1, 0, 1, 1},
+      {1, 0, 0, 0, 1},
+      {1, 0, 1, 0, 1},
+      {1, 0, 0, 0, 1},
+      {1, 1, 0, 1, 1}
+  };
+  private static final Map tunnelMap = new Map(tunnelMapRaw);
+
+  @Test
+  void getEdges() {
+    JunctionGraph graph = new JunctionGraph(testMap, Mapping.getJunctions(testMap));
+    assertEquals(4, graph.getJunctionCount());
+    assertEquals(8, graph.getEdgeCount());
+    int corner = graph.getId(new Point(1, 1));
+    int below = graph.getId(new Point(1, 4));
+    int right = graph.getId(new Point(3, 1));
+    assertEquals(2, graph.getEndEdge(corner) - graph.getFirstEdge(corner));
+    for (int edge = graph.getFirstEdge(corner); edge < graph.getEndEdge(corner); edge++) {
+      int target = graph.getEdgeTarget(edge);
+      assertTrue(target == below || target == right);
+      if (target == below) {
+        assertEquals(3, graph.getEdgeLength(edge));
+        assertEquals(Direction.DOWN, graph.getEdgeDirection(edge));
+      } else {
+        assertEquals(2, graph.getEdgeLength(edge));
+        assertEquals(Direction.RIGHT, graph.getEdgeDirection(edge));
+      }
+    }
+  }
+
+  @Test
+  void getEdgesAroundBoundary() {
+    JunctionGraph graph = new JunctionGraph(tunnelMap, Mapping.getJunctions(tunnelMap));
+    int left = graph.getId(new Point(1, 2));
+    int right = graph.getId(new Point(3, 2));
+    boolean found = false;
+    for (int edge = graph.getFirstEdge(left); edge < graph.getEndEdge(left); edge++) {
+      if (graph.getEdgeDirection(edge) == Direction.LEFT) {
+        assertEquals(right, graph.getEdgeTarget(edge));
+        assertEquals(3, graph.getEdgeLength(edge));
+        found = true;
+      }
+    }
+    assertTrue(found);
+  }
+
+  @Test
+  void estimateDistance() {
+    JunctionGraph graph = new JunctionGraph(tunnelMap, Mapping.getJunctions(tunnelMap));
+    int left = graph.getId(new Point(1, 2));
+    assertEquals(2, graph.estimateDistance(left, new Point(3, 2)), 1e-9);
+    assertEquals(2, graph.estimateDistance(left, new Point(4, 2)), 1e-9);
+  }
+}
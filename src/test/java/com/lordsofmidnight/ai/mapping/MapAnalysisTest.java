@@ -0,0 +1,67 @@
+package com.lordsofmidnight.ai.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link MapAnalysis} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class MapAnalysisTest {
+
+  private static final int[][] testMapRaw = { // loop from (0, 2) around to (4, 2)
+      {1, 1, 0, 1, 1},
+      {1, 0, 0, 0, 1},
+      {1, 0, 1, 0, 1},
+      {1, 0, 0, 0, 1},
+      {1, 1, 0, 1, 1}
+  };
+  private static final Map testMap = new Map(testMapRaw);
+
+  @Test
+  void of() {
+    MapAnalysis analysis = MapAnalysis.of(testMap);
+    assertSame(analysis, MapAnalysis.of(testMap));
+    assertSame(analysis.getRoutingTable(), MapAnalysis.of(testMap).getRoutingTable());
+    assertEquals(analysis.getJunctions().size(), analysis.getGraph().getJunctionCount());
+  }
+
+  @Test
+  void getRoutingTable() {
+    MapAnalysis analysis = MapAnalysis.of(testMap);
+    assertSame(analysis.getRoutingTable(4), analysis.getRoutingTable(4));
+    assertNotSame(analysis.getRoutingTable(4), analysis.getRoutingTable());
+    assertThrows(IllegalArgumentException.class, () -> analysis.getRoutingTable(0));
+  }
+
+  @Test
+  void isValidDirection() {
+    MapAnalysis analysis = MapAnalysis.of(testMap);
+    Point p = new Point(1.5, 2.5);
+    assertTrue(analysis.isValidDirection(p, Direction.UP));
+    assertTrue(analysis.isValidDirection(p, Direction.DOWN));
+    assertTrue(analysis.isValidDirection(p, Direction.LEFT));
+    assertFalse(analysis.isValidDirection(p, Direction.RIGHT));
+    assertTrue(analysis.isValidDirection(new Point(0.5, 2.5), Direction.LEFT));
+    assertEquals(0, analysis.getValidDirections(new Point(0.5, 0.5)));
+  }
+
+  @Test
+  void ofByIdentity() {
+    Map copy = new Map(testMapRaw);
+    MapAnalysis analysis = MapAnalysis.of(copy);
+    assertSame(copy, analysis.getMap());
+    assertSame(testMap, MapAnalysis.of(testMap).getMap());
+    assertSame(analysis, MapAnalysis.of(copy));
+  }
+}
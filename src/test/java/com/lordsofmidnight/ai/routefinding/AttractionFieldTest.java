@@ -0,0 +1,112 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.objects.PowerUpBox;
+import com.lordsofmidnight.utils.GameRandom;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link AttractionField} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class AttractionFieldTest {
+
+  private static final int[][] testMapRaw = {
+      {1, 1, 1, 1, 1, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 1, 1, 1, 1, 1}
+  };
+  private static final Map testMap = new Map(testMapRaw);
+
+  private static PointMap<Pellet> boxes(Point... locations) {
+    PointMap<Pellet> pellets = new PointMap<>(testMap);
+    for (Point location : locations) {
+      pellets.put(
+          location,
+          new PowerUpBox(
+              new Point(location.getX() + 0.5, location.getY() + 0.5), new GameRandom(1)));
+    }
+    return pellets;
+  }
+
+  private static void assertMatchesSearch(
+      AttractionField field, PointMap<Pellet> pellets, int depth) {
+    SampleSearch sampleSearch = new SampleSearch(depth, testMap);
+    for (int x = 0; x < testMap.getMaxX(); x++) {
+      for (int y = 0; y < testMap.getMaxY(); y++) {
+        Point start = new Point(x + 0.5, y + 0.5);
+        if (testMap.isWall(start)) {
+          continue;
+        }
+        int[] counts =
+            sampleSearch.getDirectionCounts(
+                start,
+                p -> {
+                  Pellet pellet = pellets.get(p);
+                  return pellet != null && AttractionField.ACTIVE_POWER_UP_BOXES.test(pellet);
+                });
+        for (Direction d : Direction.MOVEMENT_DIRECTIONS) {
+          assertEquals(
+              counts[d.toInt()], field.getValue(start, d, depth), start + " " + d + " " + depth);
+        }
+      }
+    }
+  }
+
+  @Test
+  void getValue() {
+    PointMap<Pellet> pellets = boxes(new Point(3, 1), new Point(1, 3));
+    AttractionField field =
+        new AttractionField(testMap, pellets, AttractionField.ACTIVE_POWER_UP_BOXES, 10, 2);
+    assertEquals(9, field.getValue(new Point(1.5, 1.5), Direction.RIGHT, 10));
+    assertEquals(1, field.getValue(new Point(1.5, 1.5), Direction.DOWN, 2));
+    assertMatchesSearch(field, pellets, 10);
+    assertMatchesSearch(field, pellets, 2);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> field.getValue(new Point(1.5, 1.5), Direction.RIGHT, 5));
+  }
+
+  @Test
+  void pelletChanged() {
+    Point box = new Point(3, 1);
+    PointMap<Pellet> pellets = boxes(box, new Point(1, 3));
+    AttractionField field =
+        new AttractionField(testMap, pellets, AttractionField.ACTIVE_POWER_UP_BOXES, 10, 2);
+    pellets.get(box).setActive(false);
+    // not applied until the change is reported and the field updated
+    assertEquals(9, field.getValue(new Point(1.5, 1.5), Direction.RIGHT, 10));
+    field.pelletChanged(box);
+    field.update();
+    assertEquals(0, field.getValue(new Point(1.5, 1.5), Direction.RIGHT, 10));
+    assertMatchesSearch(field, pellets, 10);
+    assertMatchesSearch(field, pellets, 2);
+
+    pellets.get(box).setActive(true);
+    field.pelletsChanged();
+    field.update();
+    assertEquals(9, field.getValue(new Point(1.5, 1.5), Direction.RIGHT, 10));
+    assertMatchesSearch(field, pellets, 10);
+  }
+
+  @Test
+  void invalidDepths() {
+    PointMap<Pellet> pellets = boxes();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new AttractionField(testMap, pellets, AttractionField.ACTIVE_POWER_UP_BOXES));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new AttractionField(testMap, pellets, AttractionField.ACTIVE_POWER_UP_BOXES, 0));
+  }
+}
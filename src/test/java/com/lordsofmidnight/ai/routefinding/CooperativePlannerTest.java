@@ -0,0 +1,94 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link CooperativePlanner} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class CooperativePlannerTest {
+
+  // a ring of squares around a single wall
+  private static final int[][] ringRaw = {
+      {1, 1, 1, 1, 1},
+      {1, 0, 0, 0, 1},
+      {1, 0, 1, 0, 1},
+      {1, 0, 0, 0, 1},
+      {1, 1, 1, 1, 1}
+  };
+  private static final Map ring = new Map(ringRaw);
+  private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  private static CooperativePlanner planner(Point target) {
+    FlowField field = new FlowField(ring);
+    field.update(target);
+    return new CooperativePlanner(field);
+  }
+
+  @Test
+  void singleAgentFollowsField() {
+    CooperativePlanner planner = planner(new Point(3.5, 3.5));
+    Point start = new Point(1.5, 1.5);
+    planner.plan(new Point[] {start}, new Direction[] {Direction.STOP}, 1, NO_DEADLINE);
+    assertEquals(planner.getField().getDirection(start), planner.getDirection(start));
+  }
+
+  @Test
+  void agentsSpreadOut() {
+    CooperativePlanner planner = planner(new Point(3.5, 3.5));
+    Point start = new Point(1.5, 1.5);
+    planner.plan(
+        new Point[] {start, start.getCopy()},
+        new Direction[] {Direction.STOP, Direction.STOP},
+        2,
+        NO_DEADLINE);
+    Direction first = planner.getDirection(start);
+    Direction second = planner.getDirection(start);
+    assertTrue(first == Direction.DOWN || first == Direction.RIGHT);
+    assertTrue(second == Direction.DOWN || second == Direction.RIGHT);
+    assertNotEquals(first, second);
+  }
+
+  @Test
+  void closestAgentTakesDirectRoute() {
+    CooperativePlanner planner = planner(new Point(3.5, 1.5));
+    Point far = new Point(1.5, 3.5);
+    Point near = new Point(1.5, 1.5);
+    // the near agent is planned first, so the far agent goes around the other side of the ring
+    // rather than following it, although the field alone would send it up
+    planner.plan(
+        new Point[] {far, near},
+        new Direction[] {Direction.STOP, Direction.STOP},
+        2,
+        NO_DEADLINE);
+    assertEquals(Direction.RIGHT, planner.getDirection(near));
+    assertEquals(Direction.UP, planner.getField().getDirection(far));
+    assertEquals(Direction.RIGHT, planner.getDirection(far));
+  }
+
+  @Test
+  void movingAgentKeepsDirection() {
+    CooperativePlanner planner = planner(new Point(3.5, 3.5));
+    Point moving = new Point(1.7, 1.5); // between squares, committed to moving right
+    planner.plan(new Point[] {moving}, new Direction[] {Direction.RIGHT}, 1, NO_DEADLINE);
+    // no direction is given out, so an agent stopped in the same square follows the field
+    Point stopped = new Point(1.5, 1.5);
+    assertEquals(Direction.DOWN, planner.getField().getDirection(stopped));
+    assertEquals(Direction.DOWN, planner.getDirection(stopped));
+  }
+
+  @Test
+  void invalidHorizon() {
+    FlowField field = new FlowField(ring);
+    assertThrows(IllegalArgumentException.class, () -> new CooperativePlanner(field, 0));
+  }
+}
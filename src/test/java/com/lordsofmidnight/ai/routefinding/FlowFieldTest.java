@@ -0,0 +1,69 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link FlowField} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class FlowFieldTest {
+
+  private static final int[][] testMapRaw = {
+      {1, 1, 1, 1, 1, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 1, 1, 1, 1, 1}
+  };
+  private static final Map testMap = new Map(testMapRaw);
+
+  private static final int[][] loopMapRaw = {
+      {1, 1, 1, 1, 1},
+      {0, 0, 0, 0, 0},
+      {1, 1, 1, 1, 1}
+  };
+  private static final Map loopMap = new Map(loopMapRaw);
+
+  @Test
+  void update() {
+    FlowField field = new FlowField(testMap);
+    assertTrue(field.update(new Point(1.5, 1.5)));
+    assertFalse(field.update(new Point(1.2, 1.7)));
+    assertTrue(field.update(new Point(3.5, 4.5)));
+  }
+
+  @Test
+  void getDistance() {
+    FlowField field = new FlowField(testMap);
+    field.update(new Point(1.5, 1.5));
+    assertEquals(0, field.getDistance(new Point(1.5, 1.5)));
+    assertEquals(3, field.getDistance(new Point(1.5, 4.5)));
+    assertEquals(5, field.getDistance(new Point(3.5, 4.5)));
+    assertEquals(FlowField.UNREACHABLE, field.getDistance(new Point(0.5, 0.5)));
+  }
+
+  @Test
+  void getDirection() {
+    FlowField field = new FlowField(testMap);
+    field.update(new Point(1.5, 1.5));
+    assertEquals(Direction.UP, field.getDirection(new Point(1.5, 3.5)));
+    assertEquals(Direction.LEFT, field.getDirection(new Point(3.5, 1.5)));
+    assertEquals(Direction.STOP, field.getDirection(new Point(1.5, 1.5)));
+  }
+
+  @Test
+  void getDirectionAroundLoop() {
+    FlowField field = new FlowField(loopMap);
+    field.update(new Point(1.5, 0.5));
+    assertEquals(1, field.getDistance(new Point(1.5, 4.5)));
+    assertEquals(Direction.DOWN, field.getDirection(new Point(1.5, 4.5)));
+  }
+}
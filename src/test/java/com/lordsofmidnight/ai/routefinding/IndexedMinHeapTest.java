@@ -0,0 +1,56 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link IndexedMinHeap} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class IndexedMinHeapTest {
+
+  @Test
+  void pollOrder() {
+    IndexedMinHeap heap = new IndexedMinHeap(10);
+    double[] priorities = {5, 3, 9, 1, 7, 2, 8, 0, 6, 4};
+    for (int i = 0; i < priorities.length; i++) {
+      heap.insertOrDecrease(i, priorities[i]);
+    }
+    int[] expected = {7, 3, 5, 1, 9, 0, 8, 4, 6, 2};
+    for (int id : expected) {
+      assertEquals(id, heap.poll());
+    }
+    assertTrue(heap.isEmpty());
+  }
+
+  @Test
+  void insertOrDecrease() {
+    IndexedMinHeap heap = new IndexedMinHeap(3);
+    assertTrue(heap.insertOrDecrease(0, 5));
+    assertTrue(heap.insertOrDecrease(1, 4));
+    assertTrue(heap.insertOrDecrease(2, 3));
+    assertTrue(heap.insertOrDecrease(0, 1));
+    assertFalse(heap.insertOrDecrease(2, 10));
+    assertEquals(3, heap.size());
+    assertEquals(0, heap.poll());
+    assertEquals(2, heap.poll());
+    assertEquals(1, heap.poll());
+  }
+
+  @Test
+  void clear() {
+    IndexedMinHeap heap = new IndexedMinHeap(4);
+    heap.insertOrDecrease(1, 1);
+    heap.insertOrDecrease(3, 2);
+    heap.clear();
+    assertTrue(heap.isEmpty());
+    assertFalse(heap.contains(1));
+    assertFalse(heap.contains(3));
+    heap.insertOrDecrease(3, 7);
+    assertEquals(3, heap.poll());
+  }
+}
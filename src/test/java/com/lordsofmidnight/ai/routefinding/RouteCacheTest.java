@@ -0,0 +1,45 @@
+package com.lordsofmidnight.ai.routefinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link RouteCache} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class RouteCacheTest {
+
+  @Test
+  void key() {
+    assertNotEquals(RouteCache.key(1, 2), RouteCache.key(2, 1));
+    assertNotEquals(RouteCache.key(0, 1), RouteCache.key(1, 0));
+  }
+
+  @Test
+  void getCountsHitsAndMisses() {
+    RouteCache cache = new RouteCache(4);
+    assertNull(cache.get(RouteCache.key(0, 1)));
+    cache.put(RouteCache.key(0, 1), Direction.LEFT);
+    assertEquals(Direction.LEFT, cache.get(RouteCache.key(0, 1)));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void leastRecentlyUsedDiscarded() {
+    RouteCache cache = new RouteCache(2);
+    cache.put(RouteCache.key(0, 1), Direction.UP);
+    cache.put(RouteCache.key(0, 2), Direction.DOWN);
+    cache.get(RouteCache.key(0, 1)); // key(0, 2) is now the least recently used
+    cache.put(RouteCache.key(0, 3), Direction.RIGHT);
+    assertEquals(2, cache.size());
+    assertEquals(Direction.UP, cache.get(RouteCache.key(0, 1)));
+    assertNull(cache.get(RouteCache.key(0, 2)));
+    assertEquals(Direction.RIGHT, cache.get(RouteCache.key(0, 3)));
+  }
+}
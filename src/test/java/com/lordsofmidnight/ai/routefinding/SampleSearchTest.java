@@ -1,12 +1,60 @@
 package com.lordsofmidnight.ai.routefinding;
 
-import org.junit.jupiter.api.Test;
-
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
 class SampleSearchTest {
 
+  private static final int[][] testMapRaw = {
+      {1, 1, 1, 1, 1, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 1, 1, 1, 1, 1}
+  };
+  private static final Map testMap = new Map(testMapRaw);
+
   @Test
   void getDirectionCounts() {
+    SampleSearch sampleSearch = new SampleSearch(10, testMap);
+    Point target = new Point(3, 1);
+    int[] counts = sampleSearch.getDirectionCounts(new Point(1.5, 1.5), target::equals);
+    assertArrayEquals(new int[] {0, 0, 0, 9}, counts);
+    // a second search from the same instance must not be affected by the first
+    counts = sampleSearch.getDirectionCounts(new Point(1.5, 1.5), target::equals);
+    assertEquals(9, counts[Direction.RIGHT.toInt()]);
+  }
+
+  @Test
+  void getDirectionCountsFused() {
+    SampleSearch sampleSearch = new SampleSearch(10, testMap);
+    Point right = new Point(3, 1);
+    Point down = new Point(1, 3);
+    SampleSearch.ConditionalInterface[] conditions = {right::equals, down::equals, right::equals};
+    int[] depths = {10, 2, 1};
+    int[][] counts = new int[3][4];
+    sampleSearch.getDirectionCounts(new Point(1.5, 1.5), conditions, depths, counts);
+    assertArrayEquals(new int[] {0, 0, 0, 9}, counts[0]);
+    assertArrayEquals(new int[] {0, 1, 0, 0}, counts[1]);
+    assertArrayEquals(new int[] {0, 0, 0, 0}, counts[2]);
+  }
+
+  @Test
+  void getDirectionCountsExpiredDeadline() {
+    SampleSearch sampleSearch = new SampleSearch(10, testMap);
+    Point far = new Point(3, 1);
+    Point near = new Point(2, 1);
+    SampleSearch.ConditionalInterface[] conditions = {far::equals, near::equals};
+    int[] depths = {10, 10};
+    int[][] counts = new int[2][4];
+    // only the squares next to the start are reached before the deadline is checked
+    sampleSearch.getDirectionCounts(
+        new Point(1.5, 1.5), conditions, depths, counts, System.nanoTime() - 1);
+    assertArrayEquals(new int[] {0, 0, 0, 0}, counts[0]);
+    assertArrayEquals(new int[] {0, 0, 0, 10}, counts[1]);
   }
-}
\ No newline at end of file
+}
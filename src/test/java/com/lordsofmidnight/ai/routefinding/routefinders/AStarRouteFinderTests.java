@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import com.lordsofmidnight.ai.routefinding.RouteFinder;
 import com.lordsofmidnight.gamestate.maps.Map;
 import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -30,4 +31,22 @@ class AStarRouteFinderTests {
   void testGetRoute() {
     fail("Not yet implemented");
   }
+
+  /**
+   * Test method for {@link AStarRouteFinder#getRoute(Point, Point, long)} when the deadline has
+   * already passed.
+   */
+  @Test
+  void testGetRouteExpiredDeadline() {
+    int[][] latticeRaw = new int[41][41];
+    for (int x = 0; x < latticeRaw.length; x++) {
+      for (int y = 0; y < latticeRaw[x].length; y++) {
+        latticeRaw[x][y] = (x % 2 == 0 && y % 2 == 0) ? 1 : 0;
+      }
+    }
+    AStarRouteFinder aStar = new AStarRouteFinder(new Map(latticeRaw));
+    Direction direction =
+        aStar.getRoute(new Point(1.5, 1.5), new Point(21.5, 21.5), System.nanoTime() - 1);
+    assertNotEquals(RouteFinder.DEFAULT, direction);
+  }
 }
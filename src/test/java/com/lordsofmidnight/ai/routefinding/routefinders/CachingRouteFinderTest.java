@@ -0,0 +1,59 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.lordsofmidnight.ai.mapping.JunctionGraph;
+import com.lordsofmidnight.ai.mapping.Mapping;
+import com.lordsofmidnight.ai.routefinding.RouteCache;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link CachingRouteFinder} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class CachingRouteFinderTest {
+
+  private static final int[][] testMapRaw = {
+      {1, 1, 1, 1, 1, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 1, 1, 1, 1, 1}
+  };
+  private static final Map testMap = new Map(testMapRaw);
+
+  @Test
+  void getRoute() {
+    PointSet junctions = Mapping.getJunctions(testMap);
+    JunctionGraph graph = new JunctionGraph(testMap, junctions);
+    AStarRouteFinder aStar = new AStarRouteFinder(junctions, graph, testMap);
+    RouteCache cache = new RouteCache();
+    CachingRouteFinder routeFinder =
+        new CachingRouteFinder(aStar, graph, junctions, testMap, cache);
+
+    Point start = new Point(1.5, 1.5);
+    Point target = new Point(3.5, 4.5);
+    assertEquals(aStar.getRoute(start, target), routeFinder.getRoute(start, target));
+    assertEquals(0, cache.getHits());
+    assertEquals(aStar.getRoute(start, target), routeFinder.getRoute(start, target));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void getRouteNotAtJunction() {
+    PointSet junctions = Mapping.getJunctions(testMap);
+    JunctionGraph graph = new JunctionGraph(testMap, junctions);
+    RouteCache cache = new RouteCache();
+    CachingRouteFinder routeFinder =
+        new CachingRouteFinder(
+            new AStarRouteFinder(junctions, graph, testMap), graph, junctions, testMap, cache);
+
+    routeFinder.getRoute(new Point(1.5, 2.5), new Point(3.5, 4.5));
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,82 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.ai.mapping.JunctionGraph;
+import com.lordsofmidnight.ai.mapping.Mapping;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointSet;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link HierarchicalRouteFinder} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class HierarchicalRouteFinderTest {
+
+  private static final int SIZE = 21;
+  private static final Map latticeMap = new Map(lattice());
+
+  /** @return A map with a corridor along every odd row and column, surrounded by walls */
+  private static int[][] lattice() {
+    int[][] raw = new int[SIZE][SIZE];
+    for (int x = 0; x < SIZE; x++) {
+      for (int y = 0; y < SIZE; y++) {
+        boolean border = x == 0 || y == 0 || x == SIZE - 1 || y == SIZE - 1;
+        raw[x][y] = (!border && (x % 2 == 1 || y % 2 == 1)) ? 0 : 1;
+      }
+    }
+    return raw;
+  }
+
+  /**
+   * Follows the routes produced from junction to junction until the target is reached.
+   *
+   * @return The number of squares travelled, or -1 if the target was not reached
+   */
+  private static int travel(HierarchicalRouteFinder routeFinder, Point start, Point target) {
+    PointSet junctions = Mapping.getJunctions(latticeMap);
+    Point position = start.getGridCoord();
+    int distance = 0;
+    for (int i = 0; i < SIZE * SIZE && !position.equals(target.getGridCoord()); i++) {
+      Direction direction = routeFinder.getRoute(position, target);
+      if (!direction.isMovementDirection()) {
+        return -1;
+      }
+      Point next = position.getCopy().moveInDirection(1, direction);
+      next = Mapping.findNextJunction(next, direction, latticeMap, junctions).getGridCoord();
+      distance +=
+          (int) (Math.abs(next.getX() - position.getX()) + Math.abs(next.getY() - position.getY()));
+      position = next;
+    }
+    return position.equals(target.getGridCoord()) ? distance : -1;
+  }
+
+  @Test
+  void getRouteReachesTarget() {
+    PointSet junctions = Mapping.getJunctions(latticeMap);
+    JunctionGraph graph = new JunctionGraph(latticeMap, junctions);
+    HierarchicalRouteFinder routeFinder =
+        new HierarchicalRouteFinder(latticeMap, junctions, graph, 5);
+    Point start = new Point(1, 1);
+    Point target = new Point(19, 19);
+    int distance = travel(routeFinder, start, target);
+    assertTrue(distance >= 36);
+    assertTrue(distance <= 36 * 3 / 2);
+  }
+
+  @Test
+  void getRouteWithinCluster() {
+    PointSet junctions = Mapping.getJunctions(latticeMap);
+    JunctionGraph graph = new JunctionGraph(latticeMap, junctions);
+    HierarchicalRouteFinder routeFinder =
+        new HierarchicalRouteFinder(latticeMap, junctions, graph, 5);
+    assertEquals(Direction.RIGHT, routeFinder.getRoute(new Point(1, 1), new Point(3, 1)));
+    assertEquals(Direction.DOWN, routeFinder.getRoute(new Point(1, 1), new Point(1, 3)));
+    assertEquals(Direction.STOP, routeFinder.getRoute(new Point(1, 1), new Point(1, 1)));
+  }
+}
@@ -0,0 +1,90 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import com.lordsofmidnight.objects.Entity;
+import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.utils.GameRandom;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link MonteCarloRouteFinder} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class MonteCarloRouteFinderTest {
+
+  private static final int CORRIDOR_LENGTH = 10;
+
+  /** @return A map holding a single dead-end corridor along y = 1, from x = 1 to x = 8 */
+  private static Map corridor() {
+    int[][] raw = new int[CORRIDOR_LENGTH][3];
+    for (int x = 0; x < CORRIDOR_LENGTH; x++) {
+      for (int y = 0; y < 3; y++) {
+        raw[x][y] = (y == 1 && x > 0 && x < CORRIDOR_LENGTH - 1) ? 0 : 1;
+      }
+    }
+    return new Map(raw);
+  }
+
+  private static PointMap<Pellet> pellets(Map map, int fromX, int toX) {
+    PointMap<Pellet> pellets = new PointMap<>(map);
+    for (int x = fromX; x <= toX; x++) {
+      pellets.put(new Point(x, 1), new Pellet(new Point(x + 0.5, 1.5), new GameRandom(x)));
+    }
+    return pellets;
+  }
+
+  @Test
+  void getRouteCollectsPellets() {
+    Map map = corridor();
+    Point start = new Point(4.5, 1.5);
+    Entity[] agents = {new Entity(true, 0, start)};
+    MonteCarloRouteFinder routeFinder =
+        new MonteCarloRouteFinder(agents, map, pellets(map, 5, 8), 2, 20, new GameRandom(1));
+    assertEquals(Direction.RIGHT, routeFinder.getRoute(start, start));
+    // the kept trees must not stop a later decision from being made
+    assertEquals(Direction.RIGHT, routeFinder.getRoute(start, start));
+  }
+
+  @Test
+  void getRouteAvoidsGhouls() {
+    Map map = corridor();
+    Point start = new Point(3.5, 1.5);
+    Entity[] agents = {new Entity(true, 0, start), new Entity(false, 1, new Point(1.5, 1.5))};
+    MonteCarloRouteFinder routeFinder =
+        new MonteCarloRouteFinder(agents, map, pellets(map, 1, 8), 2, 20, new GameRandom(2));
+    assertEquals(Direction.RIGHT, routeFinder.getRoute(start, start));
+  }
+
+  @Test
+  void getRouteExpiredDeadline() {
+    Map map = corridor();
+    Point start = new Point(4.5, 1.5);
+    Entity[] agents = {new Entity(true, 0, start)};
+    MonteCarloRouteFinder routeFinder =
+        new MonteCarloRouteFinder(agents, map, pellets(map, 1, 8), 1, 20, new GameRandom(3));
+    // a single iteration is run before the deadline is checked, giving some valid direction
+    Direction direction = routeFinder.getRoute(start, start, System.nanoTime() - 1);
+    assertTrue(direction == Direction.LEFT || direction == Direction.RIGHT);
+  }
+
+  @Test
+  void invalidArguments() {
+    Map map = corridor();
+    Entity[] agents = {new Entity(true, 0, new Point(4.5, 1.5))};
+    PointMap<Pellet> pellets = pellets(map, 1, 8);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new MonteCarloRouteFinder(agents, map, pellets, 0, 20, new GameRandom()));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new MonteCarloRouteFinder(agents, map, pellets, 1, 0, new GameRandom()));
+  }
+}
@@ -0,0 +1,102 @@
+package com.lordsofmidnight.ai.routefinding.routefinders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.lordsofmidnight.ai.mapping.Mapping;
+import com.lordsofmidnight.ai.routefinding.RouteFinder;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointSet;
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link RoutingTableRouteFinder} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class RoutingTableRouteFinderTest {
+
+  private static final int[][] testMapRaw = {
+      {1, 1, 1, 1, 1, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 1, 1, 1, 1, 1}
+  };
+  private static final Map testMap = new Map(testMapRaw);
+
+  private static final int[][] tunnelMapRaw = { // loop from (0, 2) around to (4, 2)
+      {1, 1, 0, 1, 1},
+      {1, 0, 0, 0, 1},
+      {1, 0, 1, 0, 1},
+      {1, 0, 0, 0, 1},
+      {1, 1, 0, 1, 1}
+  };
+  private static final Map tunnelMap = new Map(tunnelMapRaw);
+
+  @Test
+  void getDistance() {
+    RoutingTableRouteFinder routeFinder = new RoutingTableRouteFinder(testMap);
+    assertEquals(0, routeFinder.getDistance(new Point(1, 1), new Point(1, 1)));
+    assertEquals(3, routeFinder.getDistance(new Point(1, 1), new Point(1, 4)));
+    assertEquals(2, routeFinder.getDistance(new Point(1, 1), new Point(3, 1)));
+    assertEquals(5, routeFinder.getDistance(new Point(1, 1), new Point(3, 4)));
+    assertEquals(-1, routeFinder.getDistance(new Point(1, 2), new Point(3, 4)));
+  }
+
+  @Test
+  void getRoute() {
+    RoutingTableRouteFinder routeFinder = new RoutingTableRouteFinder(testMap);
+    assertEquals(Direction.DOWN, routeFinder.getRoute(new Point(1.5, 1.5), new Point(1.5, 4.5)));
+    assertEquals(Direction.RIGHT, routeFinder.getRoute(new Point(1.5, 1.5), new Point(3.5, 1.5)));
+    assertEquals(Direction.UP, routeFinder.getRoute(new Point(3.5, 4.5), new Point(3.5, 1.5)));
+    assertEquals(
+        RouteFinder.DEFAULT, routeFinder.getRoute(new Point(1.5, 1.5), new Point(1.5, 1.5)));
+  }
+
+  @Test
+  void getRouteAroundBoundary() {
+    RoutingTableRouteFinder routeFinder = new RoutingTableRouteFinder(tunnelMap);
+    assertEquals(3, routeFinder.getDistance(new Point(1, 2), new Point(3, 2)));
+    assertEquals(Direction.LEFT, routeFinder.getRoute(new Point(1.5, 2.5), new Point(3.5, 2.5)));
+    assertEquals(
+        Direction.LEFT,
+        new AStarRouteFinder(tunnelMap).getRoute(new Point(1.5, 2.5), new Point(3.5, 2.5)));
+  }
+
+  @Test
+  void matchesAStar() {
+    RoutingTableRouteFinder routeFinder = new RoutingTableRouteFinder(testMap);
+    AStarRouteFinder aStar = new AStarRouteFinder(testMap);
+    PointSet junctions = Mapping.getJunctions(testMap);
+    for (Point start : junctions) {
+      for (Point target : junctions) {
+        Direction tableRoute = routeFinder.getRoute(start, target);
+        Direction aStarRoute = aStar.getRoute(start, target);
+        assertEquals(aStarRoute == RouteFinder.DEFAULT, tableRoute == RouteFinder.DEFAULT);
+        if (tableRoute != RouteFinder.DEFAULT) {
+          assertEquals(
+              routeFinder.getDistance(start, target),
+              distanceVia(routeFinder, start, target, tableRoute, junctions));
+          assertEquals(
+              routeFinder.getDistance(start, target),
+              distanceVia(routeFinder, start, target, aStarRoute, junctions));
+        }
+      }
+    }
+  }
+
+  private int distanceVia(
+      RoutingTableRouteFinder routeFinder,
+      Point start,
+      Point target,
+      Direction direction,
+      PointSet junctions) {
+    Point next = start.getCopy().centralise().moveInDirection(1, direction);
+    Point junction = Mapping.findNextJunction(next, direction, testMap, junctions);
+    int edgeLength =
+        (int) (Math.abs(junction.getX() - start.getX()) + Math.abs(junction.getY() - start.getY()));
+    return edgeLength + routeFinder.getDistance(junction, target);
+  }
+}
@@ -0,0 +1,181 @@
+package com.lordsofmidnight.gamestate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.gamestate.points.PointMap;
+import com.lordsofmidnight.objects.Entity;
+import com.lordsofmidnight.objects.Pellet;
+import com.lordsofmidnight.objects.powerUps.PowerUp;
+import com.lordsofmidnight.utils.GameRandom;
+import com.lordsofmidnight.utils.enums.Direction;
+import com.lordsofmidnight.utils.enums.PowerUps;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link WorldState} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class WorldStateTest {
+
+  private static final int CORRIDOR_LENGTH = 10;
+  private static final Map corridor = corridor();
+
+  /** @return A map holding a single dead-end corridor along y = 1, from x = 1 to x = 8 */
+  private static Map corridor() {
+    int[][] raw = new int[CORRIDOR_LENGTH][3];
+    for (int x = 0; x < CORRIDOR_LENGTH; x++) {
+      for (int y = 0; y < 3; y++) {
+        raw[x][y] = (y == 1 && x > 0 && x < CORRIDOR_LENGTH - 1) ? 0 : 1;
+      }
+    }
+    return new Map(raw);
+  }
+
+  /** @return A state with MIPSman at (2.5, 1.5) and a ghoul at (7.5, 1.5), both stopped */
+  private static WorldState twoAgents() {
+    WorldState state = new WorldState(corridor, 2, 1000);
+    state.setMipsman(0, true);
+    state.setLocation(0, 2.5, 1.5);
+    state.setLocation(1, 7.5, 1.5);
+    return state;
+  }
+
+  @Test
+  void stepMovesUntilWall() {
+    WorldState state = twoAgents();
+    GameRandom random = new GameRandom(1);
+    state.applyInput(0, Direction.RIGHT);
+    state.applyInput(1, Direction.RIGHT);
+    state.step(random);
+    assertEquals(2.58, state.getX(0), 1e-9);
+    assertEquals(7.56, state.getX(1), 1e-9);
+    state.applyInput(0, Direction.UP); // not at the centre of a square, so ignored
+    assertEquals(Direction.RIGHT, state.getDirection(0));
+    for (int i = 0; i < 30 && state.getDirection(1) != Direction.STOP; i++) {
+      state.step(random);
+    }
+    // stopped in the centre of the last square once its face reached the wall
+    assertEquals(Direction.STOP, state.getDirection(1));
+    assertEquals(8.5, state.getX(1), 1e-9);
+  }
+
+  @Test
+  void stepCollectsPellets() {
+    WorldState state = twoAgents();
+    int mipsmanCell = state.cellOf(2.5, 1.5);
+    int ghoulCell = state.cellOf(7.5, 1.5);
+    state.setPellet(mipsmanCell, WorldState.PELLET, 2000);
+    state.setPellet(ghoulCell, WorldState.PELLET, 2000);
+    state.step(new GameRandom(1));
+    assertEquals(1, state.getScore(0));
+    assertFalse(state.isPelletActive(mipsmanCell));
+    assertEquals(0, state.getScore(1)); // ghouls cannot collect pellets
+    assertTrue(state.isPelletActive(ghoulCell));
+  }
+
+  @Test
+  void stepCatchesMipsman() {
+    WorldState state = twoAgents();
+    state.setLocation(1, 4.5, 1.5);
+    state.applyInput(1, Direction.LEFT);
+    GameRandom random = new GameRandom(1);
+    for (int i = 0; i < 50 && !state.isDead(0); i++) {
+      state.step(random);
+    }
+    assertTrue(state.isDead(0));
+    assertFalse(state.isMipsman(0));
+    assertTrue(state.isMipsman(1));
+    assertEquals(1, state.getKills(1));
+  }
+
+  @Test
+  void copyIsIndependent() {
+    WorldState state = twoAgents();
+    state.applyInput(0, Direction.RIGHT);
+    WorldState copy = state.copy();
+    copy.step(new GameRandom(1));
+    assertEquals(2.5, state.getX(0), 1e-9);
+    assertEquals(2.58, copy.getX(0), 1e-9);
+    state.copyFrom(copy);
+    assertEquals(2.58, state.getX(0), 1e-9);
+  }
+
+  @Test
+  void powerUpsRunOut() {
+    WorldState state = twoAgents();
+    GameRandom random = new GameRandom(1);
+    state.giveItem(0, PowerUps.SPEED);
+    state.giveItem(0, PowerUps.INVINCIBLE);
+    state.applyInput(0, Direction.USE);
+    assertEquals(0.11, state.getVelocity(0), 1e-9);
+    assertEquals(PowerUps.INVINCIBLE.toInt(), state.getItem(0, 0));
+    state.applyInput(0, Direction.USE);
+    assertTrue(state.isInvincible(0));
+    assertEquals(2, state.getActivePowerUpCount());
+    for (int i = 0; i < 200; i++) {
+      state.step(random);
+    }
+    assertFalse(state.isInvincible(0));
+    assertEquals(0.11, state.getVelocity(0), 1e-9);
+    for (int i = 0; i < 100; i++) {
+      state.step(random);
+    }
+    assertEquals(0.08, state.getVelocity(0), 1e-9);
+    assertEquals(0, state.getActivePowerUpCount());
+  }
+
+  @Test
+  void webStunsGhoul() {
+    WorldState state = twoAgents();
+    state.setLocation(0, 5.5, 1.5);
+    state.setLocation(1, 2.5, 1.5);
+    state.applyInput(0, Direction.RIGHT); // facing right, so the web drops behind to the left
+    state.giveItem(0, PowerUps.WEB);
+    state.applyInput(0, Direction.USE);
+    int web = state.cellOf(4.5, 1.5);
+    assertEquals(WorldState.POWER_UP_BOX, state.getPelletKind(web));
+    state.applyInput(1, Direction.RIGHT);
+    GameRandom random = new GameRandom(1);
+    for (int i = 0; i < 40 && !state.isStunned(1); i++) {
+      state.step(random);
+    }
+    assertTrue(state.isStunned(1));
+    assertEquals(0, state.getVelocity(1), 1e-9);
+    // the web is replaced with a pellet once triggered
+    assertEquals(WorldState.PELLET, state.getPelletKind(web));
+  }
+
+  @Test
+  void capture() {
+    Entity[] agents = {
+      new Entity(true, 0, new Point(3.5, 1.5, corridor)),
+      new Entity(false, 1, new Point(6.5, 1.5, corridor))
+    };
+    agents[1].setDirection(Direction.LEFT);
+    agents[0].setScore(5);
+    PointMap<Pellet> pellets = new PointMap<>(corridor);
+    pellets.put(new Point(4, 1), new Pellet(new Point(4.5, 1.5), new GameRandom(1)));
+    Pellet collected = new Pellet(new Point(5.5, 1.5), new GameRandom(2));
+    collected.setActive(false);
+    pellets.put(new Point(5, 1), collected);
+    WorldState state =
+        WorldState.capture(corridor, agents, pellets, new ConcurrentHashMap<UUID, PowerUp>(), 500);
+    assertEquals(2, state.getAgentCount());
+    assertEquals(3.5, state.getX(0), 1e-9);
+    assertTrue(state.isMipsman(0));
+    assertEquals(5, state.getScore(0));
+    assertEquals(Direction.LEFT, state.getDirection(1));
+    assertEquals(0.06, state.getVelocity(1), 1e-9);
+    assertTrue(state.isPelletActive(state.cellOf(4.5, 1.5)));
+    assertFalse(state.isPelletActive(state.cellOf(5.5, 1.5)));
+    assertEquals(WorldState.NONE, state.getPelletKind(state.cellOf(2.5, 1.5)));
+    assertEquals(500, state.getGameTimer());
+  }
+}
@@ -1,5 +1,9 @@
 package com.lordsofmidnight.gamestate.maps;
 
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.enums.Direction;
 import java.util.Arrays;
 import org.junit.jupiter.api.Test;
 
@@ -40,4 +44,33 @@ public class MapTests {
 
     assert (map.equals(recievedMap));
   }
+
+  @Test
+  void cellTables() {
+    int[][] mapArr = {{1, 0, 1}, {1, 0, 1}, {0, 0, 0}, {1, 1, 1}};
+    Map map = new Map(mapArr);
+    assertEquals(12, map.getCellCount());
+    assertTrue(map.isWall(0));
+    assertFalse(map.isWall(5));
+    assertEquals(map.isWall(new Point(1.5, 1.5)), map.isWall(5));
+    assertTrue(map.isWall(-0.5, 1.5)); // wraps onto (3, 1)
+
+    int cell = 5; // (1, 1)
+    assertEquals(1, map.neighbour(cell, Direction.UP));
+    assertEquals(9, map.neighbour(cell, Direction.DOWN));
+    assertEquals(4, map.neighbour(cell, Direction.LEFT));
+    assertEquals(6, map.neighbour(cell, Direction.RIGHT));
+    assertEquals(cell, map.neighbour(cell, Direction.STOP));
+    assertEquals(7, map.neighbour(4, Direction.LEFT.toInt())); // loops around the boundary
+    assertEquals(10, map.neighbour(2, Direction.UP.toInt()));
+
+    int leftRight = (1 << Direction.LEFT.toInt()) | (1 << Direction.RIGHT.toInt());
+    assertEquals(leftRight, map.validDirections(cell));
+    assertTrue(map.isValidDirection(cell, Direction.LEFT));
+    assertFalse(map.isValidDirection(cell, Direction.UP));
+    assertFalse(map.isValidDirection(cell, Direction.STOP));
+    assertEquals(0, map.validDirections(0)); // walls cannot be moved from
+    // (2, 0) is open to (2, 2) through the loop around the top of the map
+    assertTrue(map.isValidDirection(2, Direction.UP));
+  }
 }
@@ -0,0 +1,60 @@
+package com.lordsofmidnight.gamestate.maps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.objects.Entity;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link OccupancyGrid} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class OccupancyGridTest {
+
+  private static final int[][] testMapRaw = {
+      {1, 1, 1, 1, 1, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 0, 1, 1, 0, 1},
+      {1, 0, 0, 0, 0, 1},
+      {1, 1, 1, 1, 1, 1}
+  };
+  private static final Map testMap = new Map(testMapRaw);
+
+  @Test
+  void update() {
+    Entity[] agents = {
+        new Entity(true, 0, new Point(1.5, 1.5)), new Entity(false, 1, new Point(3.5, 4.5))
+    };
+    OccupancyGrid grid = new OccupancyGrid(testMap);
+    grid.update(agents);
+    assertTrue(grid.containsMipsman(new Point(1.2, 1.8)));
+    assertFalse(grid.containsGhoul(new Point(1.5, 1.5)));
+    assertTrue(grid.containsGhoul(new Point(3.5, 4.5)));
+    assertEquals(0b10, grid.getOccupants(grid.cellOf(new Point(3, 4))));
+
+    agents[1].setLocation(new Point(1.5, 1.5));
+    grid.update(agents);
+    assertFalse(grid.isOccupied(new Point(3.5, 4.5)));
+    assertEquals(0b11, grid.getOccupants(grid.cellOf(new Point(1, 1))));
+    assertTrue(grid.containsGhoul(new Point(1.5, 1.5)));
+  }
+
+  @Test
+  void flags() {
+    Entity[] agents = {
+        new Entity(false, 0, new Point(1.5, 1.5)), new Entity(false, 1, new Point(3.5, 1.5))
+    };
+    OccupancyGrid grid = new OccupancyGrid(testMap);
+    grid.update(agents);
+    assertFalse(grid.containsInvincible(new Point(3.5, 1.5)));
+    agents[1].setInvincible(true);
+    grid.update(agents);
+    assertTrue(grid.containsInvincible(new Point(3.5, 1.5)));
+    assertFalse(grid.containsInvincible(new Point(1.5, 1.5)));
+    assertTrue(grid.containsLiving(new Point(1.5, 1.5)));
+  }
+}
@@ -0,0 +1,83 @@
+package com.lordsofmidnight.gamestate.points;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.utils.enums.Direction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link Cells} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class CellsTest {
+
+  private static final int MAX_X = 5;
+  private static final int MAX_Y = 4;
+
+  @Test
+  void cellOf() {
+    assertEquals(7, Cells.cellOf(2.5, 1.5, MAX_X, MAX_Y));
+    assertEquals(Cells.index(4, 3, MAX_X), Cells.cellOf(-0.5, -0.5, MAX_X, MAX_Y));
+    assertEquals(Cells.index(0, 0, MAX_X), Cells.cellOf(5.2, 4.9, MAX_X, MAX_Y));
+    assertEquals(2, Cells.getX(7, MAX_X));
+    assertEquals(1, Cells.getY(7, MAX_X));
+    assertEquals(2.5, Cells.centreX(7, MAX_X), 1e-9);
+    assertEquals(1.5, Cells.centreY(7, MAX_X), 1e-9);
+  }
+
+  @Test
+  void neighbour() {
+    int cell = Cells.index(0, 0, MAX_X);
+    assertEquals(Cells.index(0, 3, MAX_X), Cells.neighbour(cell, Direction.UP, MAX_X, MAX_Y));
+    assertEquals(Cells.index(0, 1, MAX_X), Cells.neighbour(cell, Direction.DOWN, MAX_X, MAX_Y));
+    assertEquals(Cells.index(4, 0, MAX_X), Cells.neighbour(cell, Direction.LEFT, MAX_X, MAX_Y));
+    assertEquals(Cells.index(1, 0, MAX_X), Cells.neighbour(cell, Direction.RIGHT, MAX_X, MAX_Y));
+    assertEquals(cell, Cells.neighbour(cell, Direction.STOP, MAX_X, MAX_Y));
+    assertEquals(cell, Cells.neighbour(cell, (Direction) null, MAX_X, MAX_Y));
+  }
+
+  @Test
+  void wrap() {
+    assertEquals(4.5, Cells.wrap(-0.5, MAX_X), 1e-9);
+    assertEquals(0.5, Cells.wrap(10.5, MAX_X), 1e-9);
+    assertEquals(0.0, Cells.wrap(-1e-18, MAX_X));
+    assertEquals(-3.0, Cells.wrap(-3.0, 0)); // unbounded
+  }
+
+  @Test
+  void movedMatchesPoint() {
+    double[][] starts = {{0.5, 0.5}, {4.9, 2.3}, {2.1, 3.95}, {0.05, 1.5}};
+    for (double[] start : starts) {
+      for (Direction d : Direction.values()) {
+        Point moved = new Point(start[0], start[1], MAX_X, MAX_Y).moveInDirection(0.5, d);
+        assertEquals(moved.getX(), Cells.movedX(start[0], d, 0.5, MAX_X), 1e-9);
+        assertEquals(moved.getY(), Cells.movedY(start[1], d, 0.5, MAX_Y), 1e-9);
+      }
+    }
+    Point p = new Point(4.9, 2.3, MAX_X, MAX_Y);
+    assertEquals(0.4, p.getMovedX(0.5, Direction.RIGHT), 1e-9);
+    assertEquals(2.5, p.getMovedY(0.5, Direction.RIGHT), 1e-9);
+    assertEquals(4.9, p.getX(), 1e-9); // the point itself does not move
+  }
+
+  @Test
+  void isCentered() {
+    assertTrue(Cells.isCentered(2.5, 3.6));
+    assertFalse(Cells.isCentered(2.5, 3.8));
+    assertEquals(new Point(1.31, 1.69).isCentered(), Cells.isCentered(1.31, 1.69));
+  }
+
+  @Test
+  void inRange() {
+    assertTrue(Cells.inRange(1.5, 1.5, 1.2, 1.1, MAX_X, MAX_Y));
+    assertFalse(Cells.inRange(1.5, 1.5, 0.9, 1.5, MAX_X, MAX_Y));
+    // as Point, a negative difference is wrapped onto the map
+    assertFalse(Cells.inRange(1.2, 1.5, 1.5, 1.5, MAX_X, MAX_Y));
+    assertTrue(Cells.inRange(1.2, 1.5, 1.5, 1.5, 0, 0));
+    Point a = new Point(1.2, 1.5, MAX_X, MAX_Y);
+    assertEquals(a.inRange(new Point(1.5, 1.5, MAX_X, MAX_Y)), a.inRange(1.5, 1.5));
+  }
+}
@@ -2,59 +2,173 @@ package com.lordsofmidnight.gamestate.points;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Iterator;
+import java.util.Map.Entry;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PointMapTest {
 
+  private static final com.lordsofmidnight.gamestate.maps.Map map =
+      new com.lordsofmidnight.gamestate.maps.Map(new int[4][3]);
+
+  private static PointMap<String> filled() {
+    PointMap<String> pointMap = new PointMap<>(map);
+    pointMap.put(new Point(2, 1), "a");
+    pointMap.put(new Point(0, 0), "b");
+    pointMap.put(new Point(3.5, 2.5), "c");
+    return pointMap;
+  }
+
   @Test
   void getShallowClone() {
+    PointMap<String> pointMap = filled();
+    PointMap<String> clone = pointMap.getShallowClone();
+    assertTrue(clone.isEmpty());
+    assertEquals(pointMap.getCellCount(), clone.getCellCount());
+    clone.put(new Point(1, 1), "d");
+    assertFalse(pointMap.containsKey(new Point(1, 1)));
   }
 
   @Test
   void clear() {
+    PointMap<String> pointMap = filled();
+    pointMap.clear();
+    assertTrue(pointMap.isEmpty());
+    assertNull(pointMap.get(new Point(2, 1)));
+    assertEquals(-1, pointMap.nextCell(0));
   }
 
   @Test
   void containsKey() {
+    PointMap<String> pointMap = filled();
+    assertTrue(pointMap.containsKey(new Point(2.5, 1.5)));
+    assertFalse(pointMap.containsKey(new Point(1, 1)));
+    assertFalse(pointMap.containsKey(new Point(-1, 1)));
+    assertFalse(pointMap.containsKey("a"));
+    pointMap.put(new Point(1, 1), null);
+    assertTrue(pointMap.containsKey(new Point(1, 1)));
   }
 
   @Test
   void containsValue() {
+    PointMap<String> pointMap = filled();
+    assertTrue(pointMap.containsValue("c"));
+    assertFalse(pointMap.containsValue("d"));
+    assertFalse(pointMap.containsValue(null));
   }
 
   @Test
   void get() {
+    PointMap<String> pointMap = filled();
+    assertEquals("a", pointMap.get(new Point(2.9, 1.1)));
+    assertEquals("c", pointMap.get(new Point(3, 2)));
+    assertNull(pointMap.get(new Point(1, 2)));
+    assertNull(pointMap.get(new Point(4, 2))); // off the map
   }
 
   @Test
   void getOrDefault() {
+    PointMap<String> pointMap = filled();
+    assertEquals("b", pointMap.getOrDefault(new Point(0, 0), "z"));
+    assertEquals("z", pointMap.getOrDefault(new Point(1, 0), "z"));
   }
 
   @Test
   void isEmpty() {
+    PointMap<String> pointMap = new PointMap<>(map);
+    assertTrue(pointMap.isEmpty());
+    pointMap.put(new Point(1, 1), "a");
+    assertFalse(pointMap.isEmpty());
   }
 
   @Test
   void keySet() {
+    PointMap<String> pointMap = filled();
+    Point key = new Point(3.5, 2.5);
+    assertEquals(3, pointMap.keySet().size());
+    assertTrue(pointMap.keySet().contains(new Point(2, 1)));
+    // the keys are the points given, in cell index order
+    Iterator<Point> keys = pointMap.keySet().iterator();
+    assertEquals(new Point(0, 0), keys.next());
+    assertEquals(new Point(2, 1), keys.next());
+    assertEquals(key, keys.next());
+    assertFalse(keys.hasNext());
+    assertTrue(pointMap.keySet().remove(new Point(2, 1)));
+    assertFalse(pointMap.containsKey(new Point(2, 1)));
   }
 
   @Test
   void put() {
+    PointMap<String> pointMap = filled();
+    assertEquals("a", pointMap.put(new Point(2.5, 1.5), "d"));
+    assertNull(pointMap.put(new Point(1, 2), "e"));
+    assertEquals(4, pointMap.size());
+    assertEquals("d", pointMap.get(new Point(2, 1)));
+    assertThrows(IllegalArgumentException.class, () -> pointMap.put(new Point(0, 3), "f"));
   }
 
   @Test
   void remove() {
+    PointMap<String> pointMap = filled();
+    assertEquals("a", pointMap.remove(new Point(2, 1)));
+    assertNull(pointMap.remove(new Point(2, 1)));
+    assertNull(pointMap.remove("a"));
+    assertEquals(2, pointMap.size());
   }
 
   @Test
   void size() {
+    PointMap<String> pointMap = filled();
+    assertEquals(3, pointMap.size());
+    pointMap.put(new Point(0, 0), "d");
+    assertEquals(3, pointMap.size());
   }
 
   @Test
   void values() {
+    PointMap<String> pointMap = filled();
+    Iterator<String> values = pointMap.values().iterator();
+    assertEquals("b", values.next());
+    assertEquals("a", values.next());
+    values.remove();
+    assertEquals("c", values.next());
+    assertEquals(2, pointMap.size());
+    // the view reflects later changes
+    pointMap.put(new Point(1, 1), "d");
+    assertTrue(pointMap.values().contains("d"));
+    assertSame(pointMap.values(), pointMap.values());
   }
 
   @Test
   void entrySet() {
+    PointMap<String> pointMap = filled();
+    assertEquals(3, pointMap.entrySet().size());
+    for (Entry<Point, String> entry : pointMap.entrySet()) {
+      if (entry.getKey().equals(new Point(2, 1))) {
+        assertEquals("a", entry.setValue("d"));
+      }
+    }
+    assertEquals("d", pointMap.get(new Point(2, 1)));
+  }
+
+  @Test
+  void cells() {
+    PointMap<String> pointMap = filled();
+    assertEquals(12, pointMap.getCellCount());
+    int cell = pointMap.cellOf(new Point(2.5, 1.5));
+    assertEquals(6, cell);
+    assertEquals(-1, pointMap.cellOf(new Point(4, 0)));
+    assertEquals("a", pointMap.getAt(cell));
+    assertTrue(pointMap.containsCell(cell));
+    assertEquals(0, pointMap.nextCell(0));
+    assertEquals(6, pointMap.nextCell(1));
+    assertEquals(11, pointMap.nextCell(7));
+    assertEquals(-1, pointMap.nextCell(12));
+    assertNull(pointMap.putAt(5, "d"));
+    assertEquals(new Point(1, 1), pointMap.keySet().toArray()[1]);
+    assertEquals("a", pointMap.removeAt(cell));
+    assertFalse(pointMap.containsCell(cell));
+    assertEquals(3, pointMap.size());
   }
-}
\ No newline at end of file
+}
@@ -2,67 +2,205 @@ package com.lordsofmidnight.gamestate.points;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PointSetTest {
 
+  // wide enough that the cells span two words of the bitset
+  private static final com.lordsofmidnight.gamestate.maps.Map map =
+      new com.lordsofmidnight.gamestate.maps.Map(new int[20][5]);
+
+  private static PointSet of(Point... points) {
+    PointSet set = new PointSet(map);
+    for (Point p : points) {
+      set.add(p);
+    }
+    return set;
+  }
+
   @Test
   void getShallowClone() {
+    PointSet set = of(new Point(1, 1));
+    PointSet clone = set.getShallowClone();
+    assertTrue(clone.isEmpty());
+    assertEquals(set.getCellCount(), clone.getCellCount());
   }
 
   @Test
   void contains() {
+    PointSet set = of(new Point(3, 4));
+    assertTrue(set.contains(new Point(3.5, 4.5)));
+    assertFalse(set.contains(new Point(4, 3)));
+    assertFalse(set.contains(new Point(20, 4))); // off the map
+    assertFalse(set.contains("a"));
   }
 
   @Test
   void add() {
+    PointSet set = new PointSet(map);
+    assertTrue(set.add(new Point(1, 2)));
+    assertFalse(set.add(new Point(1.5, 2.5)));
+    assertEquals(1, set.size());
+    assertThrows(IllegalArgumentException.class, () -> set.add(new Point(-1, 2)));
   }
 
   @Test
   void remove() {
+    PointSet set = of(new Point(1, 2), new Point(19, 4));
+    assertTrue(set.remove(new Point(19, 4)));
+    assertFalse(set.remove(new Point(19, 4)));
+    assertFalse(set.remove("a"));
+    assertEquals(1, set.size());
   }
 
   @Test
   void addAll() {
+    PointSet set = of(new Point(1, 2));
+    List<Point> list = new ArrayList<>();
+    list.add(new Point(1, 2));
+    list.add(new Point(2, 2));
+    assertTrue(set.addAll(list));
+    assertFalse(set.addAll(list));
+    assertTrue(set.addAll(of(new Point(15, 4))));
+    assertEquals(3, set.size());
   }
 
   @Test
   void removeAll() {
+    PointSet set = of(new Point(1, 2), new Point(2, 2), new Point(15, 4));
+    assertTrue(set.removeAll(of(new Point(15, 4), new Point(0, 0))));
+    List<Point> list = new ArrayList<>();
+    list.add(new Point(1, 2));
+    assertTrue(set.removeAll(list));
+    assertFalse(set.removeAll(list));
+    assertEquals(1, set.size());
+    assertTrue(set.contains(new Point(2, 2)));
   }
 
   @Test
   void retainAll() {
+    PointSet set = of(new Point(1, 2), new Point(2, 2), new Point(15, 4));
+    assertTrue(set.retainAll(of(new Point(15, 4), new Point(2, 2))));
+    assertFalse(set.retainAll(of(new Point(15, 4), new Point(2, 2))));
+    List<Point> list = new ArrayList<>();
+    list.add(new Point(2, 2));
+    assertTrue(set.retainAll(list));
+    assertEquals(1, set.size());
+    assertTrue(set.contains(new Point(2, 2)));
   }
 
   @Test
   void containsAll() {
+    PointSet set = of(new Point(1, 2), new Point(15, 4));
+    assertTrue(set.containsAll(of(new Point(15, 4))));
+    assertFalse(set.containsAll(of(new Point(15, 4), new Point(0, 0))));
+    List<Point> list = new ArrayList<>();
+    list.add(new Point(1, 2));
+    assertTrue(set.containsAll(list));
   }
 
   @Test
   void toArray() {
+    Point first = new Point(1.5, 0.5);
+    PointSet set = of(new Point(15, 4), first);
+    Point[] points = set.toArray();
+    assertEquals(2, points.length);
+    assertSame(first, points[0]); // in cell index order, as the points were added
+    assertEquals(new Point(15, 4), points[1]);
   }
 
   @Test
   void toArray1() {
+    PointSet set = of(new Point(1, 2));
+    assertEquals(1, set.toArray(new Point[0]).length);
+    assertThrows(ArrayStoreException.class, () -> set.toArray(new Object[0]));
   }
 
   @Test
   void size() {
+    PointSet set = of(new Point(1, 2), new Point(1, 2), new Point(2, 1));
+    assertEquals(2, set.size());
   }
 
   @Test
   void clear() {
+    PointSet set = of(new Point(1, 2), new Point(15, 4));
+    set.clear();
+    assertTrue(set.isEmpty());
+    assertFalse(set.contains(new Point(1, 2)));
+    assertEquals(-1, set.nextCell(0));
   }
 
   @Test
   void isEmpty() {
+    PointSet set = new PointSet(map);
+    assertTrue(set.isEmpty());
+    set.add(new Point(0, 0));
+    assertFalse(set.isEmpty());
   }
 
   @Test
   void cloneTest() {
+    PointSet set = of(new Point(1, 2), new Point(15, 4));
+    PointSet clone = set.clone();
+    assertEquals(set, clone);
+    clone.remove(new Point(1, 2));
+    assertTrue(set.contains(new Point(1, 2)));
   }
 
   @Test
   void iterator() {
+    PointSet set = of(new Point(15, 4), new Point(1, 2), new Point(2, 2));
+    Iterator<Point> iterator = set.iterator();
+    assertEquals(new Point(1, 2), iterator.next());
+    iterator.remove();
+    assertEquals(new Point(2, 2), iterator.next());
+    assertEquals(new Point(15, 4), iterator.next());
+    assertFalse(iterator.hasNext());
+    assertEquals(2, set.size());
+    // removing while looping does not disturb the loop
+    for (Point p : set) {
+      set.remove(p);
+    }
+    assertTrue(set.isEmpty());
+  }
+
+  @Test
+  void setAlgebra() {
+    PointSet a = of(new Point(1, 1), new Point(2, 1), new Point(15, 4));
+    PointSet b = of(new Point(2, 1), new Point(15, 4), new Point(19, 0));
+    PointSet and = a.clone();
+    assertTrue(and.and(b));
+    assertEquals(of(new Point(2, 1), new Point(15, 4)), and);
+    PointSet or = a.clone();
+    assertTrue(or.or(b));
+    assertEquals(4, or.size());
+    PointSet andNot = a.clone();
+    assertTrue(andNot.andNot(b));
+    assertEquals(of(new Point(1, 1)), andNot);
+    assertFalse(andNot.intersects(b));
+    assertTrue(a.intersects(b));
+    PointSet other = new PointSet(new com.lordsofmidnight.gamestate.maps.Map(new int[4][4]));
+    assertThrows(IllegalArgumentException.class, () -> a.and(other));
+  }
+
+  @Test
+  void cells() {
+    PointSet set = of(new Point(3, 2), new Point(15, 4));
+    int cell = set.cellOf(new Point(3.5, 2.5));
+    assertEquals(43, cell);
+    assertTrue(set.containsCell(cell));
+    assertEquals(43, set.nextCell(0));
+    assertEquals(95, set.nextCell(44));
+    assertEquals(-1, set.nextCell(96));
+    assertTrue(set.addCell(0));
+    assertEquals(new Point(0, 0), set.getAt(0));
+    assertTrue(set.removeCell(cell));
+    assertFalse(set.removeCell(cell));
+    assertEquals(2, set.size());
   }
-}
\ No newline at end of file
+}
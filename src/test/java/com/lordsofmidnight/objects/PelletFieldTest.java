@@ -0,0 +1,137 @@
+package com.lordsofmidnight.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.points.Point;
+import com.lordsofmidnight.utils.GameRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link PelletField} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class PelletFieldTest {
+
+  // wide enough that the cells span two words of the bitsets
+  private static final Map map = new Map(new int[20][5]);
+
+  @Test
+  void respawnMatchesPellet() {
+    Pellet loose = new Pellet(new Point(3.5, 2.5), new GameRandom(7));
+    Pellet held = new Pellet(new Point(3.5, 2.5), new GameRandom(7));
+    PelletField field = new PelletField(map);
+    field.put(held.getLocation(), held);
+    for (int tick = 0; tick < 6000; tick++) {
+      if (tick == 10 || tick == 500 || tick == 3500) {
+        loose.setActive(false);
+        held.setActive(false);
+      }
+      if (tick == 600) {
+        loose.setActive(true);
+        held.setActive(true);
+      }
+      loose.incrementRespawn();
+      field.tick();
+      held.incrementRespawn(); // does nothing while held by the field
+      assertEquals(loose.isActive(), held.isActive(), "tick " + tick);
+      assertEquals(loose.getRespawnCount(), held.getRespawnCount(), "tick " + tick);
+    }
+  }
+
+  @Test
+  void mineHides() {
+    PelletField field = new PelletField(map);
+    Entity placer = new Entity(false, 0, new Point(0, 0));
+    MinePellet mine = new MinePellet(15.5, 4.5, placer, new GameRandom(1));
+    field.put(mine.getLocation(), mine);
+    int cell = field.cellOf(mine.getLocation());
+    assertEquals(PelletField.MINE, field.getKind(cell));
+    for (int tick = 1; tick < mine.getHiddenTime(); tick++) {
+      field.tick();
+    }
+    assertFalse(mine.isHidden());
+    field.tick();
+    assertTrue(mine.isHidden());
+    assertEquals(mine.getHiddenTime(), mine.getRespawnCount());
+    field.setToReplace(cell);
+    assertTrue(mine.isDetonated());
+    assertEquals(cell, field.nextToReplace(0));
+    field.tick();
+    assertEquals(mine.getHiddenTime(), mine.getRespawnCount()); // stops counting once detonated
+  }
+
+  @Test
+  void dirtyList() {
+    PelletField field = new PelletField(map);
+    Pellet a = new Pellet(new Point(1.5, 0.5), new GameRandom(1));
+    Pellet b = new Pellet(new Point(17.5, 4.5), new GameRandom(2));
+    field.put(a.getLocation(), a);
+    field.put(b.getLocation(), b);
+    assertEquals(2, field.getDirtyCount());
+    field.clearDirty();
+    assertEquals(0, field.getDirtyCount());
+    b.setActive(false);
+    b.setActive(false);
+    field.tick();
+    assertEquals(1, field.getDirtyCount());
+    assertEquals(field.cellOf(b.getLocation()), field.getDirtyCell(0));
+    field.clearDirty();
+    for (int tick = 2; tick < b.getRespawnTime(); tick++) { // the first tick counted one
+      field.tick();
+    }
+    assertEquals(0, field.getDirtyCount()); // nothing changes while waiting to respawn
+    field.tick();
+    assertTrue(b.isActive());
+    assertEquals(1, field.getDirtyCount());
+  }
+
+  @Test
+  void replace() {
+    PelletField field = new PelletField(map);
+    PowerUpBox box = new PowerUpBox(new Point(2.5, 3.5), new GameRandom(1));
+    field.put(box.getLocation(), box);
+    int cell = field.cellOf(box.getLocation());
+    assertEquals(PelletField.POWER_UP_BOX, field.getKind(cell));
+    assertEquals(-1, field.nextToReplace(0));
+    field.setToReplace(cell);
+    assertTrue(box.replace());
+    assertEquals(cell, field.nextToReplace(0));
+    Pellet replacement = new Pellet(box.getLocation(), new GameRandom(2));
+    field.put(replacement.getLocation(), replacement);
+    assertEquals(-1, field.nextToReplace(0));
+    assertEquals(PelletField.PELLET, field.getKind(cell));
+    assertTrue(box.replace()); // the state is kept by the box once removed
+  }
+
+  @Test
+  void bindAndUnbind() {
+    PelletField field = new PelletField(map);
+    Pellet pellet = new Pellet(new Point(4.5, 1.5), new GameRandom(1));
+    pellet.setActive(false);
+    for (int i = 0; i < 5; i++) {
+      pellet.incrementRespawn();
+    }
+    field.put(pellet.getLocation(), pellet);
+    assertFalse(pellet.isActive());
+    assertEquals(5, pellet.getRespawnCount());
+    field.tick();
+    assertEquals(6, pellet.getRespawnCount());
+    assertThrows(IllegalArgumentException.class, () -> field.put(new Point(0, 0), pellet));
+    field.remove(pellet.getLocation());
+    int cell = field.cellOf(pellet.getLocation());
+    assertEquals(PelletField.NONE, field.getKind(cell));
+    assertFalse(field.isActive(cell));
+    field.tick();
+    assertEquals(6, pellet.getRespawnCount()); // counts by itself once removed
+    pellet.incrementRespawn();
+    assertEquals(7, pellet.getRespawnCount());
+    field.put(pellet.getLocation(), pellet);
+    field.clear();
+    assertEquals(7, pellet.getRespawnCount());
+  }
+}
@@ -8,6 +8,7 @@ import com.lordsofmidnight.objects.powerUps.Invincible;
 import com.lordsofmidnight.objects.powerUps.PowerUp;
 import com.lordsofmidnight.objects.powerUps.Rocket;
 import com.lordsofmidnight.objects.powerUps.Speed;
+import com.lordsofmidnight.utils.GameRandom;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import org.junit.jupiter.api.Test;
@@ -23,10 +24,10 @@ public class PowerupTests {
     Entity[] agents = new Entity[]{entity};
     PowerUp powerUp = new Speed();
     AudioController controller = new AudioController(1);
-    powerUp.use(entity, activePowerups, pellets, agents, controller);
+    powerUp.use(entity, activePowerups, pellets, agents, controller, new GameRandom(1));
     assert (entity.isSpeeding());
     powerUp = new Invincible();
-    powerUp.use(entity, activePowerups, pellets, agents, controller);
+    powerUp.use(entity, activePowerups, pellets, agents, controller, new GameRandom(1));
     assert (entity.isInvincible());
   }
 
@@ -43,7 +44,7 @@ public class PowerupTests {
     entity2.setScore(2);
     Entity[] agents = new Entity[]{entity1, entity2};
     Rocket rocket = new Rocket();
-    rocket.use(entity2, activePowerups, pellets, agents, controller);
+    rocket.use(entity2, activePowerups, pellets, agents, controller, new GameRandom(1));
     assert (rocket.getTargeted() == entity1);
   }
 }
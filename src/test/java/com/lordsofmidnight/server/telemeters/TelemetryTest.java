@@ -0,0 +1,87 @@
+package com.lordsofmidnight.server.telemeters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.lordsofmidnight.gamestate.WorldState;
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.maps.MapGenerator;
+import com.lordsofmidnight.utils.GameRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link Telemetry} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class TelemetryTest {
+
+  private static final long SEED = 3L;
+  private static final int TICKS = 3000;
+
+  /**
+   * Steps a game and a {@link WorldState} captured from it side by side, so that the rules of the
+   * two stay in step. The state is captured again every tick, as the two draw their random numbers
+   * differently: what is in power up boxes and when replaced pellets respawn are not compared, and
+   * a tick in which an agent moved to a spawn point is skipped, as where it lands decides what it
+   * collects.
+   */
+  @Test
+  void captureWorldStateSteps() {
+    Map map = new Map(MapGenerator.newRandomMap(1, 1, new GameRandom(SEED)));
+    HostTelemetry telemetry = new HostTelemetry(map, new GameRandom(SEED));
+    GameRandom random = new GameRandom(SEED);
+    for (int tick = 0; tick < TICKS && !telemetry.isFinished(); tick++) {
+      telemetry.getAI().runCycle();
+      telemetry.processInputs();
+      WorldState state = telemetry.captureWorldState();
+      telemetry.processPhysics(
+          telemetry.agents,
+          map,
+          telemetry.resourceLoader,
+          telemetry.pellets,
+          telemetry.activePowerUps);
+      state.step(random);
+      WorldState expected = telemetry.captureWorldState();
+      if (movedToSpawn(expected, state)) {
+        continue;
+      }
+      for (int agent = 0; agent < state.getAgentCount(); agent++) {
+        String at = "tick " + tick + ", agent " + agent;
+        assertEquals(expected.isDead(agent), state.isDead(agent), at);
+        assertEquals(expected.getX(agent), state.getX(agent), at);
+        assertEquals(expected.getY(agent), state.getY(agent), at);
+        assertEquals(expected.getDirection(agent), state.getDirection(agent), at);
+        assertEquals(expected.getVelocity(agent), state.getVelocity(agent), at);
+        assertEquals(expected.isMipsman(agent), state.isMipsman(agent), at);
+        assertEquals(expected.isStunned(agent), state.isStunned(agent), at);
+        assertEquals(expected.isInvincible(agent), state.isInvincible(agent), at);
+        assertEquals(expected.getScore(agent), state.getScore(agent), at);
+        assertEquals(expected.getKills(agent), state.getKills(agent), at);
+      }
+      for (int cell = 0; cell < map.getMaxX() * map.getMaxY(); cell++) {
+        String at = "tick " + tick + ", cell " + cell;
+        assertEquals(expected.getPelletKind(cell), state.getPelletKind(cell), at);
+        assertEquals(expected.isPelletActive(cell), state.isPelletActive(cell), at);
+      }
+      assertEquals(expected.getActivePowerUpCount(), state.getActivePowerUpCount());
+      assertEquals(expected.getGameTimer(), state.getGameTimer());
+    }
+  }
+
+  /**
+   * @param expected The state of the game
+   * @param state The state stepped alongside it
+   * @return True if a dead agent is somewhere else in the two states, as it moved to a randomly
+   *     chosen spawn point
+   */
+  private static boolean movedToSpawn(WorldState expected, WorldState state) {
+    for (int agent = 0; agent < state.getAgentCount(); agent++) {
+      if (expected.isDead(agent)
+          && (expected.getX(agent) != state.getX(agent)
+              || expected.getY(agent) != state.getY(agent))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
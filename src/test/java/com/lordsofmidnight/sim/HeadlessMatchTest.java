@@ -0,0 +1,41 @@
+package com.lordsofmidnight.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.Map;
+import com.lordsofmidnight.gamestate.maps.MapGenerator;
+import com.lordsofmidnight.utils.GameRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link HeadlessMatch} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class HeadlessMatchTest {
+
+  private static final long SEED = 3L;
+  private static final long UNLIMITED_BUDGET = Long.MAX_VALUE; // so no search is cut short
+
+  @Test
+  void play() {
+    Map map = new Map(MapGenerator.newRandomMap(1, 1, new GameRandom(SEED)));
+    MatchResult result = new HeadlessMatch(map, SEED, UNLIMITED_BUDGET).play();
+    assertTrue(result.getTicks() > 0);
+    assertTrue(result.getMipsman() >= 0);
+  }
+
+  @Test
+  void playSameSeed() {
+    Map map = new Map(MapGenerator.newRandomMap(1, 1, new GameRandom(SEED)));
+    MatchResult a = new HeadlessMatch(map, SEED, UNLIMITED_BUDGET).play();
+    MatchResult b = new HeadlessMatch(map, SEED, UNLIMITED_BUDGET).play();
+    assertEquals(a.getTicks(), b.getTicks());
+    assertEquals(a.getWinner(), b.getWinner());
+    for (int id = 0; id < a.getAgentCount(); id++) {
+      assertEquals(a.getScore(id), b.getScore(id));
+      assertEquals(a.getKills(id), b.getKills(id));
+    }
+  }
+}
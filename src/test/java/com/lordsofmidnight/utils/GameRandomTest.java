@@ -0,0 +1,58 @@
+package com.lordsofmidnight.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lordsofmidnight.gamestate.maps.MapGenerator;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link GameRandom} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class GameRandomTest {
+
+  private static final long SEED = 8L;
+  private static final int SAMPLES = 100;
+  private static final int BOUND = 30;
+
+  @Test
+  void sameSeed() {
+    GameRandom a = new GameRandom(SEED);
+    GameRandom b = new GameRandom(SEED);
+    for (int i = 0; i < SAMPLES; i++) {
+      assertEquals(a.nextInt(BOUND), b.nextInt(BOUND));
+      assertEquals(a.nextDouble(), b.nextDouble());
+    }
+  }
+
+  @Test
+  void split() {
+    GameRandom a = new GameRandom(SEED);
+    GameRandom b = new GameRandom(SEED);
+    GameRandom splitA = a.split();
+    GameRandom splitB = b.split();
+    for (int i = 0; i < SAMPLES; i++) {
+      assertEquals(splitA.nextLong(), splitB.nextLong());
+      assertEquals(a.nextLong(), b.nextLong());
+    }
+  }
+
+  @Test
+  void nextIntBounds() {
+    GameRandom random = new GameRandom(SEED);
+    for (int i = 0; i < SAMPLES; i++) {
+      int value = random.nextInt(BOUND);
+      assertTrue(value >= 0 && value < BOUND);
+    }
+  }
+
+  @Test
+  void generateNewMap() {
+    int[][] a = MapGenerator.newRandomMap(1, 1, new GameRandom(SEED));
+    int[][] b = MapGenerator.newRandomMap(1, 1, new GameRandom(SEED));
+    assertTrue(Arrays.deepEquals(a, b));
+  }
+}
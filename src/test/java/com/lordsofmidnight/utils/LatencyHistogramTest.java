@@ -0,0 +1,52 @@
+package com.lordsofmidnight.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link LatencyHistogram} class.
+ *
+ * @author Lewis Ackroyd
+ */
+class LatencyHistogramTest {
+
+  private static final int SAMPLES = 1000;
+
+  @Test
+  void record() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= SAMPLES; i++) {
+      histogram.record(i);
+    }
+    assertEquals(SAMPLES, histogram.getCount());
+    assertEquals((SAMPLES + 1) / 2.0, histogram.getMean());
+    assertEquals(SAMPLES, histogram.getMax());
+  }
+
+  @Test
+  void getPercentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentile(0.5));
+    for (int i = 1; i <= SAMPLES; i++) {
+      histogram.record(i);
+    }
+    long median = histogram.getPercentile(0.5);
+    assertTrue(median >= SAMPLES / 2 && median <= (SAMPLES / 2) * 9 / 8); // within one bucket
+    assertEquals(SAMPLES, histogram.getPercentile(1));
+  }
+
+  @Test
+  void add() {
+    LatencyHistogram a = new LatencyHistogram();
+    LatencyHistogram b = new LatencyHistogram();
+    a.record(10);
+    b.record(1_000_000);
+    b.record(-5);
+    a.add(b);
+    assertEquals(3, a.getCount());
+    assertEquals(1_000_000, a.getMax());
+    assertEquals(0, a.getPercentile(0));
+  }
+}